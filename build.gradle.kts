@@ -1,7 +1,12 @@
+import java.io.ByteArrayOutputStream
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+
 plugins {
     id("java")
     id("application")
     id("org.graalvm.buildtools.native") version "0.10.1"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.amankrmj.capyverse"
@@ -24,6 +29,74 @@ dependencies {
 application {
     mainClass.set("com.amankrmj.capyverse.Main")
     applicationName = "capyverse_cli"
+    // Rewritten to the distribution's lib directory by startScripts below
+    applicationDefaultJvmArgs = listOf("-XX:SharedArchiveFile=CAPY_APP_HOME/lib/capy.jsa", "-Xshare:auto")
+}
+
+tasks.named<JavaCompile>("compileJava") {
+    options.compilerArgs.add("-Aproject=${project.group}/${project.name}")
+}
+
+// AppCDS: a training run records the classes a typical invocation loads into a dynamic
+// archive that ships in lib/. The JVM accepts the archive from another directory only
+// when the jars keep their relative layout, so training runs on a copy of lib/. A JVM
+// that cannot use it (other JDK build, changed jars) silently falls back to normal
+// class loading.
+val appCdsLib = tasks.register<Sync>("appCdsLib") {
+    from(tasks.named("jar"))
+    from(configurations.runtimeClasspath)
+    into(layout.buildDirectory.dir("cds/lib"))
+}
+
+val appCdsArchive = tasks.register<JavaExec>("appCdsArchive") {
+    group = "distribution"
+    description = "Records an AppCDS archive of the classes loaded by a typical capy run"
+    dependsOn(appCdsLib)
+
+    val archive = layout.buildDirectory.file("cds/capy.jsa")
+    val trainingHome = layout.buildDirectory.dir("cds/home")
+    val lib = layout.buildDirectory.dir("cds/lib").get()
+    // Same order as the start scripts' CLASSPATH
+    classpath = files(lib.file(tasks.named<Jar>("jar").get().archiveFileName.get())) +
+        files(configurations.runtimeClasspath.get().map { lib.file(it.name) })
+    mainClass.set("com.amankrmj.capyverse.Main")
+    args("java", "current")
+    environment("USERPROFILE", trainingHome.get().asFile.path)
+    jvmArgs("-XX:ArchiveClassesAtExit=${archive.get().asFile.path}")
+    isIgnoreExitValue = true
+    standardOutput = ByteArrayOutputStream()
+    outputs.file(archive)
+}
+
+distributions {
+    main {
+        contents {
+            from(appCdsArchive) {
+                into("lib")
+            }
+        }
+    }
+}
+
+tasks.register<Exec>("startupBenchmark") {
+    group = "verification"
+    description = "Times cold capy invocations against scripts/startup-budget.txt"
+    dependsOn("installDist")
+    val launcher = javaToolchains.launcherFor(java.toolchain)
+    doFirst {
+        environment("JAVA_HOME", launcher.get().metadata.installationPath.asFile.path)
+    }
+    commandLine("bash", "scripts/bench-startup.sh")
+}
+
+tasks.named<CreateStartScripts>("startScripts") {
+    doLast {
+        // The unix script does not expand variables inside DEFAULT_JVM_OPTS, so set it directly
+        unixScript.writeText(unixScript.readText().replace(
+            Regex("(?m)^DEFAULT_JVM_OPTS=.*$"),
+            Regex.escapeReplacement("DEFAULT_JVM_OPTS=\"'-XX:SharedArchiveFile=\$APP_HOME/lib/capy.jsa' -Xshare:auto\"")))
+        windowsScript.writeText(windowsScript.readText().replace("CAPY_APP_HOME/lib/", "%APP_HOME%\\lib\\"))
+    }
 }
 
 graalvmNative {
@@ -40,8 +113,8 @@ graalvmNative {
                 "-H:-CheckToolchain",
                 "--enable-url-protocols=http"
             )
-            // For PicoCLI
-            buildArgs.add("-H:ReflectionConfigurationFiles=${project.layout.buildDirectory.get()}/resources/main/META-INF/native-image/reflect-config.json")
+            // Reflection metadata for the commands comes from picocli-codegen, which writes it to
+            // META-INF/native-image/picocli-generated where native-image picks it up
         }
     }
     
@@ -56,6 +129,8 @@ graalvmNative {
 
 tasks.test {
     useJUnitPlatform()
+    // Keep tests away from the developer's own installs, caches and config
+    environment("CAPY_HOME", layout.buildDirectory.dir("test-capy-home").get().asFile.absolutePath)
     testLogging {
         events("passed", "skipped", "failed")
     }
@@ -124,6 +199,33 @@ tasks.register<Jar>("sourcesJar") {
     from(sourceSets.main.get().allSource)
 }
 
+// Benchmarks (src/jmh/java): gradle jmh, or gradle benchmarkResults to keep a copy
+// Narrow the run with -PjmhInclude=<regex>, e.g. -PjmhInclude=ZipExtractor
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("2s")
+    iterations.set(5)
+    timeOnIteration.set("2s")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    if (project.hasProperty("jmhInclude")) {
+        includes.set(listOf(project.property("jmhInclude").toString()))
+    }
+}
+
+tasks.register<Copy>("benchmarkResults") {
+    dependsOn("jmh")
+    group = "verification"
+    description = "Runs the JMH benchmarks and saves the JSON results under benchmarks/results"
+
+    val stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+    from(layout.buildDirectory.file("results/jmh/results.json"))
+    into(layout.projectDirectory.dir("benchmarks/results"))
+    rename { "jmh-$stamp.json" }
+}
+
 tasks.named<JavaExec>("run") {
     jvmArgs("-Dfile.encoding=UTF-8")
 }
@@ -0,0 +1,29 @@
+#!/usr/bin/env bash
+# Per-invocation latency of `java current` / `java which`, in-process vs. --exec.
+#
+#   scripts/bench-current.sh [runs]
+#
+# CAPY selects the launcher (default: capy on PATH), e.g.
+#   CAPY="java -cp build/classes/java/main:picocli.jar com.amankrmj.capyverse.Main"
+set -euo pipefail
+
+RUNS=${1:-50}
+CAPY=${CAPY:-capy}
+
+bench() {
+    local label=$1
+    shift
+    local start end
+    start=$(date +%s%N)
+    for ((i = 0; i < RUNS; i++)); do
+        $CAPY "$@" > /dev/null 2>&1 || true
+    done
+    end=$(date +%s%N)
+    printf '%-28s %6d ms/run\n' "$label" $(( (end - start) / RUNS / 1000000 ))
+}
+
+echo "runs: $RUNS, launcher: $CAPY"
+bench "current"          java current
+bench "current --exec"   java current --exec
+bench "which"            java which
+bench "which --exec"     java which --exec
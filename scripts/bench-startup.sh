@@ -0,0 +1,93 @@
+#!/usr/bin/env bash
+# Cold-start latency of capy: every sample is a fresh process. Reports median and p90 per
+# mode and command, and fails when a median exceeds scripts/startup-budget.txt.
+#
+#   scripts/bench-startup.sh [runs]
+#
+# Modes, each skipped when its launcher is missing:
+#   jvm      java over the installed jars (gradle installDist), default JDK archive only
+#   jvm-cds  the same plus the shipped AppCDS archive, as the start script runs it
+#   script   the installed start script itself, including its shell overhead
+#   native   build/native/nativeCompile/capy (gradle nativeCompile)
+set -euo pipefail
+
+RUNS=${1:-20}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+DIST=${DIST:-$ROOT/build/install/capyverse_cli}
+NATIVE=${NATIVE:-$ROOT/build/native/nativeCompile/capy}
+BUDGETS=${BUDGETS:-$ROOT/scripts/startup-budget.txt}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+# Commands keep their own empty home so results do not depend on installed JDKs
+export USERPROFILE
+USERPROFILE=$(mktemp -d)
+trap 'rm -rf "$USERPROFILE"' EXIT
+
+declare -A COMMANDS=(
+    [--help]="--help"
+    [java-current]="java current"
+)
+ORDER=(--help java-current)
+failed=0
+
+budget_for() {
+    awk -v mode="$1" -v command="$2" '$1 == mode && $2 == command { print $3 }' "$BUDGETS" 2>/dev/null
+}
+
+measure() {
+    local mode=$1 name=$2
+    shift 2
+    if ! "$@" --version > /dev/null 2>&1; then
+        echo "$mode: launcher does not run: $*" >&2
+        exit 2
+    fi
+    local samples=() start end
+    for ((i = 0; i < RUNS; i++)); do
+        start=$(date +%s%N)
+        "$@" ${COMMANDS[$name]} > /dev/null 2>&1 || true
+        end=$(date +%s%N)
+        samples+=($(( (end - start) / 1000000 )))
+    done
+    local sorted
+    sorted=($(printf '%s\n' "${samples[@]}" | sort -n))
+    local median=${sorted[$(( RUNS / 2 ))]}
+    local p90=${sorted[$(( (RUNS * 9 + 9) / 10 - 1 ))]}
+    local budget verdict=""
+    budget=$(budget_for "$mode" "$name")
+    if [[ -n $budget ]]; then
+        if (( median > budget )); then
+            verdict="OVER budget $budget ms"
+            failed=1
+        else
+            verdict="ok (budget $budget ms)"
+        fi
+    fi
+    printf '%-8s %-14s %6d ms median %6d ms p90  %s\n' "$mode" "$name" "$median" "$p90" "$verdict"
+}
+
+echo "runs: $RUNS"
+if [[ -d $DIST/lib ]]; then
+    # The archive only matches the class path in the start script's order
+    CLASSPATH=$(sed -n 's/^CLASSPATH=//p' "$DIST/bin/capyverse_cli")
+    CLASSPATH=${CLASSPATH//\$APP_HOME/$DIST}
+    for name in "${ORDER[@]}"; do
+        measure jvm "$name" "$JAVA" -cp "$CLASSPATH" com.amankrmj.capyverse.Main
+    done
+    for name in "${ORDER[@]}"; do
+        measure jvm-cds "$name" "$JAVA" -XX:SharedArchiveFile="$DIST/lib/capy.jsa" -Xshare:auto \
+            -cp "$CLASSPATH" com.amankrmj.capyverse.Main
+    done
+    for name in "${ORDER[@]}"; do
+        measure script "$name" "$DIST/bin/capyverse_cli"
+    done
+else
+    echo "skipping jvm modes: $DIST not found (run gradle installDist)"
+fi
+if [[ -x $NATIVE ]]; then
+    for name in "${ORDER[@]}"; do
+        measure native "$name" "$NATIVE"
+    done
+else
+    echo "skipping native mode: $NATIVE not found (run gradle nativeCompile)"
+fi
+exit $failed
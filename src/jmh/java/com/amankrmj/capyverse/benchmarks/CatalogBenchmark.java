@@ -0,0 +1,79 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.amankrmj.capyverse.java.model.JavaCatalog;
+import com.amankrmj.capyverse.java.services.CatalogParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog handling after the response arrives: parsing the JSON, building the sorted
+ * {@link JavaCatalog}, and the lookups {@code install} performs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int entries;
+
+    private String json;
+    private Map<String, String> urls;
+    private JavaCatalog catalog;
+
+    @Setup
+    public void buildCatalog() throws IOException {
+        StringBuilder builder = new StringBuilder("[\n");
+        for (int i = 0; i < entries; i++) {
+            String version = (8 + i % 18) + "." + (i / 18 % 4) + "." + (i / 72);
+            builder.append(i == 0 ? "" : ",\n")
+                    .append("  { \"version\": \"").append(version)
+                    .append("\", \"url\": \"https://download.example.com/jdk/").append(version)
+                    .append("/jdk-").append(version).append("_windows-x64_bin.zip\", \"size\": ")
+                    .append(180_000_000 + i).append(" }");
+        }
+        json = builder.append("\n]").toString();
+        urls = toUrls(CatalogParser.parse(json));
+        catalog = new JavaCatalog(urls);
+    }
+
+    private static Map<String, String> toUrls(List<Map<String, String>> items) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Map<String, String> item : items) {
+            urls.put(item.get("version"), item.get("url"));
+        }
+        return urls;
+    }
+
+    @Benchmark
+    public List<Map<String, String>> parse() throws IOException {
+        return CatalogParser.parse(json);
+    }
+
+    @Benchmark
+    public JavaCatalog build() {
+        return new JavaCatalog(urls);
+    }
+
+    @Benchmark
+    public JavaCatalog.Entry latest() {
+        return catalog.latest("21");
+    }
+
+    @Benchmark
+    public JavaCatalog.Entry find() {
+        return catalog.find("17.2.3");
+    }
+}
@@ -0,0 +1,72 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.amankrmj.capyverse.common.services.HttpService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single-stream copy loop of the download path, from an HTTP body into a file, across
+ * buffer sizes. Uses the shared {@link HttpService} client so connection reuse matches
+ * the real command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CopyLoopBenchmark {
+
+    @Param({"8192", "16384", "65536", "262144", "1048576"})
+    public int bufferSize;
+
+    @Param({"128"})
+    public int payloadMegabytes;
+
+    private RangeHttpServer server;
+    private Path workDir;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        server = new RangeHttpServer(JdkZipFixture.mixed(new Random(7), payloadMegabytes * 1024 * 1024, 0.9), false);
+        workDir = Files.createTempDirectory("capy-bench-copy");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        server.close();
+        JdkZipFixture.deleteTree(workDir);
+    }
+
+    @Benchmark
+    public long copy() throws IOException, InterruptedException {
+        HttpService http = HttpService.shared();
+        HttpResponse<InputStream> response = http.send(
+                http.request(server.url("payload.bin")).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        long written = 0;
+        try (InputStream in = response.body();
+             OutputStream out = Files.newOutputStream(workDir.resolve("payload.bin"))) {
+            byte[] buffer = new byte[bufferSize];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+                written += bytesRead;
+            }
+        }
+        return written;
+    }
+}
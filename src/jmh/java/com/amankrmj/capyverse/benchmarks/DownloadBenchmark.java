@@ -0,0 +1,67 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.amankrmj.capyverse.java.services.JavaDownloadService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaDownloadService#download()} against the loopback {@link RangeHttpServer},
+ * across segment counts. The cached archive and its sidecar are removed before every
+ * invocation, so each one is a full cold download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DownloadBenchmark {
+    private static final String FILE_NAME = "jdk-bench.zip";
+
+    @Param({"1", "2", "4", "8"})
+    public int segments;
+
+    @Param({"128"})
+    public int payloadMegabytes;
+
+    private RangeHttpServer server;
+    private Path workDir;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        server = new RangeHttpServer(JdkZipFixture.mixed(new Random(7), payloadMegabytes * 1024 * 1024, 0.9), true);
+        workDir = Files.createTempDirectory("capy-bench-download");
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() throws IOException {
+        for (String suffix : new String[]{"", ".part", ".state"}) {
+            Files.deleteIfExists(workDir.resolve(FILE_NAME + suffix));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        server.close();
+        JdkZipFixture.deleteTree(workDir);
+    }
+
+    @Benchmark
+    public long download() throws IOException, InterruptedException {
+        JavaDownloadService service = new JavaDownloadService(server.url(FILE_NAME),
+                workDir.toString(), workDir.resolve("install").toString(), FILE_NAME, segments);
+        service.download();
+        return service.getBytesRead();
+    }
+}
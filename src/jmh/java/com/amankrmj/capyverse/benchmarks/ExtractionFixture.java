@@ -0,0 +1,44 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Shared state of the extraction benchmarks: one JDK-shaped archive per trial and an
+ * empty target directory before every invocation, so no run overwrites a previous tree.
+ */
+@State(Scope.Benchmark)
+public abstract class ExtractionFixture {
+
+    @Param({"64"})
+    public int modulesMegabytes;
+
+    protected Path archive;
+    protected Path target;
+    private Path workDir;
+
+    @Setup(Level.Trial)
+    public void createArchive() throws IOException {
+        workDir = Files.createTempDirectory("capy-bench-zip");
+        archive = JdkZipFixture.create(workDir.resolve("jdk.zip"), "21.0.2", modulesMegabytes);
+        target = workDir.resolve("extracted");
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanTarget() throws IOException {
+        JdkZipFixture.deleteTree(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteArchive() throws IOException {
+        JdkZipFixture.deleteTree(workDir);
+    }
+}
@@ -0,0 +1,73 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up installed JDKs: loading the persisted {@link InstalledJavaIndex} while it is
+ * valid, against the directory scan and {@code release} parsing it replaces, which runs
+ * whenever the index is missing or stale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InstalledIndexBenchmark {
+
+    @Param({"4", "32"})
+    public int installed;
+
+    private Path workDir;
+    private Path javaDir;
+    private Path indexFile;
+
+    @Setup(Level.Trial)
+    public void createJdks() throws IOException {
+        workDir = Files.createTempDirectory("capy-bench-index");
+        javaDir = workDir.resolve("java");
+        indexFile = workDir.resolve("installed.idx");
+        for (int i = 0; i < installed; i++) {
+            String version = (8 + i % 18) + ".0." + (i / 18 + 1);
+            Path home = Files.createDirectories(javaDir.resolve("jdk-" + version));
+            Files.createDirectories(home.resolve("bin"));
+            Files.writeString(home.resolve("release"), "JAVA_VERSION=\"" + version + "\"\n"
+                    + "IMPLEMENTOR=\"Eclipse Adoptium\"\nOS_ARCH=\"x86_64\"\nOS_NAME=\"Linux\"\n"
+                    + "MODULES=\"java.base java.compiler java.datatransfer java.desktop java.logging\"\n");
+        }
+        new InstalledJavaIndex(javaDir, indexFile).load();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteJdks() throws IOException {
+        JdkZipFixture.deleteTree(workDir);
+    }
+
+    @Benchmark
+    public Collection<String> indexed() {
+        InstalledJavaIndex index = new InstalledJavaIndex(javaDir, indexFile);
+        index.load();
+        return index.versions();
+    }
+
+    @Benchmark
+    public Collection<String> rescan() throws IOException {
+        Files.deleteIfExists(indexFile);
+        InstalledJavaIndex index = new InstalledJavaIndex(javaDir, indexFile);
+        index.load();
+        return index.versions();
+    }
+}
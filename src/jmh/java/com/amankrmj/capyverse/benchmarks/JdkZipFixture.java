@@ -0,0 +1,178 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic archives with the shape of a JDK download: one large, fairly compressible
+ * {@code lib/modules}, a few dozen native libraries that barely compress, a stored
+ * {@code src.zip}, and hundreds of small legal and header files. Content is generated from
+ * a fixed seed, so every run benchmarks the same bytes.
+ */
+public final class JdkZipFixture {
+    private static final int LAUNCHERS = 30;
+    private static final int NATIVE_LIBRARIES = 24;
+    private static final int MODULES = 70;
+
+    private JdkZipFixture() {
+    }
+
+    /**
+     * Writes {@code jdk-<version>/...} into {@code zip}, with a modules image of
+     * {@code modulesMegabytes}.
+     */
+    public static Path create(Path zip, String version, int modulesMegabytes) throws IOException {
+        Random random = new Random(42);
+        String root = "jdk-" + version + "/";
+        Files.createDirectories(zip.toAbsolutePath().getParent());
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            directory(out, root);
+            deflated(out, root + "release", ("JAVA_VERSION=\"" + version + "\"\n"
+                    + "IMPLEMENTOR=\"Capyverse Benchmarks\"\nOS_ARCH=\"x86_64\"\n").getBytes(StandardCharsets.UTF_8));
+            directory(out, root + "bin/");
+            for (int i = 0; i < LAUNCHERS; i++) {
+                deflated(out, root + "bin/tool" + i, mixed(random, 16 * 1024, 0.8));
+            }
+            directory(out, root + "lib/");
+            deflated(out, root + "lib/modules", mixed(random, modulesMegabytes * 1024 * 1024, 0.35));
+            for (int i = 0; i < NATIVE_LIBRARIES; i++) {
+                deflated(out, root + "lib/libnative" + i + ".so", mixed(random, (256 + random.nextInt(1792)) * 1024, 0.9));
+            }
+            stored(out, root + "lib/src.zip", mixed(random, 4 * 1024 * 1024, 1.0));
+            directory(out, root + "legal/");
+            for (int i = 0; i < MODULES; i++) {
+                String module = root + "legal/java.module" + i + "/";
+                directory(out, module);
+                for (String name : new String[]{"LICENSE", "ASSEMBLY_EXCEPTION", "ADDITIONAL_LICENSE_INFO", "COPYRIGHT"}) {
+                    deflated(out, module + name, text(random, 2 * 1024));
+                }
+            }
+            directory(out, root + "include/");
+            for (int i = 0; i < 20; i++) {
+                deflated(out, root + "include/header" + i + ".h", text(random, 8 * 1024));
+            }
+        }
+        return zip;
+    }
+
+    /**
+     * Repacks a fixture zip as a gzip-compressed ustar archive with the same entries, the
+     * way Linux JDKs ship.
+     */
+    public static Path toTarGz(Path zip, Path tarGz) throws IOException {
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip));
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(tarGz), 64 * 1024)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                byte[] data = entry.isDirectory() ? new byte[0] : in.readAllBytes();
+                out.write(tarHeader(entry.getName(), data.length, entry.isDirectory()));
+                out.write(data);
+                out.write(new byte[(512 - data.length % 512) % 512]);
+            }
+            out.write(new byte[1024]);
+        }
+        return tarGz;
+    }
+
+    private static byte[] tarHeader(String name, long size, boolean directory) {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        octal(header, 100, 8, directory ? 0755 : 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, 0);
+        header[156] = (byte) (directory ? '5' : '0');
+        System.arraycopy(("ustar\0" + "00").getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = String.format("%0" + (length - 1) + "o", value);
+        System.arraycopy(digits.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+    }
+
+    /**
+     * Deletes a directory tree; used to reset extraction targets between invocations.
+     */
+    public static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Bytes of which roughly {@code randomShare} are random and the rest repeats a short
+     * pattern, which controls how well the block deflates.
+     */
+    static byte[] mixed(Random random, int size, double randomShare) {
+        byte[] data = new byte[size];
+        byte[] block = new byte[4096];
+        int randomBytes = (int) (block.length * randomShare);
+        for (int offset = 0; offset < size; offset += block.length) {
+            random.nextBytes(block);
+            for (int i = randomBytes; i < block.length; i++) {
+                block[i] = (byte) ("capyverse".charAt(i % 9));
+            }
+            System.arraycopy(block, 0, data, offset, Math.min(block.length, size - offset));
+        }
+        return data;
+    }
+
+    private static byte[] text(Random random, int size) {
+        String[] words = {"license", "copyright", "software", "warranty", "provided", "without", "the", "java", "of", "or"};
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            builder.append(words[random.nextInt(words.length)]).append(random.nextInt(12) == 0 ? '\n' : ' ');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void directory(ZipOutputStream out, String name) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.closeEntry();
+    }
+
+    private static void deflated(ZipOutputStream out, String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+    }
+
+    private static void stored(ZipOutputStream out, String name, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+    }
+}
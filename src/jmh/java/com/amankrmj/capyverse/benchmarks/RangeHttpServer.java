@@ -0,0 +1,88 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the JDK download host. Serves one in-memory payload on the
+ * loopback interface and answers HEAD, plain GET and single {@code Range} requests the way
+ * a CDN does, so the download paths run end to end without network noise. Range support
+ * can be switched off to force the single-stream path.
+ */
+public final class RangeHttpServer implements AutoCloseable {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final String ETAG = "\"capyverse-benchmark\"";
+    private static final int WRITE_CHUNK = 256 * 1024;
+
+    private final byte[] payload;
+    private final boolean acceptRanges;
+    private final HttpServer server;
+    // Platform threads: the server's blocking writes pin virtual threads, and the client
+    // under test already runs its segments on virtual threads
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    public RangeHttpServer(byte[] payload, boolean acceptRanges) throws IOException {
+        this.payload = payload;
+        this.acceptRanges = acceptRanges;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String url(String fileName) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + fileName;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            if (acceptRanges) {
+                exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(payload.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            long start = 0;
+            long end = payload.length - 1;
+            int status = 200;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (acceptRanges && range != null) {
+                Matcher matcher = RANGE.matcher(range.trim());
+                if (!matcher.matches() || Long.parseLong(matcher.group(1)) >= payload.length) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + payload.length);
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+                start = Long.parseLong(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    end = Math.min(end, Long.parseLong(matcher.group(2)));
+                }
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + payload.length);
+            }
+            exchange.sendResponseHeaders(status, end - start + 1);
+            OutputStream body = exchange.getResponseBody();
+            for (long offset = start; offset <= end; offset += WRITE_CHUNK) {
+                body.write(payload, (int) offset, (int) Math.min(WRITE_CHUNK, end - offset + 1));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,56 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.amankrmj.capyverse.common.services.ArchiveExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The sequential {@link ZipInputStream} loop used while streaming an archive, across copy
+ * buffer sizes. It mirrors the extraction loop of {@code JavaDownloadService}, reading
+ * from the archive on disk instead of the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SequentialExtractBenchmark extends ExtractionFixture {
+
+    @Param({"8192", "65536", "262144"})
+    public int bufferSize;
+
+    @Benchmark
+    public long extract() throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        long written = 0;
+        try (InputStream in = Files.newInputStream(archive);
+             ZipInputStream zis = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                Path outFile = ArchiveExtractor.resolveEntry(target, entry.getName());
+                if (entry.isDirectory()) {
+                    Files.createDirectories(outFile);
+                    continue;
+                }
+                Files.createDirectories(outFile.getParent());
+                try (OutputStream out = Files.newOutputStream(outFile)) {
+                    int len;
+                    while ((len = zis.read(buffer)) > 0) {
+                        out.write(buffer, 0, len);
+                        written += len;
+                    }
+                }
+            }
+        }
+        return written;
+    }
+}
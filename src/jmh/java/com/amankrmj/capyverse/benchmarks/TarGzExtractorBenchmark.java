@@ -0,0 +1,39 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.amankrmj.capyverse.common.services.TarGzExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The streaming {@link TarGzExtractor} behind {@code extractArchive} for tarballs, across
+ * writer pool sizes. The fixture zip is repacked as a tar.gz with the same entries, so
+ * results compare directly with {@link ZipExtractorBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TarGzExtractorBenchmark extends ExtractionFixture {
+
+    @Param({"1", "2", "4"})
+    public int writers;
+
+    private Path tarGz;
+
+    @Setup(Level.Trial)
+    public void createTarGz() throws IOException {
+        tarGz = JdkZipFixture.toTarGz(archive, archive.resolveSibling("jdk.tar.gz"));
+    }
+
+    @Benchmark
+    public int extract() throws IOException {
+        return new TarGzExtractor(tarGz, target, writers).extract();
+    }
+}
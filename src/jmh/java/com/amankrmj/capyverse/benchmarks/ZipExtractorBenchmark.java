@@ -0,0 +1,28 @@
+package com.amankrmj.capyverse.benchmarks;
+
+import com.amankrmj.capyverse.common.services.ZipExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The random-access {@link ZipExtractor} behind {@code extractArchive} for zip archives,
+ * across fork-join pool sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ZipExtractorBenchmark extends ExtractionFixture {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Benchmark
+    public int extract() throws IOException {
+        return new ZipExtractor(archive, target, parallelism).extract();
+    }
+}
@@ -1,26 +1,71 @@
 package com.amankrmj.capyverse;
 
+import com.amankrmj.capyverse.common.services.DaemonClient;
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.LazySubcommands;
+import com.amankrmj.capyverse.daemon.DaemonCommand;
+import com.amankrmj.capyverse.java.JavaEnvCommand;
 import com.amankrmj.capyverse.java.JavaVersionManagerCommand;
+import com.amankrmj.capyverse.mirror.MirrorCommand;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 @Command(name = "capy",
         mixinStandardHelpOptions = true,
         version = "1.0.0",
-        description = "CapyVerse - Complete Java Development Environment Manager",
-        subcommands = {
-                JavaVersionManagerCommand.class,
-        })
+        description = "CapyVerse - Complete Java Development Environment Manager")
 public class Main implements Runnable {
 
+    /**
+     * Registered lazily so a run only loads the command classes it actually uses.
+     */
+    private static final LazySubcommands SUBCOMMANDS = new LazySubcommands()
+            .add("java", "Manage Java versions and installations", () -> new JavaVersionManagerCommand())
+            .add("env", "Print JAVA_HOME/PATH exports for the project-local Java version", () -> new JavaEnvCommand())
+            .add("stats", "Summarize recorded install metrics as percentiles", () -> new StatsCommand())
+            .add("mirror", "Share cached JDK archives with other machines on the LAN", () -> new MirrorCommand())
+            .add("daemon", "Keep a warm capy process that runs commands for the CLI", () -> new DaemonCommand());
+
     @Option(names = {"-m", "--mascot"}, description = "Show CapyVerse mascot")
     private boolean showMascot = false;
 
     public static void main(String[] args) {
+        Path socket = DaemonClient.defaultSocket();
+        Integer exitCode = Files.exists(socket) && forwardable(args) ? DaemonClient.forward(socket, args) : null;
+        System.exit(exitCode != null ? exitCode : execute(args));
+    }
+
+    /**
+     * Runs a command line in this process. A {@code capy daemon} calls this for every
+     * command forwarded to it.
+     */
+    public static int execute(String[] args) {
         CommandLine cmd = new CommandLine(new Main());
-        int exitCode = cmd.execute(args);
-        System.exit(exitCode);
+        SUBCOMMANDS.registerOn(cmd, args, 0);
+        return cmd.execute(args);
+    }
+
+    /**
+     * Commands go to a running daemon unless they manage the daemon or run a server of
+     * their own, or {@code daemon.forward} is set to false.
+     */
+    private static boolean forwardable(String[] args) {
+        List<String> commands = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("-") && commands.size() < 2) {
+                commands.add(arg);
+            }
+        }
+        if (!commands.isEmpty() && (commands.get(0).equals("daemon") || commands.equals(List.of("mirror", "serve")))) {
+            return false;
+        }
+        return !CapyConfig.get("daemon.forward", "true").equalsIgnoreCase("false");
     }
 
     @Override
@@ -41,6 +86,10 @@ public class Main implements Runnable {
         System.out.println("CapyVerse - Complete Development Environment Manager");
         System.out.println("Use --help for options or try these commands:");
         System.out.println("  java     - Manage Java versions and installations");
+        System.out.println("  env      - Print the environment for the project's .java-version");
+        System.out.println("  stats    - Summarize recorded install metrics");
+        System.out.println("  mirror   - Share cached JDK archives on the LAN");
+        System.out.println("  daemon   - Keep a warm capy process for faster commands");
 
     }
 
@@ -0,0 +1,108 @@
+package com.amankrmj.capyverse;
+
+import com.amankrmj.capyverse.common.utils.ByteUnits;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+/**
+ * Summarizes the metrics log written by every install run as percentiles per metric, so
+ * regressions in catalog latency, transfer rate or extraction show up across runs.
+ */
+@Command(name = "stats", description = "Summarize recorded install metrics as percentiles")
+public class StatsCommand implements Callable<Integer> {
+
+    @Option(names = {"--last"}, description = "Only consider the most recent N runs")
+    private int last = 0;
+
+    @Option(names = {"--versions"}, description = "Only consider runs that installed exactly these versions (e.g. \"17 21\")")
+    private String versions;
+
+    public static Path defaultLog() {
+        return CapyPaths.resolve("metrics", "install.jsonl");
+    }
+
+    @Override
+    public Integer call() {
+        try {
+            List<Map<String, String>> runs = Metrics.readLog(defaultLog());
+            if (versions != null) {
+                runs.removeIf(run -> !versions.trim().equals(run.get("versions")));
+            }
+            if (last > 0 && runs.size() > last) {
+                runs = runs.subList(runs.size() - last, runs.size());
+            }
+            if (runs.isEmpty()) {
+                System.out.println("No install metrics recorded yet (" + defaultLog() + ").");
+                return 0;
+            }
+            Map<String, List<Double>> samples = new TreeMap<>();
+            long failedRuns = 0;
+            for (Map<String, String> run : runs) {
+                if (!"0".equals(run.get("exitCode"))) {
+                    failedRuns++;
+                }
+                for (Map.Entry<String, String> field : run.entrySet()) {
+                    if (isSummarized(field.getKey())) {
+                        try {
+                            samples.computeIfAbsent(field.getKey(), key -> new ArrayList<>())
+                                    .add(Double.parseDouble(field.getValue()));
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                }
+            }
+            System.out.println("=== Install metrics: " + runs.size() + " runs, " + failedRuns + " not fully successful ===");
+            System.out.println(String.format("%-28s %6s %12s %12s %12s %12s", "metric", "n", "p50", "p90", "p99", "max"));
+            for (Map.Entry<String, List<Double>> metric : samples.entrySet()) {
+                List<Double> values = metric.getValue();
+                Collections.sort(values);
+                String name = metric.getKey();
+                System.out.println(String.format("%-28s %6d %s%12s %12s %12s %12s%s", name, values.size(), CliColor.CYAN,
+                        format(name, percentile(values, 50)), format(name, percentile(values, 90)),
+                        format(name, percentile(values, 99)), format(name, values.get(values.size() - 1)),
+                        CliColor.RESET));
+            }
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Error reading metrics: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static boolean isSummarized(String key) {
+        return key.endsWith(".ms") || key.endsWith(".bytesPerSecond") || key.startsWith("bytes.")
+                || key.startsWith("files.") || key.endsWith("retries") || key.endsWith("Retries");
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    private static double percentile(List<Double> sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static String format(String name, double value) {
+        if (name.endsWith(".ms")) {
+            return String.format("%.1f ms", value);
+        }
+        if (name.endsWith(".bytesPerSecond")) {
+            return ByteUnits.format((long) value) + "/s";
+        }
+        if (name.startsWith("bytes.")) {
+            return ByteUnits.format((long) value);
+        }
+        return String.valueOf((long) value);
+    }
+}
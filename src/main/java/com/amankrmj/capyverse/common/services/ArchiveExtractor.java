@@ -0,0 +1,166 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Unpacks a JDK archive into a directory. Implementations restore Unix permission bits
+ * and symlinks where the file system supports them, route file contents through a
+ * {@link ContentStore} when one is set, and hash every file on its way to disk for the
+ * tree's {@link FileManifest}.
+ */
+public interface ArchiveExtractor {
+
+    /**
+     * Extracts every entry and returns the number of files written.
+     */
+    int extract() throws IOException;
+
+    /**
+     * Files written by the last {@link #extract()} with their SHA-256, and entry names as
+     * paths. Symlinks are not listed.
+     */
+    List<FileManifest.Item> getManifestItems();
+
+    void setContentStore(ContentStore store);
+
+    void setProgress(ProgressRenderer.Task progress);
+
+    /**
+     * Picks the extractor for an archive by its file name: {@code .tar.gz} and {@code .tgz}
+     * are read as gzip-compressed tar, everything else as zip.
+     */
+    static ArchiveExtractor forArchive(Path archive, Path targetDir) {
+        return isTarGz(archive.getFileName().toString())
+                ? new TarGzExtractor(archive, targetDir)
+                : new ZipExtractor(archive, targetDir);
+    }
+
+    static boolean isTarGz(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".tar.gz") || lower.endsWith(".tgz");
+    }
+
+    /**
+     * Resolves an entry name below {@code root}, rejecting names that would escape it
+     * (absolute paths or {@code ..} segments), the so-called zip-slip.
+     */
+    static Path resolveEntry(Path root, String name) throws IOException {
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        Path resolved = normalizedRoot.resolve(name).normalize();
+        if (!resolved.startsWith(normalizedRoot) || resolved.equals(normalizedRoot) && !name.endsWith("/")) {
+            throw new IOException("Blocked archive entry outside of " + normalizedRoot + ": " + name);
+        }
+        return resolved;
+    }
+
+    /**
+     * Creates {@code link} pointing at {@code linkTarget}, refusing targets that resolve
+     * outside of {@code root}. Extractors create symlinks only after every file and hard
+     * link is written, so no entry is ever written through one.
+     * <p>
+     * The target is resolved from the link's real parent, and {@code ..} is accepted
+     * only before the first name: {@code a/..} depends on where {@code a} leads, which
+     * another link may change. With every link kept inside {@code root} this way, no
+     * chain of links leads out of it either.
+     */
+    static void createSymlink(Path root, Path link, String linkTarget) throws IOException {
+        Path realRoot = root.toRealPath();
+        Path parent = link.getParent().toRealPath();
+        Path target;
+        try {
+            target = Path.of(linkTarget);
+        } catch (InvalidPathException e) {
+            throw new IOException("Blocked symlink with an invalid target: " + link, e);
+        }
+        Path resolved = parent;
+        boolean descending = false;
+        for (Path segment : target) {
+            String part = segment.toString();
+            if (part.equals("..")) {
+                if (descending) {
+                    throw new IOException("Blocked symlink with '..' after a name: " + link + " -> " + linkTarget);
+                }
+                resolved = resolved.getParent();
+                if (resolved == null) {
+                    break;
+                }
+            } else if (!part.equals(".")) {
+                descending = true;
+                resolved = resolved.resolve(segment);
+            }
+        }
+        if (target.isAbsolute() || !parent.startsWith(realRoot)
+                || resolved == null || !resolved.startsWith(realRoot) || resolved.equals(realRoot)) {
+            throw new IOException("Blocked symlink pointing outside of " + root + ": " + link + " -> " + linkTarget);
+        }
+        Path placed = parent.resolve(link.getFileName());
+        Files.deleteIfExists(placed);
+        Files.createSymbolicLink(placed, target);
+    }
+
+    /**
+     * Permission bits for a file entry. Archives without Unix modes (zips made on Windows,
+     * or read as a stream) get {@code 0755} for launchers and {@code 0644} for the rest.
+     */
+    static int effectiveMode(String name, int mode) {
+        if ((mode & 0777) != 0) {
+            return mode & 0777;
+        }
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        boolean executable = name.startsWith("bin/") || name.contains("/bin/")
+                || fileName.equals("jspawnhelper") || fileName.equals("jexec") || fileName.endsWith(".sh");
+        return executable ? 0755 : 0644;
+    }
+
+    /**
+     * Files a JDK rewrites in place after installation, such as the trust store updated
+     * by {@code keytool}. They must not share an inode with other trees.
+     */
+    static boolean isMutable(String name) {
+        return name.endsWith("lib/security/cacerts") || name.startsWith("conf/") || name.contains("/conf/");
+    }
+
+    /**
+     * Places a stored file entry at {@code target}: a private copy for {@link #isMutable}
+     * files and a link to the read-only object for the rest.
+     */
+    static void place(ContentStore store, String hash, Path target, String name, int mode) throws IOException {
+        if (isMutable(name)) {
+            store.copy(hash, target, effectiveMode(name, mode));
+        } else {
+            store.link(hash, target, effectiveMode(name, mode));
+        }
+    }
+
+    /**
+     * Restores owner/group/other permission bits, keeping the executable flags of launchers.
+     */
+    static void applyMode(Path target, int mode) throws IOException {
+        if ((mode & 0777) == 0 || !FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        PosixFilePermission[] order = {
+                PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ,
+                PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ,
+                PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ
+        };
+        for (int bit = 0; bit < order.length; bit++) {
+            if ((mode & (1 << bit)) != 0) {
+                permissions.add(order[bit]);
+            }
+        }
+        Files.setPosixFilePermissions(target, permissions);
+    }
+}
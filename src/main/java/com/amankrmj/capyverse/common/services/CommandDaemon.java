@@ -0,0 +1,606 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.Invocation;
+import com.amankrmj.capyverse.common.utils.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs command lines on behalf of short-lived client processes over a Unix domain socket,
+ * so a command finds the JVM warmed up, the HTTP client's connections open and caches
+ * already in memory. A client sends its arguments with its working directory,
+ * environment and whether it has a terminal; the command runs on a thread of its own
+ * with that {@link Invocation} bound, and whatever it prints is streamed back in frames,
+ * followed by the exit code.
+ * <p>
+ * Configuration is read once per process, so only clients whose settings variables
+ * ({@link CapyConfig#settingsVariables}) match the daemon's are served; others are
+ * refused and run the command themselves. A change to the config file makes the daemon refuse and shut down. After
+ * {@code idleTimeout} without a command it shuts down as well.
+ */
+public class CommandDaemon implements Closeable {
+    static final int MAGIC = 0x43415044; // "CAPD"
+    static final int PROTOCOL = 1;
+
+    static final byte RUN = 1;
+    static final byte STATUS = 2;
+    static final byte STOP = 3;
+
+    static final byte OUT = 1;
+    static final byte ERR = 2;
+    static final byte EXIT = 3;
+    static final byte REFUSED = 4;
+    static final byte INFO = 5;
+
+    private static final InheritableThreadLocal<Client> TARGET = new InheritableThreadLocal<>();
+
+    /**
+     * Executes one command line in this process and returns its exit code.
+     */
+    public interface Dispatcher {
+        int execute(String[] args);
+    }
+
+    private final Path socketFile;
+    private final Duration idleTimeout;
+    private final Path configFile;
+    private final long configModified;
+    private final Dispatcher dispatcher;
+    private final Map<String, String> settingsEnv = CapyConfig.settingsVariables(System.getenv());
+    private final Set<Thread> handlers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong served = new AtomicLong();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long lastActivity = startedAt;
+    private volatile boolean closed;
+    private ServerSocketChannel server;
+    private Consumer<String> log = line -> {
+    };
+
+    /**
+     * @param configFile file whose modification stops the daemon, or null
+     */
+    public CommandDaemon(Path socketFile, Duration idleTimeout, Path configFile, Dispatcher dispatcher) {
+        this.socketFile = socketFile;
+        this.idleTimeout = idleTimeout;
+        this.configFile = configFile;
+        this.configModified = modified(configFile);
+        this.dispatcher = dispatcher;
+    }
+
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    public Path getSocketFile() {
+        return socketFile;
+    }
+
+    /**
+     * Creates the socket, readable by the current user only. A socket file left behind by
+     * a daemon that died is replaced; one that still answers is an error.
+     */
+    public void bind() throws IOException {
+        if (Files.exists(socketFile)) {
+            if (DaemonClient.status(socketFile) != null) {
+                throw new IOException("A daemon is already listening on " + socketFile);
+            }
+            Files.delete(socketFile);
+        }
+        Files.createDirectories(socketFile.getParent());
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketFile));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(socketFile, PosixFilePermissions.fromString("rw-------"));
+        }
+    }
+
+    /**
+     * Accepts clients until {@link #close()} or the idle timeout, then waits for the
+     * commands still running. {@code System.out} and {@code System.err} are replaced
+     * meanwhile, so output reaches the client of the thread that prints it; output of
+     * other threads goes to the original streams. Each client prints through streams of
+     * its own, so one that stops reading blocks only its own command.
+     */
+    public void serve() throws IOException {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(new Routed(Client::out, originalOut));
+        System.setErr(new Routed(Client::err, originalErr));
+        Thread watchdog = Thread.ofPlatform().daemon().name("capy-daemon-idle").start(this::watchIdle);
+        try {
+            while (!closed) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                active.incrementAndGet();
+                Thread handler = Thread.ofPlatform().name("capy-daemon-client").unstarted(() -> {
+                    try {
+                        handle(client);
+                    } finally {
+                        active.decrementAndGet();
+                        handlers.remove(Thread.currentThread());
+                    }
+                });
+                handlers.add(handler);
+                handler.start();
+            }
+            for (Thread handler : handlers) {
+                handler.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+            watchdog.interrupt();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+    }
+
+    /**
+     * Stops accepting clients; commands already running finish first.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (server != null) {
+            server.close();
+        }
+        Files.deleteIfExists(socketFile);
+    }
+
+    /**
+     * One line for {@code capy daemon status}.
+     */
+    public String status() {
+        return "pid " + ProcessHandle.current().pid()
+                + ", up " + formatDuration(Duration.ofMillis(System.currentTimeMillis() - startedAt))
+                + ", " + served.get() + " commands served, " + Math.max(0, active.get() - 1) + " running"
+                + (idleTimeout.isZero() ? "" : ", idle timeout " + formatDuration(idleTimeout));
+    }
+
+    private void watchIdle() {
+        if (idleTimeout.isZero() || idleTimeout.isNegative()) {
+            return;
+        }
+        long check = Math.max(1000, Math.min(idleTimeout.toMillis() / 4, 30_000));
+        try {
+            while (!closed) {
+                Thread.sleep(check);
+                if (active.get() == 0 && System.currentTimeMillis() - lastActivity >= idleTimeout.toMillis()) {
+                    log.accept("Idle for " + formatDuration(idleTimeout) + ", shutting down");
+                    close();
+                }
+            }
+        } catch (InterruptedException ignored) {
+        } catch (IOException e) {
+            log.accept("Could not remove " + socketFile + ": " + e.getMessage());
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            if (in.readInt() != MAGIC || in.readInt() != PROTOCOL) {
+                reply(out, REFUSED, "protocol mismatch");
+                return;
+            }
+            switch (in.readByte()) {
+                case RUN -> run(in, out);
+                case STATUS -> reply(out, INFO, status());
+                case STOP -> {
+                    log.accept("Stop requested");
+                    int running = Math.max(0, active.get() - 1);
+                    reply(out, INFO, running == 0 ? "stopping" : "stopping after " + running + " running commands finish");
+                    close();
+                }
+                default -> reply(out, REFUSED, "unknown request");
+            }
+        } catch (IOException e) {
+            // The client went away; a command it started has finished regardless
+        }
+    }
+
+    private void run(DataInputStream in, DataOutputStream out) throws IOException {
+        Path workingDirectory = Path.of(readString(in));
+        boolean interactive = in.readBoolean();
+        int envCount = in.readInt();
+        Map<String, String> env = new HashMap<>(envCount * 2);
+        for (int i = 0; i < envCount; i++) {
+            env.put(readString(in), readString(in));
+        }
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readString(in);
+        }
+
+        if (modified(configFile) != configModified) {
+            reply(out, REFUSED, configFile + " changed");
+            log.accept(configFile + " changed, shutting down");
+            close();
+            return;
+        }
+        if (!CapyConfig.settingsVariables(env).equals(settingsEnv)) {
+            reply(out, REFUSED, "settings variables differ from the daemon's");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Frames frames = new Frames(out);
+        int exitCode;
+        TARGET.set(new Client(frames));
+        Metrics.bindNew();
+        try {
+            exitCode = new Invocation(workingDirectory, env, interactive).call(() -> dispatcher.execute(args));
+        } catch (Exception e) {
+            System.err.println("🔴 " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            exitCode = 1;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            Metrics.unbind();
+            TARGET.remove();
+            served.incrementAndGet();
+            lastActivity = System.currentTimeMillis();
+        }
+        frames.finish(exitCode);
+        log.accept(String.join(" ", args) + " -> " + exitCode + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static void reply(DataOutputStream out, byte kind, String message) throws IOException {
+        out.writeByte(kind);
+        writeString(out, message);
+        out.flush();
+    }
+
+    private static long modified(Path file) {
+        try {
+            return file != null && Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    static String formatDuration(Duration duration) {
+        long seconds = duration.toSeconds();
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + "m" + (seconds % 60 == 0 ? "" : " " + seconds % 60 + "s");
+        }
+        return seconds / 3600 + "h" + (seconds % 3600 / 60 == 0 ? "" : " " + seconds % 3600 / 60 + "m");
+    }
+
+    /**
+     * Strings as a length and UTF-8 bytes; {@code writeUTF} is limited to 64 KB, which a
+     * PATH may exceed.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Output frames of one client. After the first failed write the client is assumed
+     * gone and further output is dropped, so the command still runs to completion.
+     * Writes hold a lock rather than a monitor, as they block on the socket.
+     */
+    private static final class Frames {
+        private final DataOutputStream out;
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean broken;
+        private volatile boolean finished;
+
+        Frames(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void write(byte kind, byte[] bytes, int offset, int length) {
+            lock.lock();
+            try {
+                if (broken || finished) {
+                    return;
+                }
+                out.writeByte(kind);
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+                out.flush();
+            } catch (IOException e) {
+                broken = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Ends the stream with the exit code; threads of the command that are still
+         * running print to the daemon's own output from here on.
+         */
+        void finish(int exitCode) {
+            lock.lock();
+            try {
+                finished = true;
+                if (!broken) {
+                    out.writeByte(EXIT);
+                    out.writeInt(exitCode);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                broken = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A client's own print streams, turning output into its frames.
+     */
+    private record Client(Frames frames, PrintStream out, PrintStream err) {
+        Client(Frames frames) {
+            this(frames, new PrintStream(new FrameStream(frames, OUT), true, StandardCharsets.UTF_8),
+                    new PrintStream(new FrameStream(frames, ERR), true, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class FrameStream extends OutputStream {
+        private final Frames frames;
+        private final byte kind;
+
+        FrameStream(Frames frames, byte kind) {
+            this.frames = frames;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            frames.write(kind, bytes, offset, length);
+        }
+    }
+
+    /**
+     * Replaces {@code System.out} or {@code System.err}, passing every call on to the
+     * stream of the printing thread's client, or to {@code fallback} for threads not
+     * serving one, including threads that outlive their command. Nothing is written
+     * under this shared stream's own lock, so a client whose socket is full blocks only
+     * the threads printing to it.
+     */
+    private static final class Routed extends PrintStream {
+        private final Function<Client, PrintStream> stream;
+        private final PrintStream fallback;
+
+        Routed(Function<Client, PrintStream> stream, PrintStream fallback) {
+            super(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+            this.stream = stream;
+            this.fallback = Objects.requireNonNull(fallback);
+        }
+
+        private PrintStream target() {
+            Client client = TARGET.get();
+            return client != null && !client.frames().finished ? stream.apply(client) : fallback;
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+
+        @Override
+        public void close() {
+            target().flush();
+        }
+
+        @Override
+        public boolean checkError() {
+            return target().checkError();
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            target().write(bytes, offset, length);
+        }
+
+        @Override
+        public void write(byte[] bytes) throws IOException {
+            target().write(bytes);
+        }
+
+        @Override
+        public void writeBytes(byte[] bytes) {
+            target().writeBytes(bytes);
+        }
+
+        @Override
+        public void print(boolean b) {
+            target().print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            target().print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            target().print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            target().print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            target().print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            target().print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            target().print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            target().print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            target().print(obj);
+        }
+
+        @Override
+        public void println() {
+            target().println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            target().println(x);
+        }
+
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            target().printf(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream printf(Locale l, String format, Object... args) {
+            target().printf(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            target().format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            target().format(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq) {
+            target().append(csq);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            target().append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(char c) {
+            target().append(c);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.Sha256;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed file store. Every file is kept once under {@code sha256/ab/<hash>}
+ * and installed trees are assembled from hard links to those objects, so files that are
+ * identical across JDK builds take disk space only once. When a link cannot be created
+ * (another volume, or a file system without hard links) the object is copied instead.
+ * <p>
+ * A linked file is the object itself, so objects are read-only and a permission change
+ * never goes through a link: each distinct mode of the same content is its own object,
+ * {@code <hash>} for {@code 0444} and {@code <hash>.<mode>} otherwise. Files a tree is
+ * expected to modify are placed with {@link #copy} instead. Objects are re-hashed the
+ * first time this store reuses them, and a damaged one is replaced or dropped.
+ * <p>
+ * Without POSIX permissions (Windows) every object is the plain one and carries the DOS
+ * read-only attribute, which its links share. Deleting a link there means clearing it
+ * (see {@link com.amankrmj.capyverse.common.utils.FileTrees#deleteTree}), so objects are
+ * sealed again whenever the store verifies them.
+ */
+public class ContentStore {
+    private static final int MEMORY_LIMIT = 8 * 1024 * 1024;
+    private static final int DEFAULT_MODE = 0444;
+
+    private final Path root;
+    private final Path objects;
+    private final Path tmp;
+    private final boolean posix;
+    private final boolean dos;
+    private final Set<Path> verified = ConcurrentHashMap.newKeySet();
+
+    public ContentStore(Path root) {
+        this(root, root.getFileSystem().supportedFileAttributeViews().contains("posix"));
+    }
+
+    /**
+     * A store that uses POSIX permissions only when {@code posix} is set, as on a file
+     * system without them.
+     */
+    ContentStore(Path root, boolean posix) {
+        this.root = root;
+        this.objects = root.resolve("sha256");
+        this.tmp = root.resolve("tmp");
+        this.posix = posix;
+        this.dos = !posix && root.getFileSystem().supportedFileAttributeViews().contains("dos");
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path objectPath(String hash) {
+        return objects.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * The object holding {@code hash} with the read-only form of {@code mode}.
+     */
+    public Path objectPath(String hash, int mode) {
+        int stored = storedMode(mode);
+        return stored == DEFAULT_MODE ? objectPath(hash) : objectPath(hash).resolveSibling(hash + "." + Integer.toOctalString(stored));
+    }
+
+    /**
+     * Whether an intact object with this content is in the store. The object is re-hashed
+     * the first time this store is asked, and deleted when its content no longer matches.
+     */
+    public boolean contains(String hash) throws IOException {
+        return intact(objectPath(hash), hash);
+    }
+
+    /**
+     * The object {@code file} is a hard link of, with any of its modes, or null when the
+     * file is a copy or another file altogether.
+     */
+    public Path linkedObject(String hash, Path file) throws IOException {
+        Path dir = objectPath(hash).getParent();
+        if (!Files.isDirectory(dir) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(dir, hash + "*")) {
+            for (Path object : variants) {
+                String name = object.getFileName().toString();
+                if ((name.length() == hash.length() || name.charAt(hash.length()) == '.')
+                        && Files.isSameFile(object, file)) {
+                    return object;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sizes of all objects in the store, keyed by hash. Each hash counts the bytes of all
+     * its mode variants, as every variant takes its own space.
+     */
+    public Map<String, Long> listObjects() throws IOException {
+        Map<String, Long> sizes = new HashMap<>();
+        if (!Files.isDirectory(objects)) {
+            return sizes;
+        }
+        try (Stream<Path> files = Files.walk(objects, 2)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                sizes.merge(dot < 0 ? name : name.substring(0, dot), Files.size(file), Long::sum);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Starts adding one file. Content is pushed in chunks and hashed on the fly;
+     * {@link Writer#commit()} then returns the SHA-256 of the content.
+     */
+    public Writer newWriter() {
+        return new Writer();
+    }
+
+    /**
+     * Accumulates a file's content while hashing it. Small files stay in memory, so content
+     * already in the store is never written to disk at all; larger files spill to a
+     * temporary file in the store.
+     */
+    public class Writer {
+        private final MessageDigest digest = Sha256.newDigest();
+        private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private Path staged;
+        private FileChannel spill;
+        private long size;
+
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            write(ByteBuffer.wrap(buffer, offset, length));
+        }
+
+        public void write(ByteBuffer chunk) throws IOException {
+            size += chunk.remaining();
+            digest.update(chunk.duplicate());
+            if (spill == null && memory.size() + chunk.remaining() <= MEMORY_LIMIT) {
+                byte[] bytes = new byte[chunk.remaining()];
+                chunk.get(bytes);
+                memory.write(bytes, 0, bytes.length);
+                return;
+            }
+            if (spill == null) {
+                Files.createDirectories(tmp);
+                staged = Files.createTempFile(tmp, "obj", null);
+                spill = FileChannel.open(staged, StandardOpenOption.WRITE);
+                ByteBuffer buffered = ByteBuffer.wrap(memory.toByteArray());
+                while (buffered.hasRemaining()) {
+                    spill.write(buffered);
+                }
+                memory.reset();
+            }
+            while (chunk.hasRemaining()) {
+                spill.write(chunk);
+            }
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Adds the content to the store unless an identical object is already there and
+         * returns its SHA-256.
+         */
+        public String commit() throws IOException {
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (spill != null) {
+                spill.close();
+                return ContentStore.this.commit(staged, hash);
+            }
+            if (contains(hash)) {
+                return hash;
+            }
+            Files.createDirectories(tmp);
+            staged = Files.createTempFile(tmp, "obj", null);
+            Files.write(staged, memory.toByteArray());
+            return ContentStore.this.commit(staged, hash);
+        }
+
+        public void abort() throws IOException {
+            if (spill != null) {
+                spill.close();
+            }
+            if (staged != null) {
+                Files.deleteIfExists(staged);
+            }
+        }
+    }
+
+    private String commit(Path staged, String hash) throws IOException {
+        Path object = objectPath(hash);
+        if (intact(object, hash)) {
+            Files.delete(staged);
+            return hash;
+        }
+        publish(staged, object, DEFAULT_MODE);
+        verified.add(object);
+        return hash;
+    }
+
+    /**
+     * Materializes an object at {@code target} with the permission bits of {@code mode},
+     * as a hard link when possible. The link shares the read-only object, so whatever
+     * the tree may change has to be placed with {@link #copy} instead.
+     */
+    public void link(String hash, Path target, int mode) throws IOException {
+        Path object = variant(hash, mode);
+        setReadOnly(target, false);
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, object);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(object, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * Materializes an object at {@code target} as a private, writable copy.
+     */
+    public void copy(String hash, Path target, int mode) throws IOException {
+        setReadOnly(target, false);
+        Files.deleteIfExists(target);
+        Files.copy(objectPath(hash), target);
+        // Windows copies the object's read-only attribute along
+        setReadOnly(target, false);
+        ArchiveExtractor.applyMode(target, mode);
+    }
+
+    /**
+     * The object for {@code hash} with {@code mode}, copied from the plain object the
+     * first time that mode is needed.
+     */
+    private Path variant(String hash, int mode) throws IOException {
+        Path object = objectPath(hash, mode);
+        Path plain = objectPath(hash);
+        if (object.equals(plain) || intact(object, hash)) {
+            return object;
+        }
+        Files.createDirectories(tmp);
+        Path staged = Files.createTempFile(tmp, "obj", null);
+        try {
+            Files.copy(plain, staged, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+        publish(staged, object, mode);
+        verified.add(object);
+        return object;
+    }
+
+    /**
+     * Makes {@code staged} read-only and moves it into place, replacing a damaged object.
+     */
+    private void publish(Path staged, Path object, int mode) throws IOException {
+        if (posix) {
+            ArchiveExtractor.applyMode(staged, storedMode(mode));
+        }
+        setReadOnly(staged, true);
+        Files.createDirectories(object.getParent());
+        // A read-only file cannot be replaced on Windows
+        setReadOnly(object, false);
+        try {
+            Files.move(staged, object, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(staged);
+            // Another thread may have stored the same content first
+            if (!Files.exists(object)) {
+                throw e;
+            }
+        }
+    }
+
+    private boolean intact(Path object, String hash) throws IOException {
+        if (verified.contains(object)) {
+            return true;
+        }
+        if (!Files.isRegularFile(object)) {
+            return false;
+        }
+        if (Sha256.ofFile(object).equals(hash)) {
+            setReadOnly(object, true);
+            verified.add(object);
+            return true;
+        }
+        // Some tree wrote through its link; nothing may link to this object again
+        setReadOnly(object, false);
+        Files.deleteIfExists(object);
+        return false;
+    }
+
+    /**
+     * Sets or clears the DOS read-only attribute of an existing file on stores without
+     * POSIX permissions; a no-op everywhere else.
+     */
+    private void setReadOnly(Path file, boolean readOnly) throws IOException {
+        if (dos && Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            Files.setAttribute(file, "dos:readonly", readOnly, LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+
+    /**
+     * Objects keep the read and execute bits of a mode, at least owner-readable, and are
+     * never writable. On file systems without POSIX permissions all objects are the
+     * plain one.
+     */
+    private int storedMode(int mode) {
+        int readOnly = mode & 0555;
+        return !posix || readOnly == 0 ? DEFAULT_MODE : readOnly | 0400;
+    }
+}
@@ -0,0 +1,136 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Thin client of a {@link CommandDaemon}. Every method gives up quietly when no daemon
+ * answers, so callers can fall back to doing the work themselves.
+ */
+public final class DaemonClient {
+
+    private DaemonClient() {
+    }
+
+    /**
+     * The current user's daemon socket.
+     */
+    public static Path defaultSocket() {
+        return CapyPaths.resolve("daemon.sock");
+    }
+
+    /**
+     * Runs a command line in the daemon, copying its output to this process's stdout and
+     * stderr. Returns the exit code, or null when no daemon is running or it refused the
+     * command before printing anything.
+     */
+    public static Integer forward(Path socketFile, String[] args) {
+        if (!Files.exists(socketFile)) {
+            return null;
+        }
+        boolean printed = false;
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketFile));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            writeHeader(out, CommandDaemon.RUN);
+            CommandDaemon.writeString(out, Path.of("").toAbsolutePath().toString());
+            out.writeBoolean(System.console() != null);
+            Map<String, String> env = System.getenv();
+            out.writeInt(env.size());
+            for (Map.Entry<String, String> variable : env.entrySet()) {
+                CommandDaemon.writeString(out, variable.getKey());
+                CommandDaemon.writeString(out, variable.getValue());
+            }
+            out.writeInt(args.length);
+            for (String arg : args) {
+                CommandDaemon.writeString(out, arg);
+            }
+            out.flush();
+
+            while (true) {
+                byte kind = in.readByte();
+                switch (kind) {
+                    case CommandDaemon.OUT, CommandDaemon.ERR -> {
+                        copy(in.readNBytes(in.readInt()), kind == CommandDaemon.OUT ? System.out : System.err);
+                        printed = true;
+                    }
+                    case CommandDaemon.EXIT -> {
+                        return in.readInt();
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!printed) {
+                return null;
+            }
+            System.err.println("🔴 Lost the connection to capy daemon: "
+                    + (e instanceof EOFException ? "it stopped" : e.getMessage()));
+            return 1;
+        }
+    }
+
+    /**
+     * The daemon's status line, or null when none is running.
+     */
+    public static String status(Path socketFile) {
+        return request(socketFile, CommandDaemon.STATUS);
+    }
+
+    /**
+     * Asks the daemon to shut down once its running commands finish. Returns its reply,
+     * or null when none is running.
+     */
+    public static String stop(Path socketFile) {
+        return request(socketFile, CommandDaemon.STOP);
+    }
+
+    private static String request(Path socketFile, byte request) {
+        if (!Files.exists(socketFile)) {
+            return null;
+        }
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketFile));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            writeHeader(out, request);
+            out.flush();
+            return in.readByte() == CommandDaemon.INFO ? CommandDaemon.readString(in) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, byte request) throws IOException {
+        out.writeInt(CommandDaemon.MAGIC);
+        out.writeInt(CommandDaemon.PROTOCOL);
+        out.writeByte(request);
+    }
+
+    /**
+     * The daemon prints UTF-8; a console with another encoding gets the text re-encoded.
+     */
+    private static void copy(byte[] bytes, PrintStream target) {
+        if (target.charset().equals(StandardCharsets.UTF_8)) {
+            target.write(bytes, 0, bytes.length);
+        } else {
+            target.print(new String(bytes, StandardCharsets.UTF_8));
+        }
+        target.flush();
+    }
+}
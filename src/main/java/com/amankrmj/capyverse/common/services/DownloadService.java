@@ -5,5 +5,17 @@ import java.io.IOException;
 public interface DownloadService {
     void download() throws IOException, InterruptedException;
 
-    void unzipFile() throws IOException;
+    /**
+     * Unpacks the downloaded archive into the install directory.
+     */
+    void extractArchive() throws IOException;
+
+    /**
+     * Downloads and extracts in one pass. Implementations that can overlap the two
+     * should stream the archive into the extractor as it arrives.
+     */
+    default void downloadAndExtract() throws IOException, InterruptedException {
+        download();
+        extractArchive();
+    }
 }
@@ -0,0 +1,404 @@
+package com.amankrmj.capyverse.common.services;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small HTTP/1.1 server for publishing files and generated documents on a LAN. Every
+ * connection runs on its own virtual thread and is kept alive between requests. File
+ * bodies go from the file channel straight to the socket with
+ * {@link FileChannel#transferTo}, which the OS turns into a zero-copy send.
+ * <p>
+ * Only GET and HEAD are served. Responses carry strong validators, answer
+ * {@code If-None-Match} and {@code If-Modified-Since} with 304, and honour single
+ * {@code Range} requests, guarded by {@code If-Range}, with 206.
+ */
+public class FileHttpServer implements AutoCloseable {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final int IDLE_TIMEOUT_MILLIS = 30_000;
+    private static final int FALLBACK_CHUNK = 64 * 1024;
+
+    private final Map<String, Handler> routes = new LinkedHashMap<>();
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private ServerSocketChannel server;
+    private Consumer<String> accessLog = line -> {
+    };
+
+    /**
+     * A parsed request. Header names are lower case.
+     */
+    public record Request(String method, String path, Map<String, String> headers) {
+        public String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(Request request, Response response) throws IOException;
+    }
+
+    /**
+     * Serves requests whose path starts with {@code prefix}; the first matching route wins.
+     */
+    public FileHttpServer route(String prefix, Handler handler) {
+        routes.put(prefix, handler);
+        return this;
+    }
+
+    /**
+     * Receives one line per served request.
+     */
+    public void setAccessLog(Consumer<String> accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    public void bind(InetSocketAddress address) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(address, 128);
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    public void serve() throws IOException {
+        while (server.isOpen()) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                if (!server.isOpen()) {
+                    return;
+                }
+                throw e;
+            }
+            connections.submit(() -> handleConnection(client));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        connections.shutdownNow();
+    }
+
+    private void handleConnection(SocketChannel client) {
+        try (client) {
+            client.socket().setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            client.socket().setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(client.socket().getInputStream());
+            boolean keepAlive = true;
+            while (keepAlive) {
+                String head = readHead(in);
+                if (head == null) {
+                    return;
+                }
+                Request request = parse(head);
+                Response response = new Response(client, request);
+                if (request == null) {
+                    response.keepAlive = false;
+                    response.status(400, "Bad Request");
+                } else if (!request.method().equals("GET") && !request.method().equals("HEAD")) {
+                    response.keepAlive = false;
+                    response.status(405, "Method Not Allowed");
+                } else {
+                    keepAlive = dispatch(request, response);
+                }
+                keepAlive &= response.keepAlive;
+                accessLog.accept(client.socket().getInetAddress().getHostAddress() + " "
+                        + (request == null ? "-" : request.method() + " " + request.path())
+                        + " " + response.sentStatus + " " + response.sentBytes);
+            }
+        } catch (SocketTimeoutException ignored) {
+            // Idle keep-alive connection
+        } catch (IOException ignored) {
+            // Client went away mid-response
+        }
+    }
+
+    private boolean dispatch(Request request, Response response) throws IOException {
+        String connection = request.header("connection");
+        response.keepAlive = connection == null || !connection.equalsIgnoreCase("close");
+        for (Map.Entry<String, Handler> route : routes.entrySet()) {
+            if (request.path().startsWith(route.getKey())) {
+                route.getValue().handle(request, response);
+                return response.keepAlive;
+            }
+        }
+        response.status(404, "Not Found");
+        return response.keepAlive;
+    }
+
+    /**
+     * Reads up to the blank line that ends the request head; null on a clean end of stream.
+     */
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(512);
+        boolean lineEmpty = true;
+        int b;
+        while ((b = in.read()) != -1) {
+            head.write(b);
+            if (b == '\n') {
+                if (lineEmpty && head.size() > 2) {
+                    return head.toString(StandardCharsets.ISO_8859_1);
+                }
+                lineEmpty = true;
+            } else if (b != '\r') {
+                lineEmpty = false;
+            }
+            if (head.size() > MAX_HEADER_BYTES) {
+                throw new IOException("Request head too large");
+            }
+        }
+        return null;
+    }
+
+    private static Request parse(String head) {
+        String[] lines = head.split("\r?\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            return null;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+            }
+        }
+        if (requestLine[2].equals("HTTP/1.0") && !"keep-alive".equalsIgnoreCase(headers.get("connection"))) {
+            headers.put("connection", "close");
+        }
+        String target = requestLine[1];
+        int query = target.indexOf('?');
+        String path = URLDecoder.decode(query >= 0 ? target.substring(0, query) : target, StandardCharsets.UTF_8);
+        return new Request(requestLine[0], path, headers);
+    }
+
+    /**
+     * Writes exactly one response to a request.
+     */
+    public static final class Response {
+        private final SocketChannel client;
+        private final Request request;
+        private boolean keepAlive = true;
+        private int sentStatus;
+        private long sentBytes;
+
+        private Response(SocketChannel client, Request request) {
+            this.client = client;
+            this.request = request;
+        }
+
+        private boolean isHead() {
+            return request != null && request.method().equals("HEAD");
+        }
+
+        /**
+         * A plain-text status response, such as 404.
+         */
+        public void status(int status, String message) throws IOException {
+            byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+            writeHead(status, reason(status), "text/plain; charset=utf-8", body.length, Map.of());
+            writeBody(body);
+        }
+
+        /**
+         * An in-memory document, answered with 304 when the client already holds
+         * {@code etag}.
+         */
+        public void bytes(byte[] body, String contentType, String etag) throws IOException {
+            Map<String, String> headers = Map.of("ETag", etag, "Cache-Control", "no-cache");
+            if (matches(request.header("if-none-match"), etag)) {
+                writeHead(304, "Not Modified", null, -1, headers);
+                return;
+            }
+            writeHead(200, "OK", contentType, body.length, headers);
+            writeBody(body);
+        }
+
+        /**
+         * A file with conditional and range support. The body is sent zero-copy.
+         */
+        public void file(Path file, String contentType) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                Instant modified = Files.getLastModifiedTime(file).toInstant();
+                String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified.toEpochMilli()) + "\"";
+                String lastModified = HTTP_DATE.format(modified);
+                Map<String, String> headers = new LinkedHashMap<>();
+                headers.put("ETag", etag);
+                headers.put("Last-Modified", lastModified);
+                headers.put("Accept-Ranges", "bytes");
+
+                String ifNoneMatch = request.header("if-none-match");
+                if (ifNoneMatch != null ? matches(ifNoneMatch, etag) : notModifiedSince(request.header("if-modified-since"), modified)) {
+                    writeHead(304, "Not Modified", null, -1, headers);
+                    return;
+                }
+
+                long start = 0;
+                long end = size - 1;
+                int status = 200;
+                String range = request.header("range");
+                String ifRange = request.header("if-range");
+                boolean rangeApplies = range != null
+                        && (ifRange == null || ifRange.equals(etag) || ifRange.equals(lastModified));
+                if (rangeApplies) {
+                    Matcher matcher = RANGE.matcher(range.trim());
+                    // Multiple or malformed ranges fall back to the full body
+                    if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                        if (matcher.group(1).isEmpty()) {
+                            start = Math.max(0, size - Long.parseLong(matcher.group(2)));
+                        } else {
+                            start = Long.parseLong(matcher.group(1));
+                            if (!matcher.group(2).isEmpty()) {
+                                end = Math.min(end, Long.parseLong(matcher.group(2)));
+                            }
+                        }
+                        if (start >= size || start > end) {
+                            headers.put("Content-Range", "bytes */" + size);
+                            writeHead(416, "Range Not Satisfiable", null, 0, headers);
+                            return;
+                        }
+                        status = 206;
+                        headers.put("Content-Range", "bytes " + start + "-" + end + "/" + size);
+                    }
+                }
+                long length = end - start + 1;
+                writeHead(status, reason(status), contentType, length, headers);
+                if (isHead()) {
+                    return;
+                }
+                long position = start;
+                ByteBuffer fallback = null;
+                while (position <= end) {
+                    long sent = channel.transferTo(position, end - position + 1, client);
+                    if (sent == 0) {
+                        // A virtual thread's socket is non-blocking underneath, so sendfile
+                        // gives up on a full send buffer; a regular write parks until the
+                        // client drains it
+                        if (fallback == null) {
+                            fallback = ByteBuffer.allocate(FALLBACK_CHUNK);
+                        }
+                        fallback.clear().limit((int) Math.min(FALLBACK_CHUNK, end - position + 1));
+                        if (channel.read(fallback, position) < 0) {
+                            throw new IOException("Unexpected end of " + file.getFileName());
+                        }
+                        fallback.flip();
+                        while (fallback.hasRemaining()) {
+                            sent += client.write(fallback);
+                        }
+                    }
+                    position += sent;
+                    sentBytes += sent;
+                }
+            }
+        }
+
+        private static boolean matches(String ifNoneMatch, String etag) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean notModifiedSince(String ifModifiedSince, Instant modified) {
+            if (ifModifiedSince == null) {
+                return false;
+            }
+            try {
+                Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return modified.getEpochSecond() <= since.getEpochSecond();
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+
+        private void writeHead(int status, String reason, String contentType, long length,
+                               Map<String, String> headers) throws IOException {
+            StringBuilder head = new StringBuilder(256);
+            head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+            head.append("Date: ").append(HTTP_DATE.format(Instant.now())).append("\r\n");
+            head.append("Server: capyverse-mirror\r\n");
+            if (contentType != null) {
+                head.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            if (length >= 0) {
+                head.append("Content-Length: ").append(length).append("\r\n");
+            }
+            headers.forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+            if (!keepAlive) {
+                head.append("Connection: close\r\n");
+            }
+            head.append("\r\n");
+            ByteBuffer buffer = ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+            while (buffer.hasRemaining()) {
+                client.write(buffer);
+            }
+            sentStatus = status;
+        }
+
+        private void writeBody(byte[] body) throws IOException {
+            if (isHead()) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            while (buffer.hasRemaining()) {
+                sentBytes += client.write(buffer);
+            }
+        }
+
+        private static String reason(int status) {
+            return switch (status) {
+                case 200 -> "OK";
+                case 206 -> "Partial Content";
+                case 400 -> "Bad Request";
+                case 404 -> "Not Found";
+                case 405 -> "Method Not Allowed";
+                case 502 -> "Bad Gateway";
+                default -> "Status " + status;
+            };
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.amankrmj.capyverse.common.services;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per-tree list of files with their SHA-256 and size, written as one
+ * {@code <sha256> <size> <relative path>} line per file.
+ */
+public class FileManifest {
+    public static final String FILE_NAME = ".capy-manifest";
+
+    public record Item(String sha256, long size, String path) {
+    }
+
+    private FileManifest() {
+    }
+
+    public static void write(Path file, List<Item> items) throws IOException {
+        List<Item> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparing(Item::path));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Item item : sorted) {
+                writer.write(item.sha256() + " " + item.size() + " " + item.path());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static List<Item> read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Parses manifest lines from any source, such as a manifest published next to an
+     * archive on a server.
+     */
+    public static List<Item> read(BufferedReader reader) throws IOException {
+        List<Item> items = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split(" ", 3);
+            if (parts.length == 3) {
+                try {
+                    items.add(new Item(parts[0], Long.parseLong(parts[1]), parts[2]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Corrupt manifest line: " + line);
+                }
+            }
+        }
+        return items;
+    }
+}
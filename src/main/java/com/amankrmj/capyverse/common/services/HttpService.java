@@ -0,0 +1,136 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.Metrics;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Process-wide HTTP layer shared by all services. A single {@link HttpClient} prefers
+ * HTTP/2, follows redirects and runs on virtual threads, so every request of a command
+ * reuses the same warm connections instead of paying for new handshakes and thread pools.
+ * Range segments fetched in parallel are the exception: see {@link #segmentRequest}.
+ * Timeouts and the retry policy come from {@link CapyConfig}:
+ * {@code http.connect.timeout} and {@code http.read.timeout} (seconds),
+ * {@code http.retry.attempts} and {@code http.retry.backoff} (milliseconds).
+ */
+public class HttpService {
+    private static HttpService shared;
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * How often and how patiently a failed request is retried. The delay doubles after every
+     * attempt, up to {@code maxBackoff}, with random jitter so parallel segments do not
+     * retry in lockstep.
+     */
+    public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        public Duration backoff(int attempt) {
+            long base = initialBackoff.toMillis() << Math.min(attempt - 1, 16);
+            long capped = Math.min(base, maxBackoff.toMillis());
+            return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+        }
+    }
+
+    public HttpService(Duration connectTimeout, Duration readTimeout, RetryPolicy retryPolicy) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.readTimeout = readTimeout;
+        this.retryPolicy = retryPolicy;
+    }
+
+    public static synchronized HttpService shared() {
+        if (shared == null) {
+            shared = new HttpService(
+                    Duration.ofSeconds(CapyConfig.getLong("http.connect.timeout", 10)),
+                    Duration.ofSeconds(CapyConfig.getLong("http.read.timeout", 60)),
+                    new RetryPolicy(
+                            (int) Math.max(1, CapyConfig.getLong("http.retry.attempts", 3)),
+                            Duration.ofMillis(CapyConfig.getLong("http.retry.backoff", 500)),
+                            Duration.ofSeconds(10)));
+        }
+        return shared;
+    }
+
+    public HttpClient client() {
+        return client;
+    }
+
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Request builder for {@code url} with the configured read timeout, which bounds the
+     * wait for the response headers.
+     */
+    public HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(readTimeout);
+    }
+
+    /**
+     * Request builder for one of several byte ranges fetched in parallel. HTTP/2 would
+     * multiplex them all over one connection, sharing its congestion window, so segments
+     * use HTTP/1.1 and the client opens a pooled connection per concurrent request.
+     */
+    public HttpRequest.Builder segmentRequest(String url) {
+        return request(url).version(HttpClient.Version.HTTP_1_1);
+    }
+
+    /**
+     * Sends a request, retrying connection failures, timeouts and 429/5xx answers with
+     * exponential backoff. The last response is returned as is once attempts run out.
+     * Each attempt is timed as {@code http.response} (until headers for streamed bodies),
+     * and requests and retries are counted.
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        Metrics metrics = Metrics.global();
+        for (int attempt = 1; ; attempt++) {
+            if (attempt > 1) {
+                metrics.increment("http.retries");
+            }
+            metrics.increment("http.requests");
+            try (Metrics.Timer ignored = metrics.time("http.response")) {
+                HttpResponse<T> response = client.send(request, handler);
+                if (!isRetryable(response.statusCode()) || attempt >= retryPolicy.maxAttempts()) {
+                    return response;
+                }
+                discard(response);
+            } catch (IOException e) {
+                if (attempt >= retryPolicy.maxAttempts()) {
+                    throw e;
+                }
+            }
+            Thread.sleep(retryPolicy.backoff(attempt));
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
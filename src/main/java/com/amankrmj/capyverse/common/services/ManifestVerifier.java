@@ -0,0 +1,131 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.Sha256;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Re-hashes installed trees against their {@link FileManifest}. The files of all trees
+ * being checked go onto one fork-join pool, largest first, so every core stays busy until
+ * the end instead of one tree finishing long after the others.
+ */
+public class ManifestVerifier {
+    private final int parallelism;
+
+    public enum Status {
+        MODIFIED, MISSING
+    }
+
+    public record Problem(String path, Status status) {
+    }
+
+    /**
+     * Outcome for one tree. {@code hasManifest} is false for trees installed before
+     * manifests were recorded; such trees cannot be checked.
+     */
+    public record Report(Path root, boolean hasManifest, int files, long bytes, List<Problem> problems) {
+        public boolean isClean() {
+            return hasManifest && problems.isEmpty();
+        }
+    }
+
+    private record Check(int tree, FileManifest.Item item) {
+    }
+
+    public ManifestVerifier() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ManifestVerifier(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Verifies every tree and returns one report per root, in the given order.
+     */
+    public List<Report> verify(List<Path> roots) throws IOException, InterruptedException {
+        List<List<FileManifest.Item>> manifests = new ArrayList<>();
+        List<Check> checks = new ArrayList<>();
+        for (int i = 0; i < roots.size(); i++) {
+            Path manifest = roots.get(i).resolve(FileManifest.FILE_NAME);
+            List<FileManifest.Item> items = Files.isRegularFile(manifest) ? FileManifest.read(manifest) : null;
+            manifests.add(items);
+            if (items != null) {
+                for (FileManifest.Item item : items) {
+                    checks.add(new Check(i, item));
+                }
+            }
+        }
+        checks.sort(Comparator.comparingLong((Check check) -> check.item().size()).reversed());
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Problem> results;
+        try {
+            // toList keeps the nulls of matching files, so results line up with checks
+            results = pool.submit(() -> checks.parallelStream()
+                    .map(check -> check(roots.get(check.tree()), check.item()))
+                    .toList()).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Verification failed: " + cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<List<Problem>> problems = new ArrayList<>();
+        for (int i = 0; i < roots.size(); i++) {
+            problems.add(new ArrayList<>());
+        }
+        for (int i = 0; i < checks.size(); i++) {
+            Problem problem = results.get(i);
+            if (problem != null) {
+                problems.get(checks.get(i).tree()).add(problem);
+            }
+        }
+        List<Report> reports = new ArrayList<>();
+        for (int i = 0; i < roots.size(); i++) {
+            List<FileManifest.Item> items = manifests.get(i);
+            long bytes = 0;
+            if (items != null) {
+                for (FileManifest.Item item : items) {
+                    bytes += item.size();
+                }
+            }
+            List<Problem> treeProblems = problems.get(i);
+            treeProblems.sort(Comparator.comparing(Problem::path));
+            reports.add(new Report(roots.get(i), items != null, items == null ? 0 : items.size(), bytes, treeProblems));
+        }
+        return reports;
+    }
+
+    /**
+     * Returns the problem with one file, or null when it matches. A size change is
+     * reported without reading the file.
+     */
+    private static Problem check(Path root, FileManifest.Item item) {
+        Path file = root.resolve(item.path());
+        try {
+            if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                return new Problem(item.path(), Status.MISSING);
+            }
+            if (Files.size(file) != item.size() || !Sha256.ofFile(file).equals(item.sha256())) {
+                return new Problem(item.path(), Status.MODIFIED);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.amankrmj.capyverse.common.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * A ZIP archive on an HTTP server that supports range requests, read without
+ * downloading it. The central directory comes from the tail of the archive, usually in a
+ * single request, and entries are then read with ranges of their own. Later requests are
+ * tied to the archive first seen with {@code If-Range}, so a file replaced on the server
+ * mid-way fails the read instead of mixing two archives.
+ */
+public class RemoteZip {
+    /**
+     * End of central directory, its largest comment and the zip64 locator and record.
+     */
+    private static final int TAIL_SIZE = 22 + 0xFFFF + 20 + 56;
+
+    private final String url;
+    private final HttpService http;
+    private List<ZipExtractor.Entry> entries;
+    private long directoryOffset;
+    private long length;
+    private String validator;
+
+    public RemoteZip(String url) {
+        this(url, HttpService.shared());
+    }
+
+    public RemoteZip(String url, HttpService http) {
+        this.url = url;
+        this.http = http;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Fetches the central directory. Fails when the server does not answer range requests.
+     */
+    public List<ZipExtractor.Entry> entries() throws IOException, InterruptedException {
+        if (entries != null) {
+            return entries;
+        }
+        HttpResponse<byte[]> tail = http.send(http.request(url)
+                .header("Range", "bytes=-" + TAIL_SIZE)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (tail.statusCode() != 206) {
+            throw new IOException("Server does not support range requests for " + url + " (status " + tail.statusCode() + ")");
+        }
+        length = totalLength(tail);
+        validator = tail.headers().firstValue("ETag")
+                .or(() -> tail.headers().firstValue("Last-Modified"))
+                .orElse(null);
+        long tailStart = length - tail.body().length;
+        ByteBuffer buffer = ByteBuffer.wrap(tail.body()).order(ByteOrder.LITTLE_ENDIAN);
+        directoryOffset = ZipExtractor.centralDirectoryOffset(buffer, tailStart);
+        long base = tailStart;
+        if (directoryOffset < tailStart) {
+            byte[] head = read(directoryOffset, tailStart);
+            buffer = ByteBuffer.allocate(head.length + tail.body().length).order(ByteOrder.LITTLE_ENDIAN)
+                    .put(head).put(tail.body()).flip();
+            base = directoryOffset;
+        }
+        entries = ZipExtractor.readCentralDirectory(buffer, base);
+        return entries;
+    }
+
+    /**
+     * Archive offset of the central directory, which is where the last entry's bytes end.
+     */
+    public long getDirectoryOffset() {
+        return directoryOffset;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Streams the bytes {@code [start, end)} of the archive.
+     */
+    public InputStream open(long start, long end) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = http.segmentRequest(url)
+                .header("Range", "bytes=" + start + "-" + (end - 1))
+                .GET();
+        if (validator != null) {
+            builder.header("If-Range", validator);
+        }
+        HttpResponse<InputStream> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 206) {
+            response.body().close();
+            if (response.statusCode() == 200) {
+                throw new ChangedException(url);
+            }
+            throw new IOException("Range request for bytes " + start + "-" + (end - 1) + " failed. Status: " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    /**
+     * The archive on the server is no longer the one whose directory was read; retrying
+     * the same ranges cannot help.
+     */
+    public static class ChangedException extends IOException {
+        ChangedException(String url) {
+            super("Remote archive changed while reading " + url);
+        }
+    }
+
+    private byte[] read(long start, long end) throws IOException, InterruptedException {
+        try (InputStream in = open(start, end)) {
+            byte[] bytes = in.readNBytes(Math.toIntExact(end - start));
+            if (bytes.length != end - start) {
+                throw new IOException("Range " + start + "-" + (end - 1) + " ended early");
+            }
+            return bytes;
+        }
+    }
+
+    private static long totalLength(HttpResponse<?> response) throws IOException {
+        String range = response.headers().firstValue("Content-Range").orElse("");
+        int slash = range.lastIndexOf('/');
+        try {
+            return Long.parseLong(range.substring(slash + 1).trim());
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IOException("Missing archive length in Content-Range: " + range);
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.BlockPipe;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+import com.amankrmj.capyverse.common.utils.Sha256;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Streaming extractor for gzip-compressed tar archives, the format Linux and macOS JDKs
+ * ship in. A tar has no central directory, so entries are handled in archive order by a
+ * three-stage pipeline: one thread inflates the gzip stream and hands the blocks over a
+ * {@link BlockPipe}, the calling thread parses tar headers from them, and a pool of
+ * writer threads writes file contents. Files up to {@link #MAX_BUFFERED_FILE} are read
+ * into memory and left to the pool while parsing moves on, with at most
+ * {@link #MAX_BUFFERED_BYTES} in flight; larger files are written by the parsing thread
+ * itself. Hard links are created once every file is written and directory permissions
+ * are applied last, so a read-only directory cannot block its own contents. Reads
+ * ustar, GNU long names and pax headers.
+ */
+public class TarGzExtractor implements ArchiveExtractor {
+    private static final int RECORD_SIZE = 512;
+    private static final int INFLATE_BLOCK_SIZE = 64 * 1024;
+    private static final int PIPE_BLOCKS = 64;
+    private static final int MAX_BUFFERED_FILE = 4 * 1024 * 1024;
+    private static final int MAX_BUFFERED_BYTES = 64 * 1024 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[INFLATE_BLOCK_SIZE]);
+
+    private final Path archive;
+    private final Path targetDir;
+    private final int writers;
+    private final Queue<FileManifest.Item> manifestItems = new ConcurrentLinkedQueue<>();
+    private ContentStore store;
+    private ProgressRenderer.Task progress;
+
+    public TarGzExtractor(Path archive, Path targetDir) {
+        this(archive, targetDir, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TarGzExtractor(Path archive, Path targetDir, int writers) {
+        this.archive = archive;
+        this.targetDir = targetDir.toAbsolutePath().normalize();
+        this.writers = Math.max(1, writers);
+    }
+
+    @Override
+    public void setContentStore(ContentStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Counts compressed bytes read against a progress task; the uncompressed size of a
+     * tar is not known up front.
+     */
+    @Override
+    public void setProgress(ProgressRenderer.Task progress) {
+        this.progress = progress;
+    }
+
+    @Override
+    public List<FileManifest.Item> getManifestItems() {
+        return new ArrayList<>(manifestItems);
+    }
+
+    @Override
+    public int extract() throws IOException {
+        if (progress != null) {
+            progress.reset("extracting", Files.size(archive));
+        }
+        try (InputStream in = Files.newInputStream(archive)) {
+            return extract(progress == null ? in : new FilterInputStream(in) {
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int n = super.read(buffer, offset, length);
+                    if (n > 0) {
+                        progress.add(n);
+                    }
+                    return n;
+                }
+            });
+        }
+    }
+
+    /**
+     * Extracts a gzip-compressed tar as it is read, e.g. straight from a download, and
+     * returns the number of files written.
+     */
+    public int extract(InputStream compressed) throws IOException {
+        manifestItems.clear();
+        BlockPipe pipe = new BlockPipe(PIPE_BLOCKS);
+        AtomicReference<Throwable> inflateFailure = new AtomicReference<>();
+        Parser parser = new Parser();
+        try (ExecutorService inflater = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("tar-inflate").daemon().factory());
+             ExecutorService pool = Executors.newFixedThreadPool(writers,
+                     Thread.ofPlatform().name("tar-write-", 0).daemon().factory())) {
+            Future<Void> inflating = inflater.submit(() -> {
+                inflate(compressed, pipe, inflateFailure);
+                return null;
+            });
+            try (InputStream tar = pipe) {
+                parser.parse(tar, pool);
+            } catch (IOException | RuntimeException e) {
+                pool.shutdownNow();
+                inflating.cancel(true);
+                // The parser only sees the pipe's end of an inflating failure
+                Throwable cause = inflateFailure.get();
+                if (cause instanceof ZipException || cause instanceof EOFException) {
+                    throw new IOException("Corrupt gzip data: " + cause.getMessage(), cause);
+                }
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+            try {
+                inflating.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException io ? io : new IOException("Inflating failed: " + cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Extraction interrupted", e);
+            }
+        }
+        parser.finish();
+        return parser.files;
+    }
+
+    /**
+     * Inflates the whole gzip stream into fresh blocks for the parser. Data after the
+     * tar's end marker is still read, so concatenated gzip members and padding are
+     * consumed, and dropped by the closed pipe.
+     */
+    private static void inflate(InputStream compressed, BlockPipe pipe, AtomicReference<Throwable> failure)
+            throws IOException, InterruptedException {
+        try (GZIPInputStream gzip = new GZIPInputStream(compressed, INFLATE_BLOCK_SIZE)) {
+            while (true) {
+                byte[] block = gzip.readNBytes(INFLATE_BLOCK_SIZE);
+                if (block.length == 0) {
+                    break;
+                }
+                pipe.write(block);
+            }
+            pipe.finish();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failure.set(e);
+            pipe.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * State of one pass over the tar stream, owned by the parsing thread apart from the
+     * failure written by the pool.
+     */
+    private class Parser {
+        private final Semaphore budget = new Semaphore(MAX_BUFFERED_BYTES);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Set<Path> createdDirectories = new HashSet<>();
+        private final Map<Path, Integer> directoryModes = new HashMap<>();
+        private final List<String[]> hardLinks = new ArrayList<>();
+        private final List<String[]> symlinks = new ArrayList<>();
+        private int files;
+
+        void parse(InputStream in, ExecutorService pool) throws IOException {
+            byte[] header = new byte[RECORD_SIZE];
+            String longName = null;
+            String longLink = null;
+            Map<String, String> pax = Map.of();
+            while (readRecord(in, header)) {
+                checkFailure();
+                if (isZero(header)) {
+                    break;
+                }
+                verifyChecksum(header);
+                char type = (char) header[156];
+                long size = pax.containsKey("size") ? Long.parseLong(pax.get("size")) : number(header, 124, 12);
+                switch (type) {
+                    case 'L' -> {
+                        longName = trimNul(new String(readEntry(in, size), StandardCharsets.UTF_8));
+                        continue;
+                    }
+                    case 'K' -> {
+                        longLink = trimNul(new String(readEntry(in, size), StandardCharsets.UTF_8));
+                        continue;
+                    }
+                    case 'x' -> {
+                        pax = parsePax(readEntry(in, size));
+                        continue;
+                    }
+                    case 'g' -> {
+                        skip(in, padded(size));
+                        continue;
+                    }
+                    default -> {
+                    }
+                }
+                String name = stripDot(pax.getOrDefault("path", longName != null ? longName : headerName(header)));
+                String link = pax.getOrDefault("linkpath", longLink != null ? longLink : string(header, 157, 100));
+                int mode = (int) (number(header, 100, 8) & 07777);
+                longName = null;
+                longLink = null;
+                pax = Map.of();
+                if (name.isEmpty()) {
+                    skip(in, padded(size));
+                    continue;
+                }
+                Path target = ArchiveExtractor.resolveEntry(targetDir, name);
+                switch (type) {
+                    case '5' -> {
+                        createDirectory(target);
+                        directoryModes.put(target, mode);
+                    }
+                    case '2' -> symlinks.add(new String[]{name, link});
+                    case '1' -> hardLinks.add(new String[]{name, stripDot(link)});
+                    case '0', '\0', '7' -> {
+                        createDirectory(target.getParent());
+                        writeFile(in, pool, target, name, mode, size);
+                        files++;
+                    }
+                    default -> {
+                        // Devices and FIFOs have no place in a JDK
+                    }
+                }
+                if (type != '0' && type != '\0' && type != '7') {
+                    skip(in, padded(size));
+                }
+            }
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Extraction interrupted", e);
+            }
+            checkFailure();
+        }
+
+        /**
+         * Small files are buffered and written by the pool; the semaphore bounds the bytes
+         * buffered at once. Large files are streamed from the tar on this thread.
+         */
+        private void writeFile(InputStream in, ExecutorService pool, Path target, String name, int mode, long size)
+                throws IOException {
+            if (size > MAX_BUFFERED_FILE) {
+                write(in, target, name, mode, size);
+                skip(in, padded(size) - size);
+                return;
+            }
+            int length = (int) size;
+            try {
+                budget.acquire(length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Extraction interrupted", e);
+            }
+            byte[] content;
+            try {
+                content = in.readNBytes(length);
+                if (content.length != length) {
+                    throw new IOException("Truncated entry: " + name);
+                }
+                skip(in, padded(size) - size);
+            } catch (IOException e) {
+                budget.release(length);
+                throw e;
+            }
+            pool.execute(() -> {
+                try {
+                    write(new ByteArrayInputStream(content), target, name, mode, size);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    budget.release(length);
+                }
+            });
+        }
+
+        /**
+         * Hard links, then symlinks, then directory permissions, once every file is on disk.
+         */
+        void finish() throws IOException {
+            Map<String, FileManifest.Item> byName = new HashMap<>();
+            for (FileManifest.Item item : manifestItems) {
+                byName.put(item.path(), item);
+            }
+            for (String[] hardLink : hardLinks) {
+                Path target = ArchiveExtractor.resolveEntry(targetDir, hardLink[0]);
+                Path source = ArchiveExtractor.resolveEntry(targetDir, hardLink[1]);
+                createDirectory(target.getParent());
+                Files.deleteIfExists(target);
+                try {
+                    Files.createLink(target, source);
+                } catch (UnsupportedOperationException | FileSystemException e) {
+                    Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                FileManifest.Item item = byName.get(hardLink[1]);
+                if (item != null) {
+                    manifestItems.add(new FileManifest.Item(item.sha256(), item.size(), hardLink[0]));
+                }
+                files++;
+            }
+            for (String[] symlink : symlinks) {
+                Path target = ArchiveExtractor.resolveEntry(targetDir, symlink[0]);
+                createDirectory(target.getParent());
+                ArchiveExtractor.createSymlink(targetDir, target, symlink[1]);
+            }
+            List<Path> directories = new ArrayList<>(directoryModes.keySet());
+            directories.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+            for (Path directory : directories) {
+                ArchiveExtractor.applyMode(directory, directoryModes.get(directory));
+            }
+        }
+
+        private void createDirectory(Path directory) throws IOException {
+            if (createdDirectories.add(directory)) {
+                Files.createDirectories(directory);
+            }
+        }
+
+        private void checkFailure() throws IOException {
+            Throwable cause = failure.get();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause != null) {
+                throw new IOException("Writing failed: " + cause.getMessage(), cause);
+            }
+        }
+    }
+
+    /**
+     * Writes {@code size} bytes of {@code in} to {@code target}, or into the store and
+     * links them, hashing them for the manifest on the way.
+     */
+    private void write(InputStream in, Path target, String name, int mode, long size) throws IOException {
+        byte[] buffer = BUFFER.get();
+        if (store != null) {
+            ContentStore.Writer writer = store.newWriter();
+            String hash;
+            try {
+                copy(in, size, buffer, name, writer::write);
+                hash = writer.commit();
+            } catch (IOException e) {
+                writer.abort();
+                throw e;
+            }
+            ArchiveExtractor.place(store, hash, target, name, mode);
+            manifestItems.add(new FileManifest.Item(hash, size, name));
+        } else {
+            MessageDigest digest = Sha256.newDigest();
+            try (OutputStream out = Files.newOutputStream(target)) {
+                copy(in, size, buffer, name, (bytes, offset, length) -> {
+                    out.write(bytes, offset, length);
+                    digest.update(bytes, offset, length);
+                });
+            }
+            ArchiveExtractor.applyMode(target, ArchiveExtractor.effectiveMode(name, mode));
+            manifestItems.add(new FileManifest.Item(Sha256.hex(digest), size, name));
+        }
+        Metrics.global().add("bytes.extracted", size);
+    }
+
+    @FunctionalInterface
+    private interface ByteSink {
+        void write(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    private static void copy(InputStream in, long size, byte[] buffer, String name, ByteSink sink) throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) {
+                throw new IOException("Truncated entry: " + name);
+            }
+            sink.write(buffer, 0, n);
+            remaining -= n;
+        }
+    }
+
+    private static boolean readRecord(InputStream in, byte[] record) throws IOException {
+        int n = in.readNBytes(record, 0, RECORD_SIZE);
+        if (n == 0) {
+            return false;
+        }
+        if (n != RECORD_SIZE) {
+            throw new IOException("Truncated tar header");
+        }
+        return true;
+    }
+
+    private static byte[] readEntry(InputStream in, long size) throws IOException {
+        if (size > MAX_BUFFERED_FILE) {
+            throw new IOException("Tar metadata entry too large: " + size + " bytes");
+        }
+        byte[] content = in.readNBytes((int) size);
+        if (content.length != size) {
+            throw new IOException("Truncated tar metadata entry");
+        }
+        skip(in, padded(size) - size);
+        return content;
+    }
+
+    private static void skip(InputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long n = in.skip(remaining);
+            if (n <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Truncated tar archive");
+                }
+                n = 1;
+            }
+            remaining -= n;
+        }
+    }
+
+    private static long padded(long size) {
+        return (size + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+    }
+
+    private static boolean isZero(byte[] record) {
+        for (byte b : record) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The header checksum treats its own field as spaces; old archivers summed signed bytes.
+     */
+    private static void verifyChecksum(byte[] header) throws IOException {
+        long expected = number(header, 148, 8);
+        long unsigned = 0;
+        long signed = 0;
+        for (int i = 0; i < RECORD_SIZE; i++) {
+            byte b = i >= 148 && i < 156 ? (byte) ' ' : header[i];
+            unsigned += b & 0xFF;
+            signed += b;
+        }
+        if (expected != unsigned && expected != signed) {
+            throw new IOException("Corrupt tar header: checksum mismatch");
+        }
+    }
+
+    /**
+     * ustar names may be split into a prefix and a name; the GNU format uses the prefix
+     * bytes for other fields, so the prefix only counts with the POSIX magic.
+     */
+    private static String headerName(byte[] header) {
+        String name = string(header, 0, 100);
+        boolean posix = header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a'
+                && header[261] == 'r' && header[262] == 0;
+        String prefix = posix ? string(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    /**
+     * Octal numbers padded with spaces or NULs, or base-256 when the high bit is set, as
+     * GNU tar writes sizes over 8 GB.
+     */
+    private static long number(byte[] header, int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int i = 1; i < length; i++) {
+                value = (value << 8) | (header[offset + i] & 0xFF);
+            }
+            return value;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (value != 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Corrupt tar header: bad number");
+            }
+            value = value * 8 + (b - '0');
+        }
+        return value;
+    }
+
+    private static String string(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimNul(String value) {
+        int nul = value.indexOf('\0');
+        return nul >= 0 ? value.substring(0, nul) : value;
+    }
+
+    private static String stripDot(String name) {
+        String stripped = name;
+        while (stripped.startsWith("./")) {
+            stripped = stripped.substring(2);
+        }
+        return stripped.equals(".") ? "" : stripped;
+    }
+
+    /**
+     * pax extended header records: {@code "<length> <key>=<value>\n"}, where the length
+     * counts the whole record in bytes.
+     */
+    private static Map<String, String> parsePax(byte[] content) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        int pos = 0;
+        while (pos < content.length) {
+            int space = pos;
+            while (space < content.length && content[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(content, pos, space - pos, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt pax header", e);
+            }
+            if (length <= 0 || pos + length > content.length) {
+                throw new IOException("Corrupt pax header");
+            }
+            String record = new String(content, space + 1, pos + length - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                values.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            pos += length;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,470 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+import com.amankrmj.capyverse.common.utils.Sha256;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Random-access ZIP extractor. The central directory is read from a memory-mapped view
+ * of the archive, the whole directory tree is created up front, and file entries are then
+ * written in parallel on a fork-join pool sized to the available cores. DEFLATED entries
+ * are inflated straight from the mapped archive; STORED entries are copied with a
+ * channel-to-channel transfer. Either way the entry's CRC-32 is checked against the
+ * central directory, so a damaged archive fails instead of installing a bad file. Unix permission bits and symlinks recorded by the archiver
+ * are restored when the target file system supports them. With a {@link ContentStore}
+ * set, file contents go into the store and the tree is assembled from links instead.
+ * Every file is hashed on its way to disk for the tree's {@link FileManifest}.
+ */
+public class ZipExtractor implements ArchiveExtractor {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int EOCD_MIN_SIZE = 22;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final int UNIX_HOST = 3;
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFLNK = 0120000;
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<ByteBuffer> OUTPUT = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE));
+
+    private final Path archive;
+    private final Path targetDir;
+    private final int parallelism;
+    private final Queue<FileManifest.Item> manifestItems = new ConcurrentLinkedQueue<>();
+    private ContentStore store;
+    private ProgressRenderer.Task progress;
+
+    public ZipExtractor(Path archive, Path targetDir) {
+        this(archive, targetDir, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ZipExtractor(Path archive, Path targetDir, int parallelism) {
+        this.archive = archive;
+        this.targetDir = targetDir.toAbsolutePath().normalize();
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Routes file contents through a content-addressed store: each file becomes a link to
+     * its store object.
+     */
+    @Override
+    public void setContentStore(ContentStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Counts uncompressed bytes written against a progress task.
+     */
+    @Override
+    public void setProgress(ProgressRenderer.Task progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Files written by the last {@link #extract()} with their SHA-256, hashed as they were
+     * written, and entry names as paths. Symlinks are not listed.
+     */
+    @Override
+    public List<FileManifest.Item> getManifestItems() {
+        return new ArrayList<>(manifestItems);
+    }
+
+    /**
+     * A central directory record. {@code mode} holds the Unix mode bits when the entry was
+     * written on a Unix host and 0 otherwise.
+     */
+    public record Entry(String name, int method, long crc, long compressedSize, long size,
+                        long localHeaderOffset, int mode) {
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        public boolean isSymlink() {
+            return (mode & S_IFMT) == S_IFLNK;
+        }
+    }
+
+    /**
+     * Extracts every entry and returns the number of files written.
+     */
+    @Override
+    public int extract() throws IOException {
+        manifestItems.clear();
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            long archiveSize = channel.size();
+            if (archiveSize > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large to map: " + archive);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, archiveSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            List<Entry> entries = readCentralDirectory(mapped);
+
+            List<Entry> files = new ArrayList<>();
+            List<Entry> symlinks = new ArrayList<>();
+            Set<Path> directories = new TreeSet<>();
+            directories.add(targetDir);
+            for (Entry entry : entries) {
+                Path target = ArchiveExtractor.resolveEntry(targetDir, entry.name());
+                if (entry.isDirectory()) {
+                    directories.add(target);
+                } else {
+                    directories.add(target.getParent());
+                    (entry.isSymlink() ? symlinks : files).add(entry);
+                }
+            }
+            for (Path directory : directories) {
+                Files.createDirectories(directory);
+            }
+
+            if (progress != null) {
+                progress.reset("extracting", files.stream().mapToLong(Entry::size).sum());
+            }
+            // Largest entries first so a big module file does not end up last on one core
+            files.sort(Comparator.comparingLong(Entry::compressedSize).reversed());
+            Metrics.global().add("bytes.extracted", files.stream().mapToLong(Entry::size).sum());
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> files.parallelStream().forEach(entry -> {
+                    try {
+                        extractEntry(channel, mapped, entry);
+                        if (progress != null) {
+                            progress.add(entry.size());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw new IOException("Extraction failed: " + cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Extraction interrupted", e);
+            } finally {
+                pool.shutdownNow();
+            }
+            // Only once every file is written, so none is written through a link
+            for (Entry symlink : symlinks) {
+                extractSymlink(mapped, symlink, ArchiveExtractor.resolveEntry(targetDir, symlink.name()),
+                        dataOffset(mapped, symlink));
+            }
+            return files.size() + symlinks.size();
+        }
+    }
+
+    /**
+     * Reads the central directory of the archive at {@code path}.
+     */
+    public static List<Entry> readCentralDirectory(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large to map: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return readCentralDirectory(mapped);
+        }
+    }
+
+    /**
+     * Offset of the first data byte of an entry, found by skipping its local header.
+     */
+    public static long dataOffset(ByteBuffer archive, Entry entry) throws IOException {
+        int header = Math.toIntExact(entry.localHeaderOffset());
+        if (archive.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Corrupt local header for " + entry.name());
+        }
+        int nameLength = Short.toUnsignedInt(archive.getShort(header + 26));
+        int extraLength = Short.toUnsignedInt(archive.getShort(header + 28));
+        return header + 30L + nameLength + extraLength;
+    }
+
+    private static List<Entry> readCentralDirectory(ByteBuffer buffer) throws IOException {
+        return readCentralDirectory(buffer, 0);
+    }
+
+    /**
+     * Archive offset where the central directory starts, read from a buffer holding the
+     * end of the archive; {@code base} is the archive offset of the buffer's first byte.
+     * Together with the entries' local header offsets this bounds every entry's bytes.
+     */
+    public static long centralDirectoryOffset(ByteBuffer buffer, long base) throws IOException {
+        return endOfCentralDirectory(buffer, base)[1];
+    }
+
+    /**
+     * Reads the central directory from a buffer holding the archive from at least the
+     * start of the directory to its end, such as the tail fetched with a range request;
+     * {@code base} is the archive offset of the buffer's first byte.
+     */
+    public static List<Entry> readCentralDirectory(ByteBuffer buffer, long base) throws IOException {
+        long[] end = endOfCentralDirectory(buffer, base);
+        long entryCount = end[0];
+        if (end[1] < base) {
+            throw new IOException("Central directory starts before the bytes read");
+        }
+        List<Entry> entries = new ArrayList<>((int) Math.min(entryCount, 1 << 16));
+        int pos = Math.toIntExact(end[1] - base);
+        for (long i = 0; i < entryCount; i++) {
+            if (buffer.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Corrupt central directory at offset " + pos);
+            }
+            int versionMadeBy = Short.toUnsignedInt(buffer.getShort(pos + 4));
+            int flags = Short.toUnsignedInt(buffer.getShort(pos + 8));
+            int method = Short.toUnsignedInt(buffer.getShort(pos + 10));
+            long crc = Integer.toUnsignedLong(buffer.getInt(pos + 16));
+            long compressedSize = Integer.toUnsignedLong(buffer.getInt(pos + 20));
+            long uncompressedSize = Integer.toUnsignedLong(buffer.getInt(pos + 24));
+            int nameLength = Short.toUnsignedInt(buffer.getShort(pos + 28));
+            int extraLength = Short.toUnsignedInt(buffer.getShort(pos + 30));
+            int commentLength = Short.toUnsignedInt(buffer.getShort(pos + 32));
+            int externalAttributes = buffer.getInt(pos + 38);
+            long localHeaderOffset = Integer.toUnsignedLong(buffer.getInt(pos + 42));
+
+            byte[] nameBytes = new byte[nameLength];
+            buffer.get(pos + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            int extra = pos + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = Short.toUnsignedInt(buffer.getShort(extra));
+                int length = Short.toUnsignedInt(buffer.getShort(extra + 2));
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    if (uncompressedSize == 0xFFFFFFFFL) {
+                        uncompressedSize = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == 0xFFFFFFFFL) {
+                        localHeaderOffset = buffer.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            if ((flags & 1) != 0) {
+                throw new IOException("Encrypted entries are not supported: " + name);
+            }
+            int mode = (versionMadeBy >> 8) == UNIX_HOST ? (externalAttributes >>> 16) : 0;
+            entries.add(new Entry(name, method, crc, compressedSize, uncompressedSize, localHeaderOffset, mode));
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    /**
+     * Entry count and central directory offset from the (zip64) end of central directory.
+     */
+    private static long[] endOfCentralDirectory(ByteBuffer buffer, long base) throws IOException {
+        int size = buffer.limit();
+        int eocd = -1;
+        for (int i = size - EOCD_MIN_SIZE; i >= Math.max(0, size - EOCD_MIN_SIZE - MAX_COMMENT); i--) {
+            if (buffer.getInt(i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new IOException("Not a zip archive: end of central directory not found");
+        }
+        long entryCount = Short.toUnsignedInt(buffer.getShort(eocd + 10));
+        long directoryOffset = Integer.toUnsignedLong(buffer.getInt(eocd + 16));
+        int locator = eocd - 20;
+        if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+            long zip64Eocd = buffer.getLong(locator + 8) - base;
+            if (zip64Eocd < 0 || buffer.getInt(Math.toIntExact(zip64Eocd)) != ZIP64_EOCD_SIGNATURE) {
+                throw new IOException("Corrupt zip64 end of central directory");
+            }
+            entryCount = buffer.getLong(Math.toIntExact(zip64Eocd) + 32);
+            directoryOffset = buffer.getLong(Math.toIntExact(zip64Eocd) + 48);
+        }
+        return new long[]{entryCount, directoryOffset};
+    }
+
+    /**
+     * SHA-256 and size of every file entry, computed by inflating the archive in memory
+     * without writing anything. Symlinks and directories are not listed.
+     */
+    public static List<FileManifest.Item> hashEntries(Path archive) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large to map: " + archive);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            List<FileManifest.Item> items = new ArrayList<>();
+            for (Entry entry : readCentralDirectory(mapped)) {
+                if (entry.isDirectory() || entry.isSymlink()) {
+                    continue;
+                }
+                long dataOffset = dataOffset(mapped, entry);
+                MessageDigest digest = Sha256.newDigest();
+                switch (entry.method()) {
+                    case ZipEntry.STORED -> digest.update(stored(mapped, entry, dataOffset));
+                    case ZipEntry.DEFLATED -> inflate(mapped, entry, dataOffset, digest::update);
+                    default -> throw new IOException("Unsupported compression method " + entry.method() + ": " + entry.name());
+                }
+                items.add(new FileManifest.Item(Sha256.hex(digest), entry.size(), entry.name()));
+            }
+            return items;
+        }
+    }
+
+    private void extractEntry(FileChannel channel, MappedByteBuffer mapped, Entry entry) throws IOException {
+        Path target = ArchiveExtractor.resolveEntry(targetDir, entry.name());
+        long dataOffset = dataOffset(mapped, entry);
+        if (store != null) {
+            storeEntry(mapped, entry, target, dataOffset);
+            return;
+        }
+        MessageDigest digest = Sha256.newDigest();
+        try (FileChannel out = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            switch (entry.method()) {
+                case ZipEntry.STORED -> {
+                    digest.update(stored(mapped, entry, dataOffset));
+                    long transferred = 0;
+                    while (transferred < entry.size()) {
+                        long n = channel.transferTo(dataOffset + transferred, entry.size() - transferred, out);
+                        if (n <= 0) {
+                            throw new IOException("Truncated entry: " + entry.name());
+                        }
+                        transferred += n;
+                    }
+                }
+                case ZipEntry.DEFLATED -> inflate(mapped, entry, dataOffset, chunk -> {
+                    digest.update(chunk.duplicate());
+                    while (chunk.hasRemaining()) {
+                        out.write(chunk);
+                    }
+                });
+                default -> throw new IOException("Unsupported compression method " + entry.method() + ": " + entry.name());
+            }
+        }
+        ArchiveExtractor.applyMode(target, ArchiveExtractor.effectiveMode(entry.name(), entry.mode()));
+        manifestItems.add(new FileManifest.Item(Sha256.hex(digest), entry.size(), entry.name()));
+    }
+
+    private void storeEntry(MappedByteBuffer mapped, Entry entry, Path target, long dataOffset) throws IOException {
+        ContentStore.Writer writer = store.newWriter();
+        String hash;
+        try {
+            switch (entry.method()) {
+                case ZipEntry.STORED -> writer.write(stored(mapped, entry, dataOffset));
+                case ZipEntry.DEFLATED -> inflate(mapped, entry, dataOffset, writer::write);
+                default -> throw new IOException("Unsupported compression method " + entry.method() + ": " + entry.name());
+            }
+            hash = writer.commit();
+        } catch (IOException e) {
+            writer.abort();
+            throw e;
+        }
+        ArchiveExtractor.place(store, hash, target, entry.name(), entry.mode());
+        manifestItems.add(new FileManifest.Item(hash, entry.size(), entry.name()));
+    }
+
+    @FunctionalInterface
+    private interface ChunkSink {
+        void accept(ByteBuffer chunk) throws IOException;
+    }
+
+    /**
+     * The data of a STORED entry, once its size and CRC-32 match the central directory.
+     * The check is a separate pass over the mapped bytes, which are hashed and copied
+     * straight from the mapping afterwards and so are still in memory.
+     */
+    private static ByteBuffer stored(MappedByteBuffer mapped, Entry entry, long dataOffset) throws IOException {
+        if (entry.compressedSize() != entry.size() || dataOffset + entry.size() > mapped.limit()) {
+            throw new IOException("Truncated entry: " + entry.name());
+        }
+        ByteBuffer data = mapped.slice(Math.toIntExact(dataOffset), Math.toIntExact(entry.size()));
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if (crc.getValue() != entry.crc()) {
+            throw new IOException("Checksum mismatch for entry: " + entry.name());
+        }
+        return data;
+    }
+
+    private static void inflate(MappedByteBuffer mapped, Entry entry, long dataOffset, ChunkSink sink) throws IOException {
+        Inflater inflater = INFLATER.get();
+        ByteBuffer output = OUTPUT.get();
+        CRC32 crc = new CRC32();
+        inflater.reset();
+        inflater.setInput(mapped.slice(Math.toIntExact(dataOffset), Math.toIntExact(entry.compressedSize())));
+        long written = 0;
+        try {
+            while (!inflater.finished()) {
+                output.clear();
+                int n = inflater.inflate(output);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated entry: " + entry.name());
+                }
+                output.flip();
+                crc.update(output.duplicate());
+                written += output.remaining();
+                sink.accept(output);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt entry " + entry.name() + ": " + e.getMessage(), e);
+        }
+        if (written != entry.size() || crc.getValue() != entry.crc()) {
+            throw new IOException("Checksum mismatch for entry: " + entry.name());
+        }
+    }
+
+    private void extractSymlink(MappedByteBuffer mapped, Entry entry, Path target, long dataOffset) throws IOException {
+        if (entry.method() != ZipEntry.STORED) {
+            ByteArrayOutputStream linkTarget = new ByteArrayOutputStream();
+            inflate(mapped, entry, dataOffset, chunk -> {
+                byte[] bytes = new byte[chunk.remaining()];
+                chunk.get(bytes);
+                linkTarget.write(bytes, 0, bytes.length);
+            });
+            ArchiveExtractor.createSymlink(targetDir, target, linkTarget.toString(StandardCharsets.UTF_8));
+        } else {
+            byte[] bytes = new byte[Math.toIntExact(entry.size())];
+            stored(mapped, entry, dataOffset).get(bytes);
+            ArchiveExtractor.createSymlink(targetDir, target, new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded single-producer, single-consumer pipe that hands whole byte blocks from one
+ * thread to another. The producer blocks while the pipe is full, which keeps memory
+ * bounded when the consumer is slower; the consumer reads it as a regular InputStream.
+ * Blocks are shared, not copied, so the producer must not reuse an array once written.
+ */
+public class BlockPipe extends InputStream {
+    private static final byte[] EOF = new byte[0];
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<byte[]> blocks;
+    private volatile Throwable failure;
+    private volatile boolean abandoned;
+    private byte[] current;
+    private int position;
+
+    public BlockPipe(int capacity) {
+        this.blocks = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Hands a block to the consumer, waiting for space if needed. Blocks written after
+     * the consumer closed the pipe are dropped.
+     */
+    public void write(byte[] block) throws InterruptedException {
+        while (!abandoned) {
+            if (blocks.offer(block, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Signals end of data; the consumer sees -1 once it has drained the pipe.
+     */
+    public void finish() throws InterruptedException {
+        write(EOF);
+    }
+
+    /**
+     * Signals that the producer failed; the consumer's next read throws.
+     */
+    public void fail(Throwable cause) {
+        failure = cause;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (current == null || position == current.length) {
+            if (current == EOF) {
+                return -1;
+            }
+            current = take();
+            position = 0;
+            if (current == EOF) {
+                return -1;
+            }
+        }
+        int n = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, n);
+        position += n;
+        return n;
+    }
+
+    private byte[] take() throws IOException {
+        try {
+            while (true) {
+                if (failure != null) {
+                    throw new IOException("Producer failed: " + failure.getMessage(), failure);
+                }
+                byte[] block = blocks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (block != null) {
+                    return block;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+    }
+
+    /**
+     * Called by the consumer when it needs no more data. The producer stops blocking on
+     * this pipe and any further blocks are discarded.
+     */
+    @Override
+    public void close() {
+        abandoned = true;
+        blocks.clear();
+    }
+}
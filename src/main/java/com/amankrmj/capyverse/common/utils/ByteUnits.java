@@ -0,0 +1,47 @@
+package com.amankrmj.capyverse.common.utils;
+
+public class ByteUnits {
+    private static final String[] UNITS = {"B", "KB", "MB", "GB", "TB"};
+
+    private ByteUnits() {
+    }
+
+    /**
+     * Formats a byte count with a binary unit, e.g. {@code 187.4 MB}.
+     */
+    public static String format(long bytes) {
+        double value = bytes;
+        int unit = 0;
+        while (Math.abs(value) >= 1024 && unit < UNITS.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return unit == 0 ? bytes + " B" : String.format("%.1f %s", value, UNITS[unit]);
+    }
+
+    /**
+     * Parses a byte count such as {@code 2G}, {@code 512MB}, {@code 1.5 GB} or
+     * {@code 1048576}, with binary units.
+     *
+     * @throws NumberFormatException when the text is not a byte count
+     */
+    public static long parse(String text) {
+        String value = text.trim().toUpperCase();
+        if (value.endsWith("B")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        int unit = 0;
+        if (!value.isEmpty()) {
+            int index = "KMGT".indexOf(value.charAt(value.length() - 1));
+            if (index >= 0) {
+                unit = index + 1;
+                value = value.substring(0, value.length() - 1);
+            }
+        }
+        double number = Double.parseDouble(value.trim());
+        if (number < 0) {
+            throw new NumberFormatException("Negative byte count: " + text);
+        }
+        return (long) (number * (1L << (10 * unit)));
+    }
+}
@@ -0,0 +1,123 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * User settings read from {@code capyverse\config.properties}. Every key can be
+ * overridden by an environment variable named {@code CAPY_} plus the key in upper case
+ * with dots replaced by underscores, e.g. {@code http.connect.timeout} becomes
+ * {@code CAPY_HTTP_CONNECT_TIMEOUT}.
+ */
+public class CapyConfig {
+    /**
+     * Every key the code reads; a new setting has to be listed here so that a
+     * {@code capy daemon} notices when a client overrides it.
+     */
+    public static final List<String> KEYS = List.of(
+            "cache.max.size",
+            "daemon.forward", "daemon.idle.timeout",
+            "http.connect.timeout", "http.read.timeout", "http.retry.attempts", "http.retry.backoff",
+            "install.lock.timeout",
+            "java.catalog.deadline", "java.catalog.sources", "java.catalog.url",
+            "java.mirror.deadline", "java.mirrors",
+            "metrics.log",
+            "prefetch.max.rate");
+    private static final Set<String> VARIABLES = variableNames();
+    private static final Properties PROPERTIES = load();
+
+    private CapyConfig() {
+    }
+
+    public static Path file() {
+        return CapyPaths.resolve("config.properties");
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        Path file = file();
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read " + file + ": " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * The variables of {@code env} that decide settings and paths, names in upper case:
+     * {@link CapyPaths#VARIABLES} and the override of every key in {@link #KEYS}. Others,
+     * such as those {@code capy env} exports, are left out.
+     */
+    public static Map<String, String> settingsVariables(Map<String, String> env) {
+        Map<String, String> settings = new TreeMap<>();
+        env.forEach((name, value) -> {
+            String upper = name.toUpperCase(Locale.ROOT);
+            if (VARIABLES.contains(upper) && !value.isBlank()) {
+                settings.put(upper, value.trim());
+            }
+        });
+        return settings;
+    }
+
+    public static String get(String key, String defaultValue) {
+        String env = System.getenv(variable(key));
+        if (env != null && !env.isBlank()) {
+            return env.trim();
+        }
+        String value = PROPERTIES.getProperty(key, defaultValue);
+        return value == null ? null : value.trim();
+    }
+
+    private static String variable(String key) {
+        return "CAPY_" + key.toUpperCase(Locale.ROOT).replace('.', '_');
+    }
+
+    private static Set<String> variableNames() {
+        Set<String> names = new HashSet<>(CapyPaths.VARIABLES);
+        for (String key : KEYS) {
+            names.add(variable(key));
+        }
+        return Set.copyOf(names);
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A byte count such as {@code 2G} or {@code 512MB}; see {@link ByteUnits#parse}.
+     */
+    public static long getBytes(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return ByteUnits.parse(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
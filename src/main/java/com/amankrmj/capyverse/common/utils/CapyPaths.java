@@ -0,0 +1,61 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Root of everything capyverse keeps on disk: installed JDKs ({@code lang}), caches,
+ * the content store and the config. {@code CAPY_HOME} overrides the default, which is
+ * {@code %LOCALAPPDATA%\capyverse} on Windows and {@code $XDG_DATA_HOME/capyverse}
+ * (usually {@code ~/.local/share/capyverse}) elsewhere.
+ */
+public final class CapyPaths {
+    /**
+     * Environment variables that decide the root.
+     */
+    public static final List<String> VARIABLES = List.of("CAPY_HOME", "LOCALAPPDATA", "USERPROFILE", "XDG_DATA_HOME", "HOME");
+    private static final Path ROOT = findRoot();
+
+    private CapyPaths() {
+    }
+
+    public static Path root() {
+        return ROOT;
+    }
+
+    /**
+     * A path below the root, e.g. {@code resolve("cache", "java", "downloads")}.
+     */
+    public static Path resolve(String first, String... more) {
+        Path path = ROOT.resolve(first);
+        for (String part : more) {
+            path = path.resolve(part);
+        }
+        return path;
+    }
+
+    private static Path findRoot() {
+        String home = System.getenv("CAPY_HOME");
+        if (notBlank(home)) {
+            return Path.of(home).toAbsolutePath();
+        }
+        if (Platform.current().isWindows()) {
+            String localAppData = System.getenv("LOCALAPPDATA");
+            if (notBlank(localAppData)) {
+                return Path.of(localAppData, "capyverse");
+            }
+            String userProfile = System.getenv("USERPROFILE");
+            return Path.of(notBlank(userProfile) ? userProfile : System.getProperty("user.home"),
+                    "AppData", "Local", "capyverse");
+        }
+        String dataHome = System.getenv("XDG_DATA_HOME");
+        if (notBlank(dataHome)) {
+            return Path.of(dataHome, "capyverse");
+        }
+        return Path.of(System.getProperty("user.home"), ".local", "share", "capyverse");
+    }
+
+    private static boolean notBlank(String value) {
+        return value != null && !value.isBlank();
+    }
+}
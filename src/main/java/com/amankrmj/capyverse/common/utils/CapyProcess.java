@@ -0,0 +1,34 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command lines that start capy again as another process, e.g. for work that continues
+ * in the background after the current command returns.
+ */
+public final class CapyProcess {
+    private static final String MAIN_CLASS = "com.amankrmj.capyverse.Main";
+
+    private CapyProcess() {
+    }
+
+    /**
+     * The command that runs capy with {@code args}, or null when the executable of this
+     * process cannot be determined.
+     */
+    public static List<String> command(String... args) {
+        String executable = ProcessHandle.current().info().command().orElse(null);
+        if (executable == null) {
+            return null;
+        }
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        // A native image is the CLI itself; on a JVM the class path and main class follow
+        if (System.getProperty("org.graalvm.nativeimage.imagecode") == null) {
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), MAIN_CLASS));
+        }
+        command.addAll(List.of(args));
+        return command;
+    }
+}
@@ -0,0 +1,50 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class FileTrees {
+
+    private FileTrees() {
+    }
+
+    /**
+     * Deletes a directory tree, children first. A missing root is not an error. Files
+     * with the DOS read-only attribute, such as links to content store objects on
+     * Windows, have it cleared first; the store seals its objects again on next use.
+     */
+    public static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(root)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            try {
+                Files.delete(path);
+            } catch (AccessDeniedException e) {
+                if (!clearReadOnly(path)) {
+                    throw e;
+                }
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static boolean clearReadOnly(Path path) throws IOException {
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("dos")
+                || !Boolean.TRUE.equals(Files.getAttribute(path, "dos:readonly", LinkOption.NOFOLLOW_LINKS))) {
+            return false;
+        }
+        Files.setAttribute(path, "dos:readonly", false, LinkOption.NOFOLLOW_LINKS);
+        return true;
+    }
+}
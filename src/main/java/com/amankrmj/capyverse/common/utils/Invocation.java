@@ -0,0 +1,76 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+/**
+ * Working directory, environment and terminal of the command being run. Normally these
+ * are the process's own. A {@code capy daemon} runs commands on behalf of other
+ * processes and binds each client's values to the thread serving it, so commands read
+ * them from here instead of {@link System#getenv} or {@link System#console}. Threads
+ * started while serving a client inherit the binding.
+ */
+public record Invocation(Path workingDirectory, Map<String, String> env, boolean interactive) {
+    private static final InheritableThreadLocal<Invocation> CURRENT = new InheritableThreadLocal<>();
+    private static Invocation process;
+
+    public Invocation {
+        workingDirectory = workingDirectory.toAbsolutePath().normalize();
+        if (Platform.current().isWindows()) {
+            // Variable names are case-insensitive on Windows, as with System.getenv
+            Map<String, String> insensitive = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            insensitive.putAll(env);
+            env = Collections.unmodifiableMap(insensitive);
+        } else {
+            env = Map.copyOf(env);
+        }
+    }
+
+    /**
+     * The invocation bound to this thread, or the process's own.
+     */
+    public static Invocation current() {
+        Invocation bound = CURRENT.get();
+        return bound != null ? bound : ofProcess();
+    }
+
+    public static synchronized Invocation ofProcess() {
+        if (process == null) {
+            process = new Invocation(Path.of(""), System.getenv(), System.console() != null);
+        }
+        return process;
+    }
+
+    public static String getenv(String name) {
+        return current().env().get(name);
+    }
+
+    /**
+     * Runs {@code action} with this invocation bound to the calling thread.
+     */
+    public <T> T call(Callable<T> action) throws Exception {
+        Invocation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.call();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Points a child process at this invocation's working directory and environment, so
+     * it sees the same PATH and JAVA_HOME as the command that starts it.
+     */
+    public ProcessBuilder prepare(ProcessBuilder builder) {
+        builder.directory(workingDirectory.toFile());
+        if (this != ofProcess()) {
+            builder.environment().clear();
+            builder.environment().putAll(env);
+        }
+        return builder;
+    }
+}
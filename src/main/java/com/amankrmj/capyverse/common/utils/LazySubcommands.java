@@ -0,0 +1,65 @@
+package com.amankrmj.capyverse.common.utils;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Subcommands that are only built when the command line selects them. picocli introspects
+ * the annotations of every subcommand declared on a command as soon as the command is
+ * created, so a flat {@code subcommands = {...}} list loads every command class on every
+ * run. Here only the selected subcommand is instantiated; the others are registered as
+ * bare specs carrying a name and description, which is all the usage help needs.
+ * <p>
+ * Factories should be lambdas rather than constructor references: a lambda body is only
+ * linked when it runs, so an unselected command class is never loaded.
+ */
+public final class LazySubcommands {
+
+    /**
+     * A command whose own subcommands are registered lazily as well.
+     */
+    public interface Parent {
+        LazySubcommands subcommands();
+    }
+
+    private record Entry(String description, Supplier<Object> factory) {
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public LazySubcommands add(String name, String description, Supplier<Object> factory) {
+        entries.put(name, new Entry(description, factory));
+        return this;
+    }
+
+    /**
+     * Adds the subcommands to {@code parent}. The one named by the first non-option
+     * argument at or after {@code from} is built in full, and its own lazy subcommands
+     * are registered in turn; the rest only appear in the help listing.
+     */
+    public void registerOn(CommandLine parent, String[] args, int from) {
+        int selected = from;
+        while (selected < args.length && args[selected].startsWith("-")) {
+            selected++;
+        }
+        String name = selected < args.length ? args[selected] : null;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getKey().equals(name)) {
+                Object command = entry.getValue().factory().get();
+                CommandLine child = new CommandLine(command);
+                parent.addSubcommand(entry.getKey(), child);
+                if (command instanceof Parent nested) {
+                    nested.subcommands().registerOn(child, args, selected + 1);
+                }
+            } else {
+                CommandSpec placeholder = CommandSpec.create().name(entry.getKey());
+                placeholder.usageMessage().description(entry.getValue().description());
+                parent.addSubcommand(entry.getKey(), new CommandLine(placeholder));
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide timings and counters for one CLI run. Phases accumulate count, total and
+ * maximum duration, so concurrent installs add up rather than overwrite each other;
+ * counters are {@link LongAdder}s and cheap enough for copy loops. A run can be printed as
+ * a JSON report and appended as one flat JSON line to a metrics log, which
+ * {@link #readLog(Path)} reads back for summaries.
+ */
+public final class Metrics {
+    private static final Metrics GLOBAL = new Metrics();
+    private static final InheritableThreadLocal<Metrics> BOUND = new InheritableThreadLocal<>();
+    private static final long MAX_LOG_BYTES = 10L * 1024 * 1024;
+    private static final Pattern FIELD = Pattern.compile("\"([^\"]+)\":(\"(?:[^\"\\\\]|\\\\.)*\"|[-0-9.eE]+)");
+
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Phase> phases = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, String> labels = new ConcurrentHashMap<>();
+
+    private static class Phase {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Measures one phase from creation until {@link #close()}.
+     */
+    public final class Timer implements AutoCloseable {
+        private final String phase;
+        private final long start = System.nanoTime();
+
+        private Timer(String phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public void close() {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The metrics of the running command: the process-wide instance, unless the command
+     * runs in a daemon that bound one of its own with {@link #bindNew()}.
+     */
+    public static Metrics global() {
+        Metrics bound = BOUND.get();
+        return bound != null ? bound : GLOBAL;
+    }
+
+    /**
+     * Gives the calling thread, and the threads it starts, a fresh instance, so commands
+     * served by one long-running process do not add up into a single run.
+     */
+    public static void bindNew() {
+        BOUND.set(new Metrics());
+    }
+
+    public static void unbind() {
+        BOUND.remove();
+    }
+
+    public Timer time(String phase) {
+        return new Timer(phase);
+    }
+
+    public void record(String phase, long nanos) {
+        Phase stats = phases.computeIfAbsent(phase, name -> new Phase());
+        stats.count.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void add(String counter, long amount) {
+        counters.computeIfAbsent(counter, name -> new LongAdder()).add(amount);
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void label(String key, String value) {
+        labels.put(key, value);
+    }
+
+    public long counter(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private double phaseSeconds(String name) {
+        Phase stats = phases.get(name);
+        return stats == null ? 0 : stats.totalNanos.sum() / 1e9;
+    }
+
+    /**
+     * Bytes per second of a counter over the accumulated time of a phase, or 0.
+     */
+    private long throughput(String counter, String phase) {
+        double seconds = phaseSeconds(phase);
+        return seconds > 0 ? (long) (counter(counter) / seconds) : 0;
+    }
+
+    /**
+     * Flat view of the run: labels, {@code <phase>.ms}, {@code <phase>.count},
+     * {@code <phase>.maxMs}, counters and derived throughput, in a stable order.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> flat = new LinkedHashMap<>();
+        flat.put("startedAt", startedAt);
+        flat.put("wall.ms", (System.nanoTime() - startNanos) / 1_000_000.0);
+        new TreeMap<>(labels).forEach(flat::put);
+        new TreeMap<>(phases).forEach((name, stats) -> {
+            flat.put(name + ".ms", stats.totalNanos.sum() / 1_000_000.0);
+            flat.put(name + ".count", stats.count.sum());
+            flat.put(name + ".maxMs", stats.maxNanos.get() / 1_000_000.0);
+        });
+        new TreeMap<>(counters).forEach((name, adder) -> flat.put(name, adder.sum()));
+        // Left out when nothing was transferred, e.g. a cached archive, to keep percentiles honest
+        long downloadRate = throughput("bytes.downloaded", "download");
+        if (downloadRate > 0) {
+            flat.put("download.bytesPerSecond", downloadRate);
+        }
+        long extractRate = throughput("bytes.extracted", "extract");
+        if (extractRate > 0) {
+            flat.put("extract.bytesPerSecond", extractRate);
+        }
+        return flat;
+    }
+
+    /**
+     * Human-readable report grouping phases, counters and throughput.
+     */
+    public String toJson() {
+        Map<String, Object> flat = snapshot();
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"startedAt\": ").append(startedAt).append(",\n");
+        json.append("  \"wallMs\": ").append(number(flat.get("wall.ms"))).append(",\n");
+        json.append("  \"labels\": {");
+        appendEntries(json, new TreeMap<>(labels));
+        json.append("},\n  \"phases\": {");
+        String separator = "";
+        for (Map.Entry<String, Phase> phase : new TreeMap<>(phases).entrySet()) {
+            Phase stats = phase.getValue();
+            json.append(separator).append("\n    ").append(quote(phase.getKey())).append(": {")
+                    .append("\"count\": ").append(stats.count.sum())
+                    .append(", \"totalMs\": ").append(number(stats.totalNanos.sum() / 1_000_000.0))
+                    .append(", \"maxMs\": ").append(number(stats.maxNanos.get() / 1_000_000.0))
+                    .append('}');
+            separator = ",";
+        }
+        json.append(phases.isEmpty() ? "" : "\n  ").append("},\n  \"counters\": {");
+        Map<String, Object> counterValues = new TreeMap<>();
+        counters.forEach((name, adder) -> counterValues.put(name, adder.sum()));
+        appendEntries(json, counterValues);
+        json.append("},\n  \"throughput\": {");
+        Map<String, Object> rates = new LinkedHashMap<>();
+        rates.put("downloadBytesPerSecond", flat.getOrDefault("download.bytesPerSecond", 0L));
+        rates.put("extractBytesPerSecond", flat.getOrDefault("extract.bytesPerSecond", 0L));
+        appendEntries(json, rates);
+        json.append("}\n}");
+        return json.toString();
+    }
+
+    private static void appendEntries(StringBuilder json, Map<String, ?> entries) {
+        String separator = "";
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            json.append(separator).append(quote(entry.getKey())).append(": ").append(value(entry.getValue()));
+            separator = ", ";
+        }
+    }
+
+    /**
+     * Appends the run as one JSON line, rotating the log to {@code .1} once it grows
+     * past 10 MB.
+     */
+    public void appendToLog(Path log) throws IOException {
+        StringBuilder line = new StringBuilder("{");
+        String separator = "";
+        for (Map.Entry<String, Object> entry : snapshot().entrySet()) {
+            line.append(separator).append(quote(entry.getKey())).append(':').append(value(entry.getValue()));
+            separator = ",";
+        }
+        line.append("}\n");
+        Files.createDirectories(log.getParent());
+        if (Files.isRegularFile(log) && Files.size(log) > MAX_LOG_BYTES) {
+            Files.move(log, log.resolveSibling(log.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.writeString(log, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads back the lines written by {@link #appendToLog(Path)}. Values stay strings;
+     * string values are unquoted.
+     */
+    public static List<Map<String, String>> readLog(Path log) throws IOException {
+        List<Map<String, String>> runs = new ArrayList<>();
+        if (!Files.isRegularFile(log)) {
+            return runs;
+        }
+        for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+            Map<String, String> run = new LinkedHashMap<>();
+            Matcher matcher = FIELD.matcher(line);
+            while (matcher.find()) {
+                String raw = matcher.group(2);
+                run.put(matcher.group(1), raw.startsWith("\"")
+                        ? raw.substring(1, raw.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\")
+                        : raw);
+            }
+            if (!run.isEmpty()) {
+                runs.add(run);
+            }
+        }
+        return runs;
+    }
+
+    private static String value(Object value) {
+        return value instanceof Number ? number(value) : quote(String.valueOf(value));
+    }
+
+    private static String number(Object value) {
+        if (value instanceof Double d) {
+            return String.format(Locale.ROOT, "%.3f", d);
+        }
+        return String.valueOf(value);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
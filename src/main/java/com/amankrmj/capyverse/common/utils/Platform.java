@@ -0,0 +1,70 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.util.Locale;
+
+/**
+ * Operating system and CPU architecture in the spelling catalogs use, e.g.
+ * {@code linux-x64} or {@code windows-aarch64}. Common aliases such as {@code amd64},
+ * {@code x86_64}, {@code arm64} or {@code darwin} are normalized.
+ */
+public record Platform(String os, String arch) {
+    private static final Platform CURRENT = new Platform(
+            normalizeOs(System.getProperty("os.name", "")), normalizeArch(System.getProperty("os.arch", "")));
+
+    public static Platform current() {
+        return CURRENT;
+    }
+
+    /**
+     * Parses the {@code <os>-<arch>} form returned by {@link #toString()}.
+     */
+    public static Platform parse(String text) {
+        int dash = text.indexOf('-');
+        if (dash <= 0 || dash == text.length() - 1) {
+            throw new IllegalArgumentException("Expected <os>-<arch>: " + text);
+        }
+        return new Platform(normalizeOs(text.substring(0, dash)), normalizeArch(text.substring(dash + 1)));
+    }
+
+    public boolean isWindows() {
+        return os.equals("windows");
+    }
+
+    /**
+     * Whether a catalog entry built for {@code os} and {@code arch} runs here; a missing
+     * value matches any platform.
+     */
+    public boolean matches(String os, String arch) {
+        return (os == null || os.isBlank() || normalizeOs(os).equals(this.os))
+                && (arch == null || arch.isBlank() || normalizeArch(arch).equals(this.arch));
+    }
+
+    public static String normalizeOs(String os) {
+        String value = os.trim().toLowerCase(Locale.ROOT);
+        if (value.startsWith("win")) {
+            return "windows";
+        }
+        if (value.startsWith("mac") || value.equals("darwin") || value.equals("osx")) {
+            return "mac";
+        }
+        if (value.startsWith("linux")) {
+            return "linux";
+        }
+        return value;
+    }
+
+    public static String normalizeArch(String arch) {
+        String value = arch.trim().toLowerCase(Locale.ROOT);
+        return switch (value) {
+            case "amd64", "x86_64", "x86-64" -> "x64";
+            case "arm64" -> "aarch64";
+            case "i386", "i486", "i586", "i686", "x32" -> "x86";
+            default -> value;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return os + "-" + arch;
+    }
+}
@@ -0,0 +1,116 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a lock file, held across processes through an OS file lock and
+ * across threads of this process through a reentrant lock, since the JVM grants a file
+ * lock once per process. The OS drops the lock when the holder exits, so a crashed
+ * process never leaves it stuck. Lock files are left in place; deleting one while another
+ * process waits on it would split the lock.
+ */
+public final class ProcessLock implements AutoCloseable {
+    private static final long POLL_MILLIS = 200;
+    private static final Map<Path, Holder> HOLDERS = new ConcurrentHashMap<>();
+
+    private final Holder holder;
+    private final boolean waited;
+
+    private static class Holder {
+        final ReentrantLock lock = new ReentrantLock();
+        FileChannel channel;
+        FileLock fileLock;
+    }
+
+    private ProcessLock(Holder holder, boolean waited) {
+        this.holder = holder;
+        this.waited = waited;
+    }
+
+    /**
+     * Takes the lock, calling {@code onWait} once when another thread or process holds it
+     * and then waiting for at most {@code timeout}. The same thread may take a lock again.
+     *
+     * @throws IOException when the lock file cannot be opened or the timeout passes
+     */
+    public static ProcessLock acquire(Path lockFile, Duration timeout, Runnable onWait)
+            throws IOException, InterruptedException {
+        Holder holder = HOLDERS.computeIfAbsent(lockFile.toAbsolutePath().normalize(), path -> new Holder());
+        long deadline = System.nanoTime() + timeout.toNanos();
+        boolean waited = false;
+        if (!holder.lock.tryLock()) {
+            onWait.run();
+            waited = true;
+            if (!holder.lock.tryLock(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("Timed out waiting for " + lockFile);
+            }
+        }
+        if (holder.lock.getHoldCount() > 1) {
+            return new ProcessLock(holder, waited);
+        }
+        try {
+            Files.createDirectories(lockFile.getParent());
+            holder.channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            holder.fileLock = holder.channel.tryLock();
+            while (holder.fileLock == null) {
+                if (!waited) {
+                    onWait.run();
+                    waited = true;
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("Timed out waiting for " + lockFile);
+                }
+                Thread.sleep(POLL_MILLIS);
+                holder.fileLock = holder.channel.tryLock();
+            }
+            return new ProcessLock(holder, waited);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            releaseFile(holder);
+            holder.lock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * True when the lock was held elsewhere at first, so the holder may have finished
+     * the work in the meantime.
+     */
+    public boolean waited() {
+        return waited;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (holder.lock.getHoldCount() == 1) {
+                releaseFile(holder);
+            }
+        } finally {
+            holder.lock.unlock();
+        }
+    }
+
+    private static void releaseFile(Holder holder) throws IOException {
+        try {
+            if (holder.fileLock != null) {
+                holder.fileLock.release();
+            }
+        } finally {
+            holder.fileLock = null;
+            if (holder.channel != null) {
+                holder.channel.close();
+                holder.channel = null;
+            }
+        }
+    }
+}
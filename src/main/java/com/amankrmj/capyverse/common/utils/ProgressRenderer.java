@@ -0,0 +1,222 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Console progress display for one or more concurrent tasks. Workers only bump atomic
+ * counters; a ticker thread repaints all task lines at a fixed rate, building each frame
+ * in one buffer and writing it with a single call. Every line shows a bar, percentage,
+ * throughput and ETA.
+ * <p>
+ * When stdout is not a terminal the renderer is disabled: no thread is started, nothing
+ * is painted, and only {@link #log(String)} messages are printed.
+ */
+public class ProgressRenderer implements AutoCloseable {
+    public static final long DEFAULT_INTERVAL_MILLIS = 100;
+    private static final int BAR_LENGTH = 30;
+    private static final String CURSOR_UP = "\u001B[%dA";
+    private static final String CLEAR_LINE = "\u001B[K";
+    /**
+     * Weight of the newest sample in the smoothed throughput.
+     */
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final PrintStream out;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final List<Task> tasks = new CopyOnWriteArrayList<>();
+    private final Thread ticker;
+    private volatile boolean closed;
+    private int paintedLines;
+
+    public ProgressRenderer(PrintStream out, boolean enabled, long intervalMillis) {
+        this.out = out;
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        if (enabled) {
+            ticker = Thread.ofPlatform().daemon().name("capy-progress").start(this::tick);
+        } else {
+            ticker = null;
+        }
+    }
+
+    /**
+     * A renderer on stdout, enabled only when stdout is an interactive terminal.
+     */
+    public static ProgressRenderer forConsole() {
+        return new ProgressRenderer(System.out, Invocation.current().interactive(), DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Task addTask(String label) {
+        Task task = new Task(label);
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Prints a message above the progress lines without tearing them.
+     */
+    public void log(String message) {
+        if (!enabled) {
+            out.println(message);
+            return;
+        }
+        synchronized (this) {
+            StringBuilder frame = new StringBuilder();
+            eraseFrame(frame);
+            frame.append(message).append('\n');
+            appendLines(frame);
+            out.print(frame);
+            out.flush();
+        }
+    }
+
+    private void tick() {
+        while (!closed) {
+            paint();
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void paint() {
+        StringBuilder frame = new StringBuilder(256 * Math.max(1, tasks.size()));
+        eraseFrame(frame);
+        appendLines(frame);
+        out.print(frame);
+        out.flush();
+    }
+
+    private void eraseFrame(StringBuilder frame) {
+        if (paintedLines > 0) {
+            frame.append(String.format(CURSOR_UP, paintedLines));
+        }
+        frame.append('\r').append(CLEAR_LINE);
+    }
+
+    private void appendLines(StringBuilder frame) {
+        long now = System.nanoTime();
+        int lines = 0;
+        for (Task task : tasks) {
+            task.appendLine(frame, now);
+            frame.append(CLEAR_LINE).append('\n');
+            lines++;
+        }
+        // Lines left over from a taller earlier frame
+        for (int i = lines; i < paintedLines; i++) {
+            frame.append(CLEAR_LINE).append('\n');
+            lines++;
+        }
+        paintedLines = lines;
+    }
+
+    /**
+     * Stops the ticker after painting the final state.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (ticker != null) {
+            ticker.interrupt();
+            try {
+                ticker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            paint();
+        }
+    }
+
+    /**
+     * One progress line. All methods are cheap and safe to call from any thread.
+     */
+    public class Task {
+        private final String label;
+        private final AtomicLong done = new AtomicLong();
+        private volatile long total;
+        private volatile String status = "";
+        private long sampleTime;
+        private long sampleDone;
+        private double rate;
+
+        private Task(String label) {
+            this.label = label;
+        }
+
+        public void add(long amount) {
+            done.addAndGet(amount);
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        /**
+         * Starts a new phase: new status and total, counter back to zero.
+         */
+        public synchronized void reset(String status, long total) {
+            this.status = status;
+            this.total = total;
+            done.set(0);
+            sampleTime = 0;
+            sampleDone = 0;
+            rate = 0;
+        }
+
+        public long getDone() {
+            return done.get();
+        }
+
+        public void log(String message) {
+            ProgressRenderer.this.log(message);
+        }
+
+        private synchronized void appendLine(StringBuilder line, long now) {
+            long current = done.get();
+            long size = total;
+            if (sampleTime != 0 && now > sampleTime) {
+                double instant = (current - sampleDone) * 1e9 / (now - sampleTime);
+                rate = rate == 0 ? instant : RATE_SMOOTHING * instant + (1 - RATE_SMOOTHING) * rate;
+            }
+            sampleTime = now;
+            sampleDone = current;
+
+            line.append(String.format("%-12s %-12s ", label, status));
+            if (size > 0) {
+                int percent = (int) Math.min(100, current * 100 / size);
+                int filled = percent * BAR_LENGTH / 100;
+                line.append('[')
+                        .append(CliColor.GREEN).append("=".repeat(filled))
+                        .append(CliColor.RED).append("-".repeat(BAR_LENGTH - filled))
+                        .append(CliColor.RESET).append("] ")
+                        .append(CliColor.YELLOW).append(String.format("%3d%%", percent)).append(CliColor.RESET);
+            } else {
+                line.append(ByteUnits.format(current));
+            }
+            if (rate > 0 && (size <= 0 || current < size)) {
+                line.append("  ").append(ByteUnits.format((long) rate)).append("/s");
+            }
+            if (rate > 0 && size > 0 && current < size) {
+                long etaSeconds = (long) ((size - current) / rate);
+                line.append(String.format("  ETA %d:%02d", etaSeconds / 60, etaSeconds % 60));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket that caps throughput in bytes per second. One limiter can be shared by
+ * all segments of a download, which then together stay under the cap. The bucket holds
+ * at most one second of tokens, so a pause is not followed by a burst above the cap for
+ * longer than that.
+ */
+public class RateLimiter {
+    private final long bytesPerSecond;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public RateLimiter(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + bytesPerSecond);
+        }
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Blocks until {@code bytes} may pass. Requests larger than the bucket are allowed
+     * to drive it negative, so they wait for their full share instead of forever.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        // A fair lock queues callers, and sleeping while holding it keeps that order
+        lock.lockInterruptibly();
+        try {
+            refill();
+            tokens -= bytes;
+            if (tokens < 0) {
+                TimeUnit.NANOSECONDS.sleep((long) (-tokens * 1_000_000_000L / bytesPerSecond));
+                refill();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(bytesPerSecond, tokens + (now - lastRefill) * (double) bytesPerSecond / 1_000_000_000L);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,109 @@
+package com.amankrmj.capyverse.common.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Environment changes rendered as a script for the calling shell to {@code eval}. A child
+ * process cannot change its parent's environment, so commands such as {@code capy env}
+ * print these statements instead.
+ */
+public class ShellExports {
+    public static final List<String> SHELLS = List.of("bash", "zsh", "pwsh");
+
+    private final String shell;
+    private final Map<String, String> assignments = new LinkedHashMap<>();
+    private final List<String> removals = new ArrayList<>();
+
+    public ShellExports(String shell) {
+        if (!SHELLS.contains(shell)) {
+            throw new IllegalArgumentException("Unsupported shell: " + shell + " (expected one of " + SHELLS + ")");
+        }
+        this.shell = shell;
+    }
+
+    /**
+     * Best guess at the calling shell: PowerShell when its module path is set and no POSIX
+     * shell is, otherwise the name of {@code $SHELL}, defaulting to bash.
+     */
+    public static String detectShell() {
+        String posixShell = Invocation.getenv("SHELL");
+        if (posixShell == null && Invocation.getenv("PSModulePath") != null) {
+            return "pwsh";
+        }
+        if (posixShell != null && posixShell.endsWith("zsh")) {
+            return "zsh";
+        }
+        return "bash";
+    }
+
+    public ShellExports set(String name, String value) {
+        removals.remove(name);
+        assignments.put(name, value);
+        return this;
+    }
+
+    public ShellExports unset(String name) {
+        assignments.remove(name);
+        if (!removals.contains(name)) {
+            removals.add(name);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return assignments.isEmpty() && removals.isEmpty();
+    }
+
+    /**
+     * Removes one directory from a PATH-style value, comparing entries exactly.
+     */
+    public static String removePathEntry(String path, String entry) {
+        if (path == null || path.isEmpty() || entry == null || entry.isEmpty()) {
+            return path == null ? "" : path;
+        }
+        StringBuilder kept = new StringBuilder();
+        for (String part : path.split(File.pathSeparator, -1)) {
+            if (part.equals(entry)) {
+                continue;
+            }
+            if (!kept.isEmpty()) {
+                kept.append(File.pathSeparator);
+            }
+            kept.append(part);
+        }
+        return kept.toString();
+    }
+
+    public String render() {
+        StringBuilder script = new StringBuilder();
+        for (Map.Entry<String, String> assignment : assignments.entrySet()) {
+            if (shell.equals("pwsh")) {
+                script.append("$env:").append(assignment.getKey()).append(" = ")
+                        .append(quotePwsh(assignment.getValue())).append('\n');
+            } else {
+                script.append("export ").append(assignment.getKey()).append('=')
+                        .append(quotePosix(assignment.getValue())).append('\n');
+            }
+        }
+        for (String name : removals) {
+            if (shell.equals("pwsh")) {
+                script.append("Remove-Item Env:").append(name).append(" -ErrorAction SilentlyContinue\n");
+            } else {
+                script.append("unset ").append(name).append('\n');
+            }
+        }
+        return script.toString();
+    }
+
+    private static String quotePosix(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private static String quotePwsh(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
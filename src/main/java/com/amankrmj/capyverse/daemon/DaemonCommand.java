@@ -0,0 +1,32 @@
+package com.amankrmj.capyverse.daemon;
+
+import com.amankrmj.capyverse.common.utils.LazySubcommands;
+import picocli.CommandLine.Command;
+
+import java.util.concurrent.Callable;
+
+@Command(name = "daemon",
+        description = "Keep a warm capy process that runs commands for the CLI")
+public class DaemonCommand implements Callable<Integer>, LazySubcommands.Parent {
+
+    private static final LazySubcommands SUBCOMMANDS = new LazySubcommands()
+            .add("start", "Start the daemon in the background", () -> new DaemonStartCommand())
+            .add("stop", "Stop the daemon once its running commands finish", () -> new DaemonStopCommand())
+            .add("status", "Show whether a daemon is running", () -> new DaemonStatusCommand())
+            .add("run", "Run the daemon in the foreground", () -> new DaemonRunCommand());
+
+    @Override
+    public LazySubcommands subcommands() {
+        return SUBCOMMANDS;
+    }
+
+    @Override
+    public Integer call() {
+        System.out.println("Daemon - Use 'daemon --help' for options:");
+        System.out.println("  start  - Start the daemon in the background");
+        System.out.println("  stop   - Stop the daemon once running commands finish");
+        System.out.println("  status - Show whether a daemon is running");
+        System.out.println("  run    - Run the daemon in the foreground");
+        return 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.amankrmj.capyverse.daemon;
+
+import com.amankrmj.capyverse.Main;
+import com.amankrmj.capyverse.common.services.CommandDaemon;
+import com.amankrmj.capyverse.common.services.DaemonClient;
+import com.amankrmj.capyverse.common.services.HttpService;
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.java.services.JavaVersionFetchService;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the daemon in the foreground until it is stopped or idles out. The HTTP client
+ * is created and the catalog and installed index are loaded up front, so the first
+ * forwarded command already finds them warm.
+ */
+@Command(name = "run", description = "Run the daemon in the foreground")
+public class DaemonRunCommand implements Callable<Integer> {
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @Option(names = {"--idle-timeout"},
+            description = "Seconds without a command before the daemon exits, 0 for never (default: daemon.idle.timeout, 1800)")
+    private Long idleTimeout;
+
+    @Override
+    public Integer call() {
+        long seconds = idleTimeout != null ? idleTimeout : CapyConfig.getLong("daemon.idle.timeout", 1800);
+        CommandDaemon daemon = new CommandDaemon(DaemonClient.defaultSocket(), Duration.ofSeconds(Math.max(0, seconds)),
+                CapyConfig.file(), Main::execute);
+        PrintStream console = System.out;
+        daemon.setLog(line -> console.println(CLOCK.format(LocalTime.now()) + "  " + line));
+        try (daemon) {
+            daemon.bind();
+            // Created before serving: the HTTP client's own threads would otherwise
+            // inherit the output binding of whichever command happened to create it
+            HttpService.shared();
+            Thread.ofPlatform().daemon().name("capy-daemon-preload").start(JavaVersionFetchService::preload);
+            System.out.println("🐹 capy daemon listening on " + daemon.getSocketFile()
+                    + " (pid " + ProcessHandle.current().pid() + ")");
+            daemon.serve();
+            System.out.println("👋 capy daemon stopped");
+            return 0;
+        } catch (IOException e) {
+            System.err.println("🔴 Daemon failed: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.amankrmj.capyverse.daemon;
+
+import com.amankrmj.capyverse.common.services.DaemonClient;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.CapyProcess;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.common.utils.Platform;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Starts {@code capy daemon run} as a detached process and waits until it answers.
+ */
+@Command(name = "start", description = "Start the daemon in the background")
+public class DaemonStartCommand implements Callable<Integer> {
+    private static final long STARTUP_TIMEOUT_MILLIS = 15_000;
+
+    @Option(names = {"--idle-timeout"},
+            description = "Seconds without a command before the daemon exits, 0 for never (default: daemon.idle.timeout, 1800)")
+    private Long idleTimeout;
+
+    @Override
+    public Integer call() throws InterruptedException {
+        Path socket = DaemonClient.defaultSocket();
+        String status = DaemonClient.status(socket);
+        if (status != null) {
+            System.out.println("🟢 capy daemon is already running: " + status);
+            return 0;
+        }
+        List<String> args = new ArrayList<>(List.of("daemon", "run"));
+        if (idleTimeout != null) {
+            args.addAll(List.of("--idle-timeout", Long.toString(idleTimeout)));
+        }
+        List<String> relaunch = CapyProcess.command(args.toArray(String[]::new));
+        if (relaunch == null) {
+            System.err.println("Cannot determine the capy executable to relaunch.");
+            return 1;
+        }
+        boolean windows = Platform.current().isWindows();
+        List<String> command = new ArrayList<>();
+        if (!windows) {
+            // Keeps the daemon alive when the terminal that started it closes
+            command.add("nohup");
+        }
+        command.addAll(relaunch);
+
+        Path log = CapyPaths.resolve("daemon.log");
+        Process process;
+        try {
+            Files.createDirectories(log.getParent());
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+                    .redirectInput(ProcessBuilder.Redirect.from(new File(windows ? "NUL" : "/dev/null")))
+                    .start();
+        } catch (IOException e) {
+            System.err.println("🔴 Could not start the daemon: " + e.getMessage());
+            return 1;
+        }
+
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            status = DaemonClient.status(socket);
+            if (status != null) {
+                System.out.println("🟢 capy daemon started: " + status);
+                System.out.println(CliColor.BLUE + "Commands are forwarded to it from now on; stop it with 'capy daemon stop'."
+                        + CliColor.RESET);
+                return 0;
+            }
+            if (!process.isAlive()) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        System.err.println("🔴 The daemon did not come up; see " + log);
+        return 1;
+    }
+}
@@ -0,0 +1,24 @@
+package com.amankrmj.capyverse.daemon;
+
+import com.amankrmj.capyverse.common.services.DaemonClient;
+import picocli.CommandLine.Command;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Command(name = "status", description = "Show whether a daemon is running")
+public class DaemonStatusCommand implements Callable<Integer> {
+
+    @Override
+    public Integer call() {
+        Path socket = DaemonClient.defaultSocket();
+        String status = DaemonClient.status(socket);
+        if (status == null) {
+            System.out.println("⚪ capy daemon is not running; commands run in-process.");
+            return 1;
+        }
+        System.out.println("🟢 capy daemon is running: " + status);
+        System.out.println("\t\tSocket: " + socket);
+        return 0;
+    }
+}
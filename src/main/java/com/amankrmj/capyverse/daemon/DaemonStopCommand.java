@@ -0,0 +1,21 @@
+package com.amankrmj.capyverse.daemon;
+
+import com.amankrmj.capyverse.common.services.DaemonClient;
+import picocli.CommandLine.Command;
+
+import java.util.concurrent.Callable;
+
+@Command(name = "stop", description = "Stop the daemon once its running commands finish")
+public class DaemonStopCommand implements Callable<Integer> {
+
+    @Override
+    public Integer call() {
+        String reply = DaemonClient.stop(DaemonClient.defaultSocket());
+        if (reply == null) {
+            System.out.println("⚪ capy daemon is not running.");
+            return 0;
+        }
+        System.out.println("🛑 capy daemon " + reply + ".");
+        return 0;
+    }
+}
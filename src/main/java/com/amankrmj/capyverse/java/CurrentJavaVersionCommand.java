@@ -1,39 +1,78 @@
 package com.amankrmj.capyverse.java;
 
+import com.amankrmj.capyverse.common.utils.Invocation;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.Callable;
 
 @Command(name = "current", description = "Show current active Java version")
 public class CurrentJavaVersionCommand implements Callable<Integer> {
 
+    @Option(names = {"--exec"}, description = "Run 'java -version' instead of reading the JDK release file")
+    private boolean exec = false;
+
     @Override
     public Integer call() {
         try {
-            String javaHome = System.getenv("JAVA_HOME");
+            String javaHome = Invocation.getenv("JAVA_HOME");
             if (javaHome == null) {
                 System.out.println("JAVA_HOME not set");
             } else {
                 System.out.println("JAVA_HOME: " + javaHome);
             }
-
-            // Try to get version from java command
-            ProcessBuilder pb = new ProcessBuilder("java", "-version");
-            Process process = pb.start();
-            String output = new String(process.getErrorStream().readAllBytes());
-            int exitCode = process.waitFor();
-
-            if (exitCode == 0) {
-                System.out.println("Active Java version:");
-                System.out.println(output.trim());
-            } else {
-                System.out.println("No Java found in PATH");
-            }
-
-            return 0;
+            return exec ? printFromProcess() : printFromRelease(javaHome);
         } catch (Exception e) {
             System.err.println("Error getting current Java version: " + e.getMessage());
             return 1;
         }
     }
+
+    /**
+     * Reports the JDK that {@code java} on PATH belongs to, falling back to JAVA_HOME,
+     * from its release file. Nothing is forked.
+     */
+    private Integer printFromRelease(String javaHome) {
+        List<Path> onPath = JavaVersionManagerUtils.findJavaOnPath();
+        Path home = onPath.isEmpty() ? null : JavaVersionManagerUtils.javaHomeOf(onPath.get(0));
+        if (home == null && javaHome != null) {
+            home = Paths.get(javaHome);
+        }
+        if (home == null) {
+            System.out.println("No Java found in PATH");
+            return 0;
+        }
+        Properties release = JavaVersionManagerUtils.readRelease(home);
+        String version = release.getProperty("JAVA_VERSION");
+        if (version == null) {
+            System.out.println("No release file in " + home + "; use --exec to ask the java binary.");
+            return 0;
+        }
+        System.out.println("Active Java version:");
+        System.out.println("  version: " + version);
+        System.out.println("  runtime: " + release.getProperty("JAVA_RUNTIME_VERSION", version));
+        System.out.println("  vendor:  " + release.getProperty("IMPLEMENTOR", "unknown"));
+        System.out.println("  arch:    " + release.getProperty("OS_ARCH", "unknown"));
+        System.out.println("  home:    " + home);
+        return 0;
+    }
+
+    private Integer printFromProcess() throws Exception {
+        ProcessBuilder pb = Invocation.current().prepare(new ProcessBuilder("java", "-version"));
+        Process process = pb.start();
+        String output = new String(process.getErrorStream().readAllBytes());
+        int exitCode = process.waitFor();
+
+        if (exitCode == 0) {
+            System.out.println("Active Java version:");
+            System.out.println(output.trim());
+        } else {
+            System.out.println("No Java found in PATH");
+        }
+        return 0;
+    }
 }
@@ -1,13 +1,28 @@
 package com.amankrmj.capyverse.java;
 
+import com.amankrmj.capyverse.StatsCommand;
+import com.amankrmj.capyverse.common.utils.ByteUnits;
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+import com.amankrmj.capyverse.java.services.DownloadCache;
 import com.amankrmj.capyverse.java.services.JavaDownloadService;
+import com.amankrmj.capyverse.java.services.JavaInstaller;
 import com.amankrmj.capyverse.java.services.JavaVersionFetchService;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
-import java.io.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Downloads, installs, and configures a Java JDK for Capyverse usage.
@@ -18,49 +33,163 @@ import java.util.concurrent.Callable;
 )
 public class InstallJavaVersionCommand implements Callable<Integer> {
     private JavaVersionFetchService versionFetchService;
+    private final Set<String> installedArchives = new HashSet<>();
     @Option(
             names = {"-v"},
             description = "Download and install Oracle JDK exe for the specified version"
     )
     private boolean v = false;
 
+    @Option(
+            names = {"--segments"},
+            description = "Number of parallel range requests used for the download (default: ${DEFAULT-VALUE})"
+    )
+    private int segments = JavaDownloadService.DEFAULT_SEGMENTS;
+
+    @Option(
+            names = {"--stream"},
+            description = "Extract while downloading instead of downloading first and extracting afterwards"
+    )
+    private boolean stream = false;
+
+    @Option(
+            names = {"--no-store"},
+            description = "Write files directly instead of linking them from the shared content store"
+    )
+    private boolean noStore = false;
+
+    @Option(
+            names = {"--offline"},
+            description = "Resolve the version from the cached catalog and reuse a cached archive only"
+    )
+    private boolean offline = false;
+
+    @Option(
+            names = {"--latest"},
+            description = "Treat the version as a release line and install its newest patch (e.g. 22 -> 22.0.2)"
+    )
+    private boolean latest = false;
+
+    @Option(
+            names = {"--max-downloads"},
+            description = "Installs downloading at the same time when several versions are given (default: ${DEFAULT-VALUE})"
+    )
+    private int maxDownloads = 3;
+
+    @Option(
+            names = {"--max-extractions"},
+            description = "Installs extracting at the same time when several versions are given (default: ${DEFAULT-VALUE})"
+    )
+    private int maxExtractions = 2;
+
+    @Option(
+            names = {"--stats"},
+            description = "Print a JSON report of phase timings, bytes, throughput, files and retries"
+    )
+    private boolean stats = false;
+
     @Parameters(
-            index = "0",
-            description = "Java version to install (e.g., 17, 21, 11-graalvm)",
-            arity = "0..1"
+            index = "0..*",
+            description = "Java versions to install (e.g., 17, 21, 11-graalvm); several are installed concurrently",
+            arity = "0..*"
     )
-    private String version;
+    private List<String> versions = new ArrayList<>();
 
     @Override
     public Integer call() {
-        if (v) {
-            return installJavaVersion(version);
+        if (!v) {
+            System.err.println("Please use -v to download and install a Java version.");
+            return 1;
+        }
+        if (versions.isEmpty()) {
+            System.err.println("Please name at least one Java version to install.");
+            return 1;
+        }
+        Metrics metrics = Metrics.global();
+        metrics.label("command", "java install");
+        metrics.label("versions", String.join(" ", versions));
+        metrics.label("mode", stream ? "stream" : "download");
+        Integer exitCode = 1;
+        try (Metrics.Timer ignored = metrics.time("install")) {
+            // One fetch service, so the catalog is loaded once for all versions
+            versionFetchService = new JavaVersionFetchService(offline);
+            exitCode = versions.size() == 1 ? installJavaVersion(versions.get(0)) : installJavaVersions(versions);
+            enforceCacheBudget(DownloadCache.forCurrentUser(), installedArchives);
+            return exitCode;
+        } finally {
+            metrics.label("exitCode", String.valueOf(exitCode));
+            reportMetrics(metrics);
         }
-        System.err.println("Please use -v to download and install a Java version.");
-        return 1;
     }
 
+    /**
+     * Appends the run to the metrics log read by {@code capy stats} and prints the JSON
+     * report when {@code --stats} is given.
+     */
+    private void reportMetrics(Metrics metrics) {
+        if (!"false".equalsIgnoreCase(CapyConfig.get("metrics.log", "true"))) {
+            try {
+                metrics.appendToLog(StatsCommand.defaultLog());
+            } catch (IOException e) {
+                System.err.println("Could not write metrics log: " + e.getMessage());
+            }
+        }
+        if (stats) {
+            System.out.println(metrics.toJson());
+        }
+    }
 
-    private Integer installJavaVersion(String version) {
-        final String userProfile = System.getenv("USERPROFILE");
-        // Get the download URL from the local server using service
-        versionFetchService = new JavaVersionFetchService();
-        String zipUrl = versionFetchService.getDownloadUrl(version);
-        if (zipUrl == null || zipUrl.isEmpty()) {
+    /**
+     * Evicts least recently used archives once the download cache outgrows
+     * {@code cache.max.size}, never the ones named in {@code keep}.
+     */
+    static void enforceCacheBudget(DownloadCache cache, Set<String> keep) {
+        try {
+            DownloadCache.Eviction eviction = cache.enforceBudget(keep);
+            if (!eviction.evicted().isEmpty()) {
+                System.out.println("🧹 Evicted " + eviction.evicted().size() + " cached archive(s), freed "
+                        + ByteUnits.format(eviction.freedBytes()) + "; cache now "
+                        + ByteUnits.format(eviction.remainingBytes()) + " of " + ByteUnits.format(cache.getMaxBytes()));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not trim the download cache: " + e.getMessage());
+        }
+    }
+
+    private JavaInstaller newInstaller() {
+        return new JavaInstaller(segments, stream, !noStore, offline, maxDownloads, maxExtractions);
+    }
+
+    /**
+     * Looks up the catalog URL of a version, resolving it to its newest patch first when
+     * {@code --latest} is set. Returns null after reporting the problem.
+     */
+    private Download resolveDownload(String version) {
+        if (latest) {
+            String resolved = versionFetchService.resolveLatestPatch(version);
+            if (resolved == null) {
+                return null;
+            }
+            System.out.println("Resolved " + version + " to " + resolved);
+            version = resolved;
+        }
+        String archiveUrl = versionFetchService.getDownloadUrl(version);
+        if (archiveUrl == null || archiveUrl.isEmpty()) {
             System.err.println("Could not get JDK download URL for version: " + version);
-            return 1;
+            return null;
         }
-        final String targetDir = userProfile + "\\AppData\\Local\\capyverse\\cache\\java\\downloads";
-        final String targetFile = targetDir + "\\jdk-" + version + ".zip";
-        final String installDir = userProfile + "\\AppData\\Local\\capyverse\\lang\\java";
-        final String binPath = installDir + "\\jdk-" + version + "\\bin";
-        final String wrapperDir = userProfile + "\\AppData\\Local\\capyverse\\bin";
+        installedArchives.add(JavaInstaller.archiveName(version, archiveUrl));
+        return new Download(version, archiveUrl, versionFetchService.getChecksum(version));
+    }
 
-        // Ensure directories exist
-        new File(targetDir).mkdirs();
-        new File(installDir).mkdirs();
-        new File(wrapperDir).mkdirs();
+    private record Download(String version, String url, String sha256) {
+    }
 
+    private Integer installJavaVersion(String version) {
+        Download download = resolveDownload(version);
+        if (download == null) {
+            return 1;
+        }
         try {
             // Print download start with Unicode fallback
             String downloadMsg = "\u2B07\uFE0F  Downloading Java JDK..."; // Unicode for ⬇️
@@ -69,28 +198,9 @@ public class InstallJavaVersionCommand implements Callable<Integer> {
             } catch (Exception e) {
                 System.out.println("Downloading Java JDK...");
             }
-            JavaDownloadService downloadService = new JavaDownloadService(zipUrl, targetDir, installDir, "jdk-" + version + ".zip");
-            downloadService.download();
-
-            System.out.println("🗜️  Extracting...");
-            downloadService.unzipFile();
-
-            // Write configuration file
-            File configFile = new File(installDir, "java_config.txt");
-            if (configFile.exists()) {
-                System.out.println("\u2B07\uFE0F  Config file already exists: " + configFile.getAbsolutePath());
-            } else {
-                writeJavaConfig(configFile, binPath);
+            try (ProgressRenderer progress = ProgressRenderer.forConsole()) {
+                newInstaller().install(new JavaInstaller.Job(download.version(), download.url(), download.sha256(), progress.addTask(download.version())));
             }
-
-            // Generate batch setup script
-            File setupCmdFile = new File(installDir, "setup_java.cmd");
-            if (setupCmdFile.exists()) {
-                System.out.println("\u2B07\uFE0F  Batch setup script already exists: " + setupCmdFile.getAbsolutePath());
-            } else {
-                writeSetupCmd(setupCmdFile, binPath);
-            }
-
             System.out.println("\u2705 Java installed successfully!");
             return 0;
 
@@ -101,71 +211,52 @@ public class InstallJavaVersionCommand implements Callable<Integer> {
     }
 
     /**
-     * Writes a configuration text file for java path.
+     * Installs several versions at once. Each install runs on its own virtual thread and
+     * the installer's permits bound how many download or extract at a time, while one
+     * renderer shows a progress line per version. A failed install does not stop the
+     * others. Returns 0 when all succeed, 1 when all fail and 2 when only some do.
      */
-    private void writeJavaConfig(File configFile, String binPath) throws IOException {
-        try (PrintWriter writer = new PrintWriter(configFile, "UTF-8")) {
-            writer.println(binPath);
-//            writer.println("installed_by=CapyverseInstaller");
+    private Integer installJavaVersions(List<String> requested) {
+        List<Download> downloads = new ArrayList<>();
+        int unresolved = 0;
+        for (String version : new LinkedHashSet<>(requested)) {
+            Download download = resolveDownload(version);
+            if (download == null) {
+                unresolved++;
+            } else {
+                downloads.add(download);
+            }
         }
-        System.out.println("📑 Wrote configuration: " + configFile.getAbsolutePath());
-    }
-
-    /**
-     * Writes a batch script (setup_java.cmd) for setting JAVA_HOME and PATH.
-     */
-    private void writeSetupCmd(File scriptFile, String binPath) throws IOException {
-        try (PrintWriter writer = new PrintWriter(scriptFile, "UTF-8")) {
-            writer.println("@echo off");
-            writer.println("setlocal enabledelayedexpansion");
-            writer.println();
-            writer.println("set \"CONFIG_FILE=%~dp0java_config.txt\"");
-            writer.println();
-            writer.println(":: Read JAVA_HOME from config file");
-            writer.println("if not exist \"%CONFIG_FILE%\" (");
-            writer.println("    echo ❌ Config file not found at: \"%CONFIG_FILE%\"");
-            writer.println("    exit /b 1");
-            writer.println(")");
-            writer.println();
-            writer.println("set \"JAVA_HOME=\"");
-            writer.println("for /f \"usebackq delims=\" %%i in (\"%CONFIG_FILE%\") do (");
-            writer.println("    set \"JAVA_HOME=%%i\"");
-            writer.println("    goto :found");
-            writer.println(")");
-            writer.println();
-            writer.println(":found");
-            writer.println("if not exist \"!JAVA_HOME!\\bin\" (");
-            writer.println("    echo ❌ Java bin folder not found at \"!JAVA_HOME!\\bin\"");
-            writer.println("    exit /b 1");
-            writer.println(")");
-            writer.println();
-            writer.println(":: Resolve target folder: ../../bin relative to JAVA_HOME");
-            writer.println("set \"TARGET_DIR=!JAVA_HOME!\\..\\..\\..\\bin\"");
-            writer.println("for %%d in (\"!TARGET_DIR!\") do set \"TARGET_DIR=%%~fd\"");
-            writer.println();
-            writer.println(":: Create target directory if missing");
-            writer.println("if not exist \"!TARGET_DIR!\" (");
-            writer.println("    echo 📂 Creating target directory: \"!TARGET_DIR!\"");
-            writer.println("    mkdir \"!TARGET_DIR!\" || (");
-            writer.println("        echo ❌ Failed to create target directory.");
-            writer.println("        exit /b 1");
-            writer.println("    )");
-            writer.println(")");
-            writer.println();
-            writer.println(":: Generate wrapper scripts in TARGET_DIR");
-            writer.println("echo Creating command wrappers in \"!TARGET_DIR!\"...");
-            writer.println("for %%f in (\"!JAVA_HOME!\\bin\\*.exe\") do (");
-            writer.println("    >\"!TARGET_DIR!\\%%~nf.cmd\" (");
-            writer.println("        echo @echo off");
-            writer.println("        echo \"%JAVA_HOME%\\bin\\%%~nxf\" %%*");
-            writer.println("    )");
-            writer.println("    echo ✅ Created wrapper: %%~nf.cmd");
-            writer.println(")");
-            writer.println();
-            writer.println("echo 🎯 Done — wrappers are in \"!TARGET_DIR!\"");
-            writer.println("exit /b 0");
+        List<JavaInstaller.Job> jobs = new ArrayList<>();
+        if (!downloads.isEmpty()) {
+            JavaInstaller installer = newInstaller();
+            try (ProgressRenderer progress = ProgressRenderer.forConsole();
+                 ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (Download download : downloads) {
+                    JavaInstaller.Job job = new JavaInstaller.Job(download.version(), download.url(), download.sha256(), progress.addTask(download.version()));
+                    jobs.add(job);
+                    executor.submit(() -> {
+                        installer.install(job);
+                        return null;
+                    });
+                }
+            }
         }
-        System.out.println("⚙️  Wrote batch script: " + scriptFile.getAbsolutePath());
+        int failed = unresolved;
+        System.out.println();
+        for (JavaInstaller.Job job : jobs) {
+            if (job.getPhase() == JavaInstaller.Phase.DONE) {
+                System.out.println(CliColor.GREEN + "\u2705 " + job.getVersion() + " installed" + CliColor.RESET);
+            } else {
+                failed++;
+                System.out.println(CliColor.RED + "🔴 " + job.getVersion() + " failed: " + job.getError() + CliColor.RESET);
+            }
+        }
+        int total = jobs.size() + unresolved;
+        System.out.println((total - failed) + " of " + total + " versions installed.");
+        if (failed == 0) {
+            return 0;
+        }
+        return failed == total ? 1 : 2;
     }
-
 }
@@ -0,0 +1,88 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.utils.Invocation;
+import com.amankrmj.capyverse.common.utils.ShellExports;
+import com.amankrmj.capyverse.java.services.JavaEnvResolver;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Prints the environment for the Java version pinned by the nearest {@code .java-version}
+ * (or {@code .tool-versions} / {@code .sdkmanrc}) above the current directory. Meant to be
+ * evaluated by the shell, usually from the prompt hook printed by {@code --hook}.
+ */
+@Command(name = "env", description = "Print JAVA_HOME/PATH exports for the project-local Java version")
+public class JavaEnvCommand implements Callable<Integer> {
+
+    @Option(names = {"--shell"}, description = "Shell syntax to emit: bash, zsh or pwsh (default: detected)")
+    private String shell;
+
+    @Option(names = {"--hook"}, description = "Print a prompt hook that re-evaluates the environment on directory change")
+    private boolean hook = false;
+
+    @Override
+    public Integer call() {
+        String target = shell != null ? shell : ShellExports.detectShell();
+        if (!ShellExports.SHELLS.contains(target)) {
+            System.err.println("Unsupported shell: " + target + " (expected one of " + ShellExports.SHELLS + ")");
+            return 1;
+        }
+        if (hook) {
+            System.out.print(hookScript(target));
+            return 0;
+        }
+        JavaEnvResolver.Resolution resolution = JavaEnvResolver.forCurrentUser().resolve(Invocation.current().workingDirectory());
+        ShellExports exports;
+        if (resolution == null) {
+            exports = JavaEnvResolver.deactivate(target);
+        } else if (resolution.jdkHome() == null) {
+            System.err.println("capy: Java " + resolution.requested() + " from " + resolution.pinFile()
+                    + " is not installed (capy java install -v " + resolution.requested() + ")");
+            exports = JavaEnvResolver.deactivate(target);
+        } else {
+            exports = JavaEnvResolver.activate(target, resolution.jdkHome());
+        }
+        System.out.print(exports.render());
+        return 0;
+    }
+
+    /**
+     * Hook scripts only call capy when the working directory changed, so an ordinary
+     * prompt costs a string comparison.
+     */
+    private static String hookScript(String shell) {
+        return switch (shell) {
+            case "zsh" -> """
+                    _capy_hook() { eval "$(capy env --shell zsh)"; }
+                    autoload -Uz add-zsh-hook
+                    add-zsh-hook chpwd _capy_hook
+                    _capy_hook
+                    """;
+            case "pwsh" -> """
+                    $global:_CapyLastPwd = $null
+                    $global:_CapyPrompt = $function:prompt
+                    function global:prompt {
+                        if ($PWD.Path -ne $global:_CapyLastPwd) {
+                            $global:_CapyLastPwd = $PWD.Path
+                            capy env --shell pwsh | Out-String | Invoke-Expression
+                        }
+                        & $global:_CapyPrompt
+                    }
+                    """;
+            default -> """
+                    _capy_hook() {
+                        if [ "$PWD" != "${_CAPY_LAST_PWD:-}" ]; then
+                            _CAPY_LAST_PWD="$PWD"
+                            eval "$(capy env --shell bash)"
+                        fi
+                    }
+                    case ";${PROMPT_COMMAND:-};" in
+                        *";_capy_hook;"*) ;;
+                        *) PROMPT_COMMAND="_capy_hook${PROMPT_COMMAND:+;$PROMPT_COMMAND}" ;;
+                    esac
+                    """;
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.utils.LazySubcommands;
+import picocli.CommandLine.Command;
+
+import java.util.concurrent.Callable;
+
+@Command(name = "store",
+        description = "Inspect the shared content store used by installed JDKs")
+public class JavaStoreCommand implements Callable<Integer>, LazySubcommands.Parent {
+
+    private static final LazySubcommands SUBCOMMANDS = new LazySubcommands()
+            .add("stats", "Show how much disk space the shared content store saves", () -> new StoreStatsCommand());
+
+    @Override
+    public LazySubcommands subcommands() {
+        return SUBCOMMANDS;
+    }
+
+    @Override
+    public Integer call() {
+        System.out.println("Content Store - Use 'store --help' for options:");
+        System.out.println("  stats    - Show how much disk space the store saves");
+        return 0;
+    }
+}
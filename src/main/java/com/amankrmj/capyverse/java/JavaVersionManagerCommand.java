@@ -1,29 +1,45 @@
 package com.amankrmj.capyverse.java;
 
+import com.amankrmj.capyverse.common.utils.LazySubcommands;
 import picocli.CommandLine.Command;
 
 import java.util.concurrent.Callable;
 
 @Command(name = "java",
-        description = "Manage Java versions and installations",
-        subcommands = {
-                ListJavaVersionsCommand.class,
-                InstallJavaVersionCommand.class,
-                UseJavaVersionCommand.class,
-                CurrentJavaVersionCommand.class,
-                WhichJavaVersionCommand.class,
-                SetJavaVersion.class
-        })
-public class JavaVersionManagerCommand implements Callable<Integer> {
+        description = "Manage Java versions and installations")
+public class JavaVersionManagerCommand implements Callable<Integer>, LazySubcommands.Parent {
+
+    private static final LazySubcommands SUBCOMMANDS = new LazySubcommands()
+            .add("list", "List all installed Java versions", () -> new ListJavaVersionsCommand())
+            .add("install", "Install a specific Java version.", () -> new InstallJavaVersionCommand())
+            .add("uninstall", "Remove an installed Java version", () -> new UninstallJavaVersionCommand())
+            .add("use", "Switch to a specific Java version", () -> new UseJavaVersionCommand())
+            .add("current", "Show current active Java version", () -> new CurrentJavaVersionCommand())
+            .add("which", "Show path to current Java installation", () -> new WhichJavaVersionCommand())
+            .add("verify", "Check installed JDKs for modified or missing files", () -> new VerifyJavaVersionCommand())
+            .add("upgrade", "Upgrade an installed Java release line to its newest patch", () -> new UpgradeJavaVersionCommand())
+            .add("prefetch", "Download new patch releases of installed Java versions into the cache", () -> new PrefetchJavaVersionCommand())
+            .add("set", "Set the active Java version", () -> new SetJavaVersion())
+            .add("store", "Inspect the shared content store used by installed JDKs", () -> new JavaStoreCommand());
+
+    @Override
+    public LazySubcommands subcommands() {
+        return SUBCOMMANDS;
+    }
 
     @Override
     public Integer call() {
         System.out.println("Java Version Manager - Use 'java --help' for options:");
         System.out.println("  list     - List installed Java versions");
         System.out.println("  install  - Install a specific Java version");
+        System.out.println("  uninstall - Remove an installed Java version");
         System.out.println("  use      - Switch to a specific Java version");
         System.out.println("  current  - Show current active Java version");
         System.out.println("  which    - Show path to current Java installation");
+        System.out.println("  verify   - Check installed JDKs for modified or missing files");
+        System.out.println("  upgrade  - Upgrade a release line to its newest patch, downloading only changed files");
+        System.out.println("  prefetch - Download new patch releases into the cache");
+        System.out.println("  store    - Inspect the shared content store");
         return 0;
     }
 }
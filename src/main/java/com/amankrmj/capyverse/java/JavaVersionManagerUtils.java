@@ -1,9 +1,18 @@
 package com.amankrmj.capyverse.java;
 
+import com.amankrmj.capyverse.common.utils.Invocation;
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
+
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
 import java.util.stream.Collectors;
 
 public class JavaVersionManagerUtils {
@@ -14,7 +23,7 @@ public class JavaVersionManagerUtils {
     }
 
     public static String getCurrentJavaVersion() {
-        String javaHome = System.getenv("JAVA_HOME");
+        String javaHome = Invocation.getenv("JAVA_HOME");
         if (javaHome == null) return null;
 
         Path javaVersionsDir = getJavaVersionsDirectory();
@@ -27,6 +36,65 @@ public class JavaVersionManagerUtils {
         return null;
     }
 
+    /**
+     * All {@code java} executables on PATH in search order, found without spawning a
+     * process. On Windows every PATHEXT extension is tried, like {@code where java}.
+     */
+    public static List<Path> findJavaOnPath() {
+        List<Path> found = new ArrayList<>();
+        String path = Invocation.getenv("PATH");
+        if (path == null || path.isEmpty()) {
+            return found;
+        }
+        List<String> names = new ArrayList<>();
+        if (File.separatorChar == '\\') {
+            String pathExt = Invocation.getenv("PATHEXT");
+            for (String ext : (pathExt == null ? ".COM;.EXE;.BAT;.CMD" : pathExt).split(";")) {
+                if (!ext.isBlank()) {
+                    names.add("java" + ext.trim().toLowerCase());
+                }
+            }
+        } else {
+            names.add("java");
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (dir.isBlank()) {
+                continue;
+            }
+            for (String name : names) {
+                try {
+                    Path candidate = Paths.get(dir.trim().replace("\"", ""), name);
+                    if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                        found.add(candidate);
+                    }
+                } catch (InvalidPathException ignored) {
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Home directory of the JDK that a {@code java} executable belongs to, following
+     * symlinks such as {@code /usr/bin/java}. Returns null when it cannot be resolved.
+     */
+    public static Path javaHomeOf(Path javaExecutable) {
+        try {
+            Path bin = javaExecutable.toRealPath().getParent();
+            return bin == null ? null : bin.getParent();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Version metadata of a JDK read from its {@code release} file, or an empty set when
+     * the home has none.
+     */
+    public static Properties readRelease(Path javaHome) {
+        return InstalledJavaIndex.readRelease(javaHome);
+    }
+
     public static void setJavaHome(String javaHome) throws IOException, InterruptedException {
         ProcessBuilder pb = new ProcessBuilder("reg", "add", "HKCU\\Environment",
                 "/v", "JAVA_HOME", "/t", "REG_SZ", "/d", javaHome, "/f");
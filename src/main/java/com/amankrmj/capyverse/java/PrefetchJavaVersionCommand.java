@@ -0,0 +1,130 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.utils.ByteUnits;
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.CapyProcess;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.common.utils.Invocation;
+import com.amankrmj.capyverse.common.utils.Platform;
+import com.amankrmj.capyverse.common.utils.RateLimiter;
+import com.amankrmj.capyverse.java.services.DownloadCache;
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
+import com.amankrmj.capyverse.java.services.JavaPrefetcher;
+import com.amankrmj.capyverse.java.services.JavaVersionFetchService;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Downloads newer patch releases of the installed JDK lines into the download cache, so
+ * upgrading later needs no download. With {@code --background} the command relaunches
+ * itself detached at the lowest OS priority and logs to {@code prefetch.log} in the cache.
+ */
+@Command(name = "prefetch", description = "Download new patch releases of installed Java versions into the cache")
+public class PrefetchJavaVersionCommand implements Callable<Integer> {
+
+    @Option(names = {"--limit-rate"},
+            description = "Maximum download rate, e.g. 5M or 500K; 0 for no limit (default: prefetch.max.rate, or 5M)")
+    private String limitRate = CapyConfig.get("prefetch.max.rate", "5M");
+
+    @Option(names = {"--background"}, description = "Run detached at low priority and log to the cache directory")
+    private boolean background = false;
+
+    @Override
+    public Integer call() {
+        long bytesPerSecond;
+        try {
+            bytesPerSecond = ByteUnits.parse(limitRate);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid --limit-rate: " + limitRate);
+            return 1;
+        }
+        DownloadCache cache = DownloadCache.forCurrentUser();
+        if (background) {
+            return launchInBackground();
+        }
+
+        RateLimiter rateLimiter = bytesPerSecond > 0 ? new RateLimiter(bytesPerSecond) : null;
+        JavaPrefetcher prefetcher = new JavaPrefetcher(new JavaVersionFetchService(),
+                InstalledJavaIndex.forCurrentUser(), cache, rateLimiter);
+        List<JavaPrefetcher.Result> results;
+        try {
+            results = prefetcher.prefetch();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Prefetch interrupted.");
+            return 1;
+        }
+        if (results.isEmpty()) {
+            System.out.println("No local Java versions found.");
+            return 0;
+        }
+
+        System.out.println("=== Prefetching Java Patch Releases ===");
+        int failed = 0;
+        Set<String> keep = new HashSet<>();
+        for (JavaPrefetcher.Result result : results) {
+            switch (result.status()) {
+                case UP_TO_DATE -> System.out.println(CliColor.GREEN + "\t\t" + result.line() + " - "
+                        + result.installed() + " is the latest" + CliColor.RESET);
+                case ALREADY_CACHED -> System.out.println(CliColor.GREEN + "\t\t" + result.line() + " - "
+                        + result.latest() + " already cached" + CliColor.RESET);
+                case DOWNLOADED -> System.out.println(CliColor.BLUE + "\t\t" + result.line() + " - "
+                        + result.latest() + " downloaded (installed: " + result.installed() + ")" + CliColor.RESET);
+                case FAILED -> {
+                    failed++;
+                    System.out.println(CliColor.RED + "\t\t" + result.line() + " - " + result.latest()
+                            + " failed: " + result.error() + CliColor.RESET);
+                }
+            }
+            if (result.status() == JavaPrefetcher.Status.DOWNLOADED || result.status() == JavaPrefetcher.Status.ALREADY_CACHED) {
+                keep.add(result.archive());
+            }
+        }
+        InstallJavaVersionCommand.enforceCacheBudget(cache, keep);
+        return failed == 0 ? 0 : 1;
+    }
+
+    /**
+     * Starts this command again as a detached process without {@code --background}.
+     */
+    private Integer launchInBackground() {
+        List<String> command = new ArrayList<>();
+        boolean windows = Platform.current().isWindows();
+        if (windows) {
+            command.addAll(List.of("cmd", "/c", "start", "\"\"", "/low", "/b"));
+        } else {
+            command.addAll(List.of("nice", "-n", "19"));
+        }
+        List<String> relaunch = CapyProcess.command("java", "prefetch", "--limit-rate", limitRate);
+        if (relaunch == null) {
+            System.err.println("Cannot determine the capy executable to relaunch.");
+            return 1;
+        }
+        command.addAll(relaunch);
+
+        Path log = CapyPaths.resolve("cache", "java", "prefetch.log");
+        try {
+            log.getParent().toFile().mkdirs();
+            Invocation.current().prepare(new ProcessBuilder(command))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+                    .redirectInput(ProcessBuilder.Redirect.from(new File(windows ? "NUL" : "/dev/null")))
+                    .start();
+        } catch (IOException e) {
+            System.err.println("🔴 Could not start background prefetch: " + e.getMessage());
+            return 1;
+        }
+        System.out.println("⏬ Prefetching in the background; log: " + log);
+        return 0;
+    }
+}
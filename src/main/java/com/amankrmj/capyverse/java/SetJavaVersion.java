@@ -1,11 +1,14 @@
 package com.amankrmj.capyverse.java;
 
+import com.amankrmj.capyverse.common.utils.Invocation;
+import com.amankrmj.capyverse.common.utils.ShellExports;
+import com.amankrmj.capyverse.java.services.CurrentJavaLink;
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
+import com.amankrmj.capyverse.java.services.JavaEnvResolver;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
-import java.io.File;
-import java.io.PrintWriter;
 
 @Command(name = "set", description = "Set the active Java version")
 public class SetJavaVersion implements Runnable {
@@ -15,51 +18,53 @@ public class SetJavaVersion implements Runnable {
     @Option(names = {"-t", "--temp"}, description = "Set temporarily")
     private boolean temp;
 
+    @Option(names = {"--shell"}, description = "Shell syntax for -t: bash, zsh or pwsh (default: detected)")
+    private String shell;
+
     @Parameters(index = "0", description = "Java version to set (e.g., 20, 24.0.1)")
     private String version;
 
     private void setGlobalJavaVersion(String version) {
-        String userProfile = System.getenv("USERPROFILE");
-        String javaDirPath = userProfile + "\\AppData\\Local\\capyverse\\lang\\java";
-        File javaDir = new File(javaDirPath);
-        File[] folders = javaDir.listFiles(File::isDirectory);
-        if (folders == null || folders.length == 0) {
-            System.err.println("No Java versions found in " + javaDirPath);
+        InstalledJavaIndex.InstalledJdk installed = InstalledJavaIndex.forCurrentUser().resolve(version);
+        if (installed == null) {
+            System.err.println("Version " + version + " is not installed.");
+            return;
+        }
+        CurrentJavaLink current = CurrentJavaLink.forCurrentUser();
+        try {
+            current.switchTo(installed.path());
+        } catch (Exception e) {
+            System.err.println("Failed to switch Java version: " + e.getMessage());
             return;
         }
-        String selectedFolder = null;
-        for (File folder : folders) {
-            String name = folder.getName();
-            int dashIdx = name.indexOf('-');
-            if (dashIdx != -1 && dashIdx < name.length() - 1) {
-                String folderVersion = name.substring(dashIdx + 1);
-                if (folderVersion.equals(version)) {
-                    selectedFolder = folder.getAbsolutePath();
-                    break;
-                }
-            }
+        String notice = current.ensureEnvironmentConfigured();
+        if (notice != null) {
+            System.out.println(notice);
         }
-        if (selectedFolder == null) {
-            System.err.println("Version " + version + " not found in " + javaDirPath);
+        System.out.println("✅ Set Java version to " + installed.version() + " globally.");
+    }
+
+    /**
+     * Prints the exports for the calling shell; the parent shell has to evaluate them,
+     * e.g. {@code eval "$(capy java set -t 21)"}.
+     */
+    private void setTemporaryJavaVersion(String version) {
+        String target = shell != null ? shell : ShellExports.detectShell();
+        if (!ShellExports.SHELLS.contains(target)) {
+            System.err.println("Unsupported shell: " + target + " (expected one of " + ShellExports.SHELLS + ")");
             return;
         }
-        String binPath = selectedFolder;
-        String configFilePath = userProfile + "\\AppData\\Local\\capyverse\\lang\\java\\java_config.txt";
-        try (PrintWriter writer = new PrintWriter(configFilePath, "UTF-8")) {
-            writer.println(binPath);
-        } catch (Exception e) {
-            System.err.println("Failed to write config: " + e.getMessage());
+        InstalledJavaIndex.InstalledJdk installed = InstalledJavaIndex.forCurrentUser().resolve(version);
+        if (installed == null) {
+            System.err.println("Version " + version + " is not installed.");
             return;
         }
-        // Run setup_java.cmd after updating config
-        String setupCmdPath = userProfile + "\\AppData\\Local\\capyverse\\lang\\java\\setup_java.cmd";
-        try {
-            Process process = new ProcessBuilder("cmd", "/c", setupCmdPath).inheritIO().start();
-            process.waitFor();
-        } catch (Exception e) {
-            System.err.println("Failed to run setup_java.cmd: " + e.getMessage());
+        System.out.print(JavaEnvResolver.activate(target, installed.path()).render());
+        if (Invocation.current().interactive()) {
+            System.err.println(target.equals("pwsh")
+                    ? "Apply with: capy java set -t " + version + " --shell pwsh | Out-String | Invoke-Expression"
+                    : "Apply with: eval \"$(capy java set -t " + version + ")\"");
         }
-        System.out.println("✅ Set Java version to " + version + " globally.");
     }
 
     @Override
@@ -67,7 +72,7 @@ public class SetJavaVersion implements Runnable {
         if (global) {
             setGlobalJavaVersion(version);
         } else if (temp) {
-            System.out.println("Temporary set (-t) is not implemented yet.");
+            setTemporaryJavaVersion(version);
         } else {
             System.err.println("Please specify either -g (global) or -t (temp) flag.");
         }
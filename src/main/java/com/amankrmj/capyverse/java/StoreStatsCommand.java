@@ -0,0 +1,113 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.services.ContentStore;
+import com.amankrmj.capyverse.common.services.FileManifest;
+import com.amankrmj.capyverse.common.utils.ByteUnits;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.java.services.CurrentJavaLink;
+import picocli.CommandLine.Command;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+@Command(name = "stats", description = "Show how much disk space the shared content store saves")
+public class StoreStatsCommand implements Callable<Integer> {
+
+    @Override
+    public Integer call() {
+        try {
+            ContentStore store = new ContentStore(CapyPaths.resolve("store"));
+            Stats stats = collect(store, CapyPaths.resolve("lang", "java"));
+
+            System.out.println("=== Content Store ===");
+            System.out.println("\t\tLocation:        " + store.getRoot());
+            System.out.println("\t\tInstalled trees: " + stats.trees() + " (" + stats.files() + " files)");
+            System.out.println("\t\tObjects:         " + stats.objects());
+            System.out.println("\t\tLogical size:    " + ByteUnits.format(stats.logicalBytes()));
+            System.out.println("\t\tLinked to store: " + ByteUnits.format(stats.linkedBytes()));
+            System.out.println("\t\tStored size:     " + ByteUnits.format(stats.storedBytes()));
+            if (stats.unreferencedBytes() > 0) {
+                System.out.println(CliColor.YELLOW + "\t\tUnreferenced:    " + ByteUnits.format(stats.unreferencedBytes()) + CliColor.RESET);
+            }
+            System.out.println(CliColor.GREEN + "\t\tSaved:           " + ByteUnits.format(stats.savedBytes()) + CliColor.RESET);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Error reading content store: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * {@code linkedBytes} is the size of the tree files that are hard links of a store
+     * object, and {@code savedBytes} what they would take beyond their objects as
+     * independent copies. Trees installed with {@code --no-store}, copies made where
+     * links failed and private copies of mutable files save nothing.
+     */
+    record Stats(int trees, long files, long logicalBytes, long linkedBytes, int objects, long storedBytes,
+                 long unreferencedBytes, long savedBytes) {
+    }
+
+    /**
+     * Adds up the installed trees under {@code javaDir} and the store's objects. The
+     * {@code current} link and any other link or junction is skipped, so every tree is
+     * counted once.
+     */
+    static Stats collect(ContentStore store, Path javaDir) throws IOException {
+        int trees = 0;
+        long files = 0;
+        long logicalBytes = 0;
+        long linkedBytes = 0;
+        Set<String> referenced = new HashSet<>();
+        Map<Path, Long> linkedObjects = new HashMap<>();
+        if (Files.isDirectory(javaDir)) {
+            try (DirectoryStream<Path> folders = Files.newDirectoryStream(javaDir)) {
+                for (Path folder : folders) {
+                    if (folder.getFileName().toString().equals(CurrentJavaLink.LINK_NAME)
+                            || !Files.isDirectory(folder, LinkOption.NOFOLLOW_LINKS)) {
+                        continue;
+                    }
+                    Path manifest = folder.resolve(FileManifest.FILE_NAME);
+                    if (!Files.isRegularFile(manifest)) {
+                        continue;
+                    }
+                    trees++;
+                    for (FileManifest.Item item : FileManifest.read(manifest)) {
+                        logicalBytes += item.size();
+                        files++;
+                        referenced.add(item.sha256());
+                        Path object = store.linkedObject(item.sha256(), folder.resolve(item.path()));
+                        if (object != null) {
+                            linkedBytes += item.size();
+                            linkedObjects.put(object, item.size());
+                        }
+                    }
+                }
+            }
+        }
+
+        long storedBytes = 0;
+        long unreferencedBytes = 0;
+        Map<String, Long> objects = store.listObjects();
+        for (Map.Entry<String, Long> object : objects.entrySet()) {
+            storedBytes += object.getValue();
+            if (!referenced.contains(object.getKey())) {
+                unreferencedBytes += object.getValue();
+            }
+        }
+        long linkedObjectBytes = 0;
+        for (long size : linkedObjects.values()) {
+            linkedObjectBytes += size;
+        }
+        return new Stats(trees, files, logicalBytes, linkedBytes, objects.size(), storedBytes, unreferencedBytes,
+                linkedBytes - linkedObjectBytes);
+    }
+}
@@ -0,0 +1,43 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.utils.FileTrees;
+import com.amankrmj.capyverse.java.services.CurrentJavaLink;
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Removes an installed JDK folder and its entry in the installed-version index.
+ */
+@Command(name = "uninstall", description = "Remove an installed Java version")
+public class UninstallJavaVersionCommand implements Callable<Integer> {
+    @Parameters(index = "0", description = "Installed Java version to remove (e.g., 21.0.2)")
+    private String version;
+
+    @Override
+    public Integer call() {
+        InstalledJavaIndex index = InstalledJavaIndex.forCurrentUser();
+        InstalledJavaIndex.InstalledJdk installed = index.get(version);
+        if (installed == null) {
+            System.err.println("Version " + version + " is not installed.");
+            return 1;
+        }
+        CurrentJavaLink current = CurrentJavaLink.forCurrentUser();
+        if (current.pointsTo(installed.path())) {
+            System.err.println("Java " + version + " is the global version; switch with 'capy java use' first.");
+            return 1;
+        }
+        try {
+            FileTrees.deleteTree(installed.path());
+        } catch (IOException e) {
+            System.err.println("🔴 Failed to remove " + installed.path() + ": " + e.getMessage());
+            return 1;
+        }
+        index.remove(version);
+        System.out.println("✅ Removed Java " + version + ".");
+        return 0;
+    }
+}
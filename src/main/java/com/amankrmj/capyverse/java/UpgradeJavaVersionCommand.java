@@ -0,0 +1,166 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.services.ContentStore;
+import com.amankrmj.capyverse.common.services.FileManifest;
+import com.amankrmj.capyverse.common.utils.ByteUnits;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.ProcessLock;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+import com.amankrmj.capyverse.java.model.JavaCatalog;
+import com.amankrmj.capyverse.java.model.JavaVersion;
+import com.amankrmj.capyverse.java.services.CurrentJavaLink;
+import com.amankrmj.capyverse.java.services.DownloadCache;
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
+import com.amankrmj.capyverse.java.services.JavaDownloadService;
+import com.amankrmj.capyverse.java.services.JavaInstaller;
+import com.amankrmj.capyverse.java.services.JavaUpgrader;
+import com.amankrmj.capyverse.java.services.JavaVersionFetchService;
+import com.amankrmj.capyverse.java.services.StagedInstall;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * Installs the newest patch of an installed release line next to the installed one.
+ * Unchanged files are reused from the installed JDK and only changed entries of the new
+ * archive are downloaded; the full archive is used instead when it is already cached, is
+ * a tarball, or the server cannot serve ranges. The global JDK moves along when it was the old version.
+ */
+@Command(name = "upgrade", description = "Upgrade an installed Java release line to its newest patch")
+public class UpgradeJavaVersionCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "Release line to upgrade (e.g., 21 or 21.0)")
+    private String line;
+
+    @Option(names = {"--dry-run"}, description = "Show what would be reused and downloaded without changing anything")
+    private boolean dryRun = false;
+
+    @Option(names = {"--full"}, description = "Download the whole archive instead of only the changed files")
+    private boolean full = false;
+
+    @Option(names = {"--segments"}, description = "Range requests run at the same time (default: ${DEFAULT-VALUE})")
+    private int segments = JavaDownloadService.DEFAULT_SEGMENTS;
+
+    @Option(names = {"--no-store"}, description = "Write files directly instead of linking them from the shared content store")
+    private boolean noStore = false;
+
+    @Override
+    public Integer call() {
+        InstalledJavaIndex index = InstalledJavaIndex.forCurrentUser();
+        JavaVersion prefix = JavaVersion.parse(line.trim());
+        InstalledJavaIndex.InstalledJdk from = null;
+        for (InstalledJavaIndex.InstalledJdk jdk : index.all()) {
+            JavaVersion version = JavaVersion.parse(jdk.version());
+            if (version.startsWith(prefix) && (from == null || version.compareTo(JavaVersion.parse(from.version())) > 0)) {
+                from = jdk;
+            }
+        }
+        if (from == null) {
+            System.err.println("No installed version of " + line + "; install it with 'capy java install -v " + line + " --latest'.");
+            return 1;
+        }
+
+        JavaVersionFetchService fetchService = new JavaVersionFetchService();
+        JavaCatalog.Entry latest = fetchService.latestEntry(line);
+        if (latest == null) {
+            System.err.println("No versions of " + line + " in the catalog.");
+            return 1;
+        }
+        String toVersion = latest.version().text();
+        if (latest.version().compareTo(JavaVersion.parse(from.version())) <= 0) {
+            System.out.println(CliColor.GREEN + "✅ " + from.version() + " is the latest " + line + " release." + CliColor.RESET);
+            return 0;
+        }
+        if (index.contains(toVersion)) {
+            System.out.println(CliColor.GREEN + "✅ " + toVersion + " is already installed." + CliColor.RESET);
+            return 0;
+        }
+        System.out.println("Upgrading " + from.version() + " -> " + toVersion);
+        Metrics.global().label("command", "java upgrade");
+
+        String archive = JavaInstaller.archiveName(toVersion, latest.url());
+        boolean cached = DownloadCache.forCurrentUser().contains(archive);
+        // Only a zip's central directory tells which entries changed without reading it all
+        boolean delta = !full && !cached && archive.endsWith(".zip");
+        try (ProcessLock lock = JavaInstaller.lockVersion(toVersion, System.out::println)) {
+            Path home = InstalledJavaIndex.defaultJavaDir().resolve("jdk-" + toVersion);
+            if (lock.waited() && Files.isRegularFile(home.resolve(FileManifest.FILE_NAME))) {
+                System.out.println("♻️  " + toVersion + " was just installed by another process");
+            } else if (!delta) {
+                if (dryRun) {
+                    System.out.println("Would install " + toVersion + (cached ? " from the cached archive." : " from the full archive."));
+                    return 0;
+                }
+                home = installFull(latest);
+            } else {
+                home = installDelta(from, latest);
+                if (home == null) {
+                    return 0;
+                }
+            }
+            CurrentJavaLink current = CurrentJavaLink.forCurrentUser();
+            if (current.pointsTo(from.path())) {
+                current.switchTo(home);
+                System.out.println("Global Java switched to " + toVersion);
+            }
+            index.record(toVersion, home);
+            System.out.println("✅ Java " + toVersion + " installed; " + from.version()
+                    + " is kept, remove it with 'capy java uninstall " + from.version() + "'.");
+            return 0;
+        } catch (Exception e) {
+            System.err.println("🔴 Upgrade failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Returns the new JDK home, or null after a dry run.
+     */
+    private Path installDelta(InstalledJavaIndex.InstalledJdk from, JavaCatalog.Entry latest) throws Exception {
+        String toVersion = latest.version().text();
+        ContentStore store = noStore ? null
+                : new ContentStore(CapyPaths.resolve("store"));
+        JavaUpgrader.Plan plan;
+        try {
+            plan = new JavaUpgrader(InstalledJavaIndex.defaultJavaDir(), store, segments)
+                    .plan(from, toVersion, latest.url(), latest.sha256());
+        } catch (IOException e) {
+            System.out.println(CliColor.YELLOW + "Delta upgrade unavailable (" + e.getMessage() + "); downloading the full archive." + CliColor.RESET);
+            return dryRun ? null : installFull(latest);
+        }
+        System.out.println("\t\tReuse:    " + plan.reuse().size() + " files, " + ByteUnits.format(plan.reuseBytes())
+                + (plan.exact() ? "" : " (to be confirmed by CRC-32)"));
+        System.out.println("\t\tDownload: " + plan.fetch().size() + " files, " + ByteUnits.format(plan.fetchBytes())
+                + " of " + ByteUnits.format(plan.archive().getLength()) + " in " + plan.requests() + " range request(s)");
+        if (dryRun) {
+            return null;
+        }
+        JavaUpgrader.Result result;
+        Path home;
+        try (StagedInstall staging = new StagedInstall(InstalledJavaIndex.defaultJavaDir(), "jdk-" + toVersion);
+             ProgressRenderer progress = ProgressRenderer.forConsole()) {
+            JavaUpgrader upgrader = new JavaUpgrader(staging.getDirectory(), store, segments);
+            result = upgrader.apply(plan, progress.addTask(toVersion));
+            home = staging.commit();
+        }
+        System.out.println("⬇️  Downloaded " + ByteUnits.format(result.downloadedBytes()) + ", reused "
+                + result.reusedFiles() + " files (" + ByteUnits.format(result.reusedBytes()) + ") from " + from.version());
+        return home;
+    }
+
+    private Path installFull(JavaCatalog.Entry latest) throws Exception {
+        String toVersion = latest.version().text();
+        JavaInstaller installer = new JavaInstaller(segments, false, !noStore, false, 1, 1);
+        try (ProgressRenderer progress = ProgressRenderer.forConsole()) {
+            installer.install(new JavaInstaller.Job(toVersion, latest.url(), latest.sha256(), progress.addTask(toVersion)));
+        }
+        return InstalledJavaIndex.defaultJavaDir().resolve("jdk-" + toVersion);
+    }
+}
@@ -1,10 +1,10 @@
 package com.amankrmj.capyverse.java;
 
+import com.amankrmj.capyverse.java.services.CurrentJavaLink;
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.concurrent.Callable;
 
 @Command(name = "use", description = "Switch to a specific Java version")
@@ -16,30 +16,28 @@ public class UseJavaVersionCommand implements Callable<Integer> {
     @Override
     public Integer call() {
         try {
-            Path javaVersionsDir = JavaVersionManagerUtils.getJavaVersionsDirectory();
-            Path versionPath = javaVersionsDir.resolve(version);
+            InstalledJavaIndex index = InstalledJavaIndex.forCurrentUser();
+            InstalledJavaIndex.InstalledJdk installed = index.resolve(version);
 
-            if (!Files.exists(versionPath)) {
+            if (installed == null) {
                 System.err.println("Java version not found: " + version);
                 System.err.println("Available versions:");
-                if (Files.exists(javaVersionsDir)) {
-                    Files.list(javaVersionsDir)
-                            .filter(Files::isDirectory)
-                            .map(path -> path.getFileName().toString())
-                            .forEach(v -> System.err.println("  " + v));
+                for (InstalledJavaIndex.InstalledJdk jdk : index.all()) {
+                    System.err.println("  " + jdk.version());
                 }
                 return 1;
             }
 
-            // Set JAVA_HOME
-            JavaVersionManagerUtils.setJavaHome(versionPath.toString());
-
-            // Update PATH
-            JavaVersionManagerUtils.updatePathForJava(versionPath.resolve("bin").toString());
+            // Re-point the current link; JAVA_HOME and PATH already refer to it
+            CurrentJavaLink current = CurrentJavaLink.forCurrentUser();
+            current.switchTo(installed.path());
+            String notice = current.ensureEnvironmentConfigured();
+            if (notice != null) {
+                System.out.println(notice);
+            }
 
-            System.out.println("Switched to Java version: " + version);
-            System.out.println("JAVA_HOME: " + versionPath);
-            System.out.println("Note: Restart your terminal to see the changes.");
+            System.out.println("Switched to Java version: " + installed.version());
+            System.out.println("JAVA_HOME: " + current.getLink() + " -> " + installed.path());
 
             return 0;
         } catch (Exception e) {
@@ -0,0 +1,94 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.services.ManifestVerifier;
+import com.amankrmj.capyverse.common.utils.ByteUnits;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.java.services.InstalledJavaIndex;
+import com.amankrmj.capyverse.java.services.JavaUpgrader;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+/**
+ * Re-hashes installed JDKs against the manifests recorded at install time and reports
+ * files that were changed or deleted since.
+ */
+@Command(name = "verify", description = "Check installed JDKs for modified or missing files")
+public class VerifyJavaVersionCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", arity = "0..1", description = "Installed Java version to check (default: all)")
+    private String version;
+
+    @Option(names = {"--parallelism"}, description = "Files hashed at the same time (default: ${DEFAULT-VALUE})")
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Override
+    public Integer call() {
+        InstalledJavaIndex index = InstalledJavaIndex.forCurrentUser();
+        List<InstalledJavaIndex.InstalledJdk> jdks = new ArrayList<>();
+        if (version != null) {
+            InstalledJavaIndex.InstalledJdk jdk = index.resolve(version);
+            if (jdk == null) {
+                System.err.println("Version " + version + " is not installed.");
+                return 1;
+            }
+            jdks.add(jdk);
+        } else {
+            jdks.addAll(index.all());
+        }
+        if (jdks.isEmpty()) {
+            System.out.println("No local Java versions found.");
+            return 0;
+        }
+
+        List<Path> roots = jdks.stream().map(InstalledJavaIndex.InstalledJdk::path).toList();
+        List<ManifestVerifier.Report> reports;
+        long started = System.nanoTime();
+        try {
+            reports = new ManifestVerifier(parallelism).verify(roots);
+        } catch (Exception e) {
+            System.err.println("🔴 Verification failed: " + e.getMessage());
+            return 1;
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.println("=== Verifying Installed Java Versions ===");
+        int failed = 0;
+        long bytes = 0;
+        for (int i = 0; i < jdks.size(); i++) {
+            String jdkVersion = jdks.get(i).version();
+            ManifestVerifier.Report report = reports.get(i);
+            bytes += report.bytes();
+            if (!report.hasManifest()) {
+                System.out.println(CliColor.YELLOW + "\t\t" + jdkVersion + " - no manifest recorded; reinstall it to enable verification" + CliColor.RESET);
+            } else if (report.isClean()) {
+                System.out.println(CliColor.GREEN + "\t\t" + jdkVersion + " - OK (" + report.files() + " files, "
+                        + ByteUnits.format(report.bytes()) + ")" + CliColor.RESET);
+                Properties origin = JavaUpgrader.readOrigin(jdks.get(i).path());
+                if (origin != null) {
+                    System.out.println("\t\t\tassembled by upgrade from " + origin.getProperty("from")
+                            + "; the archive checksum was not checked");
+                }
+            } else {
+                failed++;
+                System.out.println(CliColor.RED + "\t\t" + jdkVersion + " - " + report.problems().size()
+                        + " of " + report.files() + " files drifted" + CliColor.RESET);
+                for (ManifestVerifier.Problem problem : report.problems()) {
+                    System.out.println("\t\t\t" + problem.status().name().toLowerCase() + "\t" + problem.path());
+                }
+            }
+        }
+        System.out.println("Hashed " + ByteUnits.format(bytes) + " in " + elapsedMillis + " ms");
+        if (failed > 0) {
+            System.err.println("🔴 " + failed + " installed JDK(s) changed since install; reinstall with 'capy java install -v <version>'.");
+            return 1;
+        }
+        return 0;
+    }
+}
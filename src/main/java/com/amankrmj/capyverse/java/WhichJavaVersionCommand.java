@@ -1,31 +1,54 @@
 package com.amankrmj.capyverse.java;
 
+import com.amankrmj.capyverse.common.utils.Invocation;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 @Command(name = "which", description = "Show path to current Java installation")
 public class WhichJavaVersionCommand implements Callable<Integer> {
 
+    @Option(names = {"--exec"}, description = "Run 'where java' instead of searching PATH in-process (Windows only)")
+    private boolean exec = false;
+
     @Override
     public Integer call() {
         try {
-            ProcessBuilder pb = new ProcessBuilder("where", "java");
-            Process process = pb.start();
-            String output = new String(process.getInputStream().readAllBytes());
-            int exitCode = process.waitFor();
-
-            if (exitCode == 0) {
-                System.out.println("Java executable locations:");
-                System.out.println(output.trim());
-            } else {
-                System.out.println("Java not found in PATH");
-            }
-
-            return 0;
+            return exec ? printFromProcess() : printFromPath();
         } catch (Exception e) {
             System.err.println("Error finding Java: " + e.getMessage());
             return 1;
         }
     }
+
+    private Integer printFromPath() {
+        List<Path> found = JavaVersionManagerUtils.findJavaOnPath();
+        if (found.isEmpty()) {
+            System.out.println("Java not found in PATH");
+            return 0;
+        }
+        System.out.println("Java executable locations:");
+        for (Path java : found) {
+            System.out.println(java);
+        }
+        return 0;
+    }
+
+    private Integer printFromProcess() throws Exception {
+        ProcessBuilder pb = Invocation.current().prepare(new ProcessBuilder("where", "java"));
+        Process process = pb.start();
+        String output = new String(process.getInputStream().readAllBytes());
+        int exitCode = process.waitFor();
+
+        if (exitCode == 0) {
+            System.out.println("Java executable locations:");
+            System.out.println(output.trim());
+        } else {
+            System.out.println("Java not found in PATH");
+        }
+        return 0;
+    }
 }
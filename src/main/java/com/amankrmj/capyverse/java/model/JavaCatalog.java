@@ -0,0 +1,100 @@
+package com.amankrmj.capyverse.java.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index over the full version catalog. Entries are sorted by parsed version,
+ * so exact lookups are a binary search and "latest patch of a release line" is a prefix
+ * range scan from the end of the line.
+ */
+public class JavaCatalog {
+
+    /**
+     * A catalog version. {@code sha256} is the published archive checksum, or null when
+     * the catalog does not list one.
+     */
+    public record Entry(JavaVersion version, String url, String sha256) {
+    }
+
+    private final Entry[] entries;
+
+    public JavaCatalog(Map<String, String> urlsByVersion) {
+        this(urlsByVersion, Map.of());
+    }
+
+    public JavaCatalog(Map<String, String> urlsByVersion, Map<String, String> checksumsByVersion) {
+        List<Entry> list = new ArrayList<>(urlsByVersion.size());
+        for (Map.Entry<String, String> item : urlsByVersion.entrySet()) {
+            list.add(new Entry(JavaVersion.parse(item.getKey()), item.getValue(), checksumsByVersion.get(item.getKey())));
+        }
+        this.entries = list.toArray(new Entry[0]);
+        Arrays.sort(this.entries, (a, b) -> a.version().compareTo(b.version()));
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Exact lookup of a version string; returns null when the catalog does not list it.
+     * Versions that differ in their text are different builds, even when they order the
+     * same.
+     */
+    public Entry find(String version) {
+        JavaVersion key = JavaVersion.parse(version);
+        int low = 0;
+        int high = entries.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = entries[mid].version().compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return entries[mid].version().text().equals(key.text()) ? entries[mid] : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Newest entry of the release line named by {@code prefix} (e.g. {@code 22} or
+     * {@code 22.0}), or null when there is none. Qualified builds such as {@code 24-ea}
+     * are skipped unless the prefix names the same qualifier.
+     */
+    public Entry latest(String prefix) {
+        JavaVersion line = JavaVersion.parse(prefix);
+        int length = line.components().length;
+        // First entry sorting after every version of the line
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].version().compareNumbers(line, length) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low - 1; i >= 0 && entries[i].version().startsWith(line); i--) {
+            if (entries[i].version().qualifier().equals(line.qualifier())) {
+                return entries[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * All entries, newest first.
+     */
+    public List<Entry> newestFirst() {
+        List<Entry> list = new ArrayList<>(Arrays.asList(entries));
+        Collections.reverse(list);
+        return list;
+    }
+}
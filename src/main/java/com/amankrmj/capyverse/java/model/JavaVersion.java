@@ -0,0 +1,101 @@
+package com.amankrmj.capyverse.java.model;
+
+import java.util.Arrays;
+
+/**
+ * A Java version string such as {@code 23}, {@code 23.0.2} or {@code 18.0.2.1}, ordered by
+ * its numeric components so that {@code 23.0.10} sorts after {@code 23.0.9}. Missing
+ * trailing components count as zero. Whatever follows the numbers, as in {@code 24-ea}
+ * or {@code 11-graalvm}, is the qualifier: a plain release sorts above every qualified
+ * build of the same number, and versions that still tie are ordered by their text, so
+ * the order agrees with {@link #equals}.
+ */
+public record JavaVersion(String text, int[] components, String qualifier) implements Comparable<JavaVersion> {
+
+    public static JavaVersion parse(String text) {
+        String trimmed = text.trim();
+        int end = 0;
+        while (end < trimmed.length() && (Character.isDigit(trimmed.charAt(end)) || trimmed.charAt(end) == '.')) {
+            end++;
+        }
+        String[] parts = trimmed.substring(0, end).split("\\.");
+        int[] components = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            components[i] = parts[i].isEmpty() ? 0 : Integer.parseInt(parts[i]);
+        }
+        return new JavaVersion(trimmed, components, trimmed.substring(end));
+    }
+
+    public int feature() {
+        return components.length > 0 ? components[0] : 0;
+    }
+
+    public boolean isQualified() {
+        return !qualifier.isEmpty();
+    }
+
+    /**
+     * True when this version belongs to the release line named by {@code prefix}, e.g.
+     * {@code 22.0.2} starts with {@code 22} and with {@code 22.0}.
+     */
+    public boolean startsWith(JavaVersion prefix) {
+        if (prefix.components.length > components.length) {
+            return false;
+        }
+        return Arrays.equals(components, 0, prefix.components.length, prefix.components, 0, prefix.components.length);
+    }
+
+    /**
+     * Compares only the numeric components, missing ones counting as zero.
+     */
+    public int compareNumbers(JavaVersion other) {
+        return compareNumbers(other, Math.max(components.length, other.components.length));
+    }
+
+    /**
+     * Compares the first {@code length} numeric components; {@code compareNumbers(line,
+     * line.components().length)} places this version before, in or after that line.
+     */
+    public int compareNumbers(JavaVersion other, int length) {
+        for (int i = 0; i < length; i++) {
+            int a = i < components.length ? components[i] : 0;
+            int b = i < other.components.length ? other.components[i] : 0;
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int compareTo(JavaVersion other) {
+        int numbers = compareNumbers(other);
+        if (numbers != 0) {
+            return numbers;
+        }
+        if (isQualified() != other.isQualified()) {
+            return isQualified() ? -1 : 1;
+        }
+        int qualifiers = qualifier.compareTo(other.qualifier);
+        if (qualifiers != 0) {
+            return qualifiers;
+        }
+        int lengths = Integer.compare(components.length, other.components.length);
+        return lengths != 0 ? lengths : text.compareTo(other.text);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof JavaVersion other && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
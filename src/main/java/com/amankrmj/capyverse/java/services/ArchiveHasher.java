@@ -0,0 +1,103 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.Sha256;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SHA-256 of an archive that parallel range requests write out of order. It runs behind
+ * the download on its own thread and hashes the gap-free prefix of the {@code .part} file
+ * as soon as it grows. The bytes come back from the page cache they were just written to,
+ * so the digest is ready when the last range lands and no second pass over the archive is
+ * needed. Bytes kept from an earlier, interrupted run are hashed the same way.
+ */
+class ArchiveHasher {
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final Path part;
+    private final DownloadState state;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    private boolean finished;
+
+    ArchiveHasher(Path part, DownloadState state) {
+        this.part = part;
+        this.state = state;
+    }
+
+    /**
+     * Tells the hasher that more bytes are on disk.
+     */
+    void signal() {
+        lock.lock();
+        try {
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * No more bytes will arrive; a hasher still short of the end fails instead of waiting.
+     */
+    void finish() {
+        lock.lock();
+        try {
+            finished = true;
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hashes {@code [0, length)} as it becomes available and returns the hex digest.
+     */
+    String hash(long length) throws IOException, InterruptedException {
+        MessageDigest digest = Sha256.newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long hashed = 0;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+            while (hashed < length) {
+                long available = state.contiguousEnd(hashed);
+                if (available <= hashed) {
+                    await(hashed);
+                    continue;
+                }
+                while (hashed < available) {
+                    buffer.clear().limit((int) Math.min(BUFFER_SIZE, available - hashed));
+                    int read = channel.read(buffer, hashed);
+                    if (read < 0) {
+                        throw new IOException("Archive ended at byte " + hashed + " while hashing");
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    hashed += read;
+                }
+            }
+        }
+        return Sha256.hex(digest);
+    }
+
+    private void await(long hashed) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (state.contiguousEnd(hashed) > hashed) {
+                return;
+            }
+            if (finished) {
+                throw new IOException("Download stopped before byte " + hashed);
+            }
+            advanced.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.HttpService;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.Platform;
+import com.amankrmj.capyverse.java.model.JavaCatalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * On-disk cache of the Java version catalog. The full {@code {version, url}} catalog is
+ * fetched in one request and kept as a compact binary snapshot that loads without any
+ * parsing of the server format. Within the TTL the snapshot is used as is; after that it
+ * is revalidated with {@code If-None-Match}, so an unchanged catalog costs a single 304
+ * round trip.
+ * <p>
+ * Several sources may be given: LAN mirrors, the upstream server and static JSON files.
+ * A refresh asks every stale source at once, each on its own virtual thread and with its
+ * own deadline, and returns as soon as the first source in precedence order answers; a
+ * source that fails or misses its deadline is skipped, so a slow server costs at most
+ * its deadline instead of the HTTP timeouts. Sources still being asked keep their
+ * previous entries and are merged in when they answer, or asked again on the next call
+ * while their entries are stale. The answers are merged by version, an earlier source
+ * winning over a later one, and the snapshot keeps every source's entries, validator and
+ * fetch time separately.
+ * <p>
+ * Catalog entries may name the {@code os} and {@code arch} their archive is built for;
+ * only entries for this cache's platform are kept, and an entry naming the platform wins
+ * over one that names none for the same version.
+ */
+public class CatalogCache {
+    public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(5);
+    private static final int MAGIC = 0x43415043; // "CAPC"
+    private static final int FORMAT_VERSION = 7;
+
+    private final Path snapshotFile;
+    private final List<Source> sources;
+    private final Duration ttl;
+    private final Platform platform;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Snapshot snapshot;
+    private JavaCatalog catalog;
+
+    /**
+     * A catalog to read, either an http(s) URL or a JSON file ({@code file:} URI or path;
+     * relative paths are resolved against the capyverse root), and how long a refresh
+     * waits for it.
+     */
+    public record Source(String location, Duration deadline) {
+        public Source(String location) {
+            this(location, DEFAULT_DEADLINE);
+        }
+
+        boolean isFile() {
+            return !location.startsWith("http://") && !location.startsWith("https://");
+        }
+
+        Path file() {
+            return location.startsWith("file:") ? Path.of(URI.create(location)) : CapyPaths.root().resolve(location);
+        }
+    }
+
+    /**
+     * The entries one source returned at {@code fetchedAt}, mapping each version to its
+     * download URL and, when the catalog publishes one, to the SHA-256 of its archive.
+     */
+    public record SourceEntries(String source, String etag, long fetchedAt, Map<String, String> urls,
+                                Map<String, String> checksums) {
+
+        SourceEntries refetched(long fetchedAt) {
+            return new SourceEntries(source, etag, fetchedAt, urls, checksums);
+        }
+    }
+
+    /**
+     * In-memory form of the snapshot: the entries of every source that answered, in
+     * source order, and their merged view. {@code fetchedAt} is that of the oldest source.
+     */
+    public record Snapshot(long fetchedAt, List<SourceEntries> sources, Map<String, String> urls,
+                           Map<String, String> checksums) {
+
+        static Snapshot merge(List<SourceEntries> sources) {
+            Map<String, String> urls = new LinkedHashMap<>();
+            Map<String, String> checksums = new LinkedHashMap<>();
+            long fetchedAt = Long.MAX_VALUE;
+            for (SourceEntries entries : sources) {
+                fetchedAt = Math.min(fetchedAt, entries.fetchedAt());
+                entries.urls().forEach((version, url) -> {
+                    if (urls.putIfAbsent(version, url) == null && entries.checksums().containsKey(version)) {
+                        checksums.put(version, entries.checksums().get(version));
+                    }
+                });
+            }
+            return new Snapshot(fetchedAt, List.copyOf(sources),
+                    Collections.unmodifiableMap(urls), Collections.unmodifiableMap(checksums));
+        }
+
+        SourceEntries find(String source) {
+            for (SourceEntries entries : sources) {
+                if (entries.source().equals(source)) {
+                    return entries;
+                }
+            }
+            return null;
+        }
+    }
+
+    public CatalogCache(Path snapshotFile, String catalogUrl) {
+        this(snapshotFile, List.of(new Source(catalogUrl)), DEFAULT_TTL);
+    }
+
+    public CatalogCache(Path snapshotFile, List<Source> sources, Duration ttl) {
+        this(snapshotFile, sources, ttl, Platform.current());
+    }
+
+    public CatalogCache(Path snapshotFile, List<Source> sources, Duration ttl, Platform platform) {
+        this.snapshotFile = snapshotFile;
+        this.sources = List.copyOf(sources);
+        this.ttl = ttl;
+        this.platform = platform;
+    }
+
+    /**
+     * Returns the indexed catalog, revalidating against the server when the snapshot is
+     * stale. With {@code offline} set only the snapshot is consulted. Returns null when no
+     * catalog is available. The index is kept in memory until the snapshot goes stale, so
+     * a long-lived instance keeps answering without touching the disk.
+     */
+    public JavaCatalog catalog(boolean offline) {
+        // A lock rather than synchronized: a virtual thread blocked on the HTTP client
+        // inside a monitor pins its carrier, which the client needs to complete the call
+        lock.lock();
+        try {
+            return loadCatalog(offline);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private JavaCatalog loadCatalog(boolean offline) {
+        if (catalog != null && (offline || isFresh(snapshot))) {
+            return catalog;
+        }
+        Snapshot current = load();
+        if (offline) {
+            if (current == null) {
+                System.err.println("No cached catalog available for offline use.");
+                return null;
+            }
+        } else if (current == null || !isFresh(current)) {
+            try {
+                current = revalidate(current);
+            } catch (Exception e) {
+                String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                if (current == null) {
+                    System.err.println("Error fetching catalog: " + reason);
+                    return null;
+                }
+                System.err.println("Could not refresh catalog (" + reason + "), using cached copy.");
+            }
+        }
+        catalog = new JavaCatalog(current.urls(), current.checksums());
+        return catalog;
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return isFresh(current.fetchedAt());
+    }
+
+    private boolean isFresh(long fetchedAt) {
+        return System.currentTimeMillis() - fetchedAt < ttl.toMillis();
+    }
+
+    /**
+     * Asks the stale sources at once and returns as soon as any of them answers, with the
+     * answers in by then; precedence only decides which entries win when merging. Sources
+     * still being asked keep their previous entries until {@link #lateAnswer} merges
+     * theirs. Fails with the reasons of all sources when none answered.
+     */
+    private Snapshot revalidate(Snapshot current) throws IOException, InterruptedException {
+        Map<Source, CompletableFuture<SourceEntries>> fetches = new LinkedHashMap<>();
+        long maxDeadline = 0;
+        for (Source source : sources) {
+            SourceEntries previous = current == null ? null : current.find(source.location());
+            if (previous == null || !isFresh(previous.fetchedAt())) {
+                fetches.put(source, fetchAsync(source, previous));
+                maxDeadline = Math.max(maxDeadline, source.deadline().toNanos());
+            }
+        }
+        if (fetches.isEmpty()) {
+            throw new IOException("No catalog source configured");
+        }
+        CompletableFuture<Void> firstAnswer = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(fetches.size());
+        for (CompletableFuture<SourceEntries> fetch : fetches.values()) {
+            fetch.whenComplete((entries, error) -> {
+                if (error == null || outstanding.decrementAndGet() == 0) {
+                    firstAnswer.complete(null);
+                }
+            });
+        }
+        try {
+            // Every fetch ends by its own deadline; this bound is only a safety net
+            firstAnswer.get(maxDeadline, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException ignored) {
+            // Reported below per source
+        }
+        List<String> failures = new ArrayList<>();
+        boolean answered = false;
+        for (Map.Entry<Source, CompletableFuture<SourceEntries>> fetch : fetches.entrySet()) {
+            CompletableFuture<SourceEntries> future = fetch.getValue();
+            if (!future.isDone()) {
+                continue;
+            }
+            if (!future.isCompletedExceptionally()) {
+                answered = true;
+                continue;
+            }
+            Source source = fetch.getKey();
+            Throwable cause = future.exceptionNow();
+            failures.add(cause instanceof TimeoutException
+                    ? source.location() + " missed its " + source.deadline().toMillis() + " ms deadline"
+                    : source.location() + ": " + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()));
+        }
+        if (!answered) {
+            throw new IOException(failures.isEmpty() ? "No catalog source answered" : String.join("; ", failures));
+        }
+        for (String failure : failures) {
+            System.err.println("Skipped catalog source: " + failure);
+        }
+
+        List<SourceEntries> merged = new ArrayList<>();
+        List<CompletableFuture<SourceEntries>> pending = new ArrayList<>();
+        for (Source source : sources) {
+            SourceEntries previous = current == null ? null : current.find(source.location());
+            CompletableFuture<SourceEntries> fetch = fetches.get(source);
+            if (fetch == null) {
+                merged.add(previous);
+            } else if (!fetch.isDone()) {
+                // Still being asked: the stale entries stand in, so the next call asks again
+                if (previous != null) {
+                    merged.add(previous);
+                }
+                pending.add(fetch);
+            } else if (!fetch.isCompletedExceptionally()) {
+                merged.add(fetch.join());
+            }
+        }
+        Snapshot updated = Snapshot.merge(merged);
+        save(updated);
+        // After saving, so an answer arriving in between lands on top of this snapshot
+        for (CompletableFuture<SourceEntries> fetch : pending) {
+            fetch.thenAccept(this::lateAnswer);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Runs a fetch on its own virtual thread. It ends by the source's deadline on its
+     * own, so a fetch that outlives {@link #revalidate} needs no cancelling.
+     */
+    private CompletableFuture<SourceEntries> fetchAsync(Source source, SourceEntries previous) {
+        CompletableFuture<SourceEntries> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("catalog-fetch").start(() -> {
+            try {
+                result.complete(fetch(source, previous));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.orTimeout(source.deadline().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Merges the answer of a source that missed the first response into the snapshot.
+     */
+    private void lateAnswer(SourceEntries answer) {
+        lock.lock();
+        try {
+            Snapshot current = load();
+            List<SourceEntries> merged = new ArrayList<>();
+            for (Source source : sources) {
+                SourceEntries entries = source.location().equals(answer.source())
+                        ? answer
+                        : current == null ? null : current.find(source.location());
+                if (entries != null) {
+                    merged.add(entries);
+                }
+            }
+            save(Snapshot.merge(merged));
+            catalog = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SourceEntries fetch(Source source, SourceEntries previous) throws IOException, InterruptedException {
+        if (source.isFile()) {
+            Path file = source.file();
+            if (!Files.isRegularFile(file)) {
+                throw new IOException("no such file " + file);
+            }
+            String stamp = Files.getLastModifiedTime(file).toMillis() + "-" + Files.size(file);
+            if (previous != null && stamp.equals(previous.etag())) {
+                return previous.refetched(System.currentTimeMillis());
+            }
+            return parse(source.location(), stamp, Files.readString(file));
+        }
+        HttpService http = HttpService.shared();
+        HttpRequest.Builder builder = http.request(source.location())
+                .timeout(source.deadline())
+                .GET();
+        if (previous != null && previous.etag() != null) {
+            builder.header("If-None-Match", previous.etag());
+        }
+        HttpResponse<String> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 304 && previous != null) {
+            return previous.refetched(System.currentTimeMillis());
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP status " + response.statusCode());
+        }
+        return parse(source.location(), response.headers().firstValue("ETag").orElse(null), response.body());
+    }
+
+    /**
+     * Keeps the entries for this cache's platform; one naming the platform wins over one
+     * that names none for the same version.
+     */
+    private SourceEntries parse(String source, String etag, String json) throws IOException {
+        Map<String, String> urls = new LinkedHashMap<>();
+        Map<String, String> checksums = new LinkedHashMap<>();
+        Set<String> platformSpecific = new HashSet<>();
+        for (Map<String, String> item : CatalogParser.parse(json)) {
+            String version = item.get("version");
+            String url = item.get("url");
+            if (version == null || version.isBlank() || url == null || url.isBlank()
+                    || !platform.matches(item.get("os"), item.get("arch"))) {
+                continue;
+            }
+            String key = version.trim();
+            boolean specific = item.get("os") != null || item.get("arch") != null;
+            if (platformSpecific.contains(key) || urls.containsKey(key) && !specific) {
+                continue;
+            }
+            if (specific) {
+                platformSpecific.add(key);
+            }
+            urls.put(key, url.trim());
+            String sha256 = item.get("sha256");
+            if (sha256 != null && !sha256.isBlank()) {
+                checksums.put(key, sha256.trim().toLowerCase(Locale.ROOT));
+            } else {
+                checksums.remove(key);
+            }
+        }
+        return new SourceEntries(source, etag, System.currentTimeMillis(),
+                Collections.unmodifiableMap(urls), Collections.unmodifiableMap(checksums));
+    }
+
+    /**
+     * Reads the snapshot, keeping the entries of sources that are still configured.
+     * Callers hold {@link #lock}, as for {@link #save}.
+     */
+    private Snapshot load() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!in.readUTF().equals(platform.toString())) {
+                // Written for another platform, e.g. a home directory shared between machines
+                return null;
+            }
+            Map<String, SourceEntries> stored = new LinkedHashMap<>();
+            int sourceCount = in.readInt();
+            for (int s = 0; s < sourceCount; s++) {
+                String source = in.readUTF();
+                String etag = in.readUTF();
+                long fetchedAt = in.readLong();
+                int count = in.readInt();
+                Map<String, String> urls = new LinkedHashMap<>(count * 2);
+                Map<String, String> checksums = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String version = in.readUTF();
+                    urls.put(version, in.readUTF());
+                    String sha256 = in.readUTF();
+                    if (!sha256.isEmpty()) {
+                        checksums.put(version, sha256);
+                    }
+                }
+                stored.put(source, new SourceEntries(source, etag.isEmpty() ? null : etag, fetchedAt,
+                        Collections.unmodifiableMap(urls), Collections.unmodifiableMap(checksums)));
+            }
+            List<SourceEntries> configured = new ArrayList<>();
+            for (Source source : sources) {
+                SourceEntries entries = stored.get(source.location());
+                if (entries != null) {
+                    configured.add(entries);
+                }
+            }
+            if (configured.isEmpty()) {
+                return null;
+            }
+            snapshot = Snapshot.merge(configured);
+            return snapshot;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void save(Snapshot updated) {
+        snapshot = updated;
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(platform.toString());
+                out.writeInt(updated.sources().size());
+                for (SourceEntries entries : updated.sources()) {
+                    out.writeUTF(entries.source());
+                    out.writeUTF(entries.etag() == null ? "" : entries.etag());
+                    out.writeLong(entries.fetchedAt());
+                    out.writeInt(entries.urls().size());
+                    for (Map.Entry<String, String> entry : entries.urls().entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeUTF(entry.getValue());
+                        out.writeUTF(entries.checksums().getOrDefault(entry.getKey(), ""));
+                    }
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Could not write catalog cache: " + e.getMessage());
+        }
+    }
+}
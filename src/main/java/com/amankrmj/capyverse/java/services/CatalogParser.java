@@ -0,0 +1,159 @@
+package com.amankrmj.capyverse.java.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal reader for the catalog JSON: an array of flat objects such as
+ * {@code [{ "version": "24.0.1", "url": "https://..." }]}. String fields are kept, other
+ * value types are skipped. Written by hand to stay free of reflection for native images.
+ */
+public class CatalogParser {
+    private final String json;
+    private int pos;
+
+    private CatalogParser(String json) {
+        this.json = json;
+    }
+
+    public static List<Map<String, String>> parse(String json) throws IOException {
+        return new CatalogParser(json).parseArray();
+    }
+
+    private List<Map<String, String>> parseArray() throws IOException {
+        List<Map<String, String>> objects = new ArrayList<>();
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return objects;
+        }
+        while (true) {
+            objects.add(parseObject());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return objects;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private Map<String, String> parseObject() throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return fields;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = parseString();
+            expect(':');
+            skipWhitespace();
+            if (peek() == '"') {
+                fields.put(key, parseString());
+            } else {
+                skipValue();
+            }
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return fields;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private String parseString() throws IOException {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case 'n' -> sb.append('\n');
+                case 't' -> sb.append('\t');
+                case 'r' -> sb.append('\r');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    if (pos + 4 > json.length()) {
+                        throw error("Truncated unicode escape");
+                    }
+                    sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                    pos += 4;
+                }
+                default -> sb.append(escaped);
+            }
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int depth = 0;
+        while (true) {
+            char c = peek();
+            if (c == '"') {
+                parseString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+                pos++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+                pos++;
+            } else if (c == ',' && depth == 0) {
+                return;
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        skipWhitespace();
+        if (next() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private char peek() throws IOException {
+        if (pos >= json.length()) {
+            throw error("Unexpected end of catalog");
+        }
+        return json.charAt(pos);
+    }
+
+    private char next() throws IOException {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Malformed catalog JSON at offset " + pos + ": " + message);
+    }
+}
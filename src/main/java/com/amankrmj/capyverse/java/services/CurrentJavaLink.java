@@ -0,0 +1,200 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.FileTrees;
+import com.amankrmj.capyverse.common.utils.Invocation;
+import com.amankrmj.capyverse.java.JavaVersionManagerUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The {@code lang\java\current} link that selects the global JDK. JAVA_HOME points at the
+ * link and PATH at its {@code bin} once; switching versions re-points the link and touches
+ * nothing else. The new link is created under a temporary name and renamed over the old
+ * one, so other processes see either the old or the new JDK, never a missing one.
+ * <p>
+ * Symbolic links are used where the platform allows them. On Windows without the symlink
+ * privilege a directory junction is created with {@code mklink /J} instead; junctions
+ * cannot be renamed over each other, so there the old link is removed right before the
+ * rename.
+ */
+public class CurrentJavaLink {
+    public static final String LINK_NAME = "current";
+    private static final String PATH_MARKER = "path-configured";
+
+    private final Path link;
+    private final Path markerFile;
+
+    public CurrentJavaLink(Path javaDir, Path stateDir) {
+        this.link = javaDir.resolve(LINK_NAME);
+        this.markerFile = stateDir.resolve(PATH_MARKER);
+    }
+
+    public static CurrentJavaLink forCurrentUser() {
+        return new CurrentJavaLink(InstalledJavaIndex.defaultJavaDir(),
+                CapyPaths.resolve("cache", "java"));
+    }
+
+    public Path getLink() {
+        return link;
+    }
+
+    public boolean exists() {
+        return Files.exists(link, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * The JDK the link currently points at, or null when there is no link.
+     */
+    public Path target() {
+        try {
+            return exists() ? link.toRealPath() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public boolean pointsTo(Path jdkHome) {
+        try {
+            return exists() && Files.isSameFile(link, jdkHome);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Atomically points the link at {@code jdkHome}.
+     */
+    public void switchTo(Path jdkHome) throws IOException {
+        Path target = jdkHome.toAbsolutePath();
+        if (!Files.isDirectory(target)) {
+            throw new IOException("Not a JDK directory: " + target);
+        }
+        Files.createDirectories(link.getParent());
+        removeLeftoverDirectory();
+        Path staged = link.resolveSibling(LINK_NAME + ".tmp" + ProcessHandle.current().pid());
+        deleteLink(staged);
+        boolean junction = createLink(staged, target);
+        try {
+            if (junction) {
+                deleteLink(link);
+                Files.move(staged, link);
+            } else {
+                Files.move(staged, link, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (AtomicMoveNotSupportedException e) {
+            deleteLink(link);
+            Files.move(staged, link);
+        } catch (IOException e) {
+            deleteLink(staged);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes a real directory sitting where the link belongs, such as a JDK copied there
+     * by hand or by an older capy. A rename cannot replace it, so switching would fail
+     * forever. Junctions also report as directories but resolve elsewhere and are left
+     * for the rename to replace.
+     */
+    private void removeLeftoverDirectory() throws IOException {
+        if (Files.isSymbolicLink(link) || !Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Path real = link.toRealPath();
+        if (real.equals(link.getParent().toRealPath().resolve(LINK_NAME))) {
+            FileTrees.deleteTree(link);
+        }
+    }
+
+    /**
+     * Returns true when a junction had to be used instead of a symbolic link.
+     */
+    private static boolean createLink(Path staged, Path target) throws IOException {
+        try {
+            Files.createSymbolicLink(staged, target);
+            return false;
+        } catch (UnsupportedOperationException | IOException e) {
+            if (File.separatorChar != '\\') {
+                throw e;
+            }
+        }
+        try {
+            Process process = new ProcessBuilder("cmd", "/c", "mklink", "/J", staged.toString(), target.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes());
+            if (process.waitFor() != 0) {
+                throw new IOException("mklink /J failed: " + output.trim());
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while creating junction", e);
+        }
+    }
+
+    /**
+     * Removes a link without touching the JDK it points to.
+     */
+    private static void deleteLink(Path path) throws IOException {
+        if (Files.isSymbolicLink(path) || Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            // A junction reports as a directory; deleting it removes only the reparse point
+            Files.deleteIfExists(path);
+        } else if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("Refusing to replace " + path + ": not a link");
+        }
+    }
+
+    /**
+     * Points JAVA_HOME and PATH at the link the first time it is used. Afterwards the
+     * marker file short-circuits, so switching never spawns a process. On Windows the
+     * user environment is updated; elsewhere the lines for the shell profile are
+     * returned. Returns the notice to show the user, or null when nothing changed.
+     */
+    public String ensureEnvironmentConfigured() {
+        String linkPath = link.toString();
+        String binPath = link.resolve("bin").toString();
+        try {
+            if (Files.isRegularFile(markerFile) && Files.readString(markerFile).trim().equals(linkPath)) {
+                return null;
+            }
+        } catch (IOException ignored) {
+        }
+        if (linkPath.equals(Invocation.getenv("JAVA_HOME"))) {
+            writeMarker(linkPath);
+            return null;
+        }
+        String notice;
+        if (File.separatorChar == '\\') {
+            try {
+                JavaVersionManagerUtils.setJavaHome(linkPath);
+                JavaVersionManagerUtils.updatePathForJava(binPath);
+                notice = "⚙️  JAVA_HOME and PATH now point at " + linkPath + " (restart your terminal once).";
+            } catch (Exception e) {
+                return "Could not update the user environment: " + e.getMessage();
+            }
+        } else {
+            notice = "⚙️  Add these lines to your shell profile once:\n"
+                    + "    export JAVA_HOME='" + linkPath + "'\n"
+                    + "    export PATH=\"$JAVA_HOME/bin:$PATH\"";
+        }
+        writeMarker(linkPath);
+        return notice;
+    }
+
+    private void writeMarker(String linkPath) {
+        try {
+            Files.createDirectories(markerFile.getParent());
+            Files.writeString(markerFile, linkPath);
+        } catch (IOException e) {
+            System.err.println("Could not record environment setup: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps {@code cache\java\downloads} within a byte budget, {@code cache.max.size} in the
+ * config (default 2 GB). An archive and its {@code .part}, {@code .state} and
+ * {@code .capy-manifest} files count as one entry, aged by the last-use time kept in the
+ * sidecar; the least recently used entries are deleted first. Partial downloads touched
+ * within the last day are left alone, since another install may still be writing them or
+ * resume them later.
+ */
+public class DownloadCache {
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+    private static final long ACTIVE_PART_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final String[] SIDECAR_SUFFIXES = {".part", ".state.tmp", ".state", JavaUpgrader.MANIFEST_SUFFIX};
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * One cached archive with all its files.
+     */
+    public record Archive(String name, List<Path> files, long bytes, long lastUsed, boolean complete) {
+    }
+
+    public record Eviction(List<Archive> evicted, long freedBytes, long remainingBytes) {
+    }
+
+    public DownloadCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public static DownloadCache forCurrentUser() {
+        return new DownloadCache(
+                CapyPaths.resolve("cache", "java", "downloads"),
+                CapyConfig.getBytes("cache.max.size", DEFAULT_MAX_BYTES));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * True when {@code name} is fully downloaded and recorded as complete.
+     */
+    public boolean contains(String name) {
+        DownloadState state = DownloadState.load(directory.resolve(name + ".state"));
+        return state != null && state.isComplete() && Files.isRegularFile(directory.resolve(name));
+    }
+
+    /**
+     * Cached entries, least recently used first.
+     */
+    public List<Archive> list() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        Map<String, List<Path>> groups = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                groups.computeIfAbsent(archiveName(file.getFileName().toString()), name -> new ArrayList<>()).add(file);
+            }
+        }
+        List<Archive> archives = new ArrayList<>();
+        for (Map.Entry<String, List<Path>> group : groups.entrySet()) {
+            long bytes = 0;
+            long modified = 0;
+            for (Path file : group.getValue()) {
+                bytes += Files.size(file);
+                modified = Math.max(modified, Files.getLastModifiedTime(file).toMillis());
+            }
+            DownloadState state = DownloadState.load(directory.resolve(group.getKey() + ".state"));
+            boolean complete = state != null && state.isComplete() && Files.isRegularFile(directory.resolve(group.getKey()));
+            long lastUsed = state != null && state.getLastUsed() > 0 ? state.getLastUsed() : modified;
+            archives.add(new Archive(group.getKey(), group.getValue(), bytes, lastUsed, complete));
+        }
+        archives.sort(Comparator.comparingLong(Archive::lastUsed));
+        return archives;
+    }
+
+    /**
+     * Deletes least recently used entries until the cache fits the budget. Entries named
+     * in {@code keep} are never evicted.
+     */
+    public Eviction enforceBudget(Set<String> keep) throws IOException {
+        List<Archive> archives = list();
+        long total = 0;
+        for (Archive archive : archives) {
+            total += archive.bytes();
+        }
+        List<Archive> evicted = new ArrayList<>();
+        long freed = 0;
+        long now = System.currentTimeMillis();
+        for (Archive archive : archives) {
+            if (total - freed <= maxBytes) {
+                break;
+            }
+            boolean active = !archive.complete() && now - archive.lastUsed() < ACTIVE_PART_MILLIS;
+            if (active || keep.contains(archive.name())) {
+                continue;
+            }
+            for (Path file : archive.files()) {
+                Files.deleteIfExists(file);
+            }
+            evicted.add(archive);
+            freed += archive.bytes();
+        }
+        return new Eviction(evicted, freed, total - freed);
+    }
+
+    private static String archiveName(String fileName) {
+        for (String suffix : SIDECAR_SUFFIXES) {
+            if (fileName.endsWith(suffix)) {
+                return fileName.substring(0, fileName.length() - suffix.length());
+            }
+        }
+        return fileName;
+    }
+}
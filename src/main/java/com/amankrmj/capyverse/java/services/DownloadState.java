@@ -0,0 +1,289 @@
+package com.amankrmj.capyverse.java.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sidecar record kept next to a cached archive. It remembers which byte ranges of a
+ * {@code .part} file are already on disk and the validators (ETag / Last-Modified)
+ * they were fetched against, so an interrupted download can continue where it stopped.
+ * Ranges are stored as inclusive {@code start-end} pairs, the same form HTTP uses.
+ * Segments on virtual threads update it concurrently; a lock guards it, as a monitor
+ * would pin their carriers while the sidecar is written.
+ */
+public class DownloadState {
+    private final String url;
+    private long length = -1;
+    private String etag;
+    private String lastModified;
+    private boolean complete;
+    private String sha256;
+    private long lastUsed;
+    private String platform;
+    private final List<long[]> completed = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public DownloadState(String url) {
+        this.url = url;
+    }
+
+    public static DownloadState load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        DownloadState state = new DownloadState(props.getProperty("url"));
+        try {
+            state.length = Long.parseLong(props.getProperty("length", "-1"));
+            state.etag = props.getProperty("etag");
+            state.lastModified = props.getProperty("lastModified");
+            state.complete = Boolean.parseBoolean(props.getProperty("complete", "false"));
+            state.sha256 = props.getProperty("sha256");
+            state.lastUsed = Long.parseLong(props.getProperty("lastUsed", "0"));
+            state.platform = props.getProperty("platform");
+            String ranges = props.getProperty("ranges", "");
+            for (String range : ranges.split(",")) {
+                int dash = range.indexOf('-');
+                if (dash > 0) {
+                    state.completed.add(new long[]{
+                            Long.parseLong(range.substring(0, dash).trim()),
+                            Long.parseLong(range.substring(dash + 1).trim())
+                    });
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return state;
+    }
+
+    public void save(Path file) throws IOException {
+        lock.lock();
+        try {
+            Properties props = new Properties();
+            props.setProperty("url", url);
+            props.setProperty("length", Long.toString(length));
+            if (etag != null) {
+                props.setProperty("etag", etag);
+            }
+            if (lastModified != null) {
+                props.setProperty("lastModified", lastModified);
+            }
+            props.setProperty("complete", Boolean.toString(complete));
+            if (sha256 != null) {
+                props.setProperty("sha256", sha256);
+            }
+            if (lastUsed > 0) {
+                props.setProperty("lastUsed", Long.toString(lastUsed));
+            }
+            if (platform != null) {
+                props.setProperty("platform", platform);
+            }
+            StringBuilder ranges = new StringBuilder();
+            for (long[] range : completed) {
+                if (!ranges.isEmpty()) {
+                    ranges.append(',');
+                }
+                ranges.append(range[0]).append('-').append(range[1]);
+            }
+            props.setProperty("ranges", ranges.toString());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "capyverse download state");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true when this state describes the same remote file as the given validators.
+     * ETags are compared first, then Last-Modified; partial data with no validator to
+     * compare against cannot be trusted and never matches.
+     */
+    public boolean matches(String url, long length, String etag, String lastModified) {
+        if (!url.equals(this.url) || length != this.length) {
+            return false;
+        }
+        if (etag != null && this.etag != null) {
+            return etag.equals(this.etag);
+        }
+        if (lastModified != null && this.lastModified != null) {
+            return lastModified.equals(this.lastModified);
+        }
+        return false;
+    }
+
+    /**
+     * Value for an {@code If-Range} header, preferring the strong ETag validator.
+     */
+    public String ifRangeValidator() {
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return lastModified;
+    }
+
+    public void markCompleted(long start, long end) {
+        lock.lock();
+        try {
+            List<long[]> merged = new ArrayList<>();
+            long[] current = {start, end};
+            boolean inserted = false;
+            for (long[] range : completed) {
+                if (range[1] + 1 < current[0]) {
+                    merged.add(range);
+                } else if (current[1] + 1 < range[0]) {
+                    if (!inserted) {
+                        merged.add(current);
+                        inserted = true;
+                    }
+                    merged.add(range);
+                } else {
+                    current[0] = Math.min(current[0], range[0]);
+                    current[1] = Math.max(current[1], range[1]);
+                }
+            }
+            if (!inserted) {
+                merged.add(current);
+            }
+            completed.clear();
+            completed.addAll(merged);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Byte ranges of {@code [0, length)} not yet on disk, as inclusive pairs.
+     */
+    public List<long[]> missingRanges() {
+        lock.lock();
+        try {
+            List<long[]> missing = new ArrayList<>();
+            long next = 0;
+            for (long[] range : completed) {
+                if (range[0] > next) {
+                    missing.add(new long[]{next, range[0] - 1});
+                }
+                next = Math.max(next, range[1] + 1);
+            }
+            if (next < length) {
+                missing.add(new long[]{next, length - 1});
+            }
+            return missing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * End (exclusive) of the bytes on disk that run without a gap from {@code offset};
+     * {@code offset} itself when that byte is still missing.
+     */
+    public long contiguousEnd(long offset) {
+        lock.lock();
+        try {
+            for (long[] range : completed) {
+                if (range[0] <= offset && offset <= range[1]) {
+                    return range[1] + 1;
+                }
+            }
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long completedBytes() {
+        lock.lock();
+        try {
+            long total = 0;
+            for (long[] range : completed) {
+                total += range[1] - range[0] + 1;
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void reset(long length, String etag, String lastModified) {
+        lock.lock();
+        try {
+            this.length = length;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.complete = false;
+            this.sha256 = null;
+            completed.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    /**
+     * SHA-256 of the complete archive as computed while it was downloaded, or null.
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    /**
+     * When the archive was last downloaded or installed from, in epoch milliseconds; 0
+     * when unknown. The download cache evicts the least recently used archives first.
+     */
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public void setLastUsed(long lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+
+    /**
+     * The {@code <os>-<arch>} the archive was downloaded for, or null for archives cached
+     * before it was recorded.
+     */
+    public String getPlatform() {
+        return platform;
+    }
+
+    public void setPlatform(String platform) {
+        this.platform = platform;
+    }
+}
@@ -0,0 +1,257 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.java.model.JavaVersion;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Persistent index of the JDKs installed under {@code capyverse\lang\java}. Each entry is
+ * parsed once from the JDK's {@code release} file and the index is kept in the download
+ * cache together with the modification time of the install directory. As long as that
+ * time is unchanged the index is trusted as is, so lookups need no directory scan; adding
+ * or removing a JDK folder changes it and triggers a rebuild. The last index read is
+ * also remembered in memory, so a long-running process re-reads the file only after it
+ * changed.
+ */
+public class InstalledJavaIndex {
+    private static final String HEADER = "capyverse-installed-index\t1";
+    private static volatile Parsed lastRead;
+
+    private final Path javaDir;
+    private final Path indexFile;
+    private final Map<String, InstalledJdk> byVersion = new HashMap<>();
+
+    public record InstalledJdk(String version, Path path, String vendor, String arch) {
+    }
+
+    /**
+     * Entries of an index file as of its modification time and size.
+     */
+    private record Parsed(Path indexFile, long modified, long size, long dirModified,
+                          Map<String, InstalledJdk> entries) {
+    }
+
+    public InstalledJavaIndex(Path javaDir, Path indexFile) {
+        this.javaDir = javaDir;
+        this.indexFile = indexFile;
+    }
+
+    public static InstalledJavaIndex forCurrentUser() {
+        InstalledJavaIndex index = new InstalledJavaIndex(defaultJavaDir(), defaultIndexFile());
+        index.load();
+        return index;
+    }
+
+    public static Path defaultJavaDir() {
+        return CapyPaths.resolve("lang", "java");
+    }
+
+    /**
+     * Location of the current user's index; its modification time changes whenever an
+     * install or uninstall updates the index.
+     */
+    public static Path defaultIndexFile() {
+        return CapyPaths.resolve("cache", "java", "installed.idx");
+    }
+
+    public boolean contains(String version) {
+        return byVersion.containsKey(version);
+    }
+
+    public InstalledJdk get(String version) {
+        return byVersion.get(version);
+    }
+
+    /**
+     * Finds the installed JDK for a requested version: an exact match first, otherwise the
+     * newest installed patch of the release line, so {@code 21} picks the latest 21.x.
+     */
+    public InstalledJdk resolve(String requested) {
+        InstalledJdk exact = byVersion.get(requested);
+        if (exact != null) {
+            return exact;
+        }
+        JavaVersion prefix = JavaVersion.parse(requested);
+        InstalledJdk best = null;
+        JavaVersion bestVersion = null;
+        for (InstalledJdk jdk : byVersion.values()) {
+            JavaVersion version = JavaVersion.parse(jdk.version());
+            if (version.startsWith(prefix) && (bestVersion == null || version.compareTo(bestVersion) > 0)) {
+                best = jdk;
+                bestVersion = version;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Installed JDKs, oldest version first.
+     */
+    public List<InstalledJdk> all() {
+        List<InstalledJdk> list = new ArrayList<>(byVersion.values());
+        list.sort((a, b) -> JavaVersion.parse(a.version()).compareTo(JavaVersion.parse(b.version())));
+        return list;
+    }
+
+    public Collection<String> versions() {
+        return byVersion.keySet();
+    }
+
+    /**
+     * Loads the stored index, rebuilding it from the install directory when the directory
+     * changed since the index was written.
+     */
+    public void load() {
+        byVersion.clear();
+        long dirModified = directoryModified();
+        if (dirModified >= 0 && readIndex(dirModified)) {
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Adds or refreshes the entry of a freshly installed JDK folder.
+     */
+    public void record(String version, Path jdkHome) {
+        byVersion.put(version, describe(version, jdkHome));
+        save();
+    }
+
+    public void remove(String version) {
+        if (byVersion.remove(version) != null) {
+            save();
+        }
+    }
+
+    private void rebuild() {
+        byVersion.clear();
+        if (Files.isDirectory(javaDir)) {
+            try (DirectoryStream<Path> folders = Files.newDirectoryStream(javaDir, Files::isDirectory)) {
+                for (Path folder : folders) {
+                    String name = folder.getFileName().toString();
+                    int dashIdx = name.indexOf('-');
+                    if (dashIdx != -1 && dashIdx < name.length() - 1) {
+                        String version = name.substring(dashIdx + 1).trim();
+                        byVersion.put(version, describe(version, folder));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Could not scan " + javaDir + ": " + e.getMessage());
+            }
+        }
+        save();
+    }
+
+    private InstalledJdk describe(String version, Path jdkHome) {
+        Properties release = readRelease(jdkHome);
+        return new InstalledJdk(version, jdkHome.toAbsolutePath(),
+                release.getProperty("IMPLEMENTOR", "unknown"),
+                release.getProperty("OS_ARCH", "unknown"));
+    }
+
+    /**
+     * Reads a JDK {@code release} file, stripping the quotes around its values.
+     */
+    public static Properties readRelease(Path jdkHome) {
+        Properties properties = new Properties();
+        Path release = jdkHome.resolve("release");
+        if (Files.isRegularFile(release)) {
+            try (InputStream in = Files.newInputStream(release)) {
+                properties.load(in);
+            } catch (IOException ignored) {
+            }
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                properties.setProperty(key, value.substring(1, value.length() - 1));
+            }
+        }
+        return properties;
+    }
+
+    private long directoryModified() {
+        try {
+            return Files.getLastModifiedTime(javaDir).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private boolean readIndex(long dirModified) {
+        if (!Files.isRegularFile(indexFile)) {
+            return false;
+        }
+        long modified;
+        long size;
+        try {
+            modified = Files.getLastModifiedTime(indexFile).toMillis();
+            size = Files.size(indexFile);
+        } catch (IOException e) {
+            return false;
+        }
+        Parsed cached = lastRead;
+        if (cached != null && cached.indexFile().equals(indexFile) && cached.modified() == modified
+                && cached.size() == size && cached.dirModified() == dirModified) {
+            byVersion.putAll(cached.entries());
+            return true;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return false;
+            }
+            String stamp = reader.readLine();
+            if (stamp == null || Long.parseLong(stamp) != dirModified) {
+                return false;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 4) {
+                    byVersion.put(parts[0], new InstalledJdk(parts[0], Path.of(parts[1]), parts[2], parts[3]));
+                }
+            }
+            lastRead = new Parsed(indexFile, modified, size, dirModified, Map.copyOf(byVersion));
+            return true;
+        } catch (IOException | NumberFormatException e) {
+            byVersion.clear();
+            return false;
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                writer.write(Long.toString(directoryModified()));
+                writer.newLine();
+                for (InstalledJdk jdk : byVersion.values()) {
+                    writer.write(jdk.version() + "\t" + jdk.path() + "\t" + jdk.vendor() + "\t" + jdk.arch());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Could not write installed index: " + e.getMessage());
+        }
+    }
+}
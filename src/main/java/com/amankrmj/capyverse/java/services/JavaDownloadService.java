@@ -1,100 +1,741 @@
 package com.amankrmj.capyverse.java.services;
 
+import com.amankrmj.capyverse.common.services.ArchiveExtractor;
+import com.amankrmj.capyverse.common.services.ContentStore;
 import com.amankrmj.capyverse.common.services.DownloadService;
+import com.amankrmj.capyverse.common.services.FileManifest;
+import com.amankrmj.capyverse.common.services.HttpService;
+import com.amankrmj.capyverse.common.services.TarGzExtractor;
+import com.amankrmj.capyverse.common.utils.BlockPipe;
+import com.amankrmj.capyverse.common.utils.FileTrees;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.Platform;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+import com.amankrmj.capyverse.common.utils.RateLimiter;
+import com.amankrmj.capyverse.common.utils.Sha256;
 
 import java.io.*;
 
-import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public class JavaDownloadService implements DownloadService {
+    /**
+     * Number of concurrent range requests used when the server supports them.
+     */
+    public static final int DEFAULT_SEGMENTS = 4;
+    /**
+     * Smallest byte range worth giving its own request.
+     */
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long CHECKPOINT_INTERVAL_NANOS = 1_000_000_000L;
+    /**
+     * Blocks buffered between the network reader and each consumer (4 MB at 64 KB blocks).
+     */
+    private static final int PIPE_BLOCKS = 64;
+
     private final String urlStr;
     private final String filePath;
     private final String installDir;
+    private final int segments;
+    private final HttpService http = HttpService.shared();
+    private final AtomicLong totalRead = new AtomicLong();
+    private long fileSize;
+    private long lastCheckpoint;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private ContentStore store;
+    private boolean offline;
+    private ProgressRenderer.Task progress;
+    private String expectedSha256;
+    private RateLimiter rateLimiter;
+    private String archiveSha256;
+    private volatile ArchiveHasher hasher;
+    private final Set<String> extractedRoots = new HashSet<>();
 
     public JavaDownloadService(String url, String downloadDir, String installDir, String fileName) {
+        this(url, downloadDir, installDir, fileName, DEFAULT_SEGMENTS);
+    }
+
+    public JavaDownloadService(String url, String downloadDir, String installDir, String fileName, int segments) {
         this.urlStr = url;
         this.filePath = downloadDir + File.separator + fileName;
         this.installDir = installDir;
+        this.segments = Math.max(1, segments);
+    }
+
+    /**
+     * Extracts file contents into a content-addressed store and links them into the
+     * install tree, so identical files are shared between installed JDKs.
+     */
+    public void setContentStore(ContentStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Only a complete archive already in the download cache may be used.
+     */
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * Reports download and extraction progress, and status messages, through a task of a
+     * {@link ProgressRenderer}. Without one the service prints messages only.
+     */
+    public void setProgress(ProgressRenderer.Task progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Checksum the archive must have; a mismatch deletes it and fails the download before
+     * anything is extracted. Null skips the check.
+     */
+    public void setExpectedSha256(String expectedSha256) {
+        this.expectedSha256 = expectedSha256;
+    }
+
+    /**
+     * Caps the download rate; shared by all segments. Null downloads at full speed.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * SHA-256 of the archive, computed while it downloaded; null before a download.
+     */
+    public String getArchiveSha256() {
+        return archiveSha256;
+    }
+
+    public long getBytesRead() {
+        return totalRead.get();
+    }
+
+    private void info(String message) {
+        if (progress != null) {
+            progress.log(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    private void startProgress(String status, long total) {
+        if (progress != null) {
+            progress.reset(status, total);
+        }
     }
 
     @Override
     public void download() throws IOException, InterruptedException {
-        HttpClient client = HttpClient.newBuilder().build();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(java.net.URI.create(urlStr))
+        try (Metrics.Timer ignored = Metrics.global().time("download")) {
+            downloadArchive();
+        }
+    }
+
+    private void downloadArchive() throws IOException, InterruptedException {
+        Path target = Path.of(filePath);
+        Path part = Path.of(filePath + ".part");
+        Path stateFile = Path.of(filePath + ".state");
+        DownloadState previous = DownloadState.load(stateFile);
+        if (isCachedArchiveValid(target, previous)) {
+            info("\uD83D\uDCE6 Using cached archive: " + target);
+            Metrics.global().increment("download.cacheHits");
+            verifyChecksum(target, stateFile, reuseCachedArchive(target, previous, stateFile));
+            return;
+        }
+        if (offline) {
+            throw new IOException("Archive is not in the download cache and --offline was given: " + target);
+        }
+
+        totalRead.set(0);
+        RemoteFile remote = probe();
+        DownloadState state;
+        if (remote != null && remote.acceptsRanges() && remote.length() > 0) {
+            if (previous != null && !previous.isComplete() && Files.isRegularFile(part)
+                    && previous.matches(urlStr, remote.length(), remote.etag(), remote.lastModified())) {
+                state = previous;
+                Metrics.global().add("bytes.resumed", state.completedBytes());
+                info("\u23EF\uFE0F  Resuming download at " + (state.completedBytes() * 100 / remote.length()) + "%");
+            } else {
+                state = new DownloadState(urlStr);
+                state.reset(remote.length(), remote.etag(), remote.lastModified());
+                Files.deleteIfExists(part);
+            }
+            downloadRanges(part, stateFile, state);
+        } else {
+            state = new DownloadState(urlStr);
+            long written = downloadSingleStream(part);
+            state.reset(written, remote == null ? null : remote.etag(), remote == null ? null : remote.lastModified());
+            if (written > 0) {
+                state.markCompleted(0, written - 1);
+            }
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        state.setSha256(archiveSha256);
+        state.setLastUsed(System.currentTimeMillis());
+        state.setPlatform(Platform.current().toString());
+        state.setComplete(true);
+        state.save(stateFile);
+        verifyChecksum(target, stateFile, archiveSha256);
+    }
+
+    /**
+     * Marks a cached archive as just used and returns its recorded digest. Archives
+     * cached before digests were recorded are hashed once, and only when there is a
+     * checksum to compare with.
+     */
+    private String reuseCachedArchive(Path target, DownloadState state, Path stateFile) throws IOException {
+        if (state.getSha256() == null && expectedSha256 != null) {
+            try (Metrics.Timer ignored = Metrics.global().time("hash")) {
+                state.setSha256(Sha256.ofFile(target));
+            }
+        }
+        state.setLastUsed(System.currentTimeMillis());
+        state.save(stateFile);
+        return state.getSha256();
+    }
+
+    /**
+     * Compares the archive's digest with the catalog checksum. On a mismatch the archive
+     * and its sidecar are deleted, so the next attempt downloads it afresh.
+     */
+    private void verifyChecksum(Path target, Path stateFile, String actual) throws IOException {
+        archiveSha256 = actual;
+        if (expectedSha256 == null) {
+            return;
+        }
+        if (!expectedSha256.equalsIgnoreCase(actual)) {
+            Metrics.global().increment("download.checksumFailures");
+            Files.deleteIfExists(target);
+            Files.deleteIfExists(stateFile);
+            throw new IOException("Checksum mismatch for " + target.getFileName() + ": expected "
+                    + expectedSha256 + " but got " + actual + "; the archive was removed");
+        }
+        info("\uD83D\uDD12 SHA-256 verified for " + target.getFileName());
+    }
+
+    /**
+     * A cached archive is reused without touching the network when its sidecar marks it
+     * complete for the same URL and the file on disk has the recorded length.
+     */
+    private boolean isCachedArchiveValid(Path target, DownloadState state) throws IOException {
+        return state != null
+                && state.isComplete()
+                && urlStr.equals(state.getUrl())
+                && Files.isRegularFile(target)
+                && Files.size(target) == state.getLength();
+    }
+
+    /**
+     * Sends a HEAD request to learn the size, range support and validators of the archive.
+     * Returns null when the server does not answer the probe.
+     */
+    private RemoteFile probe() {
+        try {
+            HttpRequest request = http.request(urlStr)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            HttpHeaders headers = response.headers();
+            boolean acceptsRanges = headers.firstValue("Accept-Ranges")
+                    .map(value -> value.trim().equalsIgnoreCase("bytes"))
+                    .orElse(false);
+            return new RemoteFile(
+                    headers.firstValueAsLong("Content-Length").orElse(-1),
+                    acceptsRanges,
+                    headers.firstValue("ETag").orElse(null),
+                    headers.firstValue("Last-Modified").orElse(null));
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private long downloadSingleStream(Path part) throws IOException, InterruptedException {
+        HttpRequest request = http.request(urlStr)
                 .GET()
                 .build();
-        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
-        int fileSize = 0;
-        if (response.headers().firstValue("Content-Length").isPresent()) {
-            try {
-                fileSize = Integer.parseInt(response.headers().firstValue("Content-Length").get());
-            } catch (NumberFormatException ignored) {
-            }
+        HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("Download failed. Status: " + response.statusCode());
         }
+        fileSize = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        startProgress("downloading", fileSize);
+        long written = 0;
+        MessageDigest digest = Sha256.newDigest();
         try (InputStream in = response.body();
-             FileOutputStream out = new FileOutputStream(filePath)) {
-            byte[] buffer = new byte[8192];
-            int totalRead = 0, lastPercent = -1;
+             OutputStream out = Files.newOutputStream(part)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
             int bytesRead;
             while ((bytesRead = in.read(buffer)) != -1) {
+                throttle(bytesRead);
                 out.write(buffer, 0, bytesRead);
-                totalRead += bytesRead;
-                if (fileSize > 0) {
-                    int percent = (int) ((totalRead * 100L) / fileSize);
-                    if (percent != lastPercent) {
-                        printProgressBar(percent);
-                        lastPercent = percent;
-                    }
+                digest.update(buffer, 0, bytesRead);
+                written += bytesRead;
+                updateProgress(bytesRead);
+            }
+        }
+        archiveSha256 = Sha256.hex(digest);
+        return written;
+    }
+
+    /**
+     * Fetches every range still missing from the {@code .part} file, split across up to
+     * {@link #segments} concurrent requests that each write at their own offset of the
+     * preallocated file. Progress is checkpointed to the sidecar so a later run can resume.
+     */
+    private void downloadRanges(Path part, Path stateFile, DownloadState state)
+            throws IOException, InterruptedException {
+        fileSize = state.getLength();
+        totalRead.set(state.completedBytes());
+        startProgress("downloading", fileSize);
+        if (progress != null) {
+            progress.add(state.completedBytes());
+        }
+        List<long[]> pieces = splitRanges(state.missingRanges());
+        long length = fileSize;
+        ArchiveHasher archiveHasher = new ArchiveHasher(part, state);
+        hasher = archiveHasher;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             ExecutorService executor = Executors.newFixedThreadPool(
+                     Math.max(1, Math.min(segments, pieces.size())), Thread.ofVirtual().factory());
+             ExecutorService hashing = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (channel.size() != fileSize) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(1), fileSize - 1);
+            }
+            Future<String> digest = hashing.submit(() -> archiveHasher.hash(length));
+            lastCheckpoint = System.nanoTime();
+            List<Future<Void>> futures = new ArrayList<>();
+            for (long[] piece : pieces) {
+                futures.add(executor.submit(() -> {
+                    downloadRange(channel, piece[0], piece[1], state, stateFile);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Segment download failed: " + cause.getMessage(), cause);
+            } finally {
+                checkpoint(channel, state, stateFile, true);
+                archiveHasher.finish();
+            }
+            try {
+                archiveSha256 = digest.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Hashing the archive failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        } finally {
+            hasher = null;
+        }
+    }
+
+    /**
+     * Breaks the missing ranges into roughly equal pieces so that all segments stay busy,
+     * without going below {@link #MIN_SEGMENT_SIZE} per request.
+     */
+    private List<long[]> splitRanges(List<long[]> missing) {
+        long remaining = 0;
+        for (long[] range : missing) {
+            remaining += range[1] - range[0] + 1;
+        }
+        long pieceSize = Math.max(MIN_SEGMENT_SIZE, (remaining + segments - 1) / segments);
+        List<long[]> pieces = new ArrayList<>();
+        for (long[] range : missing) {
+            for (long start = range[0]; start <= range[1]; start += pieceSize) {
+                pieces.add(new long[]{start, Math.min(range[1], start + pieceSize - 1)});
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * Fetches one range, re-requesting only the bytes still missing when the transfer
+     * breaks off, as often as the shared retry policy allows.
+     */
+    private void downloadRange(FileChannel channel, long start, long end,
+                               DownloadState state, Path stateFile) throws IOException, InterruptedException {
+        HttpService.RetryPolicy retryPolicy = http.retryPolicy();
+        long[] position = {start};
+        for (int attempt = 1; ; attempt++) {
+            try {
+                fetchRange(channel, position, end, state, stateFile);
+                return;
+            } catch (RemoteChangedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= retryPolicy.maxAttempts()) {
+                    throw e;
                 }
+                Metrics.global().increment("download.rangeRetries");
+                Thread.sleep(retryPolicy.backoff(attempt));
             }
-            printProgressBar(100);
-            System.out.println();
         }
     }
 
+    private void fetchRange(FileChannel channel, long[] position, long end,
+                            DownloadState state, Path stateFile) throws IOException, InterruptedException {
+        long start = position[0];
+        HttpRequest.Builder builder = http.segmentRequest(urlStr)
+                .header("Range", "bytes=" + start + "-" + end)
+                .GET();
+        String validator = state.ifRangeValidator();
+        if (validator != null) {
+            builder.header("If-Range", validator);
+        }
+        HttpResponse<InputStream> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            if (response.statusCode() == 200 && validator != null) {
+                state.reset(state.getLength(), null, null);
+                throw new RemoteChangedException();
+            }
+            if (response.statusCode() != 206) {
+                throw new IOException("Range request for bytes " + start + "-" + end
+                        + " failed. Status: " + response.statusCode());
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                throttle(bytesRead);
+                if (position[0] + bytesRead > end + 1) {
+                    throw new IOException("Server returned more bytes than requested for range " + start + "-" + end);
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, bytesRead);
+                long chunkStart = position[0];
+                while (chunk.hasRemaining()) {
+                    position[0] += channel.write(chunk, position[0]);
+                }
+                state.markCompleted(chunkStart, position[0] - 1);
+                if (hasher != null) {
+                    hasher.signal();
+                }
+                updateProgress(bytesRead);
+                checkpoint(channel, state, stateFile, false);
+            }
+            if (position[0] != end + 1) {
+                throw new IOException("Range " + start + "-" + end + " ended early at byte " + position[0]);
+            }
+        }
+    }
+
+    private static class RemoteChangedException extends IOException {
+        RemoteChangedException() {
+            super("Remote archive changed while downloading; the next attempt will start over");
+        }
+    }
+
+    /**
+     * Flushes written data and persists the sidecar, at most once per
+     * {@link #CHECKPOINT_INTERVAL_NANOS} unless forced, so the state never claims
+     * bytes that are not on disk yet.
+     */
+    private void checkpoint(FileChannel channel, DownloadState state, Path stateFile, boolean force)
+            throws IOException {
+        checkpointLock.lock();
+        try {
+            long now = System.nanoTime();
+            if (!force && now - lastCheckpoint < CHECKPOINT_INTERVAL_NANOS) {
+                return;
+            }
+            lastCheckpoint = now;
+            if (channel.isOpen()) {
+                channel.force(false);
+            }
+            state.save(stateFile);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private record RemoteFile(long length, boolean acceptsRanges, String etag, String lastModified) {
+    }
+
+    private void throttle(int bytes) throws InterruptedException {
+        if (rateLimiter != null) {
+            rateLimiter.acquire(bytes);
+        }
+    }
+
+    private void updateProgress(int bytesRead) {
+        totalRead.addAndGet(bytesRead);
+        Metrics.global().add("bytes.downloaded", bytesRead);
+        if (progress != null) {
+            progress.add(bytesRead);
+        }
+    }
+
+    /**
+     * Streams the archive straight into the extractor while it downloads. The HTTP body is
+     * read on one thread and handed, block by block, to two bounded pipes: one feeds the
+     * extractor on the calling thread, the other a writer thread that tees the archive into
+     * the download cache. Network, extraction and cache writes all overlap.
+     */
     @Override
-    public void unzipFile() throws IOException {
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(filePath))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                File outFile = new File(installDir, entry.getName());
-                if (entry.isDirectory()) {
-                    outFile.mkdirs();
-                } else {
-                    outFile.getParentFile().mkdirs();
-                    try (FileOutputStream fos = new FileOutputStream(outFile)) {
-                        byte[] buffer = new byte[8192];
+    public void downloadAndExtract() throws IOException, InterruptedException {
+        try (Metrics.Timer ignored = Metrics.global().time("stream")) {
+            streamArchive();
+        }
+    }
+
+    private void streamArchive() throws IOException, InterruptedException {
+        Path target = Path.of(filePath);
+        Path part = Path.of(filePath + ".part");
+        Path stateFile = Path.of(filePath + ".state");
+        DownloadState previous = DownloadState.load(stateFile);
+        if (isCachedArchiveValid(target, previous)) {
+            info("\uD83D\uDCE6 Using cached archive: " + target);
+            verifyChecksum(target, stateFile, reuseCachedArchive(target, previous, stateFile));
+            extractArchive();
+            return;
+        }
+        if (offline) {
+            throw new IOException("Archive is not in the download cache and --offline was given: " + target);
+        }
+
+        HttpRequest request = http.request(urlStr)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("Download failed. Status: " + response.statusCode());
+        }
+        fileSize = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        totalRead.set(0);
+        startProgress("streaming", fileSize);
+
+        BlockPipe toExtractor = new BlockPipe(PIPE_BLOCKS);
+        BlockPipe toCache = new BlockPipe(PIPE_BLOCKS);
+        MessageDigest digest = Sha256.newDigest();
+        long written;
+        try (InputStream body = response.body();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Long> network = executor.submit(() -> pump(body, toExtractor, toCache, digest));
+            Future<Void> cache = executor.submit(() -> {
+                try (InputStream in = toCache;
+                     OutputStream out = Files.newOutputStream(part)) {
+                    in.transferTo(out);
+                }
+                return null;
+            });
+            try {
+                try (InputStream in = toExtractor) {
+                    extract(in);
+                }
+                written = network.get();
+                cache.get();
+            } catch (IOException | ExecutionException e) {
+                network.cancel(true);
+                cache.cancel(true);
+                toCache.close();
+                body.close();
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Streaming install failed: " + cause.getMessage(), cause);
+            }
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        DownloadState state = new DownloadState(urlStr);
+        state.reset(written,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+        if (written > 0) {
+            state.markCompleted(0, written - 1);
+        }
+        String actual = Sha256.hex(digest);
+        state.setSha256(actual);
+        state.setLastUsed(System.currentTimeMillis());
+        state.setPlatform(Platform.current().toString());
+        state.setComplete(true);
+        state.save(stateFile);
+        try {
+            verifyChecksum(target, stateFile, actual);
+        } catch (IOException e) {
+            // Streaming has already extracted the archive, so the check comes last here
+            for (String root : extractedRoots) {
+                FileTrees.deleteTree(Path.of(installDir, root));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the HTTP body into fresh blocks, hashes them and hands each one to both pipes.
+     */
+    private long pump(InputStream body, BlockPipe toExtractor, BlockPipe toCache, MessageDigest digest)
+            throws IOException, InterruptedException {
+        long written = 0;
+        try {
+            while (true) {
+                byte[] block = body.readNBytes(BUFFER_SIZE);
+                if (block.length == 0) {
+                    break;
+                }
+                throttle(block.length);
+                digest.update(block);
+                toExtractor.write(block);
+                toCache.write(block);
+                written += block.length;
+                updateProgress(block.length);
+            }
+            toExtractor.finish();
+            toCache.finish();
+            return written;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            toExtractor.fail(e);
+            toCache.fail(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void extractArchive() throws IOException {
+        ArchiveExtractor extractor = ArchiveExtractor.forArchive(Path.of(filePath), Path.of(installDir));
+        extractor.setContentStore(store);
+        extractor.setProgress(progress);
+        try (Metrics.Timer ignored = Metrics.global().time("extract")) {
+            Metrics.global().add("files.extracted", extractor.extract());
+        }
+        writeManifests(extractor.getManifestItems());
+    }
+
+    /**
+     * Sequential extraction used by the streaming path, where entries arrive in archive
+     * order and cannot be read at random.
+     */
+    private void extract(InputStream in) throws IOException {
+        if (ArchiveExtractor.isTarGz(filePath)) {
+            TarGzExtractor extractor = new TarGzExtractor(Path.of(filePath), Path.of(installDir));
+            extractor.setContentStore(store);
+            Metrics.global().add("files.extracted", extractor.extract(in));
+            List<FileManifest.Item> items = extractor.getManifestItems();
+            for (FileManifest.Item item : items) {
+                int slash = item.path().indexOf('/');
+                if (slash > 0) {
+                    extractedRoots.add(item.path().substring(0, slash));
+                }
+            }
+            writeManifests(items);
+            return;
+        }
+        Path root = Path.of(installDir);
+        Set<Path> createdDirectories = new HashSet<>();
+        List<FileManifest.Item> manifestItems = new ArrayList<>();
+        ZipInputStream zis = new ZipInputStream(in);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            Path outFile = ArchiveExtractor.resolveEntry(root, entry.getName());
+            int slash = entry.getName().indexOf('/');
+            if (slash > 0) {
+                extractedRoots.add(entry.getName().substring(0, slash));
+            }
+            if (entry.isDirectory()) {
+                if (createdDirectories.add(outFile)) {
+                    Files.createDirectories(outFile);
+                }
+            } else {
+                if (createdDirectories.add(outFile.getParent())) {
+                    Files.createDirectories(outFile.getParent());
+                }
+                if (store != null) {
+                    ContentStore.Writer writer = store.newWriter();
+                    String hash;
+                    try {
                         int len;
                         while ((len = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, len);
+                            writer.write(buffer, 0, len);
                         }
+                        hash = writer.commit();
+                    } catch (IOException e) {
+                        writer.abort();
+                        throw e;
+                    }
+                    // Local headers carry no Unix mode, so modes come from the entry names
+                    ArchiveExtractor.place(store, hash, outFile, entry.getName(), 0);
+                    countExtracted(writer.size());
+                    manifestItems.add(new FileManifest.Item(hash, writer.size(), entry.getName()));
+                    continue;
+                }
+                long size = 0;
+                MessageDigest digest = Sha256.newDigest();
+                try (OutputStream fos = Files.newOutputStream(outFile)) {
+                    int len;
+                    while ((len = zis.read(buffer)) > 0) {
+                        fos.write(buffer, 0, len);
+                        digest.update(buffer, 0, len);
+                        size += len;
                     }
                 }
+                ArchiveExtractor.applyMode(outFile, ArchiveExtractor.effectiveMode(entry.getName(), 0));
+                countExtracted(size);
+                manifestItems.add(new FileManifest.Item(Sha256.hex(digest), size, entry.getName()));
             }
         }
+        writeManifests(manifestItems);
     }
 
-    private void printProgressBar(int percent) {
-        final int barLength = 50;
-        int filled = (percent * barLength) / 100;
-        System.out.print("\r[");
-        String GREEN = "\u001B[32m";
-        String RED = "\u001B[31m";
-        String YELLOW = "\u001B[33m";
-        String RESET = "\u001B[0m";
-        for (int i = 0; i < barLength; i++) {
-            if (i < filled) {
-                System.out.print(GREEN + "=" + RESET);
-            } else {
-                System.out.print(RED + "-" + RESET);
+    private static void countExtracted(long size) {
+        Metrics.global().increment("files.extracted");
+        Metrics.global().add("bytes.extracted", size);
+    }
+
+    /**
+     * Writes one manifest per top-level directory of the archive (normally the single
+     * {@code jdk-<version>} folder), with paths relative to that directory.
+     */
+    private void writeManifests(List<FileManifest.Item> items) throws IOException {
+        Map<String, List<FileManifest.Item>> byTree = new HashMap<>();
+        for (FileManifest.Item item : items) {
+            int slash = item.path().indexOf('/');
+            if (slash <= 0) {
+                continue;
             }
+            byTree.computeIfAbsent(item.path().substring(0, slash), tree -> new ArrayList<>())
+                    .add(new FileManifest.Item(item.sha256(), item.size(), item.path().substring(slash + 1)));
+        }
+        for (Map.Entry<String, List<FileManifest.Item>> tree : byTree.entrySet()) {
+            FileManifest.write(Path.of(installDir, tree.getKey(), FileManifest.FILE_NAME), tree.getValue());
         }
-        System.out.print("] ");
-        System.out.print(YELLOW + percent + "%" + RESET);
     }
 }
@@ -0,0 +1,269 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.Invocation;
+import com.amankrmj.capyverse.common.utils.ShellExports;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the project-local Java version of a directory from the nearest pin file found
+ * walking up from it ({@code .java-version}, {@code .tool-versions} or {@code .sdkmanrc}).
+ * Results are cached per directory together with a signature built from the modification
+ * times of every directory walked, the pin file and the installed index. Creating,
+ * editing or removing a pin file, or installing a JDK, changes the signature, so a warm
+ * lookup costs a few stat calls and never loads the installed index.
+ */
+public class JavaEnvResolver {
+    public static final List<String> PIN_FILES = List.of(".java-version", ".tool-versions", ".sdkmanrc");
+    private static final String HEADER = "capyverse-env-cache\t1";
+    private static final int MAX_ENTRIES = 256;
+    static final String ACTIVE_BIN_VAR = "CAPY_JAVA_BIN";
+    static final String PREVIOUS_HOME_VAR = "CAPY_PREV_JAVA_HOME";
+
+    private final Path cacheFile;
+    private final Path javaDir;
+    private final Path indexFile;
+    private final Map<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean cacheLoaded;
+    private InstalledJavaIndex index;
+
+    /**
+     * Outcome of a lookup. {@code jdkHome} is null when the pinned version is not
+     * installed; the whole resolution is null when no pin file applies.
+     */
+    public record Resolution(Path pinFile, String requested, Path jdkHome) {
+    }
+
+    private record CacheEntry(long signature, String pinFile, String requested, String jdkHome) {
+    }
+
+    public JavaEnvResolver(Path cacheFile) {
+        this(cacheFile, InstalledJavaIndex.defaultJavaDir(), InstalledJavaIndex.defaultIndexFile());
+    }
+
+    JavaEnvResolver(Path cacheFile, Path javaDir, Path indexFile) {
+        this.cacheFile = cacheFile;
+        this.javaDir = javaDir;
+        this.indexFile = indexFile;
+    }
+
+    public static JavaEnvResolver forCurrentUser() {
+        return new JavaEnvResolver(CapyPaths.resolve("cache", "java", "env.cache"));
+    }
+
+    public Resolution resolve(Path directory) {
+        Path start = directory.toAbsolutePath().normalize();
+        loadCache();
+        Walk walk = walk(start);
+        String key = start.toString();
+        CacheEntry cached = cache.get(key);
+        if (cached != null && cached.signature() == walk.signature()) {
+            return toResolution(cached);
+        }
+        CacheEntry computed = compute(walk);
+        cache.put(key, computed);
+        saveCache();
+        return toResolution(computed);
+    }
+
+    /**
+     * Statements that point JAVA_HOME and PATH at {@code jdkHome}, replacing the bin
+     * directory a previous activation put on PATH. The JAVA_HOME in effect before the
+     * first activation is remembered so that {@link #deactivate} can restore it.
+     */
+    public static ShellExports activate(String shell, Path jdkHome) {
+        ShellExports exports = new ShellExports(shell);
+        String previousBin = Invocation.getenv(ACTIVE_BIN_VAR);
+        String bin = jdkHome.resolve("bin").toString();
+        if (bin.equals(previousBin) && jdkHome.toString().equals(Invocation.getenv("JAVA_HOME"))) {
+            return exports;
+        }
+        if (previousBin == null) {
+            String currentHome = Invocation.getenv("JAVA_HOME");
+            if (currentHome != null) {
+                exports.set(PREVIOUS_HOME_VAR, currentHome);
+            }
+        }
+        String basePath = ShellExports.removePathEntry(Invocation.getenv("PATH"), previousBin);
+        exports.set("JAVA_HOME", jdkHome.toString());
+        exports.set("PATH", basePath.isEmpty() ? bin : bin + File.pathSeparator + basePath);
+        exports.set(ACTIVE_BIN_VAR, bin);
+        return exports;
+    }
+
+    /**
+     * Statements that undo an earlier {@link #activate}; empty when nothing is active.
+     */
+    public static ShellExports deactivate(String shell) {
+        ShellExports exports = new ShellExports(shell);
+        String previousBin = Invocation.getenv(ACTIVE_BIN_VAR);
+        if (previousBin == null) {
+            return exports;
+        }
+        exports.set("PATH", ShellExports.removePathEntry(Invocation.getenv("PATH"), previousBin));
+        String previousHome = Invocation.getenv(PREVIOUS_HOME_VAR);
+        if (previousHome != null) {
+            exports.set("JAVA_HOME", previousHome);
+        } else {
+            exports.unset("JAVA_HOME");
+        }
+        exports.unset(ACTIVE_BIN_VAR);
+        exports.unset(PREVIOUS_HOME_VAR);
+        return exports;
+    }
+
+    /**
+     * Reads the requested version from a pin file, or null when it names none.
+     */
+    public static String readPin(Path pinFile) {
+        try {
+            String name = pinFile.getFileName().toString();
+            for (String raw : Files.readAllLines(pinFile, StandardCharsets.UTF_8)) {
+                String line = raw.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (name.equals(".java-version")) {
+                    return normalize(line);
+                }
+                if (name.equals(".tool-versions") && line.startsWith("java ")) {
+                    return normalize(line.substring(5).strip().split("\\s+")[0]);
+                }
+                if (name.equals(".sdkmanrc") && line.startsWith("java=")) {
+                    return normalize(line.substring(5).strip());
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Drops vendor decorations such as {@code temurin-21.0.2} or {@code 21.0.2-tem} when the
+     * remaining part is a plain version number.
+     */
+    private static String normalize(String pinned) {
+        String version = pinned;
+        int dash = version.indexOf('-');
+        if (dash > 0 && !Character.isDigit(version.charAt(0))) {
+            version = version.substring(version.lastIndexOf('-') + 1);
+        } else if (dash > 0 && version.substring(dash + 1).chars().noneMatch(Character::isDigit)) {
+            version = version.substring(0, dash);
+        }
+        return version.isEmpty() ? null : version;
+    }
+
+    private record Walk(long signature, Path pinFile) {
+    }
+
+    private Walk walk(Path start) {
+        long signature = 17;
+        Path pinFile = null;
+        for (Path dir = start; dir != null && pinFile == null; dir = dir.getParent()) {
+            signature = signature * 31 + modified(dir);
+            for (String name : PIN_FILES) {
+                Path candidate = dir.resolve(name);
+                long pinModified = modified(candidate);
+                if (pinModified != -1 && readPin(candidate) != null) {
+                    pinFile = candidate;
+                    signature = signature * 31 + pinModified;
+                    break;
+                }
+            }
+        }
+        signature = signature * 31 + modified(indexFile);
+        signature = signature * 31 + modified(javaDir);
+        return new Walk(signature, pinFile);
+    }
+
+    private CacheEntry compute(Walk walk) {
+        if (walk.pinFile() == null) {
+            return new CacheEntry(walk.signature(), "", "", "");
+        }
+        String requested = readPin(walk.pinFile());
+        if (index == null) {
+            index = new InstalledJavaIndex(javaDir, indexFile);
+            index.load();
+        }
+        InstalledJavaIndex.InstalledJdk jdk = index.resolve(requested);
+        return new CacheEntry(walk.signature(), walk.pinFile().toString(), requested,
+                jdk == null ? "" : jdk.path().toString());
+    }
+
+    private static Resolution toResolution(CacheEntry entry) {
+        if (entry.pinFile().isEmpty()) {
+            return null;
+        }
+        return new Resolution(Path.of(entry.pinFile()), entry.requested(),
+                entry.jdkHome().isEmpty() ? null : Path.of(entry.jdkHome()));
+    }
+
+    private static long modified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void loadCache() {
+        if (cacheLoaded) {
+            return;
+        }
+        cacheLoaded = true;
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length == 5) {
+                    cache.put(parts[0], new CacheEntry(Long.parseLong(parts[1]), parts[2], parts[3], parts[4]));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            cache.clear();
+        }
+    }
+
+    private void saveCache() {
+        Iterator<String> eldest = cache.keySet().iterator();
+        while (cache.size() > MAX_ENTRIES && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, CacheEntry> entry : cache.entrySet()) {
+                    CacheEntry value = entry.getValue();
+                    writer.write(entry.getKey() + "\t" + value.signature() + "\t" + value.pinFile()
+                            + "\t" + value.requested() + "\t" + value.jdkHome());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write env cache: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.ArchiveExtractor;
+import com.amankrmj.capyverse.common.services.ContentStore;
+import com.amankrmj.capyverse.common.services.FileManifest;
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.ProcessLock;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Installs JDKs from catalog URLs: download into the cache, extract into a staging
+ * folder that is renamed into {@code lang\java} when complete, record the result in the
+ * installed index, and make the first installed JDK the global one. Several installs may
+ * run on one installer at the same time; downloads and extractions are throttled by
+ * separate permits so that the network and the disk are each kept busy without being
+ * oversubscribed. Installs of the same version by several processes are serialized by a
+ * lock file, and those that waited reuse the JDK the first one installed.
+ */
+public class JavaInstaller {
+    private final String downloadDir;
+    private final String installDir;
+    private final ContentStore store;
+    private final int segments;
+    private final boolean stream;
+    private final boolean offline;
+    private final Semaphore networkPermits;
+    private final Semaphore diskPermits;
+    private final InstalledJavaIndex index = InstalledJavaIndex.forCurrentUser();
+    private final ReentrantLock registerLock = new ReentrantLock();
+
+    /**
+     * Phases an install passes through, in order.
+     */
+    public enum Phase {
+        QUEUED, DOWNLOADING, EXTRACTING, DONE, FAILED
+    }
+
+    /**
+     * One requested install and its outcome. {@code sha256} is the catalog checksum of
+     * the archive, or null when none is published. Progress is reported through the
+     * optional renderer task.
+     */
+    public static class Job {
+        private final String version;
+        private final String url;
+        private final String sha256;
+        private final ProgressRenderer.Task progress;
+        private volatile Phase phase = Phase.QUEUED;
+        private volatile String error;
+
+        public Job(String version, String url, String sha256, ProgressRenderer.Task progress) {
+            this.version = version;
+            this.url = url;
+            this.sha256 = sha256;
+            this.progress = progress;
+            setPhase(Phase.QUEUED);
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        private void setPhase(Phase phase) {
+            this.phase = phase;
+            if (progress != null) {
+                progress.setStatus(phase.name().toLowerCase());
+            }
+        }
+
+        private void log(String message) {
+            if (progress != null) {
+                progress.log(message);
+            } else {
+                System.out.println(message);
+            }
+        }
+    }
+
+    public JavaInstaller(int segments, boolean stream, boolean useStore, boolean offline,
+                         int maxDownloads, int maxExtractions) {
+        this.downloadDir = CapyPaths.resolve("cache", "java", "downloads").toString();
+        this.installDir = CapyPaths.resolve("lang", "java").toString();
+        this.store = useStore ? new ContentStore(CapyPaths.resolve("store")) : null;
+        this.segments = segments;
+        this.stream = stream;
+        this.offline = offline;
+        this.networkPermits = new Semaphore(Math.max(1, maxDownloads), true);
+        this.diskPermits = new Semaphore(Math.max(1, maxExtractions), true);
+        new File(downloadDir).mkdirs();
+        new File(installDir).mkdirs();
+    }
+
+    /**
+     * Name of a version's archive in the download cache, with the extension of the
+     * catalog URL: {@code jdk-21.0.2.tar.gz} for tarballs, {@code jdk-21.0.2.zip} otherwise.
+     */
+    public static String archiveName(String version, String url) {
+        String path = url.split("[?#]", 2)[0];
+        return "jdk-" + version + (ArchiveExtractor.isTarGz(path) ? ".tar.gz" : ".zip");
+    }
+
+    /**
+     * Lock that makes installs of one version single-flight across processes: the first
+     * one downloads and extracts while the others wait for it.
+     */
+    public static ProcessLock lockVersion(String version, Consumer<String> log) throws IOException, InterruptedException {
+        Path lockFile = CapyPaths.resolve("cache", "java", "locks", "jdk-" + version + ".lock");
+        Duration timeout = Duration.ofSeconds(CapyConfig.getLong("install.lock.timeout", 3600));
+        return ProcessLock.acquire(lockFile, timeout,
+                () -> log.accept("⏳ Waiting for another install of " + version + " to finish..."));
+    }
+
+    /**
+     * Runs one install to completion. Failures are recorded on the job and rethrown.
+     */
+    public void install(Job job) throws IOException, InterruptedException {
+        try (ProcessLock lock = lockVersion(job.version, job::log)) {
+            Path home = Path.of(installDir, "jdk-" + job.version);
+            if (lock.waited() && Files.isRegularFile(home.resolve(FileManifest.FILE_NAME))) {
+                // Another process installed it while this one waited
+                job.log("♻️  " + job.version + " was just installed by another process");
+                register(job);
+                Metrics.global().increment("installs.joined");
+                job.setPhase(Phase.DONE);
+                return;
+            }
+            try (StagedInstall staging = new StagedInstall(Path.of(installDir), "jdk-" + job.version)) {
+                installStaged(job, staging);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            job.setPhase(Phase.FAILED);
+            Metrics.global().increment("installs.failed");
+            throw e;
+        }
+    }
+
+    /**
+     * Downloads and extracts into the staging folder, then moves the JDK into place.
+     */
+    private void installStaged(Job job, StagedInstall staging) throws IOException, InterruptedException {
+        JavaDownloadService downloadService = new JavaDownloadService(
+                job.url, downloadDir, staging.getDirectory().toString(), archiveName(job.version, job.url), segments);
+        downloadService.setOffline(offline);
+        downloadService.setExpectedSha256(job.sha256);
+        downloadService.setProgress(job.progress);
+        downloadService.setContentStore(store);
+        if (stream) {
+            // Streaming overlaps network and disk, so it holds both permits
+            acquire(networkPermits, job, Phase.DOWNLOADING);
+            try {
+                diskPermits.acquire();
+                try {
+                    job.log("🗜️  Extracting " + job.version + " while downloading...");
+                    downloadService.downloadAndExtract();
+                } finally {
+                    diskPermits.release();
+                }
+            } finally {
+                networkPermits.release();
+            }
+        } else {
+            acquire(networkPermits, job, Phase.DOWNLOADING);
+            try {
+                downloadService.download();
+            } finally {
+                networkPermits.release();
+            }
+            acquire(diskPermits, job, Phase.EXTRACTING);
+            try {
+                downloadService.extractArchive();
+            } finally {
+                diskPermits.release();
+            }
+        }
+        try (Metrics.Timer ignored = Metrics.global().time("register")) {
+            staging.commit();
+            register(job);
+        }
+        Metrics.global().increment("installs.succeeded");
+        job.setPhase(Phase.DONE);
+    }
+
+    private static void acquire(Semaphore permits, Job job, Phase phase) throws InterruptedException {
+        permits.acquire();
+        job.setPhase(phase);
+    }
+
+    /**
+     * Records the new JDK in the index and, when no global JDK is selected yet, points
+     * the current link at it. Serialized because installs finish concurrently, with a
+     * lock so that the virtual threads running them do not pin their carriers.
+     */
+    private void register(Job job) throws IOException {
+        registerLock.lock();
+        try {
+            String version = job.version;
+            Path jdkHome = Path.of(installDir, "jdk-" + version);
+            CurrentJavaLink current = CurrentJavaLink.forCurrentUser();
+            if (!current.exists()) {
+                current.switchTo(jdkHome);
+                String notice = current.ensureEnvironmentConfigured();
+                if (notice != null) {
+                    job.log(notice);
+                }
+            }
+            // Last, so that the index is stamped after the link changed the directory
+            index.record(version, jdkHome);
+        } finally {
+            registerLock.unlock();
+        }
+    }
+}
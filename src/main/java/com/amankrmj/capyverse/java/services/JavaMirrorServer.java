@@ -0,0 +1,229 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.FileHttpServer;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.Platform;
+import com.amankrmj.capyverse.java.model.JavaCatalog;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Shares this machine's download cache with the LAN. Two routes mirror the upstream
+ * layout:
+ * <ul>
+ *     <li>{@code /javaversions/catalog/<os>-<arch>} - the upstream catalog for that
+ *     platform, with the URL of every version whose archive is cached here for the same
+ *     platform rewritten to point at this mirror; without a platform, the mirror's own.
+ *     Each entry names its {@code os} and {@code arch};</li>
+ *     <li>{@code /javaversions/files/<os>-<arch>/jdk-<version>.zip} (or {@code .tar.gz}) -
+ *     a completely downloaded archive from the cache, with range and conditional request
+ *     support;</li>
+ *     <li>{@code /javaversions/files/<os>-<arch>/jdk-<version>.zip.capy-manifest} - the
+ *     per-file checksums of such an archive, used by {@code capy java upgrade}.</li>
+ * </ul>
+ * Cached archive names carry no platform, so the sidecar records the one each archive was
+ * downloaded for, and an archive is only served for that platform. Archives cached before
+ * the platform was recorded came from this machine's own catalog and count as its
+ * platform; so do file paths without a platform segment. Clients list the mirror in
+ * {@code java.mirrors} and fall back to upstream on their own.
+ */
+public class JavaMirrorServer implements AutoCloseable {
+    private static final String CATALOG_PATH = "/javaversions/catalog";
+    private static final String FILES_PATH = "/javaversions/files/";
+    private static final Pattern ARCHIVE_NAME = Pattern.compile("jdk-[A-Za-z0-9._+-]+\\.(zip|tar\\.gz)");
+
+    private final Path downloadDir;
+    private final Path snapshotDir;
+    private final String upstreamCatalogUrl;
+    private final FileHttpServer server = new FileHttpServer();
+    private final ReentrantLock manifestLock = new ReentrantLock();
+
+    /**
+     * @param snapshotDir where the upstream catalog is cached, one snapshot per platform
+     */
+    public JavaMirrorServer(Path downloadDir, Path snapshotDir, String upstreamCatalogUrl) {
+        this.downloadDir = downloadDir;
+        this.snapshotDir = snapshotDir;
+        this.upstreamCatalogUrl = upstreamCatalogUrl;
+        server.route(CATALOG_PATH, this::serveCatalog);
+        server.route(FILES_PATH, this::serveArchive);
+    }
+
+    public static JavaMirrorServer forCurrentUser() {
+        return new JavaMirrorServer(
+                CapyPaths.resolve("cache", "java", "downloads"),
+                CapyPaths.resolve("cache", "java"),
+                JavaVersionFetchService.upstreamCatalogUrl());
+    }
+
+    public Path getDownloadDir() {
+        return downloadDir;
+    }
+
+    public String getUpstreamCatalogUrl() {
+        return upstreamCatalogUrl;
+    }
+
+    public void setAccessLog(Consumer<String> accessLog) {
+        server.setAccessLog(accessLog);
+    }
+
+    public void bind(InetSocketAddress address) throws IOException {
+        server.bind(address);
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    /**
+     * Serves until the server is closed.
+     */
+    public void serve() throws IOException {
+        server.serve();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void serveCatalog(FileHttpServer.Request request, FileHttpServer.Response response) throws IOException {
+        Platform platform = Platform.current();
+        String suffix = request.path().substring(CATALOG_PATH.length()).replaceAll("^/+|/+$", "");
+        if (!suffix.isEmpty()) {
+            try {
+                platform = Platform.parse(suffix);
+            } catch (IllegalArgumentException e) {
+                response.status(404, e.getMessage());
+                return;
+            }
+        }
+        // A fresh cache per request picks up the TTL; within it this is a snapshot read
+        Path snapshotFile = snapshotDir.resolve("mirror-catalog-" + platform + ".bin");
+        JavaCatalog catalog = new CatalogCache(snapshotFile, List.of(new CatalogCache.Source(upstreamCatalogUrl)),
+                CatalogCache.DEFAULT_TTL, platform).catalog(false);
+        if (catalog == null) {
+            response.status(502, "Upstream catalog unavailable");
+            return;
+        }
+        String host = request.header("host");
+        if (host == null) {
+            host = "localhost:" + getPort();
+        }
+        StringBuilder json = new StringBuilder(catalog.size() * 96).append('[');
+        for (JavaCatalog.Entry entry : catalog.newestFirst()) {
+            String version = entry.version().text();
+            String name = JavaInstaller.archiveName(version, entry.url());
+            String url = isServable(name, platform)
+                    ? "http://" + host + FILES_PATH + platform + "/" + name
+                    : entry.url();
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"version\":\"").append(escape(version))
+                    .append("\",\"url\":\"").append(escape(url))
+                    .append("\",\"os\":\"").append(escape(platform.os()))
+                    .append("\",\"arch\":\"").append(escape(platform.arch())).append('"');
+            if (entry.sha256() != null) {
+                json.append(",\"sha256\":\"").append(escape(entry.sha256())).append('"');
+            }
+            json.append('}');
+        }
+        byte[] body = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        response.bytes(body, "application/json", etag(body));
+    }
+
+    private void serveArchive(FileHttpServer.Request request, FileHttpServer.Response response) throws IOException {
+        String name = request.path().substring(FILES_PATH.length());
+        Platform platform = Platform.current();
+        int slash = name.lastIndexOf('/');
+        if (slash >= 0) {
+            try {
+                platform = Platform.parse(name.substring(0, slash));
+            } catch (IllegalArgumentException e) {
+                response.status(404, e.getMessage());
+                return;
+            }
+            name = name.substring(slash + 1);
+        }
+        if (name.endsWith(JavaUpgrader.MANIFEST_SUFFIX)) {
+            serveManifest(name.substring(0, name.length() - JavaUpgrader.MANIFEST_SUFFIX.length()), platform, response);
+            return;
+        }
+        if (!isServable(name, platform)) {
+            response.status(404, "Not cached on this mirror: " + name);
+            return;
+        }
+        response.file(downloadDir.resolve(name), name.endsWith(".zip") ? "application/zip" : "application/gzip");
+    }
+
+    /**
+     * The checksum manifest that lets clients upgrade by downloading only changed files.
+     * It is written next to the archive the first time it is asked for.
+     */
+    private void serveManifest(String archiveName, Platform platform, FileHttpServer.Response response)
+            throws IOException {
+        if (!archiveName.endsWith(".zip") || !isServable(archiveName, platform)) {
+            response.status(404, "Not cached on this mirror: " + archiveName);
+            return;
+        }
+        Path archive = downloadDir.resolve(archiveName);
+        Path manifest = downloadDir.resolve(archiveName + JavaUpgrader.MANIFEST_SUFFIX);
+        manifestLock.lock();
+        try {
+            if (!Files.isRegularFile(manifest) || Files.getLastModifiedTime(manifest).compareTo(Files.getLastModifiedTime(archive)) < 0) {
+                JavaUpgrader.publishManifest(archive);
+            }
+        } finally {
+            manifestLock.unlock();
+        }
+        response.file(manifest, "text/plain; charset=utf-8");
+    }
+
+    /**
+     * Only archives that finished downloading are shared: the name must be a plain JDK
+     * archive name, and a sidecar, when present, must mark it complete at its current size
+     * and name {@code platform}, or no platform when that is this machine's.
+     */
+    private boolean isServable(String name, Platform platform) throws IOException {
+        if (!ARCHIVE_NAME.matcher(name).matches()) {
+            return false;
+        }
+        Path archive = downloadDir.resolve(name);
+        if (!Files.isRegularFile(archive)) {
+            return false;
+        }
+        DownloadState state = DownloadState.load(downloadDir.resolve(name + ".state"));
+        if (state != null && (!state.isComplete() || state.getLength() != Files.size(archive))) {
+            return false;
+        }
+        return state == null || state.getPlatform() == null
+                ? platform.equals(Platform.current())
+                : platform.equals(Platform.parse(state.getPlatform()));
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
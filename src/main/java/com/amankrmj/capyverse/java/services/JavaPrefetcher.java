@@ -0,0 +1,87 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.RateLimiter;
+import com.amankrmj.capyverse.java.model.JavaCatalog;
+import com.amankrmj.capyverse.java.model.JavaVersion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Downloads new patch releases of installed JDK lines into the download cache ahead of
+ * time, so a later {@code capy java install --latest} finds the archive already there.
+ * Nothing is extracted. Downloads use a single connection and an optional rate cap to stay
+ * out of the way of foreground work.
+ */
+public class JavaPrefetcher {
+    private final JavaVersionFetchService fetchService;
+    private final InstalledJavaIndex index;
+    private final DownloadCache cache;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * What happened to one release line; {@code archive} names the latest version's
+     * archive in the download cache, null when the line is up to date.
+     */
+    public record Result(String line, String installed, String latest, String archive, Status status, String error) {
+    }
+
+    public enum Status {
+        UP_TO_DATE, ALREADY_CACHED, DOWNLOADED, FAILED
+    }
+
+    public JavaPrefetcher(JavaVersionFetchService fetchService, InstalledJavaIndex index,
+                          DownloadCache cache, RateLimiter rateLimiter) {
+        this.fetchService = fetchService;
+        this.index = index;
+        this.cache = cache;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Checks every installed feature release against the catalog and downloads the newest
+     * patch of each line that is neither installed nor cached.
+     */
+    public List<Result> prefetch() throws InterruptedException {
+        Map<Integer, JavaVersion> newestInstalled = new TreeMap<>();
+        for (String version : index.versions()) {
+            JavaVersion parsed = JavaVersion.parse(version);
+            newestInstalled.merge(parsed.feature(), parsed, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        }
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<Integer, JavaVersion> line : newestInstalled.entrySet()) {
+            String feature = String.valueOf(line.getKey());
+            String installed = line.getValue().text();
+            JavaCatalog.Entry latest = fetchService.latestEntry(feature);
+            if (latest == null || latest.version().compareTo(line.getValue()) <= 0) {
+                results.add(new Result(feature, installed, latest == null ? null : latest.version().text(), null, Status.UP_TO_DATE, null));
+                continue;
+            }
+            String version = latest.version().text();
+            String name = JavaInstaller.archiveName(version, latest.url());
+            if (cache.contains(name)) {
+                results.add(new Result(feature, installed, version, name, Status.ALREADY_CACHED, null));
+                continue;
+            }
+            try {
+                download(latest, name);
+                results.add(new Result(feature, installed, version, name, Status.DOWNLOADED, null));
+            } catch (IOException e) {
+                results.add(new Result(feature, installed, version, name, Status.FAILED, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private void download(JavaCatalog.Entry entry, String name) throws IOException, InterruptedException {
+        String downloadDir = cache.getDirectory().toString();
+        cache.getDirectory().toFile().mkdirs();
+        JavaDownloadService downloadService = new JavaDownloadService(entry.url(), downloadDir, downloadDir, name, 1);
+        downloadService.setExpectedSha256(entry.sha256());
+        downloadService.setRateLimiter(rateLimiter);
+        downloadService.download();
+    }
+}
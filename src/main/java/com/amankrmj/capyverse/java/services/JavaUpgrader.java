@@ -0,0 +1,693 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.ArchiveExtractor;
+import com.amankrmj.capyverse.common.services.ContentStore;
+import com.amankrmj.capyverse.common.services.FileManifest;
+import com.amankrmj.capyverse.common.services.HttpService;
+import com.amankrmj.capyverse.common.services.RemoteZip;
+import com.amankrmj.capyverse.common.services.ZipExtractor;
+import com.amankrmj.capyverse.common.utils.FileTrees;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+import com.amankrmj.capyverse.common.utils.Sha256;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Upgrades an installed JDK to a newer patch release without downloading the whole
+ * archive. The central directory of the new archive is read with a range request, every
+ * file that is unchanged since the installed release is taken from the installed tree,
+ * and only the remaining entries are fetched, with neighbouring entries merged into one
+ * range request. Each entry is checked against the CRC-32 in the central directory.
+ * <p>
+ * When the server publishes a checksum manifest next to the archive
+ * ({@code jdk-<version>.zip.capy-manifest}, see {@link #publishManifest}), unchanged
+ * files are recognised by their SHA-256 against the installed tree's manifest without
+ * reading them, and reused files link to the content store. Without one, files of equal
+ * size are candidates that are confirmed by CRC-32 while they are copied; a mismatch
+ * falls back to fetching that entry.
+ * <p>
+ * The catalog's SHA-256 covers the whole archive, which an upgrade never downloads, so
+ * it cannot be checked. The assembled tree is instead checked against the central
+ * directory before it is committed, and {@value #ORIGIN_FILE} in it records that it was
+ * built from parts, for {@code capy java verify} to report.
+ */
+public class JavaUpgrader {
+    public static final String MANIFEST_SUFFIX = ".capy-manifest";
+    public static final String ORIGIN_FILE = ".capy-origin";
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    /**
+     * Unchanged entries up to this size between two changed ones are downloaded and
+     * skipped rather than paying for another request.
+     */
+    private static final long MAX_GAP = 256 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path installDir;
+    private final ContentStore store;
+    private final int segments;
+    /**
+     * Symlink entries met while fetching, as name and target, created once every file
+     * is written.
+     */
+    private final Queue<String[]> symlinks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * What an upgrade will reuse and fetch. {@code exact} is true when a published
+     * manifest made the reuse decision; otherwise reused files are only candidates.
+     */
+    public record Plan(InstalledJavaIndex.InstalledJdk from, String toVersion, RemoteZip archive,
+                       String archiveSha256, boolean exact,
+                       List<ZipExtractor.Entry> reuse, List<ZipExtractor.Entry> fetch,
+                       Map<String, String> publishedSha256, Map<ZipExtractor.Entry, Long> entryEnds) {
+        public long reuseBytes() {
+            return reuse.stream().mapToLong(ZipExtractor.Entry::size).sum();
+        }
+
+        /**
+         * Archive bytes the fetched entries take, which is what a full download would
+         * have been cut down to.
+         */
+        public long fetchBytes() {
+            return spans(fetch, entryEnds).stream().mapToLong(Span::length).sum();
+        }
+
+        public int requests() {
+            return spans(fetch, entryEnds).size();
+        }
+    }
+
+    public record Result(Path home, int reusedFiles, long reusedBytes, int fetchedFiles, long downloadedBytes) {
+    }
+
+    /**
+     * Consecutive archive bytes {@code [start, end)} holding the given entries.
+     */
+    private record Span(long start, long end, List<ZipExtractor.Entry> entries) {
+        long length() {
+            return end - start;
+        }
+    }
+
+    public JavaUpgrader(Path installDir, ContentStore store, int segments) {
+        this.installDir = installDir.toAbsolutePath().normalize();
+        this.store = store;
+        this.segments = Math.max(1, segments);
+    }
+
+    /**
+     * Writes {@code <archive>.capy-manifest} with the SHA-256 and size of every file in
+     * the archive, for a mirror or any static server to publish next to it.
+     */
+    public static Path publishManifest(Path archive) throws IOException {
+        Path manifest = archive.resolveSibling(archive.getFileName() + MANIFEST_SUFFIX);
+        FileManifest.write(manifest, ZipExtractor.hashEntries(archive));
+        return manifest;
+    }
+
+    /**
+     * Reads the new archive's directory and its published manifest, when there is one,
+     * and decides per file whether it can come from the installed tree. {@code sha256}
+     * is the catalog's checksum of the archive, recorded in the tree's origin; may be null.
+     */
+    public Plan plan(InstalledJavaIndex.InstalledJdk from, String toVersion, String url, String sha256)
+            throws IOException, InterruptedException {
+        RemoteZip archive = new RemoteZip(url);
+        List<ZipExtractor.Entry> entries = archive.entries();
+        Map<String, String> published = fetchPublishedManifest(url);
+
+        Map<String, FileManifest.Item> installed = new HashMap<>();
+        Path installedManifest = from.path().resolve(FileManifest.FILE_NAME);
+        if (Files.isRegularFile(installedManifest)) {
+            for (FileManifest.Item item : FileManifest.read(installedManifest)) {
+                installed.put(item.path(), item);
+            }
+        }
+
+        List<ZipExtractor.Entry> byOffset = new ArrayList<>(entries);
+        byOffset.sort(Comparator.comparingLong(ZipExtractor.Entry::localHeaderOffset));
+        Map<ZipExtractor.Entry, Long> ends = new HashMap<>();
+        for (int i = 0; i < byOffset.size(); i++) {
+            long end = i + 1 < byOffset.size() ? byOffset.get(i + 1).localHeaderOffset() : archive.getDirectoryOffset();
+            ends.put(byOffset.get(i), end);
+        }
+
+        // Trees installed before manifests were recorded can only be compared by reading them
+        boolean exact = published != null && !installed.isEmpty();
+        List<ZipExtractor.Entry> reuse = new ArrayList<>();
+        List<ZipExtractor.Entry> fetch = new ArrayList<>();
+        for (ZipExtractor.Entry entry : byOffset) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String path = treePath(entry.name());
+            boolean unchanged;
+            if (entry.isSymlink() || path == null) {
+                unchanged = false;
+            } else if (exact) {
+                FileManifest.Item item = installed.get(path);
+                unchanged = item != null && item.size() == entry.size() && item.sha256().equals(published.get(entry.name()));
+            } else {
+                Path file = ArchiveExtractor.resolveEntry(from.path(), path);
+                unchanged = Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) && Files.size(file) == entry.size();
+            }
+            (unchanged ? reuse : fetch).add(entry);
+        }
+        return new Plan(from, toVersion, archive, sha256, exact, reuse, fetch,
+                published == null ? Map.of() : published, ends);
+    }
+
+    /**
+     * Builds the new tree next to the installed one. A failed upgrade removes the
+     * partial tree and leaves the installed JDK as it was.
+     */
+    public Result apply(Plan plan, ProgressRenderer.Task progress) throws IOException, InterruptedException {
+        Set<Path> roots = new TreeSet<>();
+        Set<Path> directories = new TreeSet<>();
+        for (ZipExtractor.Entry entry : plan.archive().entries()) {
+            Path target = ArchiveExtractor.resolveEntry(installDir, entry.name());
+            roots.add(installDir.resolve(installDir.relativize(target).getName(0)));
+            directories.add(entry.isDirectory() ? target : target.getParent());
+        }
+        if (roots.size() != 1) {
+            throw new IOException("Expected one top-level folder in the archive, found " + roots.size());
+        }
+        Path home = roots.iterator().next();
+        if (Files.exists(home)) {
+            FileTrees.deleteTree(home);
+        }
+        Metrics metrics = Metrics.global();
+        Queue<FileManifest.Item> items = new ConcurrentLinkedQueue<>();
+        try {
+            for (Path directory : directories) {
+                Files.createDirectories(directory);
+            }
+            Queue<ZipExtractor.Entry> misses = new ConcurrentLinkedQueue<>();
+            long reusedBytes;
+            try (Metrics.Timer ignored = metrics.time("upgrade.reuse")) {
+                reusedBytes = reuse(plan, items, misses, progress);
+            }
+            List<ZipExtractor.Entry> fetch = new ArrayList<>(plan.fetch());
+            fetch.addAll(misses);
+            fetch.sort(Comparator.comparingLong(ZipExtractor.Entry::localHeaderOffset));
+            long downloaded;
+            symlinks.clear();
+            try (Metrics.Timer ignored = metrics.time("upgrade.fetch")) {
+                downloaded = fetch(plan, spans(fetch, plan.entryEnds()), items, progress);
+            }
+            for (String[] symlink : symlinks) {
+                ArchiveExtractor.createSymlink(home, ArchiveExtractor.resolveEntry(installDir, symlink[0]), symlink[1]);
+            }
+            checkAssembled(plan, items);
+            List<FileManifest.Item> treeItems = new ArrayList<>();
+            for (FileManifest.Item item : items) {
+                treeItems.add(new FileManifest.Item(item.sha256(), item.size(), treePath(item.path())));
+            }
+            FileManifest.write(home.resolve(FileManifest.FILE_NAME), treeItems);
+            int reusedFiles = plan.reuse().size() - misses.size();
+            writeOrigin(plan, home, reusedFiles);
+            metrics.add("upgrade.reusedFiles", reusedFiles);
+            metrics.add("upgrade.reusedBytes", reusedBytes);
+            metrics.add("upgrade.fetchedFiles", fetch.size());
+            return new Result(home, reusedFiles, reusedBytes, fetch.size(), downloaded);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            FileTrees.deleteTree(home);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that every file of the archive is in the tree exactly once with the size
+     * the central directory gives it, so a tree with files missing, doubled or cut short
+     * is never committed.
+     */
+    private void checkAssembled(Plan plan, Queue<FileManifest.Item> items) throws IOException, InterruptedException {
+        Map<String, Long> sizes = new HashMap<>();
+        for (FileManifest.Item item : items) {
+            if (sizes.put(item.path(), item.size()) != null) {
+                throw new IOException("Upgrade assembled " + item.path() + " twice");
+            }
+        }
+        for (ZipExtractor.Entry entry : plan.archive().entries()) {
+            if (entry.isDirectory() || entry.isSymlink()) {
+                continue;
+            }
+            Long size = sizes.remove(entry.name());
+            Path target = ArchiveExtractor.resolveEntry(installDir, entry.name());
+            if (size == null || size != entry.size()
+                    || !Files.isRegularFile(target) || Files.size(target) != entry.size()) {
+                throw new IOException("Upgraded tree does not match the archive at " + entry.name());
+            }
+        }
+        if (!sizes.isEmpty()) {
+            throw new IOException("Upgraded tree has files the archive does not: " + sizes.keySet());
+        }
+    }
+
+    /**
+     * Records where the parts of the tree came from. The catalog checksum is kept for
+     * reference only; it was not checked.
+     */
+    private static void writeOrigin(Plan plan, Path home, int reusedFiles) throws IOException {
+        Properties origin = new Properties();
+        origin.setProperty("assembled", "upgrade");
+        origin.setProperty("from", plan.from().version());
+        origin.setProperty("archive", plan.archive().getUrl());
+        if (plan.archiveSha256() != null) {
+            origin.setProperty("archiveSha256", plan.archiveSha256());
+        }
+        origin.setProperty("archiveVerified", "false");
+        origin.setProperty("reusedFiles", Integer.toString(reusedFiles));
+        origin.setProperty("reuseCheckedBy", plan.exact() ? "published SHA-256" : "CRC-32");
+        try (OutputStream out = Files.newOutputStream(home.resolve(ORIGIN_FILE))) {
+            origin.store(out, "Assembled by capy java upgrade");
+        }
+    }
+
+    /**
+     * Properties recorded by {@link #writeOrigin} in a tree assembled by an upgrade, or
+     * null for a tree extracted from a whole archive.
+     */
+    public static Properties readOrigin(Path home) {
+        Path file = home.resolve(ORIGIN_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties origin = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            origin.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        return origin;
+    }
+
+    /**
+     * Materializes the unchanged files from the installed tree in parallel. Candidates
+     * that turn out to differ go to {@code misses}. Returns the bytes reused.
+     */
+    private long reuse(Plan plan, Queue<FileManifest.Item> items, Queue<ZipExtractor.Entry> misses,
+                       ProgressRenderer.Task progress) throws IOException {
+        if (progress != null) {
+            progress.reset("reusing", plan.reuseBytes());
+        }
+        List<ZipExtractor.Entry> reuse = new ArrayList<>(plan.reuse());
+        reuse.sort(Comparator.comparingLong(ZipExtractor.Entry::size).reversed());
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return pool.submit(() -> reuse.parallelStream().mapToLong(entry -> {
+                try {
+                    String hash = reuseEntry(plan, entry);
+                    if (progress != null) {
+                        progress.add(entry.size());
+                    }
+                    if (hash == null) {
+                        misses.add(entry);
+                        return 0;
+                    }
+                    items.add(new FileManifest.Item(hash, entry.size(), entry.name()));
+                    return entry.size();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum()).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Upgrade failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Upgrade interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Places one unchanged file and returns its SHA-256, or null when the installed copy
+     * does not match the new entry after all.
+     */
+    private String reuseEntry(Plan plan, ZipExtractor.Entry entry) throws IOException {
+        Path target = ArchiveExtractor.resolveEntry(installDir, entry.name());
+        Path source = ArchiveExtractor.resolveEntry(plan.from().path(), treePath(entry.name()));
+        String published = plan.publishedSha256().get(entry.name());
+        if (published != null && store != null && store.contains(published)) {
+            ArchiveExtractor.place(store, published, target, entry.name(), entry.mode());
+            return published;
+        }
+        CRC32 crc = new CRC32();
+        MessageDigest digest = Sha256.newDigest();
+        ContentStore.Writer writer = store != null ? store.newWriter() : null;
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = writer == null ? Files.newOutputStream(target) : OutputStream.nullOutputStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+                digest.update(buffer, 0, n);
+                if (writer != null) {
+                    writer.write(buffer, 0, n);
+                } else {
+                    out.write(buffer, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            if (writer != null) {
+                writer.abort();
+            }
+            throw e;
+        }
+        String hash = Sha256.hex(digest);
+        if (crc.getValue() != entry.crc() || published != null && !published.equals(hash)) {
+            if (writer != null) {
+                writer.abort();
+            }
+            Files.deleteIfExists(target);
+            return null;
+        }
+        if (writer != null) {
+            ArchiveExtractor.place(store, writer.commit(), target, entry.name(), entry.mode());
+        } else {
+            ArchiveExtractor.applyMode(target, ArchiveExtractor.effectiveMode(entry.name(), entry.mode()));
+        }
+        return hash;
+    }
+
+    /**
+     * Downloads the spans on up to {@link #segments} connections and extracts their
+     * entries as the bytes arrive. Returns the bytes downloaded.
+     */
+    private long fetch(Plan plan, List<Span> spans, Queue<FileManifest.Item> items, ProgressRenderer.Task progress)
+            throws IOException, InterruptedException {
+        if (progress != null) {
+            progress.reset("downloading", spans.stream().mapToLong(Span::length).sum());
+        }
+        HttpService.RetryPolicy retryPolicy = HttpService.shared().retryPolicy();
+        List<Future<Long>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(segments, spans.size())), Thread.ofVirtual().factory())) {
+            for (Span span : spans) {
+                results.add(executor.submit(() -> {
+                    for (int attempt = 1; ; attempt++) {
+                        List<FileManifest.Item> spanItems = new ArrayList<>();
+                        long[] read = {0};
+                        try {
+                            fetchSpan(plan, span, spanItems, read, progress);
+                            items.addAll(spanItems);
+                            return read[0];
+                        } catch (IOException e) {
+                            if (progress != null) {
+                                progress.add(-read[0]);
+                            }
+                            if (attempt >= retryPolicy.maxAttempts() || e instanceof RemoteZip.ChangedException) {
+                                throw e;
+                            }
+                            Metrics.global().increment("download.rangeRetries");
+                            Thread.sleep(retryPolicy.backoff(attempt));
+                        }
+                    }
+                }));
+            }
+        }
+        long downloaded = 0;
+        for (Future<Long> result : results) {
+            try {
+                downloaded += result.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Upgrade failed: " + cause.getMessage(), cause);
+            }
+        }
+        return downloaded;
+    }
+
+    private void fetchSpan(Plan plan, Span span, List<FileManifest.Item> items, long[] read,
+                           ProgressRenderer.Task progress) throws IOException, InterruptedException {
+        try (InputStream raw = plan.archive().open(span.start(), span.end())) {
+            InputStream in = new CountingStream(raw, read, progress);
+            long position = span.start();
+            for (ZipExtractor.Entry entry : span.entries()) {
+                in.skipNBytes(entry.localHeaderOffset() - position);
+                ByteBuffer header = ByteBuffer.wrap(in.readNBytes(LOCAL_HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+                if (header.limit() != LOCAL_HEADER_SIZE || header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                    throw new IOException("Corrupt local header for " + entry.name());
+                }
+                int skip = Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+                in.skipNBytes(skip);
+                FileManifest.Item item = extractEntry(plan, entry, in);
+                if (item != null) {
+                    items.add(item);
+                }
+                position = entry.localHeaderOffset() + LOCAL_HEADER_SIZE + skip + entry.compressedSize();
+            }
+        }
+        Metrics.global().add("bytes.downloaded", read[0]);
+    }
+
+    @FunctionalInterface
+    private interface Sink {
+        void write(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Writes one entry from the stream, which is positioned at its data. Returns its
+     * manifest item, or null for a symlink, which is only recorded for now.
+     */
+    private FileManifest.Item extractEntry(Plan plan, ZipExtractor.Entry entry, InputStream in) throws IOException {
+        Path target = ArchiveExtractor.resolveEntry(installDir, entry.name());
+        if (entry.isSymlink()) {
+            StringBuilder linkTarget = new StringBuilder();
+            copyEntry(entry, in, (buffer, offset, length) ->
+                    linkTarget.append(new String(buffer, offset, length, StandardCharsets.UTF_8)));
+            symlinks.add(new String[]{entry.name(), linkTarget.toString()});
+            return null;
+        }
+        String hash;
+        if (store != null) {
+            ContentStore.Writer writer = store.newWriter();
+            try {
+                copyEntry(entry, in, writer::write);
+                hash = writer.commit();
+            } catch (IOException e) {
+                writer.abort();
+                throw e;
+            }
+            ArchiveExtractor.place(store, hash, target, entry.name(), entry.mode());
+        } else {
+            MessageDigest digest = Sha256.newDigest();
+            try (OutputStream out = Files.newOutputStream(target)) {
+                copyEntry(entry, in, (buffer, offset, length) -> {
+                    digest.update(buffer, offset, length);
+                    out.write(buffer, offset, length);
+                });
+            }
+            hash = Sha256.hex(digest);
+        }
+        String published = plan.publishedSha256().get(entry.name());
+        if (published != null && !published.equals(hash)) {
+            throw new IOException("SHA-256 mismatch for " + entry.name() + " against the published manifest");
+        }
+        if (store == null) {
+            ArchiveExtractor.applyMode(target, ArchiveExtractor.effectiveMode(entry.name(), entry.mode()));
+        }
+        return new FileManifest.Item(hash, entry.size(), entry.name());
+    }
+
+    /**
+     * Copies or inflates the entry's data from the stream into the sink and checks size
+     * and CRC-32 against the central directory.
+     */
+    private static void copyEntry(ZipExtractor.Entry entry, InputStream in, Sink sink) throws IOException {
+        byte[] input = new byte[BUFFER_SIZE];
+        CRC32 crc = new CRC32();
+        long written = 0;
+        long remaining = entry.compressedSize();
+        switch (entry.method()) {
+            case ZipEntry.STORED -> {
+                while (remaining > 0) {
+                    int n = in.read(input, 0, (int) Math.min(input.length, remaining));
+                    if (n < 0) {
+                        throw new IOException("Truncated entry: " + entry.name());
+                    }
+                    crc.update(input, 0, n);
+                    sink.write(input, 0, n);
+                    written += n;
+                    remaining -= n;
+                }
+            }
+            case ZipEntry.DEFLATED -> {
+                Inflater inflater = new Inflater(true);
+                byte[] output = new byte[BUFFER_SIZE];
+                try {
+                    while (!inflater.finished()) {
+                        if (inflater.needsInput()) {
+                            if (remaining == 0) {
+                                throw new IOException("Truncated entry: " + entry.name());
+                            }
+                            int n = in.read(input, 0, (int) Math.min(input.length, remaining));
+                            if (n < 0) {
+                                throw new IOException("Truncated entry: " + entry.name());
+                            }
+                            inflater.setInput(input, 0, n);
+                            remaining -= n;
+                        }
+                        int n = inflater.inflate(output);
+                        if (n > 0) {
+                            crc.update(output, 0, n);
+                            sink.write(output, 0, n);
+                            written += n;
+                        } else if (inflater.needsDictionary()) {
+                            throw new IOException("Corrupt entry: " + entry.name());
+                        }
+                    }
+                    // Leftover input is padding before the next header; consume the rest
+                    in.skipNBytes(remaining);
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt entry " + entry.name() + ": " + e.getMessage(), e);
+                } finally {
+                    inflater.end();
+                }
+            }
+            default -> throw new IOException("Unsupported compression method " + entry.method() + ": " + entry.name());
+        }
+        if (written != entry.size() || crc.getValue() != entry.crc()) {
+            throw new IOException("Checksum mismatch for entry: " + entry.name());
+        }
+    }
+
+    /**
+     * Groups entries, sorted by offset, into ranges, merging neighbours separated by at
+     * most {@link #MAX_GAP} unneeded bytes.
+     */
+    private static List<Span> spans(List<ZipExtractor.Entry> entries, Map<ZipExtractor.Entry, Long> ends) {
+        List<ZipExtractor.Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(ZipExtractor.Entry::localHeaderOffset));
+        List<Span> spans = new ArrayList<>();
+        long start = -1;
+        long end = -1;
+        List<ZipExtractor.Entry> current = new ArrayList<>();
+        for (ZipExtractor.Entry entry : sorted) {
+            if (start >= 0 && entry.localHeaderOffset() - end > MAX_GAP) {
+                spans.add(new Span(start, end, current));
+                current = new ArrayList<>();
+                start = -1;
+            }
+            if (start < 0) {
+                start = entry.localHeaderOffset();
+            }
+            end = ends.get(entry);
+            current.add(entry);
+        }
+        if (start >= 0) {
+            spans.add(new Span(start, end, current));
+        }
+        return spans;
+    }
+
+    /**
+     * The manifest published next to the archive, by entry name, or null when there is
+     * none.
+     */
+    private static Map<String, String> fetchPublishedManifest(String url) throws IOException, InterruptedException {
+        HttpService http = HttpService.shared();
+        HttpResponse<InputStream> response = http.send(http.request(url + MANIFEST_SUFFIX).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            Map<String, String> checksums = new HashMap<>();
+            for (FileManifest.Item item : FileManifest.read(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)))) {
+                checksums.put(item.path(), item.sha256());
+            }
+            return checksums;
+        }
+    }
+
+    /**
+     * Entry name relative to the archive's top-level folder, or null for a name outside
+     * any folder.
+     */
+    private static String treePath(String name) {
+        int slash = name.indexOf('/');
+        return slash > 0 && slash < name.length() - 1 ? name.substring(slash + 1) : null;
+    }
+
+    /**
+     * Counts the bytes read from a span for the result and the progress line.
+     */
+    private static class CountingStream extends InputStream {
+        private final InputStream in;
+        private final long[] read;
+        private final ProgressRenderer.Task progress;
+
+        CountingStream(InputStream in, long[] read, ProgressRenderer.Task progress) {
+            this.in = in;
+            this.read = read;
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = in.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(long n) {
+            read[0] += n;
+            if (progress != null) {
+                progress.add(n);
+            }
+        }
+    }
+}
@@ -2,47 +2,108 @@ package com.amankrmj.capyverse.java.services;
 
 import com.amankrmj.capyverse.common.services.FetchService;
 
-import java.io.File;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import com.amankrmj.capyverse.java.model.JavaCatalog;
+
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import com.amankrmj.capyverse.common.utils.CapyConfig;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
 import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.common.utils.Metrics;
+import com.amankrmj.capyverse.common.utils.Platform;
 
 public class JavaVersionFetchService implements FetchService {
-    private final List<String> versionsInstalled = new ArrayList<>();
-    private final String userProfile = System.getenv("USERPROFILE");
-    private final File javaDir = new File(userProfile + "\\AppData\\Local\\capyverse\\lang\\java");
-    private final String url = "http://localhost:8080/javaversions/versions";
+    private final Set<String> versionsInstalled = new HashSet<>();
+    private InstalledJavaIndex installedIndex;
+    private static CatalogCache sharedCatalog;
+    private final CatalogCache catalogCache = sharedCatalog();
+    private final boolean offline;
+
+    public JavaVersionFetchService() {
+        this(false);
+    }
+
+    /**
+     * @param offline answer only from the cached catalog snapshot, never from the network
+     */
+    public JavaVersionFetchService(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * One catalog cache per process, so a {@code capy daemon} serves every command from
+     * the index it already holds in memory.
+     */
+    private static synchronized CatalogCache sharedCatalog() {
+        if (sharedCatalog == null) {
+            sharedCatalog = new CatalogCache(CapyPaths.resolve("cache", "java", "catalog.bin"),
+                    catalogSources(), CatalogCache.DEFAULT_TTL);
+        }
+        return sharedCatalog;
+    }
+
+    /**
+     * Loads the catalog and the installed index ahead of the first command, e.g. when a
+     * daemon starts.
+     */
+    public static void preload() {
+        sharedCatalog().catalog(false);
+        InstalledJavaIndex.forCurrentUser();
+    }
 
+    /**
+     * The upstream catalog, {@code java.catalog.url} in the config.
+     */
+    public static String upstreamCatalogUrl() {
+        return CapyConfig.get("java.catalog.url", "http://localhost:8080/javaversions/catalog");
+    }
+
+    /**
+     * Catalog sources in order of precedence: the LAN mirrors listed in
+     * {@code java.mirrors} (comma separated base URLs of {@code capy mirror serve}),
+     * asked for this platform's catalog within {@code java.mirror.deadline}; then the
+     * upstream catalog and any further URLs or JSON files listed in
+     * {@code java.catalog.sources}, within {@code java.catalog.deadline} (milliseconds).
+     */
+    public static List<CatalogCache.Source> catalogSources() {
+        Duration mirrorDeadline = Duration.ofMillis(CapyConfig.getLong("java.mirror.deadline", 1500));
+        Duration deadline = Duration.ofMillis(CapyConfig.getLong("java.catalog.deadline",
+                CatalogCache.DEFAULT_DEADLINE.toMillis()));
+        List<CatalogCache.Source> sources = new ArrayList<>();
+        for (String mirror : CapyConfig.get("java.mirrors", "").split(",")) {
+            String base = mirror.trim();
+            if (!base.isEmpty()) {
+                sources.add(new CatalogCache.Source(
+                        base.replaceAll("/+$", "") + "/javaversions/catalog/" + Platform.current(), mirrorDeadline));
+            }
+        }
+        sources.add(new CatalogCache.Source(upstreamCatalogUrl(), deadline));
+        for (String extra : CapyConfig.get("java.catalog.sources", "").split(",")) {
+            if (!extra.isBlank()) {
+                sources.add(new CatalogCache.Source(extra.trim(), deadline));
+            }
+        }
+        return sources;
+    }
 
     @Override
     public void fetchAvailableVersionsList() {
         populateInstalledVersions();
-        try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-                String[] versions = response.body().split(";");
-                for (String version : versions) {
-                    if (versionsInstalled.contains(version.trim())) {
-                        System.out.println(CliColor.GREEN + "\t\t" + version.trim() + " - installed" + CliColor.RESET);
-                    } else if (!version.trim().isEmpty()) {
-                        System.out.println(CliColor.BLUE + "\t\t" + version.trim() + CliColor.RESET);
-                    }
-                }
+        JavaCatalog catalog = catalog();
+        if (catalog == null) {
+            return;
+        }
+        for (JavaCatalog.Entry entry : catalog.newestFirst()) {
+            String version = entry.version().text();
+            if (versionsInstalled.contains(version)) {
+                System.out.println(CliColor.GREEN + "\t\t" + version + " - installed" + CliColor.RESET);
             } else {
-                System.err.println("Failed to fetch versions. Status: " + response.statusCode());
+                System.out.println(CliColor.BLUE + "\t\t" + version + CliColor.RESET);
             }
-        } catch (Exception e) {
-            System.err.println("Error fetching versions: " + e.getMessage());
         }
     }
 
@@ -52,57 +113,79 @@ public class JavaVersionFetchService implements FetchService {
             System.err.println("Version must not be empty.");
             return null;
         }
-        String endpoint = "http://localhost:8080/javaversions?version=" + version.trim();
-        try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint))
-                    .GET()
-                    .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-                String url = response.body().trim();
-                if (url.isEmpty()) {
-                    System.err.println("No download URL returned for version: " + version);
-                    return null;
-                }
-                return url;
-            } else {
-                System.err.println("Failed to fetch JDK URL. Status: " + response.statusCode());
-            }
-        } catch (Exception e) {
-            System.err.println("Error fetching JDK URL: " + e.getMessage());
+        JavaCatalog catalog = catalog();
+        if (catalog == null) {
+            return null;
+        }
+        JavaCatalog.Entry entry = catalog.find(version.trim());
+        if (entry == null) {
+            System.err.println("No download URL in the catalog for version: " + version);
+            return null;
+        }
+        return entry.url();
+    }
+
+    /**
+     * SHA-256 the catalog publishes for a version's archive, or null when it lists none.
+     */
+    public String getChecksum(String version) {
+        JavaCatalog catalog = catalog();
+        JavaCatalog.Entry entry = catalog == null ? null : catalog.find(version.trim());
+        return entry == null ? null : entry.sha256();
+    }
+
+    /**
+     * Newest catalog version of a release line, e.g. {@code 22} resolves to {@code 22.0.2}.
+     * Returns null when the catalog has no such line.
+     */
+    public String resolveLatestPatch(String releaseLine) {
+        if (catalog() == null) {
+            return null;
+        }
+        JavaCatalog.Entry entry = latestEntry(releaseLine);
+        if (entry == null) {
+            System.err.println("No versions of " + releaseLine + " in the catalog.");
+            return null;
+        }
+        return entry.version().text();
+    }
+
+    /**
+     * Newest catalog entry of a release line, or null without reporting when the catalog
+     * is unavailable or has no such line.
+     */
+    public JavaCatalog.Entry latestEntry(String releaseLine) {
+        JavaCatalog catalog = catalog();
+        return catalog == null ? null : catalog.latest(releaseLine.trim());
+    }
+
+    private JavaCatalog catalog() {
+        try (Metrics.Timer ignored = Metrics.global().time("catalog")) {
+            return catalogCache.catalog(offline);
         }
-        return null;
     }
 
     @Override
     public void populateInstalledVersions() {
         versionsInstalled.clear();
-        String userProfile = System.getenv("USERPROFILE");
-        File javaDir = new File(userProfile + "\\AppData\\Local\\capyverse\\lang\\java");
-        File[] folders = javaDir.listFiles(File::isDirectory);
-        if (folders != null && folders.length > 0) {
-            for (File folder : folders) {
-                String name = folder.getName();
-                int dashIdx = name.indexOf('-');
-                if (dashIdx != -1 && dashIdx < name.length() - 1) {
-                    String version = name.substring(dashIdx + 1);
-                    versionsInstalled.add(version.trim());
-                }
-            }
+        versionsInstalled.addAll(installedIndex().versions());
+    }
+
+    private InstalledJavaIndex installedIndex() {
+        if (installedIndex == null) {
+            installedIndex = InstalledJavaIndex.forCurrentUser();
         }
+        return installedIndex;
     }
 
     @Override
     public void listLocalVersions(String path) {
-        populateInstalledVersions();
-        if (versionsInstalled.size() > 0) {
+        List<InstalledJavaIndex.InstalledJdk> installed = installedIndex().all();
+        if (!installed.isEmpty()) {
             System.out.println("=== Locally Installed Java Versions ===");
-            String GREEN = "\u001B[32m";
-            String RESET = "\u001B[0m";
-            for (String version : versionsInstalled) {
-                System.out.println(GREEN + "\t\t" + version + RESET);
+            for (InstalledJavaIndex.InstalledJdk jdk : installed) {
+                System.out.println(CliColor.GREEN + "\t\t" + jdk.version() + CliColor.RESET
+                        + "  (" + jdk.vendor() + ", " + jdk.arch() + ")");
             }
         } else {
             System.out.println("No local Java versions found.");
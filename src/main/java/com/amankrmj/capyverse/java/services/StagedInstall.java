@@ -0,0 +1,87 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.FileTrees;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Builds a JDK folder out of sight and moves it into {@code lang\java} in one rename, so
+ * other processes see either no folder or a complete one. Staging happens in
+ * {@code lang\.staging}, next to the destination and so on the same volume, but outside
+ * it: creating and removing the staging folder inside {@code lang\java} would change the
+ * directory time the installed index is stamped with. Callers hold the version's install
+ * lock, which also makes it safe to clear what a crashed run left behind.
+ */
+public class StagedInstall implements AutoCloseable {
+    public static final String STAGING_DIR = ".staging";
+
+    private final Path installDir;
+    private final String folder;
+    private final Path directory;
+
+    /**
+     * @param folder name of the JDK folder, e.g. {@code jdk-21.0.2}
+     */
+    public StagedInstall(Path installDir, String folder) throws IOException {
+        this.installDir = installDir;
+        this.folder = folder;
+        this.directory = installDir.resolveSibling(STAGING_DIR).resolve(folder);
+        FileTrees.deleteTree(directory);
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Where the archive is extracted; its top-level folder lands below it.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Moves the staged JDK folder to {@code lang\java}. A folder already there, from an
+     * earlier install of the same version, is moved aside first and deleted afterwards.
+     */
+    public Path commit() throws IOException {
+        Path staged = directory.resolve(folder);
+        if (!Files.isDirectory(staged)) {
+            throw new IOException("Archive did not contain " + folder + "/");
+        }
+        Path home = installDir.resolve(folder);
+        Path previous = null;
+        if (Files.exists(home)) {
+            previous = directory.resolve(folder + ".old");
+            move(home, previous);
+        }
+        move(staged, home);
+        if (previous != null) {
+            FileTrees.deleteTree(previous);
+        }
+        return home;
+    }
+
+    /**
+     * Removes the staging folder, and with it a half-built JDK when not committed.
+     */
+    @Override
+    public void close() throws IOException {
+        FileTrees.deleteTree(directory);
+        try {
+            Files.deleteIfExists(directory.getParent());
+        } catch (DirectoryNotEmptyException e) {
+            // another version is being staged
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.amankrmj.capyverse.mirror;
+
+import com.amankrmj.capyverse.common.utils.LazySubcommands;
+import picocli.CommandLine.Command;
+
+import java.util.concurrent.Callable;
+
+@Command(name = "mirror",
+        description = "Share cached JDK archives with other machines on the LAN")
+public class MirrorCommand implements Callable<Integer>, LazySubcommands.Parent {
+
+    private static final LazySubcommands SUBCOMMANDS = new LazySubcommands()
+            .add("serve", "Serve the Java catalog and cached JDK archives over HTTP", () -> new MirrorServeCommand())
+            .add("manifest", "Write per-file checksum manifests next to JDK archives for delta upgrades", () -> new MirrorManifestCommand());
+
+    @Override
+    public LazySubcommands subcommands() {
+        return SUBCOMMANDS;
+    }
+
+    @Override
+    public Integer call() {
+        System.out.println("LAN Mirror - Use 'mirror --help' for options:");
+        System.out.println("  serve    - Serve the catalog and cached archives over HTTP");
+        System.out.println("  manifest - Write checksum manifests next to archives for delta upgrades");
+        return 0;
+    }
+}
@@ -0,0 +1,64 @@
+package com.amankrmj.capyverse.mirror;
+
+import com.amankrmj.capyverse.common.utils.ByteUnits;
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.java.services.DownloadCache;
+import com.amankrmj.capyverse.java.services.JavaUpgrader;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Writes the checksum manifests that enable delta upgrades next to JDK archives, for
+ * hosting them on a plain static file server. {@code capy mirror serve} writes them on
+ * demand and does not need this.
+ */
+@Command(name = "manifest", description = "Write per-file checksum manifests next to JDK archives for delta upgrades")
+public class MirrorManifestCommand implements Callable<Integer> {
+
+    @Parameters(arity = "0..*", description = "JDK zip archives (default: every complete archive in the download cache)")
+    private List<Path> archives = new ArrayList<>();
+
+    @Override
+    public Integer call() {
+        List<Path> targets = new ArrayList<>(archives);
+        if (targets.isEmpty()) {
+            DownloadCache cache = DownloadCache.forCurrentUser();
+            try {
+                for (DownloadCache.Archive archive : cache.list()) {
+                    if (archive.complete() && archive.name().endsWith(".zip")) {
+                        targets.add(cache.getDirectory().resolve(archive.name()));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("🔴 Could not list " + cache.getDirectory() + ": " + e.getMessage());
+                return 1;
+            }
+        }
+        if (targets.isEmpty()) {
+            System.out.println("No archives to index.");
+            return 0;
+        }
+        int failed = 0;
+        for (Path archive : targets) {
+            try {
+                if (!Files.isRegularFile(archive)) {
+                    throw new IOException("not a file");
+                }
+                Path manifest = JavaUpgrader.publishManifest(archive);
+                System.out.println(CliColor.GREEN + "\t\t" + archive.getFileName() + " -> " + manifest.getFileName()
+                        + " (" + ByteUnits.format(Files.size(archive)) + ")" + CliColor.RESET);
+            } catch (IOException e) {
+                failed++;
+                System.out.println(CliColor.RED + "\t\t" + archive + " - " + e.getMessage() + CliColor.RESET);
+            }
+        }
+        return failed == 0 ? 0 : 1;
+    }
+}
@@ -0,0 +1,52 @@
+package com.amankrmj.capyverse.mirror;
+
+import com.amankrmj.capyverse.common.utils.CliColor;
+import com.amankrmj.capyverse.java.services.JavaMirrorServer;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a LAN mirror in the foreground until interrupted. Other machines point
+ * {@code java.mirrors} at it and then download archives that are cached here from the
+ * mirror instead of the internet.
+ */
+@Command(name = "serve", description = "Serve the Java catalog and cached JDK archives over HTTP")
+public class MirrorServeCommand implements Callable<Integer> {
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @Option(names = {"--port"}, description = "Port to listen on (default: ${DEFAULT-VALUE})")
+    private int port = 8787;
+
+    @Option(names = {"--bind"}, description = "Address to listen on (default: ${DEFAULT-VALUE}, all interfaces)")
+    private String bind = "0.0.0.0";
+
+    @Option(names = {"--quiet"}, description = "Do not print a line per request")
+    private boolean quiet = false;
+
+    @Override
+    public Integer call() {
+        try (JavaMirrorServer server = JavaMirrorServer.forCurrentUser()) {
+            server.bind(new InetSocketAddress(bind, port));
+            if (!quiet) {
+                server.setAccessLog(line -> System.out.println(CLOCK.format(LocalTime.now()) + "  " + line));
+            }
+            System.out.println("📡 Capyverse mirror listening on " + bind + ":" + server.getPort());
+            System.out.println("\t\tArchives: " + server.getDownloadDir());
+            System.out.println("\t\tUpstream: " + server.getUpstreamCatalogUrl());
+            System.out.println(CliColor.BLUE + "On other machines set java.mirrors=http://<this-host>:" + server.getPort()
+                    + " (or CAPY_JAVA_MIRRORS) to use it." + CliColor.RESET);
+            System.out.println("Press Ctrl+C to stop.");
+            server.serve();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("🔴 Mirror failed: " + e.getMessage());
+            return 1;
+        }
+    }
+}
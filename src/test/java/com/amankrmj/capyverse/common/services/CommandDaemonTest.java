@@ -0,0 +1,125 @@
+package com.amankrmj.capyverse.common.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CommandDaemonTest {
+    @TempDir
+    Path dir;
+    private CommandDaemon daemon;
+    private Thread serving;
+
+    @BeforeEach
+    void start() throws IOException {
+        daemon = new CommandDaemon(dir.resolve("daemon.sock"), Duration.ZERO, null, args -> {
+            if (args[0].equals("flood")) {
+                String line = "x".repeat(1023);
+                for (int i = 0; i < 16 * 1024; i++) {
+                    System.out.println(line);
+                }
+            } else {
+                System.out.println("hello");
+            }
+            return 0;
+        });
+        daemon.bind();
+        serving = Thread.ofPlatform().daemon().start(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException ignored) {
+                // closed by the test
+            }
+        });
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        daemon.close();
+        serving.join(5000);
+    }
+
+    @Test
+    void aClientThatStopsReadingDoesNotBlockTheOthers() throws Exception {
+        try (SocketChannel stalled = run("flood", System.getenv())) {
+            // Give the flood time to fill the socket buffer
+            Thread.sleep(500);
+
+            Map<String, String> env = new HashMap<>(System.getenv());
+            // Exported by `capy env`; not a setting
+            env.put("CAPY_JAVA_BIN", dir.resolve("jdk/bin").toString());
+            try (SocketChannel client = run("hello", env)) {
+                CompletableFuture<String> output = CompletableFuture.supplyAsync(() -> readAll(client));
+                assertEquals("hello" + System.lineSeparator() + " -> 0", output.get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    void clientsWithOtherSettingsAreRefused() throws Exception {
+        Map<String, String> env = new HashMap<>(System.getenv());
+        env.put("CAPY_HTTP_READ_TIMEOUT", "1");
+        try (SocketChannel client = run("hello", env);
+             DataInputStream in = new DataInputStream(Channels.newInputStream(client))) {
+            assertEquals(CommandDaemon.REFUSED, in.readByte());
+        }
+    }
+
+    private SocketChannel run(String command, Map<String, String> env) throws IOException {
+        SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(daemon.getSocketFile()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        out.writeInt(CommandDaemon.MAGIC);
+        out.writeInt(CommandDaemon.PROTOCOL);
+        out.writeByte(CommandDaemon.RUN);
+        CommandDaemon.writeString(out, dir.toString());
+        out.writeBoolean(false);
+        out.writeInt(env.size());
+        for (Map.Entry<String, String> variable : env.entrySet()) {
+            CommandDaemon.writeString(out, variable.getKey());
+            CommandDaemon.writeString(out, variable.getValue());
+        }
+        out.writeInt(1);
+        CommandDaemon.writeString(out, command);
+        out.flush();
+        return channel;
+    }
+
+    /**
+     * The client's output followed by {@code " -> <exit code>"}.
+     */
+    private static String readAll(SocketChannel channel) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            while (true) {
+                byte kind = in.readByte();
+                if (kind == CommandDaemon.EXIT) {
+                    return output.toString(StandardCharsets.UTF_8) + " -> " + in.readInt();
+                }
+                output.write(in.readNBytes(in.readInt()));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.Sha256;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ContentStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void identicalFilesOfTwoTreesShareOneObject() throws IOException {
+        ContentStore store = new ContentStore(dir.resolve("store"));
+        Path first = extract(store, "a", Map.of(
+                "jdk/lib/modules", bytes("shared modules"),
+                "jdk/release", bytes("JAVA_VERSION=21.0.1")));
+        Path second = extract(store, "b", Map.of(
+                "jdk/lib/modules", bytes("shared modules"),
+                "jdk/release", bytes("JAVA_VERSION=21.0.2")));
+
+        assertEquals(fileKey(first.resolve("jdk/lib/modules")), fileKey(second.resolve("jdk/lib/modules")));
+        assertNotEquals(fileKey(first.resolve("jdk/release")), fileKey(second.resolve("jdk/release")));
+        assertEquals(3, store.listObjects().size());
+    }
+
+    @Test
+    void objectsAreReadOnlyAndKeptPerMode() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        ContentStore store = new ContentStore(dir.resolve("store"));
+        // Zips written by ZipOutputStream carry no Unix modes, so defaults apply by name
+        Path tree = extract(store, "a", Map.of(
+                "jdk/bin/java", bytes("same bytes"),
+                "jdk/lib/data", bytes("same bytes")));
+
+        assertEquals("r-xr-xr-x", permissions(tree.resolve("jdk/bin/java")));
+        assertEquals("r--r--r--", permissions(tree.resolve("jdk/lib/data")));
+        assertNotEquals(fileKey(tree.resolve("jdk/bin/java")), fileKey(tree.resolve("jdk/lib/data")));
+
+        String hash = Sha256.ofFile(tree.resolve("jdk/lib/data"));
+        assertEquals("r--r--r--", permissions(store.objectPath(hash)));
+        assertEquals("r-xr-xr-x", permissions(store.objectPath(hash, 0755)));
+        assertEquals(Map.of(hash, 2L * "same bytes".length()), store.listObjects());
+    }
+
+    @Test
+    void mutableFilesArePrivateCopies() throws IOException {
+        ContentStore store = new ContentStore(dir.resolve("store"));
+        Map<String, byte[]> entries = Map.of(
+                "jdk/lib/security/cacerts", bytes("trust store"),
+                "jdk/conf/net.properties", bytes("proxies"));
+        Path first = extract(store, "a", entries);
+        Path second = extract(store, "b", entries);
+
+        Path cacerts = first.resolve("jdk/lib/security/cacerts");
+        assertNotEquals(fileKey(cacerts), fileKey(second.resolve("jdk/lib/security/cacerts")));
+        assertNotEquals(fileKey(first.resolve("jdk/conf/net.properties")), fileKey(second.resolve("jdk/conf/net.properties")));
+        assertTrue(Files.isWritable(cacerts));
+
+        Files.writeString(cacerts, "imported certificate");
+        assertArrayEquals(bytes("trust store"), Files.readAllBytes(second.resolve("jdk/lib/security/cacerts")));
+    }
+
+    @Test
+    void damagedObjectIsReplacedBeforeReuse() throws IOException {
+        Path root = dir.resolve("store");
+        String hash = commit(new ContentStore(root), "original");
+        Path object = new ContentStore(root).objectPath(hash);
+        assertTrue(object.toFile().setWritable(true));
+        Files.writeString(object, "tampered");
+
+        ContentStore store = new ContentStore(root);
+        assertFalse(store.contains(hash));
+        assertEquals(hash, commit(store, "original"));
+        assertArrayEquals(bytes("original"), Files.readAllBytes(object));
+        assertTrue(store.contains(hash));
+    }
+
+    @Test
+    void withoutPosixPermissionsObjectsAndTheirLinksAreDosReadOnly() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("dos"));
+        Path root = dir.resolve("store");
+        ContentStore store = new ContentStore(root, false);
+        String hash = commit(store, "modules");
+        Path object = store.objectPath(hash);
+        assertEquals(object, store.objectPath(hash, 0755));
+        Path tree = Files.createDirectories(dir.resolve("tree"));
+
+        store.link(hash, tree.resolve("modules"), 0644);
+        store.copy(hash, tree.resolve("cacerts"), 0644);
+
+        assertTrue(readOnly(object));
+        assertTrue(readOnly(tree.resolve("modules")));
+        assertFalse(readOnly(tree.resolve("cacerts")));
+
+        // Deleting a tree on Windows clears the attribute its links share with the object
+        Files.setAttribute(tree.resolve("modules"), "dos:readonly", false);
+        assertTrue(new ContentStore(root, false).contains(hash));
+        assertTrue(readOnly(object));
+    }
+
+    private Path extract(ContentStore store, String name, Map<String, byte[]> entries) throws IOException {
+        Path archive = dir.resolve(name + ".zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (Map.Entry<String, byte[]> entry : new LinkedHashMap<>(entries).entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        Path target = dir.resolve(name);
+        ZipExtractor extractor = new ZipExtractor(archive, target);
+        extractor.setContentStore(store);
+        extractor.extract();
+        return target;
+    }
+
+    private static String commit(ContentStore store, String content) throws IOException {
+        ContentStore.Writer writer = store.newWriter();
+        writer.write(bytes(content), 0, content.length());
+        return writer.commit();
+    }
+
+    private static Object fileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    private static boolean readOnly(Path file) throws IOException {
+        return (Boolean) Files.getAttribute(file, "dos:readonly");
+    }
+
+    private static String permissions(Path file) throws IOException {
+        return PosixFilePermissions.toString(Files.getPosixFilePermissions(file));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
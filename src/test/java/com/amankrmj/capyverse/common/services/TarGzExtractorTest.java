@@ -0,0 +1,159 @@
+package com.amankrmj.capyverse.common.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TarGzExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresDirectoriesModesAndLinks() throws IOException {
+        Path archive = tarGz(new Tar()
+                .directory("jdk/", 0755)
+                .directory("jdk/bin/", 0755)
+                .file("jdk/bin/java", 0755, "launcher")
+                .file("jdk/lib/libjvm.so", 0644, "vm")
+                .symlink("jdk/lib/libjvm-link.so", "libjvm.so")
+                .symlink("jdk/java", "bin/java")
+                .hardLink("jdk/bin/javac", "jdk/bin/java"));
+        Path target = dir.resolve("out");
+        TarGzExtractor extractor = new TarGzExtractor(archive, target);
+
+        assertEquals(3, extractor.extract());
+
+        Path java = target.resolve("jdk/bin/java");
+        assertEquals("launcher", Files.readString(java));
+        assertEquals("vm", Files.readString(target.resolve("jdk/lib/libjvm.so")));
+        assertEquals(Path.of("libjvm.so"), Files.readSymbolicLink(target.resolve("jdk/lib/libjvm-link.so")));
+        assertEquals("launcher", Files.readString(target.resolve("jdk/java")));
+        assertEquals(fileKey(java), fileKey(target.resolve("jdk/bin/javac")));
+        assertEquals(3, extractor.getManifestItems().size());
+        assertTrue(extractor.getManifestItems().stream().anyMatch(item -> item.path().equals("jdk/bin/javac")));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rwxr-xr-x", PosixFilePermissions.toString(Files.getPosixFilePermissions(java)));
+            assertEquals("rw-r--r--", PosixFilePermissions.toString(
+                    Files.getPosixFilePermissions(target.resolve("jdk/lib/libjvm.so"))));
+        }
+    }
+
+    @Test
+    void rejectsEntryOutsideOfTheTarget() throws IOException {
+        Path archive = tarGz(new Tar().file("jdk/../../escaped", 0644, "x"));
+
+        assertThrows(IOException.class, () -> new TarGzExtractor(archive, dir.resolve("out")).extract());
+        assertFalse(Files.exists(dir.resolve("escaped")));
+    }
+
+    @Test
+    void rejectsSymlinkChainLeavingTheTarget() throws IOException {
+        // Each link stays inside lexically, but jdk/d/a/b resolves through jdk/d/a
+        Path archive = tarGz(new Tar()
+                .symlink("jdk/d/a", "..")
+                .symlink("jdk/d/a/b", "..")
+                .symlink("jdk/d/a/b/c", ".."));
+
+        IOException e = assertThrows(IOException.class, () -> new TarGzExtractor(archive, dir.resolve("out")).extract());
+        assertTrue(e.getMessage().startsWith("Blocked symlink"), e.getMessage());
+        assertFalse(Files.exists(dir.resolve("c"), LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    void rejectsSymlinkClimbingAfterAName() throws IOException {
+        Path archive = tarGz(new Tar()
+                .directory("jdk/lib/", 0755)
+                .symlink("jdk/up", "lib/../.."));
+
+        IOException e = assertThrows(IOException.class, () -> new TarGzExtractor(archive, dir.resolve("out")).extract());
+        assertTrue(e.getMessage().startsWith("Blocked symlink"), e.getMessage());
+    }
+
+    private static Object fileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    private Path tarGz(Tar tar) throws IOException {
+        Path archive = dir.resolve("test.tar.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            out.write(tar.finish());
+        }
+        return archive;
+    }
+
+    /**
+     * Minimal ustar writer for the entry types JDK archives use.
+     */
+    private static final class Tar {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Tar directory(String name, int mode) {
+            return entry(name, mode, '5', "", new byte[0]);
+        }
+
+        Tar file(String name, int mode, String content) {
+            return entry(name, mode, '0', "", content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Tar symlink(String name, String target) {
+            return entry(name, 0777, '2', target, new byte[0]);
+        }
+
+        Tar hardLink(String name, String target) {
+            return entry(name, 0644, '1', target, new byte[0]);
+        }
+
+        byte[] finish() {
+            out.writeBytes(new byte[1024]);
+            return out.toByteArray();
+        }
+
+        private Tar entry(String name, int mode, char type, String link, byte[] content) {
+            byte[] header = new byte[512];
+            put(header, 0, name);
+            put(header, 100, String.format("%07o", mode));
+            put(header, 108, "0000000");
+            put(header, 116, "0000000");
+            put(header, 124, String.format("%011o", content.length));
+            put(header, 136, "00000000000");
+            header[156] = (byte) type;
+            put(header, 157, link);
+            put(header, 257, "ustar");
+            put(header, 263, "00");
+            for (int i = 148; i < 156; i++) {
+                header[i] = ' ';
+            }
+            int checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xFF;
+            }
+            put(header, 148, String.format("%06o", checksum));
+            out.writeBytes(header);
+            out.writeBytes(content);
+            out.writeBytes(new byte[(512 - content.length % 512) % 512]);
+            return this;
+        }
+
+        private static void put(byte[] header, int offset, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, header, offset, bytes.length);
+        }
+    }
+}
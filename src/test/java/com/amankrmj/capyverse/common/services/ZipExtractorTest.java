@@ -0,0 +1,132 @@
+package com.amankrmj.capyverse.common.services;
+
+import com.amankrmj.capyverse.common.utils.Sha256;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void extractsEveryEntryInParallel() throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        for (int i = 0; i < 40; i++) {
+            files.put("jdk/lib/module-" + i + ".bin", ("module " + i + " ").repeat(100 + i * 50));
+        }
+        files.put("jdk/bin/java", "launcher");
+        files.put("jdk/release", "JAVA_VERSION=\"21.0.5\"");
+        Path archive = dir.resolve("jdk.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("jdk/"));
+            boolean store = false;
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                byte[] bytes = file.getValue().getBytes(StandardCharsets.UTF_8);
+                putEntry(zip, file.getKey(), bytes, store);
+                store = !store;
+            }
+        }
+        Path target = dir.resolve("out");
+        ZipExtractor extractor = new ZipExtractor(archive, target, 4);
+
+        assertEquals(files.size(), extractor.extract());
+
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            assertEquals(file.getValue(), Files.readString(target.resolve(file.getKey())));
+        }
+        Map<String, String> hashes = extractor.getManifestItems().stream()
+                .collect(Collectors.toMap(FileManifest.Item::path, FileManifest.Item::sha256));
+        assertEquals(files.keySet(), hashes.keySet());
+        assertEquals(Sha256.ofFile(target.resolve("jdk/bin/java")), hashes.get("jdk/bin/java"));
+        assertEquals(hashes, ZipExtractor.hashEntries(archive).stream()
+                .collect(Collectors.toMap(FileManifest.Item::path, FileManifest.Item::sha256)));
+    }
+
+    @Test
+    void rejectsACorruptStoredEntry() throws IOException {
+        Path archive = corrupt(true);
+
+        IOException e = assertThrows(IOException.class, () -> new ZipExtractor(archive, dir.resolve("out")).extract());
+        assertTrue(e.getMessage().startsWith("Checksum mismatch"), e.getMessage());
+        assertThrows(IOException.class, () -> ZipExtractor.hashEntries(archive));
+    }
+
+    @Test
+    void rejectsACorruptStoredEntryGoingIntoTheStore() throws IOException {
+        Path archive = corrupt(true);
+        ZipExtractor extractor = new ZipExtractor(archive, dir.resolve("out"));
+        extractor.setContentStore(new ContentStore(dir.resolve("store")));
+
+        IOException e = assertThrows(IOException.class, extractor::extract);
+        assertTrue(e.getMessage().startsWith("Checksum mismatch"), e.getMessage());
+    }
+
+    @Test
+    void rejectsACorruptDeflatedEntry() throws IOException {
+        Path archive = corrupt(false);
+
+        assertThrows(IOException.class, () -> new ZipExtractor(archive, dir.resolve("out")).extract());
+    }
+
+    @Test
+    void rejectsEntryOutsideOfTheTarget() throws IOException {
+        Path archive = dir.resolve("escape.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            putEntry(zip, "jdk/bin/java", "launcher".getBytes(StandardCharsets.UTF_8), false);
+            putEntry(zip, "jdk/../../escaped", "x".getBytes(StandardCharsets.UTF_8), false);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> new ZipExtractor(archive, dir.resolve("out")).extract());
+        assertTrue(e.getMessage().startsWith("Blocked archive entry"), e.getMessage());
+        assertFalse(Files.exists(dir.resolve("escaped")));
+    }
+
+    /**
+     * An archive with one entry whose data has a byte flipped after it was written.
+     */
+    private Path corrupt(boolean stored) throws IOException {
+        byte[] content = "0123456789abcdef".repeat(256).getBytes(StandardCharsets.UTF_8);
+        Path archive = dir.resolve(stored ? "stored.zip" : "deflated.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            putEntry(zip, "jdk/lib/modules", content, stored);
+        }
+        byte[] bytes = Files.readAllBytes(archive);
+        // The data follows the 30-byte local header, its name and its extra field
+        int data = 30 + (bytes[26] & 0xFF | (bytes[27] & 0xFF) << 8) + (bytes[28] & 0xFF | (bytes[29] & 0xFF) << 8);
+        bytes[data + 3] ^= 0x01;
+        Files.write(archive, bytes);
+        return archive;
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] bytes, boolean stored) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            entry.setCompressedSize(bytes.length);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+}
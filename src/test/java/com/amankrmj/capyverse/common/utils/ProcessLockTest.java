@@ -0,0 +1,80 @@
+package com.amankrmj.capyverse.common.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ProcessLockTest {
+    private static final Runnable MUST_NOT_WAIT = () -> fail("waited for the lock");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void theHolderMayTakeTheLockAgain() throws Exception {
+        Path lockFile = dir.resolve("locks").resolve("jdk-21.lock");
+        try (ProcessLock outer = ProcessLock.acquire(lockFile, Duration.ofSeconds(1), MUST_NOT_WAIT)) {
+            assertFalse(outer.waited());
+            try (ProcessLock inner = ProcessLock.acquire(lockFile, Duration.ofSeconds(1), MUST_NOT_WAIT)) {
+                assertFalse(inner.waited());
+            }
+            // Closing the inner lock keeps the outer one held
+            assertThrows(IOException.class, () -> inOtherThread(lockFile, Duration.ofMillis(100), () -> {
+            }));
+        }
+        assertFalse(inOtherThread(lockFile, Duration.ofSeconds(1), MUST_NOT_WAIT));
+    }
+
+    @Test
+    void anotherThreadWaitsUntilTheLockIsReleased() throws Exception {
+        Path lockFile = dir.resolve("jdk-21.lock");
+        CountDownLatch waiting = new CountDownLatch(1);
+        CompletableFuture<Boolean> waited;
+        try (ProcessLock ignored = ProcessLock.acquire(lockFile, Duration.ofSeconds(1), MUST_NOT_WAIT)) {
+            waited = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return inOtherThread(lockFile, Duration.ofSeconds(10), waiting::countDown);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(waiting.await(5, TimeUnit.SECONDS));
+            assertFalse(waited.isDone());
+        }
+        assertTrue(waited.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Takes and releases the lock on a new thread, returning whether it had to wait.
+     */
+    private static boolean inOtherThread(Path lockFile, Duration timeout, Runnable onWait) throws Exception {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try (ProcessLock lock = ProcessLock.acquire(lockFile, timeout, onWait)) {
+                result.complete(lock.waited());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.amankrmj.capyverse.java;
+
+import com.amankrmj.capyverse.common.services.ContentStore;
+import com.amankrmj.capyverse.common.services.FileManifest;
+import com.amankrmj.capyverse.java.services.CurrentJavaLink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StoreStatsCommandTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void savedBytesCountSharedContentOnceAndIgnoreTheCurrentLink() throws IOException {
+        ContentStore store = new ContentStore(dir.resolve("store"));
+        Path javaDir = dir.resolve("java");
+        // 100 shared bytes in both trees, 10 and 20 bytes of their own
+        Path first = tree(store, javaDir.resolve("21.0.1"), "x".repeat(100), "a".repeat(10));
+        tree(store, javaDir.resolve("21.0.2"), "x".repeat(100), "b".repeat(20));
+        // An object no tree references any more
+        store(store, "c".repeat(7));
+        Files.createSymbolicLink(javaDir.resolve(CurrentJavaLink.LINK_NAME), first);
+
+        StoreStatsCommand.Stats stats = StoreStatsCommand.collect(store, javaDir);
+
+        assertEquals(2, stats.trees());
+        assertEquals(4, stats.files());
+        assertEquals(230, stats.logicalBytes());
+        assertEquals(230, stats.linkedBytes());
+        assertEquals(4, stats.objects());
+        assertEquals(137, stats.storedBytes());
+        assertEquals(7, stats.unreferencedBytes());
+        assertEquals(230 - 130, stats.savedBytes());
+    }
+
+    @Test
+    void copiesSaveNothing() throws IOException {
+        ContentStore store = new ContentStore(dir.resolve("store"));
+        Path javaDir = dir.resolve("java");
+        tree(store, javaDir.resolve("21.0.1"), "x".repeat(100));
+        // Installed with --no-store: same content, plain files
+        Path plain = Files.createDirectories(javaDir.resolve("21.0.2"));
+        Files.writeString(plain.resolve("file0"), "x".repeat(100));
+        String hash = store(store, "x".repeat(100));
+        // A private copy of a file the tree may rewrite, such as cacerts
+        store.copy(hash, plain.resolve("file1"), 0644);
+        FileManifest.write(plain.resolve(FileManifest.FILE_NAME), List.of(
+                new FileManifest.Item(hash, 100, "file0"), new FileManifest.Item(hash, 100, "file1")));
+
+        StoreStatsCommand.Stats stats = StoreStatsCommand.collect(store, javaDir);
+
+        assertEquals(2, stats.trees());
+        assertEquals(300, stats.logicalBytes());
+        assertEquals(100, stats.linkedBytes());
+        assertEquals(0, stats.savedBytes());
+    }
+
+    private static Path tree(ContentStore store, Path home, String... files) throws IOException {
+        Files.createDirectories(home);
+        List<FileManifest.Item> items = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            String hash = store(store, files[i]);
+            store.link(hash, home.resolve("file" + i), 0644);
+            items.add(new FileManifest.Item(hash, files[i].length(), "file" + i));
+        }
+        FileManifest.write(home.resolve(FileManifest.FILE_NAME), items);
+        return home;
+    }
+
+    private static String store(ContentStore store, String content) throws IOException {
+        ContentStore.Writer writer = store.newWriter();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        writer.write(bytes, 0, bytes.length);
+        return writer.commit();
+    }
+}
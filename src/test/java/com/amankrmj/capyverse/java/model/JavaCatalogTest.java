@@ -0,0 +1,61 @@
+package com.amankrmj.capyverse.java.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaCatalogTest {
+
+    @Test
+    void qualifiedBuildsSortBelowTheReleaseAndOnlyEqualTextComparesEqual() {
+        JavaVersion ga = JavaVersion.parse("24");
+        JavaVersion ea = JavaVersion.parse("24-ea");
+        JavaVersion graal = JavaVersion.parse("24-graalvm");
+
+        assertTrue(ea.compareTo(ga) < 0);
+        assertTrue(graal.compareTo(ga) < 0);
+        assertTrue(ea.compareTo(graal) != 0);
+        assertTrue(JavaVersion.parse("23.0.2").compareTo(ea) < 0);
+        assertTrue(JavaVersion.parse("21.0").compareTo(JavaVersion.parse("21.00")) != 0);
+        assertEquals(0, JavaVersion.parse(" 24-ea ").compareTo(ea));
+        assertEquals("-ea", ea.qualifier());
+    }
+
+    @Test
+    void findMatchesTheExactBuild() {
+        JavaCatalog catalog = catalog("11", "11-graalvm", "24-ea");
+
+        assertEquals("http://x/11", catalog.find("11").url());
+        assertEquals("http://x/11-graalvm", catalog.find("11-graalvm").url());
+        assertNull(catalog.find("24"));
+        assertNull(catalog.find("11.0"));
+    }
+
+    @Test
+    void latestSkipsQualifiedBuildsUnlessAskedFor() {
+        JavaCatalog catalog = catalog("23.0.1", "23.0.2", "24-ea", "24.0.1-graalvm", "24", "25-ea", "25.0.1-ea");
+
+        assertEquals("24", catalog.latest("24").version().text());
+        assertEquals("23.0.2", catalog.latest("23").version().text());
+        assertNull(catalog.latest("25"));
+        assertEquals("25.0.1-ea", catalog.latest("25-ea").version().text());
+        assertEquals("24.0.1-graalvm", catalog.latest("24-graalvm").version().text());
+        assertNull(catalog.latest("22"));
+        assertEquals(List.of("25.0.1-ea", "25-ea", "24.0.1-graalvm", "24", "24-ea", "23.0.2", "23.0.1"),
+                catalog.newestFirst().stream().map(entry -> entry.version().text()).toList());
+    }
+
+    private static JavaCatalog catalog(String... versions) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String version : versions) {
+            urls.put(version, "http://x/" + version);
+        }
+        return new JavaCatalog(urls);
+    }
+}
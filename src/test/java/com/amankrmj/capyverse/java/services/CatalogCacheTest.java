@@ -0,0 +1,117 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.FileHttpServer;
+import com.amankrmj.capyverse.java.model.JavaCatalog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogCacheTest {
+    private static final long SLOW_MILLIS = 1500;
+
+    @TempDir
+    Path dir;
+    private FileHttpServer server;
+    private final AtomicInteger slowRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new FileHttpServer()
+                .route("/mirror", (request, response) -> response.bytes(
+                        catalog("21.0.2", "http://mirror/jdk-21.0.2.zip"), "application/json", "\"mirror\""))
+                .route("/slow", (request, response) -> {
+                    slowRequests.incrementAndGet();
+                    try {
+                        Thread.sleep(SLOW_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    response.bytes(catalog("21.0.3", "http://upstream/jdk-21.0.3.zip"), "application/json", "\"slow\"");
+                });
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException ignored) {
+                // closed by the test
+            }
+        });
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void answersWithTheFirstSourceAndMergesALateOneAfterwards() throws Exception {
+        CatalogCache cache = new CatalogCache(dir.resolve("catalog.bin"), List.of(
+                new CatalogCache.Source(url("/mirror"), Duration.ofSeconds(5)),
+                new CatalogCache.Source(url("/slow"), Duration.ofSeconds(5))), Duration.ofHours(1));
+
+        long start = System.nanoTime();
+        JavaCatalog first = cache.catalog(false);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < SLOW_MILLIS, "waited " + elapsedMillis + " ms for the slow source");
+        assertNotNull(first.find("21.0.2"));
+        assertNull(first.find("21.0.3"));
+
+        Thread.sleep(SLOW_MILLIS + 500);
+        JavaCatalog merged = cache.catalog(false);
+        assertNotNull(merged.find("21.0.2"));
+        assertEquals("http://upstream/jdk-21.0.3.zip", merged.find("21.0.3").url());
+        assertEquals(1, slowRequests.get());
+
+        // A new process reads both sources' entries from the snapshot without asking again
+        JavaCatalog reloaded = new CatalogCache(dir.resolve("catalog.bin"), List.of(
+                new CatalogCache.Source(url("/mirror"), Duration.ofSeconds(5)),
+                new CatalogCache.Source(url("/slow"), Duration.ofSeconds(5))), Duration.ofHours(1)).catalog(false);
+        assertNotNull(reloaded.find("21.0.3"));
+        assertEquals(1, slowRequests.get());
+    }
+
+    @Test
+    void aSlowPrimaryDoesNotHoldUpAFastMirror() throws Exception {
+        CatalogCache cache = new CatalogCache(dir.resolve("catalog.bin"), List.of(
+                new CatalogCache.Source(url("/slow"), Duration.ofSeconds(5)),
+                new CatalogCache.Source(url("/mirror"), Duration.ofSeconds(5))), Duration.ofHours(1));
+
+        long start = System.nanoTime();
+        JavaCatalog first = cache.catalog(false);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < SLOW_MILLIS, "waited " + elapsedMillis + " ms for the slow primary");
+        assertNotNull(first.find("21.0.2"));
+        assertNull(first.find("21.0.3"));
+
+        Thread.sleep(SLOW_MILLIS + 500);
+        JavaCatalog merged = cache.catalog(false);
+        assertNotNull(merged.find("21.0.2"));
+        assertNotNull(merged.find("21.0.3"));
+        assertEquals(1, slowRequests.get());
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getPort() + path;
+    }
+
+    private static byte[] catalog(String version, String url) {
+        return ("[{\"version\": \"" + version + "\", \"url\": \"" + url + "\"}]").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,67 @@
+package com.amankrmj.capyverse.java.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CurrentJavaLinkTest {
+    @TempDir
+    Path capyHome;
+
+    @Test
+    void switchingRePointsTheLinkAndLeavesTheJdksAlone() throws IOException {
+        Path javaDir = capyHome.resolve("lang").resolve("java");
+        Path jdk21 = install(javaDir, "jdk-21.0.5", "21.0.5");
+        Path jdk17 = install(javaDir, "jdk-17.0.9", "17.0.9");
+        CurrentJavaLink current = new CurrentJavaLink(javaDir, capyHome.resolve("cache").resolve("java"));
+        assertFalse(current.exists());
+        assertNull(current.target());
+
+        current.switchTo(jdk21);
+        assertTrue(current.pointsTo(jdk21));
+        assertFalse(current.pointsTo(jdk17));
+        assertEquals(jdk21.toRealPath(), current.target());
+        assertEquals("21.0.5", Files.readString(current.getLink().resolve("release")));
+
+        current.switchTo(jdk17);
+        assertTrue(current.pointsTo(jdk17));
+        assertFalse(current.pointsTo(jdk21));
+        assertEquals(jdk17.toRealPath(), current.target());
+        assertEquals("17.0.9", Files.readString(current.getLink().resolve("release")));
+
+        // The old JDK is still there and no staged link was left behind
+        assertEquals("21.0.5", Files.readString(jdk21.resolve("release")));
+        try (var names = Files.list(javaDir)) {
+            assertEquals(3, names.count());
+        }
+    }
+
+    @Test
+    void replacesALeftoverDirectoryAtTheLinkPath() throws IOException {
+        Path javaDir = capyHome.resolve("lang").resolve("java");
+        Path jdk21 = install(javaDir, "jdk-21.0.5", "21.0.5");
+        install(javaDir, CurrentJavaLink.LINK_NAME, "11.0.2");
+        CurrentJavaLink current = new CurrentJavaLink(javaDir, capyHome.resolve("cache").resolve("java"));
+
+        current.switchTo(jdk21);
+
+        assertTrue(Files.isSymbolicLink(current.getLink()));
+        assertTrue(current.pointsTo(jdk21));
+        assertEquals("21.0.5", Files.readString(current.getLink().resolve("release")));
+    }
+
+    private static Path install(Path javaDir, String folder, String release) throws IOException {
+        Path home = javaDir.resolve(folder);
+        Files.createDirectories(home.resolve("bin"));
+        Files.writeString(home.resolve("release"), release);
+        return home;
+    }
+}
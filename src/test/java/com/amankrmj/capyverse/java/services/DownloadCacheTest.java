@@ -0,0 +1,102 @@
+package com.amankrmj.capyverse.java.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadCacheTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void evictsTheLeastRecentlyUsedArchivesByTheirStateNotTheirFileTimes() throws IOException {
+        long now = System.currentTimeMillis();
+        // File times say the opposite of the recorded use, which is what counts
+        complete("jdk-21.0.5.zip", now - 3 * DAY, now - 30 * DAY);
+        complete("jdk-17.0.9.zip", now - 30 * DAY, now);
+        complete("jdk-11.0.2.zip", now - 10 * DAY, now - 10 * DAY);
+        Files.writeString(dir.resolve("jdk-17.0.9.zip" + JavaUpgrader.MANIFEST_SUFFIX), "manifest");
+        DownloadCache all = new DownloadCache(dir, Long.MAX_VALUE);
+        assertEquals(List.of("jdk-17.0.9.zip", "jdk-11.0.2.zip", "jdk-21.0.5.zip"), names(all.list()));
+        long total = all.list().stream().mapToLong(DownloadCache.Archive::bytes).sum();
+
+        DownloadCache.Eviction eviction = new DownloadCache(dir, total - 1).enforceBudget(Set.of());
+
+        assertEquals(List.of("jdk-17.0.9.zip"), names(eviction.evicted()));
+        assertEquals(total - eviction.freedBytes(), eviction.remainingBytes());
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith("jdk-17.0.9.zip")));
+        }
+        assertEquals(List.of("jdk-11.0.2.zip", "jdk-21.0.5.zip"), names(all.list()));
+    }
+
+    @Test
+    void neverEvictsArchivesToKeep() throws IOException {
+        long now = System.currentTimeMillis();
+        complete("jdk-21.0.5.zip", now - 3 * DAY, now);
+        complete("jdk-17.0.9.zip", now - 30 * DAY, now);
+        complete("jdk-11.0.2.zip", now - 10 * DAY, now);
+
+        DownloadCache.Eviction eviction = new DownloadCache(dir, 0).enforceBudget(Set.of("jdk-17.0.9.zip"));
+
+        assertEquals(List.of("jdk-11.0.2.zip", "jdk-21.0.5.zip"), names(eviction.evicted()));
+        assertEquals(List.of("jdk-17.0.9.zip"), names(new DownloadCache(dir, 0).list()));
+        assertTrue(new DownloadCache(dir, 0).contains("jdk-17.0.9.zip"));
+    }
+
+    @Test
+    void leavesPartialDownloadsTouchedWithinADay() throws IOException {
+        long now = System.currentTimeMillis();
+        partial("jdk-21.0.5.zip", now - TimeUnit.HOURS.toMillis(1));
+        partial("jdk-17.0.9.zip", now - 2 * DAY);
+        // No state yet: the file time of the part file stands in for the last use
+        Files.write(dir.resolve("jdk-11.0.2.zip.part"), new byte[1000]);
+        complete("jdk-22.0.1.zip", now - 5 * DAY, now);
+
+        DownloadCache.Eviction eviction = new DownloadCache(dir, 0).enforceBudget(Set.of());
+
+        assertEquals(List.of("jdk-22.0.1.zip", "jdk-17.0.9.zip"), names(eviction.evicted()));
+        assertTrue(Files.exists(dir.resolve("jdk-21.0.5.zip.part")));
+        assertTrue(Files.exists(dir.resolve("jdk-11.0.2.zip.part")));
+        assertFalse(Files.exists(dir.resolve("jdk-17.0.9.zip.part")));
+        assertEquals(eviction.remainingBytes(), new DownloadCache(dir, 0).list().stream()
+                .mapToLong(DownloadCache.Archive::bytes).sum());
+    }
+
+    private void complete(String name, long lastUsed, long modified) throws IOException {
+        Path archive = dir.resolve(name);
+        Files.write(archive, new byte[1000]);
+        DownloadState state = new DownloadState("https://example.com/" + name);
+        state.setComplete(true);
+        state.setLastUsed(lastUsed);
+        state.save(dir.resolve(name + ".state"));
+        Files.setLastModifiedTime(archive, FileTime.fromMillis(modified));
+        Files.setLastModifiedTime(dir.resolve(name + ".state"), FileTime.fromMillis(modified));
+    }
+
+    private void partial(String name, long lastUsed) throws IOException {
+        Path part = dir.resolve(name + ".part");
+        Files.write(part, new byte[1000]);
+        DownloadState state = new DownloadState("https://example.com/" + name);
+        state.setLastUsed(lastUsed);
+        state.save(dir.resolve(name + ".state"));
+        Files.setLastModifiedTime(part, FileTime.fromMillis(lastUsed));
+    }
+
+    private static List<String> names(List<DownloadCache.Archive> archives) {
+        return archives.stream().map(DownloadCache.Archive::name).toList();
+    }
+}
@@ -0,0 +1,122 @@
+package com.amankrmj.capyverse.java.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstalledJavaIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void rebuildsFromTheFoldersAndReadsReleaseFiles() throws IOException {
+        Path javaDir = dir.resolve("java");
+        install(javaDir, "jdk-21.0.2");
+        install(javaDir, "jdk-21.0.5");
+        install(javaDir, "jdk-17.0.9");
+
+        InstalledJavaIndex index = new InstalledJavaIndex(javaDir, dir.resolve("installed.idx"));
+        index.load();
+
+        assertEquals(List.of("17.0.9", "21.0.2", "21.0.5"), index.all().stream().map(InstalledJavaIndex.InstalledJdk::version).toList());
+        assertEquals("21.0.5", index.resolve("21").version());
+        assertEquals("21.0.2", index.resolve("21.0.2").version());
+        assertNull(index.resolve("11"));
+        assertEquals("Eclipse Adoptium", index.get("17.0.9").vendor());
+        assertEquals("x86_64", index.get("17.0.9").arch());
+    }
+
+    @Test
+    void trustsTheStoredIndexWhileTheInstallDirectoryIsUnchanged() throws IOException {
+        Path javaDir = dir.resolve("java");
+        Path indexFile = dir.resolve("installed.idx");
+        install(javaDir, "jdk-21.0.2");
+        new InstalledJavaIndex(javaDir, indexFile).load();
+
+        // A folder the index does not know, with the directory time put back as it was
+        FileTime stamp = Files.getLastModifiedTime(javaDir);
+        install(javaDir, "jdk-22.0.1");
+        Files.setLastModifiedTime(javaDir, stamp);
+        InstalledJavaIndex index = new InstalledJavaIndex(javaDir, indexFile);
+        index.load();
+
+        assertTrue(index.contains("21.0.2"));
+        assertFalse(index.contains("22.0.1"));
+    }
+
+    @Test
+    void rebuildsWhenAFolderIsAddedOrRemoved() throws IOException {
+        Path javaDir = dir.resolve("java");
+        Path indexFile = dir.resolve("installed.idx");
+        install(javaDir, "jdk-21.0.2");
+        new InstalledJavaIndex(javaDir, indexFile).load();
+
+        install(javaDir, "jdk-22.0.1");
+        touch(javaDir, 1);
+        InstalledJavaIndex index = new InstalledJavaIndex(javaDir, indexFile);
+        index.load();
+        assertTrue(index.contains("22.0.1"));
+
+        deleteTree(javaDir.resolve("jdk-21.0.2"));
+        touch(javaDir, 2);
+        index = new InstalledJavaIndex(javaDir, indexFile);
+        index.load();
+        assertEquals(List.of("22.0.1"), index.versions().stream().toList());
+    }
+
+    @Test
+    void seesEntriesRecordedByAnotherInstance() throws IOException {
+        Path javaDir = dir.resolve("java");
+        Path indexFile = dir.resolve("installed.idx");
+        install(javaDir, "jdk-21.0.2");
+        InstalledJavaIndex writer = new InstalledJavaIndex(javaDir, indexFile);
+        writer.load();
+        // Warm the in-memory copy of the index
+        new InstalledJavaIndex(javaDir, indexFile).load();
+
+        writer.record("21.0.2-extra", javaDir.resolve("jdk-21.0.2"));
+        InstalledJavaIndex reader = new InstalledJavaIndex(javaDir, indexFile);
+        reader.load();
+        assertTrue(reader.contains("21.0.2-extra"));
+
+        writer.remove("21.0.2-extra");
+        reader = new InstalledJavaIndex(javaDir, indexFile);
+        reader.load();
+        assertFalse(reader.contains("21.0.2-extra"));
+    }
+
+    static Path install(Path javaDir, String folder) throws IOException {
+        Path home = Files.createDirectories(javaDir.resolve(folder));
+        Files.writeString(home.resolve("release"),
+                "IMPLEMENTOR=\"Eclipse Adoptium\"\nOS_ARCH=\"x86_64\"\nJAVA_VERSION=\"" + folder.substring(4) + "\"\n");
+        return home;
+    }
+
+    /**
+     * Moves the modification time forward, as file systems with a coarse clock may not.
+     */
+    static void touch(Path path, int seconds) throws IOException {
+        FileTime now = Files.getLastModifiedTime(path);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(now.toMillis() + seconds * 1000L));
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.FileHttpServer;
+import com.amankrmj.capyverse.common.utils.Sha256;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaDownloadServiceTest {
+    private static final int SIZE = 3 * 1024 * 1024 + 12345;
+
+    @TempDir
+    Path dir;
+    private FileHttpServer server;
+    private Path archive;
+    private Path changed;
+    private final AtomicBoolean changeAfterProbe = new AtomicBoolean();
+    /**
+     * Method and Range header of every request, e.g. {@code GET bytes=0-1023}.
+     */
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private final Queue<String> upgradedSegments = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        archive = dir.resolve("served.zip");
+        Files.write(archive, random(SIZE, 1));
+        changed = dir.resolve("changed.zip");
+        Files.write(changed, random(SIZE, 2));
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(Files.getLastModifiedTime(archive).toMillis() + 60_000));
+        server = new FileHttpServer()
+                .route("/ranges", (request, response) -> {
+                    requests.add(request.method() + " " + request.header("range"));
+                    if (request.header("range") != null && request.header("upgrade") != null) {
+                        upgradedSegments.add(request.header("upgrade"));
+                    }
+                    boolean changeNow = request.method().equals("GET") && changeAfterProbe.get();
+                    response.file(changeNow ? changed : archive, "application/zip");
+                })
+                .route("/plain", (request, response) -> {
+                    requests.add(request.method() + " " + request.header("range"));
+                    response.bytes(Files.readAllBytes(archive), "application/zip", "\"plain\"");
+                });
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException ignored) {
+                // closed by the test
+            }
+        });
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void downloadsInParallelRangesWhenTheServerSupportsThem() throws Exception {
+        JavaDownloadService service = service("/ranges");
+
+        service.download();
+
+        assertArrayEquals(Files.readAllBytes(archive), Files.readAllBytes(target()));
+        assertEquals(Sha256.ofFile(archive), service.getArchiveSha256());
+        List<String> gets = requests.stream().filter(line -> line.startsWith("GET")).toList();
+        assertTrue(gets.size() >= 3, "requests: " + gets);
+        assertTrue(gets.stream().allMatch(line -> line.startsWith("GET bytes=")), "requests: " + gets);
+        // Segments stay on HTTP/1.1 so each gets its own connection
+        assertTrue(upgradedSegments.isEmpty(), "upgrade offered: " + upgradedSegments);
+    }
+
+    @Test
+    void fallsBackToOneStreamWithoutRangeSupport() throws Exception {
+        JavaDownloadService service = service("/plain");
+
+        service.download();
+
+        assertArrayEquals(Files.readAllBytes(archive), Files.readAllBytes(target()));
+        assertEquals(Sha256.ofFile(archive), service.getArchiveSha256());
+        assertEquals(List.of("GET null"), requests.stream().filter(line -> line.startsWith("GET")).toList());
+    }
+
+    @Test
+    void startsOverWhenIfRangeNoLongerMatches() throws Exception {
+        changeAfterProbe.set(true);
+
+        // The archive changes between the probe and the range requests
+        IOException e = assertThrows(IOException.class, () -> service("/ranges").download());
+        assertTrue(e.getMessage().startsWith("Remote archive changed"), e.getMessage());
+        assertFalse(Files.exists(target()));
+
+        Files.copy(changed, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        changeAfterProbe.set(false);
+        JavaDownloadService retry = service("/ranges");
+        retry.download();
+        assertArrayEquals(Files.readAllBytes(changed), Files.readAllBytes(target()));
+        assertEquals(Sha256.ofFile(changed), retry.getArchiveSha256());
+    }
+
+    @Test
+    void resumesFromThePersistedState() throws Exception {
+        String url = url("/ranges");
+        int half = SIZE / 2;
+        byte[] content = Files.readAllBytes(archive);
+        byte[] part = new byte[SIZE];
+        System.arraycopy(content, 0, part, 0, half);
+        Files.write(Path.of(target() + ".part"), part);
+        HttpResponse<Void> head = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url)).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+        DownloadState state = new DownloadState(url);
+        state.reset(SIZE, head.headers().firstValue("ETag").orElseThrow(),
+                head.headers().firstValue("Last-Modified").orElseThrow());
+        state.markCompleted(0, half - 1);
+        state.save(Path.of(target() + ".state"));
+        requests.clear();
+
+        JavaDownloadService service = service("/ranges");
+        service.download();
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals(Sha256.ofFile(archive), service.getArchiveSha256());
+        long fetched = 0;
+        for (String request : requests) {
+            if (request.startsWith("GET ")) {
+                String[] range = request.substring("GET bytes=".length()).split("-");
+                assertTrue(Long.parseLong(range[0]) >= half, "re-fetched " + request);
+                fetched += Long.parseLong(range[1]) - Long.parseLong(range[0]) + 1;
+            }
+        }
+        assertEquals(SIZE - half, fetched);
+        assertTrue(DownloadState.load(Path.of(target() + ".state")).isComplete());
+    }
+
+    private JavaDownloadService service(String path) {
+        return new JavaDownloadService(url(path), dir.toString(), dir.resolve("install").toString(), "jdk.zip", 4);
+    }
+
+    private Path target() {
+        return dir.resolve("jdk.zip");
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getPort() + path;
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,129 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.utils.Invocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaEnvResolverTest {
+    @TempDir
+    Path dir;
+    private Path javaDir;
+    private Path project;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        javaDir = dir.resolve("java");
+        InstalledJavaIndexTest.install(javaDir, "jdk-17.0.9");
+        InstalledJavaIndexTest.install(javaDir, "jdk-21.0.2");
+        project = Files.createDirectories(dir.resolve("work/project/src/main"));
+    }
+
+    @Test
+    void readsEachPinFileFormat() throws IOException {
+        Path pin = dir.resolve("pin");
+        Files.createDirectories(pin);
+        assertEquals("21.0.2", readPin(pin, ".java-version", "temurin-21.0.2\n"));
+        assertEquals("21.0.2", readPin(pin, ".java-version", "21.0.2-tem\n"));
+        assertEquals("17", readPin(pin, ".tool-versions", "# tools\nnodejs 20.1.0\njava 17 \n"));
+        assertEquals("21.0.2", readPin(pin, ".sdkmanrc", "java=21.0.2-tem\n"));
+        assertNull(readPin(pin, ".tool-versions", "nodejs 20.1.0\n"));
+    }
+
+    @Test
+    void resolvesTheNearestPinToAnInstalledJdk() throws IOException {
+        Files.writeString(dir.resolve("work/.java-version"), "17\n");
+        Path pin = Files.writeString(dir.resolve("work/project/.sdkmanrc"), "java=21-tem\n");
+
+        JavaEnvResolver.Resolution resolution = resolver().resolve(project);
+
+        assertEquals(pin, resolution.pinFile());
+        assertEquals("21", resolution.requested());
+        assertEquals(javaDir.resolve("jdk-21.0.2").toAbsolutePath(), resolution.jdkHome());
+    }
+
+    @Test
+    void seesPinFilesChangeBetweenLookups() throws IOException {
+        JavaEnvResolver resolver = resolver();
+        Path work = dir.resolve("work");
+        assertNull(resolver.resolve(project));
+
+        Path pin = Files.writeString(work.resolve(".java-version"), "17\n");
+        InstalledJavaIndexTest.touch(work, 1);
+        assertEquals(javaDir.resolve("jdk-17.0.9").toAbsolutePath(), resolver.resolve(project).jdkHome());
+
+        Files.writeString(pin, "22\n");
+        InstalledJavaIndexTest.touch(pin, 1);
+        JavaEnvResolver.Resolution missing = resolver.resolve(project);
+        assertEquals("22", missing.requested());
+        assertNull(missing.jdkHome());
+
+        Files.delete(pin);
+        InstalledJavaIndexTest.touch(work, 2);
+        assertNull(resolver.resolve(project));
+    }
+
+    @Test
+    void picksUpAJdkInstalledAfterTheFirstLookup() throws IOException {
+        Files.writeString(dir.resolve("work/.java-version"), "22\n");
+        assertNull(resolver().resolve(project).jdkHome());
+
+        InstalledJavaIndexTest.install(javaDir, "jdk-22.0.1");
+        InstalledJavaIndexTest.touch(javaDir, 1);
+
+        // A new resolver reads the cached answer from disk and finds it stale
+        assertEquals(javaDir.resolve("jdk-22.0.1").toAbsolutePath(), resolver().resolve(project).jdkHome());
+    }
+
+    @Test
+    void activationReplacesThePreviousJdkAndDeactivationRestoresJavaHome() throws Exception {
+        Path jdk17 = javaDir.resolve("jdk-17.0.9");
+        Path jdk21 = javaDir.resolve("jdk-21.0.2");
+        String bin17 = jdk17.resolve("bin").toString();
+        String bin21 = jdk21.resolve("bin").toString();
+        Map<String, String> env = Map.of("PATH", "/usr/bin", "JAVA_HOME", "/opt/system-jdk");
+
+        String first = run(env, () -> JavaEnvResolver.activate("bash", jdk17).render());
+        assertTrue(first.contains(JavaEnvResolver.PREVIOUS_HOME_VAR), first);
+        assertTrue(first.contains(bin17 + ":/usr/bin"), first);
+
+        Map<String, String> active = Map.of("PATH", bin17 + ":/usr/bin", "JAVA_HOME", jdk17.toString(),
+                JavaEnvResolver.ACTIVE_BIN_VAR, bin17, JavaEnvResolver.PREVIOUS_HOME_VAR, "/opt/system-jdk");
+        String second = run(active, () -> JavaEnvResolver.activate("bash", jdk21).render());
+        assertTrue(second.contains(bin21 + ":/usr/bin"), second);
+        assertFalse(second.contains(bin17), second);
+        assertFalse(second.contains(JavaEnvResolver.PREVIOUS_HOME_VAR), second);
+
+        String undo = run(active, () -> JavaEnvResolver.deactivate("bash").render());
+        assertTrue(undo.contains("/opt/system-jdk"), undo);
+        assertFalse(undo.contains(bin17 + ":"), undo);
+        assertEquals("", run(env, () -> JavaEnvResolver.deactivate("bash").render()));
+    }
+
+    private JavaEnvResolver resolver() {
+        return new JavaEnvResolver(dir.resolve("env.cache"), javaDir, dir.resolve("installed.idx"));
+    }
+
+    private String run(Map<String, String> env, Callable<String> action) throws Exception {
+        return new Invocation(dir, env, false).call(action);
+    }
+
+    private static String readPin(Path dir, String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.writeString(file, content);
+        String pinned = JavaEnvResolver.readPin(file);
+        Files.delete(file);
+        return pinned;
+    }
+}
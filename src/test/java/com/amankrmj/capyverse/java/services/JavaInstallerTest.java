@@ -0,0 +1,245 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.FileHttpServer;
+import com.amankrmj.capyverse.common.utils.CapyPaths;
+import com.amankrmj.capyverse.common.utils.FileTrees;
+import com.amankrmj.capyverse.common.utils.ProcessLock;
+import com.amankrmj.capyverse.common.utils.ProgressRenderer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs real installs against a local server. JDKs land in the test capy home, so every
+ * test uses versions of its own and removes them afterwards.
+ */
+class JavaInstallerTest {
+    private static final AtomicInteger NEXT_VERSION = new AtomicInteger();
+
+    @TempDir
+    Path dir;
+    private FileHttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger gets = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<String> versions = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new FileHttpServer()
+                .route("/jdk-", (request, response) -> {
+                    Path archive = dir.resolve(request.path().substring(1));
+                    if (!request.method().equals("GET")) {
+                        response.file(archive, "application/zip");
+                        return;
+                    }
+                    gets.incrementAndGet();
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        if (!release.await(30, TimeUnit.SECONDS)) {
+                            throw new IOException("Test never released the download");
+                        }
+                        response.file(archive, "application/zip");
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException ignored) {
+                // closed by the test
+            }
+        });
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        release.countDown();
+        server.close();
+        InstalledJavaIndex index = InstalledJavaIndex.forCurrentUser();
+        index.load();
+        CurrentJavaLink current = CurrentJavaLink.forCurrentUser();
+        Path downloads = CapyPaths.resolve("cache", "java", "downloads");
+        for (String version : versions) {
+            Path home = InstalledJavaIndex.defaultJavaDir().resolve("jdk-" + version);
+            if (current.pointsTo(home)) {
+                Files.delete(current.getLink());
+            }
+            FileTrees.deleteTree(home);
+            index.remove(version);
+            try (Stream<Path> files = Files.list(downloads)) {
+                for (Path file : files.filter(f -> f.getFileName().toString().startsWith("jdk-" + version + ".")).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    void aSecondInstallOfTheSameVersionWaitsAndReusesTheFirst() throws Exception {
+        String version = newVersion();
+        JavaInstaller installer = new JavaInstaller(1, false, false, false, 2, 2);
+        ByteArrayOutputStream firstLog = new ByteArrayOutputStream();
+        ByteArrayOutputStream secondLog = new ByteArrayOutputStream();
+        JavaInstaller.Job first = job(version, firstLog);
+        JavaInstaller.Job second = job(version, secondLog);
+
+        Thread firstThread = start(installer, first);
+        await(() -> gets.get() == 1);
+        Thread secondThread = start(installer, second);
+        await(() -> secondLog.toString(StandardCharsets.UTF_8).contains("Waiting for another install of " + version));
+        release.countDown();
+        firstThread.join();
+        secondThread.join();
+
+        assertEquals(JavaInstaller.Phase.DONE, first.getPhase(), first.getError());
+        assertEquals(JavaInstaller.Phase.DONE, second.getPhase(), second.getError());
+        assertTrue(secondLog.toString(StandardCharsets.UTF_8).contains(version + " was just installed by another process"));
+        assertEquals(1, gets.get());
+        InstalledJavaIndex index = InstalledJavaIndex.forCurrentUser();
+        index.load();
+        assertTrue(index.contains(version));
+        assertEquals(version, Files.readString(index.get(version).path().resolve("release")));
+    }
+
+    @Test
+    void installsInsideTheVersionLockWithoutWaitingOnItself() throws Exception {
+        String version = newVersion();
+        JavaInstaller installer = new JavaInstaller(1, false, false, false, 1, 1);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        JavaInstaller.Job job = job(version, log);
+        release.countDown();
+
+        // As an upgrade does: the version lock is already held when the full install starts
+        try (ProcessLock lock = JavaInstaller.lockVersion(version, message -> fail("waited: " + message))) {
+            assertFalse(lock.waited());
+            installer.install(job);
+        }
+
+        assertEquals(JavaInstaller.Phase.DONE, job.getPhase(), job.getError());
+        assertFalse(log.toString(StandardCharsets.UTF_8).contains("Waiting"));
+        assertTrue(Files.isDirectory(InstalledJavaIndex.defaultJavaDir().resolve("jdk-" + version)));
+    }
+
+    @Test
+    void downloadPermitsBoundConcurrentDownloads() throws Exception {
+        JavaInstaller installer = new JavaInstaller(1, false, false, false, 2, 1);
+        List<JavaInstaller.Job> jobs = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            JavaInstaller.Job job = job(newVersion(), OutputStream.nullOutputStream());
+            jobs.add(job);
+            threads.add(start(installer, job));
+        }
+
+        await(() -> gets.get() == 2);
+        Thread.sleep(300);
+        assertEquals(2, gets.get());
+        assertEquals(2, jobs.stream().filter(job -> job.getPhase() == JavaInstaller.Phase.QUEUED).count());
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(2, maxInFlight.get());
+        for (JavaInstaller.Job job : jobs) {
+            assertEquals(JavaInstaller.Phase.DONE, job.getPhase(), job.getError());
+        }
+    }
+
+    @Test
+    void streamingInstallsAlsoWaitForADiskPermit() throws Exception {
+        JavaInstaller installer = new JavaInstaller(1, true, false, false, 2, 1);
+        List<JavaInstaller.Job> jobs = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            JavaInstaller.Job job = job(newVersion(), OutputStream.nullOutputStream());
+            jobs.add(job);
+            threads.add(start(installer, job));
+        }
+
+        // Both hold a download permit, but only the one with the disk permit is fetching
+        await(() -> jobs.stream().allMatch(job -> job.getPhase() == JavaInstaller.Phase.DOWNLOADING) && gets.get() == 1);
+        Thread.sleep(300);
+        assertEquals(1, gets.get());
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, maxInFlight.get());
+        for (JavaInstaller.Job job : jobs) {
+            assertEquals(JavaInstaller.Phase.DONE, job.getPhase(), job.getError());
+        }
+    }
+
+    private String newVersion() throws IOException {
+        String version = "0." + ProcessHandle.current().pid() + "." + NEXT_VERSION.incrementAndGet();
+        versions.add(version);
+        Path archive = dir.resolve("jdk-" + version + ".zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("jdk-" + version + "/release"));
+            zip.write(version.getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("jdk-" + version + "/bin/java"));
+            zip.write(new byte[4096]);
+        }
+        return version;
+    }
+
+    private JavaInstaller.Job job(String version, OutputStream log) {
+        ProgressRenderer renderer = new ProgressRenderer(new PrintStream(log, true, StandardCharsets.UTF_8), false, 0);
+        String url = "http://127.0.0.1:" + server.getPort() + "/jdk-" + version + ".zip";
+        return new JavaInstaller.Job(version, url, null, renderer.addTask(version));
+    }
+
+    private static Thread start(JavaInstaller installer, JavaInstaller.Job job) {
+        return Thread.ofVirtual().start(() -> {
+            try {
+                installer.install(job);
+            } catch (IOException | InterruptedException ignored) {
+                // recorded on the job
+            }
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not reached in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.FileHttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaMirrorServerTest {
+    private static final String UPSTREAM_CATALOG = "["
+            + "{\"version\":\"21.0.2\",\"url\":\"http://upstream/x64/jdk-21.0.2.zip\",\"os\":\"linux\",\"arch\":\"x64\"},"
+            + "{\"version\":\"21.0.2\",\"url\":\"http://upstream/aarch64/jdk-21.0.2.zip\",\"os\":\"linux\",\"arch\":\"aarch64\"}"
+            + "]";
+
+    @TempDir
+    Path dir;
+    private FileHttpServer upstream;
+    private JavaMirrorServer mirror;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private byte[] archive;
+
+    @BeforeEach
+    void start() throws IOException {
+        upstream = new FileHttpServer().route("/catalog", (request, response) -> response.bytes(
+                UPSTREAM_CATALOG.getBytes(StandardCharsets.UTF_8), "application/json", "\"upstream\""));
+        serve(upstream);
+
+        Path downloads = Files.createDirectories(dir.resolve("downloads"));
+        archive = "not really a zip".getBytes(StandardCharsets.UTF_8);
+        Files.write(downloads.resolve("jdk-21.0.2.zip"), archive);
+        DownloadState state = new DownloadState("http://upstream/x64/jdk-21.0.2.zip");
+        state.reset(archive.length, "\"a\"", null);
+        state.markCompleted(0, archive.length - 1);
+        state.setPlatform("linux-x64");
+        state.setComplete(true);
+        state.save(downloads.resolve("jdk-21.0.2.zip.state"));
+
+        mirror = new JavaMirrorServer(downloads, dir, "http://127.0.0.1:" + upstream.getPort() + "/catalog");
+        mirror.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                mirror.serve();
+            } catch (IOException ignored) {
+                // closed by the test
+            }
+        });
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        mirror.close();
+        upstream.close();
+    }
+
+    @Test
+    void pointsOnlyTheMatchingPlatformAtTheCachedArchive() throws Exception {
+        String x64 = get("/javaversions/catalog/linux-x64").body();
+        assertTrue(x64.contains("/javaversions/files/linux-x64/jdk-21.0.2.zip"), x64);
+        assertTrue(x64.contains("\"os\":\"linux\",\"arch\":\"x64\""), x64);
+
+        String aarch64 = get("/javaversions/catalog/linux-aarch64").body();
+        assertTrue(aarch64.contains("http://upstream/aarch64/jdk-21.0.2.zip"), aarch64);
+        assertFalse(aarch64.contains("/javaversions/files/"), aarch64);
+        assertTrue(aarch64.contains("\"arch\":\"aarch64\""), aarch64);
+    }
+
+    @Test
+    void servesAnArchiveOnlyForThePlatformItWasDownloadedFor() throws Exception {
+        HttpResponse<String> match = get("/javaversions/files/linux-x64/jdk-21.0.2.zip");
+        assertEquals(200, match.statusCode());
+        assertArrayEquals(archive, match.body().getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(404, get("/javaversions/files/linux-aarch64/jdk-21.0.2.zip").statusCode());
+        assertEquals(404, get("/javaversions/files/nonsense/jdk-21.0.2.zip").statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + mirror.getPort() + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void serve(FileHttpServer server) throws IOException {
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException ignored) {
+                // closed by the test
+            }
+        });
+    }
+}
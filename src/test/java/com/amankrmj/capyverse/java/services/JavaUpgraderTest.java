@@ -0,0 +1,188 @@
+package com.amankrmj.capyverse.java.services;
+
+import com.amankrmj.capyverse.common.services.ContentStore;
+import com.amankrmj.capyverse.common.services.FileHttpServer;
+import com.amankrmj.capyverse.common.services.FileManifest;
+import com.amankrmj.capyverse.common.services.ZipExtractor;
+import com.amankrmj.capyverse.common.utils.Sha256;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaUpgraderTest {
+    private static final byte[] MODULES = random(512 * 1024, 1);
+    private static final byte[] LAUNCHER = random(64 * 1024, 2);
+
+    @TempDir
+    Path dir;
+    private FileHttpServer server;
+    private Path served;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        served = Files.createDirectories(dir.resolve("served"));
+        server = new FileHttpServer().route("/", (request, response) -> {
+            Path file = served.resolve(request.path().substring(1));
+            if (Files.isRegularFile(file)) {
+                response.file(file, "application/octet-stream");
+            } else {
+                response.status(404, "Not Found");
+            }
+        });
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException ignored) {
+                // closed by the test
+            }
+        });
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void upgradeWithPublishedManifestFetchesOnlyChangedEntries() throws Exception {
+        InstalledJavaIndex.InstalledJdk from = install("21.0.1");
+        Path archive = archive("21.0.2");
+        JavaUpgrader.publishManifest(archive);
+        ContentStore store = new ContentStore(dir.resolve("store"));
+
+        JavaUpgrader.Plan plan = new JavaUpgrader(dir.resolve("java"), store, 4)
+                .plan(from, "21.0.2", url(archive), "catalog-sha");
+        JavaUpgrader.Result result = new JavaUpgrader(dir.resolve("staging"), store, 4).apply(plan, null);
+
+        assertTrue(plan.exact());
+        assertEquals(2, result.reusedFiles());
+        assertEquals(2, result.fetchedFiles());
+        // Reading stops at the last entry's data, before a trailing data descriptor
+        assertTrue(result.downloadedBytes() <= plan.fetchBytes());
+        assertTrue(result.downloadedBytes() > 1024, "downloaded " + result.downloadedBytes());
+        assertTrue(result.downloadedBytes() < Files.size(archive) / 10, "downloaded " + result.downloadedBytes());
+        assertEquals(freshInstall(archive), contents(result.home()));
+        Properties origin = JavaUpgrader.readOrigin(result.home());
+        assertNotNull(origin);
+        assertEquals("21.0.1", origin.getProperty("from"));
+        assertEquals("catalog-sha", origin.getProperty("archiveSha256"));
+        assertEquals("false", origin.getProperty("archiveVerified"));
+    }
+
+    @Test
+    void upgradeWithoutManifestConfirmsCandidatesByCrc() throws Exception {
+        InstalledJavaIndex.InstalledJdk from = install("21.0.1");
+        Path archive = archive("21.0.2");
+
+        JavaUpgrader.Plan plan = new JavaUpgrader(dir.resolve("java"), null, 4)
+                .plan(from, "21.0.2", url(archive), null);
+        JavaUpgrader.Result result = new JavaUpgrader(dir.resolve("staging"), null, 4).apply(plan, null);
+
+        assertFalse(plan.exact());
+        // release keeps its size across versions, so only its CRC-32 tells it apart
+        assertEquals(2, result.reusedFiles());
+        assertEquals(2, result.fetchedFiles());
+        assertTrue(result.downloadedBytes() < Files.size(archive) / 10, "downloaded " + result.downloadedBytes());
+        assertEquals(freshInstall(archive), contents(result.home()));
+    }
+
+    /**
+     * Extracts the archive of {@code version} the way an install does, manifest included.
+     */
+    private InstalledJavaIndex.InstalledJdk install(String version) throws IOException {
+        Path javaDir = dir.resolve("java");
+        ZipExtractor extractor = new ZipExtractor(archive(version), javaDir);
+        extractor.extract();
+        Path home = javaDir.resolve("jdk-" + version);
+        List<FileManifest.Item> items = new ArrayList<>();
+        for (FileManifest.Item item : extractor.getManifestItems()) {
+            items.add(new FileManifest.Item(item.sha256(), item.size(), item.path().substring(item.path().indexOf('/') + 1)));
+        }
+        FileManifest.write(home.resolve(FileManifest.FILE_NAME), items);
+        return new InstalledJavaIndex.InstalledJdk(version, home, "Test", "x64");
+    }
+
+    /**
+     * Two releases share the module image and launcher; the release file changes
+     * in place and 21.0.2 adds a file.
+     */
+    private Path archive(String version) throws IOException {
+        Path archive = served.resolve("jdk-" + version + ".zip");
+        if (Files.exists(archive)) {
+            return archive;
+        }
+        String root = "jdk-" + version + "/";
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.setLevel(0);
+            put(zip, root + "bin/java", LAUNCHER);
+            put(zip, root + "lib/modules", MODULES);
+            put(zip, root + "release", ("JAVA_VERSION=\"" + version + "\"\n").getBytes());
+            if (!version.equals("21.0.1")) {
+                put(zip, root + "lib/added.jar", random(1024, 3));
+            }
+        }
+        return archive;
+    }
+
+    private Map<String, String> freshInstall(Path archive) throws IOException {
+        Path target = dir.resolve("fresh");
+        new ZipExtractor(archive, target).extract();
+        try (Stream<Path> homes = Files.list(target)) {
+            return contents(homes.findFirst().orElseThrow());
+        }
+    }
+
+    /**
+     * SHA-256 of every file below {@code home} by relative path, without capy's own files.
+     */
+    private static Map<String, String> contents(Path home) throws IOException {
+        Map<String, String> contents = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(home)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = home.relativize(file).toString().replace('\\', '/');
+                if (!name.equals(FileManifest.FILE_NAME) && !name.equals(JavaUpgrader.ORIGIN_FILE)) {
+                    contents.put(name, Sha256.ofFile(file));
+                }
+            }
+        }
+        return contents;
+    }
+
+    private String url(Path archive) {
+        return "http://127.0.0.1:" + server.getPort() + "/" + archive.getFileName();
+    }
+
+    private static void put(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,58 @@
+package com.amankrmj.capyverse.java.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StagedInstallTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void stagesOutsideTheInstallDirectorySoTheIndexStaysTrusted() throws IOException {
+        Path javaDir = dir.resolve("lang").resolve("java");
+        Files.createDirectories(javaDir);
+        Path indexFile = dir.resolve("installed.idx");
+        InstalledJavaIndex index = new InstalledJavaIndex(javaDir, indexFile);
+        index.load();
+
+        try (StagedInstall staging = new StagedInstall(javaDir, "jdk-21.0.5")) {
+            assertFalse(staging.getDirectory().startsWith(javaDir));
+            Files.createDirectories(staging.getDirectory().resolve("jdk-21.0.5").resolve("bin"));
+            Path home = staging.commit();
+            // A stamp in the past, so that any later change to the directory shows
+            Files.setLastModifiedTime(javaDir, FileTime.fromMillis(1_000_000_000_000L));
+            index.record("21.0.5", home);
+        }
+
+        assertEquals(1_000_000_000_000L, Files.getLastModifiedTime(javaDir).toMillis());
+        assertFalse(Files.exists(dir.resolve("lang").resolve(StagedInstall.STAGING_DIR)));
+        try (var names = Files.list(javaDir)) {
+            assertEquals(1, names.count());
+        }
+        InstalledJavaIndex reloaded = new InstalledJavaIndex(javaDir, indexFile);
+        reloaded.load();
+        assertTrue(reloaded.contains("21.0.5"));
+    }
+
+    @Test
+    void anUncommittedInstallLeavesNothingBehind() throws IOException {
+        Path javaDir = dir.resolve("lang").resolve("java");
+        try (StagedInstall staging = new StagedInstall(javaDir, "jdk-21.0.5")) {
+            Files.createDirectories(staging.getDirectory().resolve("other-folder"));
+            assertThrows(IOException.class, staging::commit);
+        }
+
+        assertFalse(Files.exists(javaDir.resolve("jdk-21.0.5")));
+        assertFalse(Files.exists(dir.resolve("lang").resolve(StagedInstall.STAGING_DIR)));
+    }
+}